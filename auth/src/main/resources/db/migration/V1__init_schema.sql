@@ -0,0 +1,11 @@
+-- Исходная схема (та же, что раньше создавал Hibernate при ddl-auto: create-drop)
+
+CREATE SEQUENCE user_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE users (
+    id            BIGINT       NOT NULL,
+    password_hash VARCHAR(255) NOT NULL,
+    -- findByUsername и existsByUsername идут по индексу этого ограничения
+    username      VARCHAR(255) NOT NULL UNIQUE,
+    PRIMARY KEY (id)
+);
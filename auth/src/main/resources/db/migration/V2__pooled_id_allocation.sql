@@ -0,0 +1,2 @@
+-- ID пользователей выделяются блоками по 50 (см. User), как и в остальных микросервисах
+ALTER SEQUENCE user_seq INCREMENT BY 50;
@@ -0,0 +1,154 @@
+package com.vladmikhayl.commons.cache.nearcache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vladmikhayl.commons.data.replica.ReplicaReadScope;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Кэш внутри экземпляра микросервиса (near-cache), который сбрасывается на всех экземплярах сразу:
+// invalidate после коммита текущей транзакции сбрасывает значения у себя и рассылает инвалидацию остальным
+// (см. NearCacheManager). Значения сбрасываются по ключу инвалидации: например, все ответы Report
+// по одной привычке (за разные даты) сбрасываются по id привычки. Инвалидация не перебирает кэш: если ключ
+// инвалидации - сам ключ кэша, то сбрасывается этот ключ, а иначе ключи берутся из индекса keysByInvalidationKey.
+// Свежесть ограничена сверху: значение живет не дольше maxStaleness после загрузки.
+// Метрики Caffeine: cache.gets{cache, result=hit|miss}, cache.size, cache.evictions и т. д.
+public class NearCache<K, V> {
+
+    private static final int STRIPES = 1024;
+
+    private final String name;
+
+    private final Cache<K, V> cache;
+
+    private final Function<K, String> invalidationKey;
+
+    // Ключ кэша по ключу инвалидации, если это один и тот же ключ (иначе null, и используется индекс)
+    private final Function<String, K> keyOfInvalidationKey;
+
+    // Ключи кэша с каждым ключом инвалидации. Пополняется перед put, а ключи, вытесненные Caffeine
+    // (по размеру или по времени), удаляет из него evictionListener
+    private final Map<String, Set<K>> keysByInvalidationKey = new ConcurrentHashMap<>();
+
+    private final NearCacheManager manager;
+
+    // Счетчики инвалидаций (по хэшу ключа инвалидации): если во время загрузки значения пришла его
+    // инвалидация, то загруженное (возможно, уже старое) значение в кэше не остается
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    NearCache(
+            String name,
+            NearCacheProperties.Spec spec,
+            boolean enabled,
+            Function<K, String> invalidationKey,
+            Function<String, K> keyOfInvalidationKey,
+            NearCacheManager manager,
+            MeterRegistry meterRegistry
+    ) {
+        this.name = name;
+        this.cache = enabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(spec.getMaxSize())
+                        .expireAfterWrite(spec.getMaxStaleness())
+                        .<K, V>evictionListener((key, value, cause) -> unindex(key))
+                        .recordStats()
+                        .build()
+                : null;
+        this.invalidationKey = invalidationKey;
+        this.keyOfInvalidationKey = keyOfInvalidationKey;
+        this.manager = manager;
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        return get(key, loader, value -> true);
+    }
+
+    // Значения, для которых cacheable вернул false (например, ответ из кэша последних ответов, пока источник
+    // недоступен), и null не кэшируются
+    public V get(K key, Supplier<V> loader, Predicate<V> cacheable) {
+        if (cache == null) {
+            return loader.get();
+        }
+
+        V cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        int stripe = stripe(invalidationKey.apply(key));
+        long generation = generations.get(stripe);
+
+        // Значение загружается из основной БД (в том числе в других микросервисах): значение с отстающей реплики
+        // осталось бы в кэше, даже если его инвалидация уже пришла
+        V value = ReplicaReadScope.onPrimary(loader);
+
+        if (value != null && cacheable.test(value)) {
+            index(key);
+            cache.put(key, value);
+            // Инвалидация сначала увеличивает счетчик, а потом удаляет ключи, поэтому значение либо удалит
+            // она сама, либо (если она пришла между загрузкой и put) его удалит эта проверка
+            if (generations.get(stripe) != generation) {
+                cache.invalidate(key);
+                unindex(key);
+            }
+        }
+        return value;
+    }
+
+    // Сброс на всех экземплярах всех значений с этим ключом инвалидации
+    public void invalidate(Object invalidationKey) {
+        manager.invalidate(name, invalidationKey);
+    }
+
+    void evictLocally(String key) {
+        if (cache == null) {
+            return;
+        }
+        generations.incrementAndGet(stripe(key));
+        if (keyOfInvalidationKey != null) {
+            cache.invalidate(keyOfInvalidationKey.apply(key));
+            return;
+        }
+        Set<K> keys = keysByInvalidationKey.remove(key);
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void index(K key) {
+        if (keyOfInvalidationKey != null) {
+            return;
+        }
+        keysByInvalidationKey.computeIfAbsent(invalidationKey.apply(key), k -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    private void unindex(K key) {
+        if (keyOfInvalidationKey != null) {
+            return;
+        }
+        keysByInvalidationKey.computeIfPresent(invalidationKey.apply(key), (k, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static int stripe(String key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+
+}
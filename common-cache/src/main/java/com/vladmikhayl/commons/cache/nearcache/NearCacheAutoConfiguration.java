@@ -0,0 +1,43 @@
+package com.vladmikhayl.commons.cache.nearcache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Clock;
+
+// Near-cache с инвалидацией через Kafka (см. NearCacheManager) в микросервисах, где есть Kafka и Caffeine
+@AutoConfiguration(after = KafkaAutoConfiguration.class)
+@ConditionalOnClass({Caffeine.class, KafkaTemplate.class, MeterRegistry.class})
+@ConditionalOnBean(KafkaTemplate.class)
+@EnableConfigurationProperties(NearCacheProperties.class)
+public class NearCacheAutoConfiguration {
+
+    @Bean
+    public NearCacheManager nearCacheManager(
+            NearCacheProperties properties,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        return new NearCacheManager(
+                properties,
+                invalidation -> kafkaTemplate.send(properties.getTopic(), invalidation.cache(), invalidation),
+                meterRegistry.getIfAvailable(CompositeMeterRegistry::new),
+                Clock.systemUTC()
+        );
+    }
+
+    @Bean
+    public NearCacheInvalidationListener nearCacheInvalidationListener(NearCacheManager nearCacheManager) {
+        return new NearCacheInvalidationListener(nearCacheManager);
+    }
+
+}
@@ -0,0 +1,6 @@
+package com.vladmikhayl.commons.cache.nearcache;
+
+// Сообщение в broadcast-топике: в кэше cache нужно сбросить все значения с ключом инвалидации key.
+// origin - экземпляр, который его отправил (он сам свой кэш уже сбросил), sentAt - время отправки
+// в миллисекундах от эпохи (только для метрики задержки инвалидации)
+public record NearCacheInvalidation(String cache, String key, String origin, long sentAt) {}
@@ -0,0 +1,20 @@
+package com.vladmikhayl.commons.cache.nearcache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.kafka.annotation.KafkaListener;
+
+// У каждого экземпляра своя consumer group, поэтому каждая инвалидация доходит до всех экземпляров
+@RequiredArgsConstructor
+public class NearCacheInvalidationListener {
+
+    private final NearCacheManager nearCacheManager;
+
+    @KafkaListener(
+            topics = "${near-cache.topic:near-cache-invalidation}",
+            groupId = "near-cache-${random.uuid}"
+    )
+    public void listen(NearCacheInvalidation invalidation) {
+        nearCacheManager.onInvalidation(invalidation);
+    }
+
+}
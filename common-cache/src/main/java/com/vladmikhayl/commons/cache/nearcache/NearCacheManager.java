@@ -0,0 +1,131 @@
+package com.vladmikhayl.commons.cache.nearcache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Создает near-cache и рассылает их инвалидации. Экземпляр, который изменил данные, после коммита сбрасывает
+// их из своего кэша и отправляет инвалидацию в broadcast-топик; у каждого экземпляра своя consumer group,
+// поэтому ее получают все экземпляры всех микросервисов, и у кого есть кэш с таким именем, тот его сбрасывает.
+// Инвалидацию можно отправить и для кэша другого микросервиса (например, Report сбрасывает кэш своих
+// ответов в habit).
+// Метрики: near-cache.invalidations{cache, source=local|remote} и near-cache.invalidation.lag{cache} -
+// сколько прошло от отправки инвалидации до сброса на этом экземпляре (по часам разных машин, поэтому
+// при расхождении часов значение неточное)
+@Slf4j
+public class NearCacheManager {
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final NearCacheProperties properties;
+
+    private final Consumer<NearCacheInvalidation> publisher;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Clock clock;
+
+    private final Map<String, NearCache<?, ?>> caches = new ConcurrentHashMap<>();
+
+    public NearCacheManager(
+            NearCacheProperties properties,
+            Consumer<NearCacheInvalidation> publisher,
+            MeterRegistry meterRegistry,
+            Clock clock
+    ) {
+        this.properties = properties;
+        this.publisher = publisher;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    // Ключ кэша - ID (например, привычки), он же ключ инвалидации: инвалидация сбрасывает ровно этот ключ
+    public <V> NearCache<Long, V> create(String name) {
+        return register(new NearCache<>(name, properties.spec(name), properties.isEnabled(),
+                String::valueOf, Long::valueOf, this, meterRegistry));
+    }
+
+    // Ключ инвалидации вычисляется по ключу кэша, и одна инвалидация сбрасывает все ключи с ним
+    public <K, V> NearCache<K, V> create(String name, Function<K, String> invalidationKey) {
+        return register(new NearCache<>(name, properties.spec(name), properties.isEnabled(),
+                invalidationKey, null, this, meterRegistry));
+    }
+
+    private <K, V> NearCache<K, V> register(NearCache<K, V> cache) {
+        String name = cache.getName();
+        if (caches.putIfAbsent(name, cache) != null) {
+            throw new IllegalStateException("Near-cache " + name + " уже создан");
+        }
+        return cache;
+    }
+
+    // Если есть текущая транзакция, то только после ее коммита: иначе кэш может снова загрузить старое значение
+    public void invalidate(String cacheName, Object invalidationKey) {
+        String key = String.valueOf(invalidationKey);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictAndPublish(cacheName, key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictAndPublish(cacheName, key);
+            }
+        });
+    }
+
+    private void evictAndPublish(String cacheName, String key) {
+        NearCache<?, ?> cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.evictLocally(key);
+            invalidations(cacheName, "local").increment();
+        }
+
+        try {
+            publisher.accept(new NearCacheInvalidation(cacheName, key, instanceId, clock.millis()));
+        } catch (RuntimeException e) {
+            // Остальные экземпляры сбросят значение не позже, чем через maxStaleness
+            log.warn("Не удалось отправить инвалидацию near-cache {} (ключ {})", cacheName, key, e);
+        }
+    }
+
+    public void onInvalidation(NearCacheInvalidation invalidation) {
+        if (instanceId.equals(invalidation.origin())) {
+            return;
+        }
+
+        NearCache<?, ?> cache = caches.get(invalidation.cache());
+        if (cache == null) {
+            return;
+        }
+
+        cache.evictLocally(invalidation.key());
+        invalidations(invalidation.cache(), "remote").increment();
+        Timer.builder("near-cache.invalidation.lag")
+                .description("Время от отправки инвалидации до сброса значений на этом экземпляре")
+                .tag("cache", invalidation.cache())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(Duration.ofMillis(Math.max(0, clock.millis() - invalidation.sentAt())));
+    }
+
+    private Counter invalidations(String cacheName, String source) {
+        return Counter.builder("near-cache.invalidations")
+                .tag("cache", cacheName)
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+}
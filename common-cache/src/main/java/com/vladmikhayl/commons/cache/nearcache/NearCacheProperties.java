@@ -0,0 +1,59 @@
+package com.vladmikhayl.commons.cache.nearcache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Настройки near-cache (префикс near-cache)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "near-cache")
+public class NearCacheProperties {
+
+    // Если false, то кэши ничего не хранят (каждый get идет в источник), а инвалидации все равно рассылаются
+    private boolean enabled = true;
+
+    // Broadcast-топик с инвалидациями, общий для всех микросервисов
+    private String topic = "near-cache-invalidation";
+
+    // Настройки по умолчанию; у отдельных кэшей (по их именам) можно переопределить любую из них
+    private Spec defaults = new Spec(10_000L, Duration.ofMinutes(1));
+
+    private Map<String, Spec> caches = new LinkedHashMap<>();
+
+    public Spec spec(String cacheName) {
+        Spec spec = caches.get(cacheName);
+        if (spec == null) {
+            return defaults;
+        }
+        return new Spec(
+                spec.getMaxSize() != null ? spec.getMaxSize() : defaults.getMaxSize(),
+                spec.getMaxStaleness() != null ? spec.getMaxStaleness() : defaults.getMaxStaleness()
+        );
+    }
+
+    @Getter
+    @Setter
+    public static class Spec {
+
+        private Long maxSize;
+
+        // Гарантия свежести: значение отдается из кэша не дольше этого времени после загрузки, даже если
+        // инвалидация до экземпляра не дошла (Kafka недоступна, consumer еще не подключился к топику и т. п.)
+        private Duration maxStaleness;
+
+        public Spec() {
+        }
+
+        public Spec(Long maxSize, Duration maxStaleness) {
+            this.maxSize = maxSize;
+            this.maxStaleness = maxStaleness;
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.vladmikhayl.commons.cache.nearcache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearCacheTest {
+
+    private static final Instant NOW = Instant.parse("2025-05-01T10:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<NearCacheInvalidation> published = new ArrayList<>();
+
+    private final NearCacheManager underTest = new NearCacheManager(
+            new NearCacheProperties(), published::add, meterRegistry, Clock.fixed(NOW, ZoneId.of("UTC")));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void returnsCachedValueWithoutCallingLoaderAgain() {
+        NearCache<Long, Integer> cache = underTest.create("subscribers-count");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.get(1L, () -> loads.incrementAndGet() * 10)).isEqualTo(10);
+        assertThat(cache.get(1L, () -> loads.incrementAndGet() * 10)).isEqualTo(10);
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "subscribers-count").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateEvictsAllValuesWithSameInvalidationKeyAndPublishesIt() {
+        NearCache<String, Integer> cache = underTest.create("report-status", key -> key.split(":")[0]);
+        cache.get("1:2025-05-01", () -> 1);
+        cache.get("1:2025-04-30", () -> 2);
+        cache.get("2:2025-05-01", () -> 3);
+
+        cache.invalidate(1L);
+
+        assertThat(cache.get("1:2025-05-01", () -> 10)).isEqualTo(10);
+        assertThat(cache.get("1:2025-04-30", () -> 20)).isEqualTo(20);
+        assertThat(cache.get("2:2025-05-01", () -> 30)).isEqualTo(3);
+        assertThat(published).singleElement().satisfies(invalidation -> {
+            assertThat(invalidation.cache()).isEqualTo("report-status");
+            assertThat(invalidation.key()).isEqualTo("1");
+            assertThat(invalidation.sentAt()).isEqualTo(NOW.toEpochMilli());
+        });
+    }
+
+    @Test
+    void valuesLoadedAfterInvalidationAreInvalidatedByTheNextOne() {
+        NearCache<String, Integer> cache = underTest.create("report-status", key -> key.split(":")[0]);
+        cache.get("1:2025-05-01", () -> 1);
+        cache.invalidate(1L);
+        cache.get("1:2025-05-01", () -> 2);
+
+        underTest.onInvalidation(new NearCacheInvalidation("report-status", "1", "other-instance", NOW.toEpochMilli()));
+
+        assertThat(cache.get("1:2025-05-01", () -> 3)).isEqualTo(3);
+    }
+
+    @Test
+    void remoteInvalidationEvictsValueAndRecordsLag() {
+        NearCache<Long, Integer> cache = underTest.create("subscribers-count");
+        cache.get(1L, () -> 5);
+
+        underTest.onInvalidation(
+                new NearCacheInvalidation("subscribers-count", "1", "other-instance", NOW.toEpochMilli() - 40));
+
+        assertThat(cache.get(1L, () -> 6)).isEqualTo(6);
+        assertThat(meterRegistry.get("near-cache.invalidation.lag").tag("cache", "subscribers-count").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isEqualTo(40);
+    }
+
+    @Test
+    void ignoresOwnInvalidationsAndInvalidationsOfUnknownCaches() {
+        NearCache<Long, Integer> cache = underTest.create("subscribers-count");
+        cache.invalidate(1L);
+        cache.get(1L, () -> 5);
+
+        underTest.onInvalidation(published.get(0));
+        underTest.onInvalidation(new NearCacheInvalidation("report-status", "1", "other-instance", NOW.toEpochMilli()));
+
+        assertThat(cache.get(1L, () -> 6)).isEqualTo(5);
+    }
+
+    @Test
+    void doesNotKeepValueLoadedConcurrentlyWithInvalidation() {
+        NearCache<Long, Integer> cache = underTest.create("subscribers-count");
+
+        // Пока значение загружалось (уже старое), другой экземпляр изменил данные
+        Integer loaded = cache.get(1L, () -> {
+            underTest.onInvalidation(
+                    new NearCacheInvalidation("subscribers-count", "1", "other-instance", NOW.toEpochMilli()));
+            return 5;
+        });
+
+        assertThat(loaded).isEqualTo(5);
+        assertThat(cache.get(1L, () -> 6)).isEqualTo(6);
+    }
+
+    @Test
+    void doesNotCacheValuesRejectedByPredicate() {
+        NearCache<Long, Integer> cache = underTest.create("subscribers-count");
+
+        cache.get(1L, () -> -1, value -> value >= 0);
+
+        assertThat(cache.get(1L, () -> 5)).isEqualTo(5);
+    }
+
+    @Test
+    void invalidatesOnlyAfterCommitOfCurrentTransaction() {
+        NearCache<Long, Integer> cache = underTest.create("subscribers-count");
+        cache.get(1L, () -> 5);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.invalidate(1L);
+
+        assertThat(cache.get(1L, () -> 6)).isEqualTo(5);
+        assertThat(published).isEmpty();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(cache.get(1L, () -> 6)).isEqualTo(6);
+        assertThat(published).hasSize(1);
+    }
+
+    @Test
+    void disabledCacheAlwaysCallsLoader() {
+        NearCacheProperties properties = new NearCacheProperties();
+        properties.setEnabled(false);
+        NearCache<Long, Integer> cache = new NearCacheManager(properties, published::add, meterRegistry,
+                Clock.systemUTC()).create("subscribers-count");
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, loads::incrementAndGet);
+        cache.get(1L, loads::incrementAndGet);
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+}
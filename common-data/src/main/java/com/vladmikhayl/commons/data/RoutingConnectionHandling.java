@@ -0,0 +1,21 @@
+package com.vladmikhayl.commons.data;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+
+// БД для соединения маршрутизаторы (ReplicaRoutingDataSource, ShardRoutingDataSource) выбирают в момент его
+// получения. По умолчанию Spring настраивает Hibernate держать соединение до закрытия сессии, а с
+// spring.jpa.open-in-view сессия живет весь запрос: все транзакции запроса после первой шли бы в ту же БД
+// (запись после чтения - в read-only реплику, чтение привычки другого пользователя - в шард первого запроса).
+// Поэтому при маршрутизации соединение возвращается в пул после каждой транзакции, а сессия и ленивая загрузка
+// в ней по-прежнему работают до конца запроса
+public final class RoutingConnectionHandling {
+
+    private RoutingConnectionHandling() {
+    }
+
+    public static HibernatePropertiesCustomizer releaseAfterTransaction() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.vladmikhayl.commons.data.replica;
+
+import com.vladmikhayl.commons.data.RoutingConnectionHandling;
+import com.zaxxer.hikari.HikariDataSource;
+import feign.RequestInterceptor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Чтение с реплики (см. ReplicaRoutingDataSource) в микросервисах с JPA. Включается, когда задан read-replica.url:
+// тогда вместо пула из DataSourceAutoConfiguration создаются два пула, основной (spring.datasource.hikari)
+// и реплики (read-replica.hikari), а основным DataSource становится маршрутизатор между ними.
+// Flyway, проверка схемы Hibernate и все, что работает вне запросов, по-прежнему идут в основную БД.
+// Заголовки для выбора БД передаются Feign-клиентами всегда: реплика может быть у вызываемого микросервиса,
+// даже если ее нет у вызывающего
+@AutoConfiguration(before = DataSourceAutoConfiguration.class)
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaAutoConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass({HikariDataSource.class, MeterRegistry.class})
+    @ConditionalOnProperty(prefix = "read-replica", name = "url")
+    @EnableConfigurationProperties(DataSourceProperties.class)
+    static class ReadReplicaDataSourceConfiguration {
+
+        @Bean
+        @ConfigurationProperties(prefix = "spring.datasource.hikari")
+        public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            dataSource.setPoolName("primary");
+            return dataSource;
+        }
+
+        @Bean
+        @ConfigurationProperties(prefix = "read-replica.hikari")
+        public HikariDataSource replicaDataSource(
+                DataSourceProperties primaryProperties,
+                ReadReplicaProperties properties
+        ) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica");
+            dataSource.setJdbcUrl(properties.getUrl());
+            dataSource.setUsername(properties.getUsername() != null
+                    ? properties.getUsername() : primaryProperties.determineUsername());
+            dataSource.setPassword(properties.getPassword() != null
+                    ? properties.getPassword() : primaryProperties.determinePassword());
+            dataSource.setDriverClassName(primaryProperties.determineDriverClassName());
+            // Если в реплику по ошибке попадет запись, то она упадет сразу, а не на следующей синхронизации
+            dataSource.setReadOnly(true);
+            return dataSource;
+        }
+
+        @Bean
+        public ReplicaLagMonitor replicaLagMonitor(
+                @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                ReadReplicaProperties properties,
+                ObjectProvider<MeterRegistry> meterRegistry
+        ) {
+            ReplicaLagMonitor monitor = new ReplicaLagMonitor(
+                    new JdbcTemplate(replicaDataSource),
+                    properties.getMaxLag(),
+                    properties.getLagCheckInterval(),
+                    System::nanoTime
+            );
+            Gauge.builder("read-replica.lag", monitor, ReplicaLagMonitor::getLagMillis)
+                    .description("Replica lag behind the primary in milliseconds, -1 when unknown")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry.getIfAvailable(CompositeMeterRegistry::new));
+            return monitor;
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(
+                @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                ReplicaLagMonitor replicaLagMonitor,
+                ObjectProvider<MeterRegistry> meterRegistry
+        ) {
+            ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(
+                    primaryDataSource,
+                    replicaDataSource,
+                    replicaLagMonitor,
+                    meterRegistry.getIfAvailable(CompositeMeterRegistry::new)
+            );
+            return new LazyConnectionDataSourceProxy(routingDataSource);
+        }
+
+        @Bean
+        public HibernatePropertiesCustomizer replicaConnectionHandling() {
+            return RoutingConnectionHandling.releaseAfterTransaction();
+        }
+
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+        static class ReadReplicaFilterConfiguration {
+
+            @Bean
+            public FilterRegistrationBean<ReadReplicaFilter> readReplicaFilter(ReadReplicaProperties properties) {
+                FilterRegistrationBean<ReadReplicaFilter> registration = new FilterRegistrationBean<>(new ReadReplicaFilter(
+                        properties.getUserHeader(),
+                        new ReadYourWrites(properties.getReadYourWritesWindow())
+                ));
+                registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+                return registration;
+            }
+
+        }
+
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(RequestInterceptor.class)
+    static class ReadReplicaFeignConfiguration {
+
+        @Bean
+        public ReadReplicaRequestInterceptor readReplicaRequestInterceptor(ReadReplicaProperties properties) {
+            return new ReadReplicaRequestInterceptor(properties.getUserHeader());
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.vladmikhayl.commons.data.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Открывает ReplicaReadScope на время обработки запроса: только в нем read-only транзакции могут идти в реплику.
+// После первой записи в запросе ставит в ответ cookie ReadYourWrites
+public class ReadReplicaFilter extends OncePerRequestFilter {
+
+    private final String userHeader;
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadReplicaFilter(String userHeader, ReadYourWrites readYourWrites) {
+        this.userHeader = userHeader;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        AtomicBoolean written = new AtomicBoolean();
+        ReplicaReadScope.enter(
+                request.getHeader(userHeader),
+                Boolean.parseBoolean(request.getHeader(ReplicaReadScope.PRIMARY_HEADER)),
+                readYourWrites.isPinned(request),
+                () -> {
+                    if (written.compareAndSet(false, true)) {
+                        readYourWrites.markWrite(response);
+                    }
+                }
+        );
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaReadScope.exit();
+        }
+    }
+
+}
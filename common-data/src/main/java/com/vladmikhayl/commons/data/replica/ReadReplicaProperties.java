@@ -0,0 +1,37 @@
+package com.vladmikhayl.commons.data.replica;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки чтения с реплики (префикс read-replica). Пока не задан url, все запросы идут в основную БД,
+// а пул реплики настраивается так же, как основной, но под префиксом read-replica.hikari
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "read-replica")
+public class ReadReplicaProperties {
+
+    private String url;
+
+    // Если не заданы, то берутся из spring.datasource
+    private String username;
+
+    private String password;
+
+    // Если реплика отстает от основной БД сильнее, то все чтения идут в основную, пока реплика не догонит
+    private Duration maxLag = Duration.ofSeconds(1);
+
+    // Как часто проверяется отставание реплики. Если проверка не удавалась дольше трех интервалов
+    // (реплика недоступна), то реплика тоже не используется
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    // Сколько после своей записи пользователь читает только из основной БД, чтобы сразу видеть то, что записал
+    // (срок жизни cookie ReadYourWrites). Должно быть заметно больше maxLag
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    // Заголовок с ID пользователя (его выставляет JwtTokenFilter в gateway)
+    private String userHeader = "X-User-Id";
+
+}
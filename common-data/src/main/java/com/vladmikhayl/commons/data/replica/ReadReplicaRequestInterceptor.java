@@ -0,0 +1,28 @@
+package com.vladmikhayl.commons.data.replica;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+
+// Передает в вызываемый микросервис то, что нужно ему для выбора БД: ID пользователя и требование читать
+// из основной БД - при загрузке значений в кэши (см. ReplicaReadScope.onPrimary) и когда пользователь
+// недавно что-то записал (см. ReadYourWrites)
+public class ReadReplicaRequestInterceptor implements RequestInterceptor {
+
+    private final String userHeader;
+
+    public ReadReplicaRequestInterceptor(String userHeader) {
+        this.userHeader = userHeader;
+    }
+
+    @Override
+    public void apply(RequestTemplate template) {
+        String userId = ReplicaReadScope.currentUser();
+        if (userId != null && !template.headers().containsKey(userHeader)) {
+            template.header(userHeader, userId);
+        }
+        if (ReplicaReadScope.isPrimaryOnly() || ReplicaReadScope.isPinned()) {
+            template.header(ReplicaReadScope.PRIMARY_HEADER, "true");
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.vladmikhayl.commons.data.replica;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+
+import java.time.Duration;
+
+// Признак "пользователь только что что-то записал" передается вместе с запросами, а не хранится в экземпляре:
+// после записи микросервис ставит в ответ cookie read-primary на window, браузер возвращает ее со всеми
+// следующими запросами, а gateway передает ее в любой экземпляр любого микросервиса. Пока она есть, чтения
+// запроса идут в основную БД, и вызываемые микросервисы получают то же требование (X-Read-Primary). Иначе,
+// например, только что созданный отчет мог бы не попасть в статистику, если следующий запрос ушел на другой
+// экземпляр, а реплика отчет еще не получила.
+// Клиенты, которые не хранят cookie, свои записи могут увидеть с задержкой до read-replica.max-lag
+public class ReadYourWrites {
+
+    public static final String COOKIE = "read-primary";
+
+    private final Duration window;
+
+    public ReadYourWrites(Duration window) {
+        this.window = window;
+    }
+
+    public boolean isPinned(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Вызывается после коммита записи, то есть до того, как контроллер начнет писать ответ.
+    // Срок жизни cookie отсчитывает браузер, поэтому часы разных машин сравнивать не нужно
+    public void markWrite(HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+        ResponseCookie cookie = ResponseCookie.from(COOKIE, "1")
+                .maxAge(window)
+                .path("/")
+                .httpOnly(true)
+                .sameSite("Lax")
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+}
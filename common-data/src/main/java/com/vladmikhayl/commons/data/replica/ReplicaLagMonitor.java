@@ -0,0 +1,107 @@
+package com.vladmikhayl.commons.data.replica;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Периодически проверяет, насколько реплика отстает от основной БД. Отставание считается по времени последней
+// примененной транзакции, но только пока реплика не применила все полученные изменения: если основная БД
+// ничего не пишет, то реплика не отстает, хотя последняя транзакция может быть сколь угодно старой.
+// Обычный Postgres (не в режиме реплики) считается не отстающим, так что вторым контейнером для локальной
+// проверки может быть и независимая БД
+@Slf4j
+public class ReplicaLagMonitor implements SmartLifecycle {
+
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+            END
+            """;
+
+    private final JdbcTemplate replicaJdbcTemplate;
+
+    private final long maxLagMillis;
+
+    private final Duration checkInterval;
+
+    private final LongSupplier nanoTime;
+
+    // Отставание по последней успешной проверке (-1, если проверок еще не было)
+    private volatile long lagMillis = -1;
+
+    private volatile long checkedAtNanos;
+
+    private ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(
+            JdbcTemplate replicaJdbcTemplate,
+            Duration maxLag,
+            Duration checkInterval,
+            LongSupplier nanoTime
+    ) {
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkInterval = checkInterval;
+        this.nanoTime = nanoTime;
+    }
+
+    public void check() {
+        try {
+            Number lag = replicaJdbcTemplate.queryForObject(LAG_SQL, Number.class);
+            lagMillis = lag == null ? 0 : lag.longValue();
+            checkedAtNanos = nanoTime.getAsLong();
+            if (lagMillis > maxLagMillis) {
+                log.warn("Реплика отстает на {} мс, чтения идут в основную БД", lagMillis);
+            }
+        } catch (DataAccessException e) {
+            // Результат прошлой проверки устареет сам, и реплика перестанет использоваться
+            log.warn("Не удалось проверить отставание реплики: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        if (lagMillis < 0 || lagMillis > maxLagMillis) {
+            return false;
+        }
+        return nanoTime.getAsLong() - checkedAtNanos <= 3 * checkInterval.toNanos();
+    }
+
+    // Для метрики: -1, если отставание неизвестно или результат проверки устарел
+    public long getLagMillis() {
+        if (lagMillis < 0 || nanoTime.getAsLong() - checkedAtNanos > 3 * checkInterval.toNanos()) {
+            return -1;
+        }
+        return lagMillis;
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.vladmikhayl.commons.data.replica;
+
+import java.util.function.Supplier;
+
+// Что известно о текущем запросе для выбора БД (его открывает ReadReplicaFilter). Реплика используется только
+// внутри запросов: слушатели Kafka и фоновые задачи часто читают то, что только что записали сами или другой
+// экземпляр, поэтому они всегда работают с основной БД
+public final class ReplicaReadScope {
+
+    // Заголовок, с которым вызываемый микросервис тоже читает только из основной БД (см. onPrimary)
+    public static final String PRIMARY_HEADER = "X-Read-Primary";
+
+    private static final ThreadLocal<State> CURRENT = new ThreadLocal<>();
+
+    private ReplicaReadScope() {
+    }
+
+    public static void enter(String userId, boolean primaryOnly) {
+        enter(userId, primaryOnly, false, null);
+    }
+
+    // pinned - пользователь недавно что-то записал (см. ReadYourWrites), onWrite вызывается после коммита
+    // каждой записи в этом запросе
+    public static void enter(String userId, boolean primaryOnly, boolean pinned, Runnable onWrite) {
+        CURRENT.set(new State(true, userId == null || userId.isBlank() ? null : userId, primaryOnly, pinned, onWrite));
+    }
+
+    public static void exit() {
+        CURRENT.remove();
+    }
+
+    public static boolean isActive() {
+        State state = CURRENT.get();
+        return state != null && state.inRequest();
+    }
+
+    // null, если поток не обрабатывает запрос или в запросе нет пользователя
+    public static String currentUser() {
+        State state = CURRENT.get();
+        return state == null ? null : state.userId();
+    }
+
+    public static boolean isPrimaryOnly() {
+        State state = CURRENT.get();
+        return state != null && state.primaryOnly();
+    }
+
+    public static boolean isPinned() {
+        State state = CURRENT.get();
+        return state != null && state.pinned();
+    }
+
+    // null, если поток не обрабатывает запрос
+    static Runnable writeListener() {
+        State state = CURRENT.get();
+        return state == null ? null : state.onWrite();
+    }
+
+    // Выполняет задачу так, что все соединения, взятые внутри нее, идут в основную БД, а вызовы других
+    // микросервисов передают им то же требование. Нужно там, где прочитанное запоминается надолго (загрузка
+    // значений в кэши): значение с отстающей реплики пережило бы инвалидацию, которая пришла раньше него.
+    // Если транзакция уже читает из реплики, то ее соединение не меняется
+    public static <T> T onPrimary(Supplier<T> task) {
+        State previous = CURRENT.get();
+        CURRENT.set(previous == null
+                ? new State(false, null, true, false, null)
+                : new State(previous.inRequest(), previous.userId(), true, previous.pinned(), previous.onWrite()));
+        try {
+            return task.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    // Оборачивает задачу так, чтобы в другом потоке (например, в пуле при параллельной обработке)
+    // она выбирала БД так же, как текущий запрос
+    public static Runnable propagate(Runnable task) {
+        State state = CURRENT.get();
+        if (state == null) {
+            return task;
+        }
+        return () -> {
+            State previous = CURRENT.get();
+            CURRENT.set(state);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    private record State(boolean inRequest, String userId, boolean primaryOnly, boolean pinned, Runnable onWrite) {
+    }
+
+}
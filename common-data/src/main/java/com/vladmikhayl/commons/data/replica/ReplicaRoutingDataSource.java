@@ -0,0 +1,99 @@
+package com.vladmikhayl.commons.data.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Отдает соединения то с основной БД, то с реплики. В реплику идут только read-only транзакции
+// (@Transactional(readOnly = true) у методов сервисов, а также чтения Spring Data репозиториев вне транзакций
+// сервисов) внутри запросов (см. ReplicaReadScope), и только если:
+// - чтение не требует свежих данных (см. ReplicaReadScope.onPrimary);
+// - пользователь недавно ничего не записывал (см. ReadYourWrites);
+// - реплика отстает не больше чем на read-replica.max-lag (см. ReplicaLagMonitor).
+// Все остальное идет в основную БД. Решение принимается при получении соединения, поэтому этот DataSource
+// должен быть обернут в LazyConnectionDataSourceProxy: иначе JpaTransactionManager берет соединение раньше,
+// чем транзакция помечается как read-only. По той же причине после каждой транзакции соединение возвращается в пул
+// (см. RoutingConnectionHandling)
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final Counter replicaReads;
+
+    private final Counter pinnedReads;
+
+    private final Counter laggingReads;
+
+    public ReplicaRoutingDataSource(
+            DataSource primary,
+            DataSource replica,
+            ReplicaLagMonitor lagMonitor,
+            MeterRegistry meterRegistry
+    ) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        replicaReads = readsCounter(meterRegistry, "replica", "ok");
+        pinnedReads = readsCounter(meterRegistry, "primary", "read-your-writes");
+        laggingReads = readsCounter(meterRegistry, "primary", "lag");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!ReplicaReadScope.isActive()) {
+            return Target.PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWriteAfterCommit();
+            return Target.PRIMARY;
+        }
+        if (ReplicaReadScope.isPrimaryOnly()) {
+            return Target.PRIMARY;
+        }
+        if (ReplicaReadScope.isPinned()) {
+            pinnedReads.increment();
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            laggingReads.increment();
+            return Target.PRIMARY;
+        }
+        replicaReads.increment();
+        return Target.REPLICA;
+    }
+
+    private void rememberWriteAfterCommit() {
+        Runnable onWrite = ReplicaReadScope.writeListener();
+        if (onWrite == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        // Окно отсчитывается от коммита: до него записанного все равно не видно даже в основной БД
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onWrite.run();
+            }
+        });
+    }
+
+    private static Counter readsCounter(MeterRegistry meterRegistry, String target, String reason) {
+        return Counter.builder("read-replica.reads")
+                .description("Read-only transactions by the database they were sent to")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+}
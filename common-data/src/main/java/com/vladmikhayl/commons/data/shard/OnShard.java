@@ -0,0 +1,20 @@
+package com.vladmikhayl.commons.data.shard;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Метод целиком (вместе с его транзакцией) выполняется на шарде владельца данных. Задается ровно одно
+// SpEL-выражение над параметрами метода: user - ID пользователя-владельца (число или строка с числом,
+// например "#userId"), entity - ID сущности из каталога ShardDirectory (например, "#habitId" или
+// "#event.habitId()"). Если значение не удалось получить, то метод выполняется на основном шарде
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OnShard {
+
+    String user() default "";
+
+    String entity() default "";
+
+}
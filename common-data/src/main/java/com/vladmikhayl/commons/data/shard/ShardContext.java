@@ -0,0 +1,57 @@
+package com.vladmikhayl.commons.data.shard;
+
+import java.util.function.Supplier;
+
+// Шард, с которым работает текущий поток (его выбирают ShardRouter и @OnShard). Соединение берется с этого шарда
+// при первом запросе транзакции или операции репозитория вне транзакции, поэтому шард выбирается до их начала.
+// Пока шард не выбран, все идет в основной шард
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    // null, если шард не выбран
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T on(String shard, Supplier<T> task) {
+        String previous = switchTo(shard);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    // Оборачивает задачу так, чтобы в другом потоке (например, в пуле при параллельной обработке)
+    // она работала с тем же шардом, что и текущий поток
+    public static Runnable propagate(Runnable task) {
+        String shard = CURRENT.get();
+        if (shard == null) {
+            return task;
+        }
+        return () -> on(shard, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    // Возвращает шард, который был выбран до этого (его нужно вернуть через restore)
+    static String switchTo(String shard) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+}
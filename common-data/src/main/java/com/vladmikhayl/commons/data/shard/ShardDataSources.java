@@ -0,0 +1,36 @@
+package com.vladmikhayl.commons.data.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Пулы соединений дополнительных шардов (пул основного - отдельный бин mainDataSource), в порядке из настроек
+public class ShardDataSources implements AutoCloseable {
+
+    private final Map<String, HikariDataSource> dataSources;
+
+    public ShardDataSources(Map<String, HikariDataSource> dataSources) {
+        this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(dataSources));
+    }
+
+    public Map<String, DataSource> additional() {
+        return Collections.unmodifiableMap(dataSources);
+    }
+
+    // Основной шард первым, затем дополнительные
+    public Map<String, DataSource> withMain(DataSource main) {
+        Map<String, DataSource> all = new LinkedHashMap<>();
+        all.put(ShardingProperties.MAIN_SHARD, main);
+        all.putAll(dataSources);
+        return all;
+    }
+
+    @Override
+    public void close() {
+        dataSources.values().forEach(HikariDataSource::close);
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.vladmikhayl.commons.data.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Каталог сущностей (например, привычек): кто владелец каждой из них. Нужен операциям, которые знают только ID
+// сущности (запросы подписчиков, внутренние запросы между микросервисами, слушатели Kafka): по владельцу
+// через ShardMap находится шард. Хранится владелец, а не шард, поэтому при переносе пользователей каталог
+// не меняется. Вместе с владельцем хранится его бакет, чтобы перенос бакетов выбирал только их пользователей.
+// Таблица shard_directory лежит в основной БД, а владелец сущности не меняется никогда,
+// поэтому найденные значения запоминаются без срока
+public class ShardDirectory {
+
+    private static final int MAX_CACHED = 100_000;
+
+    private final JdbcTemplate mainJdbcTemplate;
+
+    private final Map<Long, Long> owners = new ConcurrentHashMap<>();
+
+    public ShardDirectory(JdbcTemplate mainJdbcTemplate) {
+        this.mainJdbcTemplate = mainJdbcTemplate;
+    }
+
+    // Повторная регистрация той же сущности ничего не меняет
+    public void register(Long entityId, Long userId, int bucket) {
+        mainJdbcTemplate.update("""
+                INSERT INTO shard_directory (entity_id, user_id, bucket) VALUES (?, ?, ?)
+                ON CONFLICT (entity_id) DO NOTHING
+                """, entityId, userId, bucket);
+        remember(entityId, userId);
+    }
+
+    public void remove(Long entityId) {
+        mainJdbcTemplate.update("DELETE FROM shard_directory WHERE entity_id = ?", entityId);
+        owners.remove(entityId);
+    }
+
+    public Optional<Long> ownerOf(Long entityId) {
+        Long cached = owners.get(entityId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        List<Long> found = mainJdbcTemplate.queryForList(
+                "SELECT user_id FROM shard_directory WHERE entity_id = ?", Long.class, entityId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        remember(entityId, found.get(0));
+        return Optional.of(found.get(0));
+    }
+
+    // Владельцы сразу нескольких сущностей одним запросом (для тех, что не запомнены). Сущностей без записи
+    // в каталоге в результате нет
+    public Map<Long, Long> ownersOf(Collection<Long> entityIds) {
+        Map<Long, Long> result = new HashMap<>();
+        List<Long> missing = entityIds.stream()
+                .filter(entityId -> {
+                    Long cached = owners.get(entityId);
+                    if (cached != null) {
+                        result.put(entityId, cached);
+                        return false;
+                    }
+                    return true;
+                })
+                .toList();
+        if (!missing.isEmpty()) {
+            mainJdbcTemplate.query(
+                    "SELECT entity_id, user_id FROM shard_directory WHERE entity_id = ANY(?)",
+                    rs -> {
+                        long entityId = rs.getLong("entity_id");
+                        long userId = rs.getLong("user_id");
+                        result.put(entityId, userId);
+                        remember(entityId, userId);
+                    },
+                    (Object) missing.toArray(Long[]::new));
+        }
+        return result;
+    }
+
+    // Сущности пользователей (для переноса их строк на другой шард)
+    public List<Long> entitiesOf(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        return mainJdbcTemplate.queryForList(
+                "SELECT entity_id FROM shard_directory WHERE user_id = ANY(?)",
+                Long.class, (Object) userIds.toArray(Long[]::new));
+    }
+
+    // Пользователи бакетов (по индексу на bucket, без просмотра всего каталога)
+    public List<Long> usersOfBuckets(Collection<Integer> buckets) {
+        return mainJdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM shard_directory WHERE bucket = ANY(?)",
+                Long.class, (Object) buckets.toArray(Integer[]::new));
+    }
+
+    // Записи, созданные до появления колонки bucket, получают бакет перед переносом (см. ShardSplitter)
+    public List<Long> usersWithoutBucket(int limit) {
+        return mainJdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM shard_directory WHERE bucket IS NULL LIMIT ?", Long.class, limit);
+    }
+
+    public void assignBuckets(Map<Long, Integer> bucketsOfUsers) {
+        mainJdbcTemplate.batchUpdate(
+                "UPDATE shard_directory SET bucket = ? WHERE user_id = ? AND bucket IS NULL",
+                bucketsOfUsers.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                        .toList());
+    }
+
+    private void remember(Long entityId, Long userId) {
+        if (owners.size() >= MAX_CACHED) {
+            owners.clear();
+        }
+        owners.put(entityId, userId);
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.vladmikhayl.commons.data.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Какой шард хранит данные каждого бакета пользователей. Бакет пользователя вычисляется по его ID и не меняется
+// никогда, а шард бакета хранится в таблице shard_buckets основной БД (бакетов без строки там - в основном шарде).
+// Каждый экземпляр держит копию карты и перечитывает ее раз в refreshInterval. Пока бакет переносится
+// на другой шард (frozen), операции его пользователей получают 503 (см. ShardRouter)
+@Slf4j
+public class ShardMap implements SmartLifecycle {
+
+    private final JdbcTemplate mainJdbcTemplate;
+
+    private final int buckets;
+
+    private final Duration refreshInterval;
+
+    private volatile Snapshot snapshot;
+
+    private ScheduledExecutorService scheduler;
+
+    public ShardMap(JdbcTemplate mainJdbcTemplate, int buckets, Duration refreshInterval) {
+        this.mainJdbcTemplate = mainJdbcTemplate;
+        this.buckets = buckets;
+        this.refreshInterval = refreshInterval;
+        String[] shards = new String[buckets];
+        Arrays.fill(shards, ShardingProperties.MAIN_SHARD);
+        this.snapshot = new Snapshot(shards, new boolean[buckets]);
+    }
+
+    // Перемешивание битов (финализатор MurmurHash3), чтобы соседние ID пользователей попадали в разные бакеты.
+    // Результат не должен меняться между версиями: по нему уже разложены данные
+    public static int bucketOf(long userId, int buckets) {
+        long hash = userId;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) buckets);
+    }
+
+    public int bucketOf(long userId) {
+        return bucketOf(userId, buckets);
+    }
+
+    public String shardOf(int bucket) {
+        return snapshot.shards()[bucket];
+    }
+
+    public boolean isFrozen(int bucket) {
+        return snapshot.frozen()[bucket];
+    }
+
+    public List<Integer> bucketsOf(String shard) {
+        String[] shards = snapshot.shards();
+        List<Integer> result = new ArrayList<>();
+        for (int bucket = 0; bucket < shards.length; bucket++) {
+            if (shards[bucket].equals(shard)) {
+                result.add(bucket);
+            }
+        }
+        return result;
+    }
+
+    public long frozenCount() {
+        boolean[] frozen = snapshot.frozen();
+        long count = 0;
+        for (boolean isFrozen : frozen) {
+            if (isFrozen) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void refresh() {
+        try {
+            String[] shards = new String[buckets];
+            Arrays.fill(shards, ShardingProperties.MAIN_SHARD);
+            boolean[] frozen = new boolean[buckets];
+            mainJdbcTemplate.query("SELECT bucket, shard, frozen FROM shard_buckets", rs -> {
+                int bucket = rs.getInt("bucket");
+                if (bucket >= 0 && bucket < buckets) {
+                    shards[bucket] = rs.getString("shard");
+                    frozen[bucket] = rs.getBoolean("frozen");
+                }
+            });
+            snapshot = new Snapshot(shards, frozen);
+        } catch (DataAccessException e) {
+            // Остается прошлая карта: она меняется только при переносе бакетов, а перенос ждет, пока карту
+            // перечитают все экземпляры
+            log.warn("Не удалось перечитать карту бакетов: {}", e.getMessage());
+        }
+    }
+
+    // Записывает в основную БД новый шард и признак переноса для бакетов и сразу перечитывает карту
+    public void assign(Collection<Integer> bucketsToAssign, String shard, boolean frozen) {
+        mainJdbcTemplate.batchUpdate("""
+                INSERT INTO shard_buckets (bucket, shard, frozen) VALUES (?, ?, ?)
+                ON CONFLICT (bucket) DO UPDATE SET shard = EXCLUDED.shard, frozen = EXCLUDED.frozen
+                """, bucketsToAssign.stream().map(bucket -> new Object[]{bucket, shard, frozen}).toList());
+        refresh();
+    }
+
+    @Override
+    public void start() {
+        // Первый раз карта читается до того, как экземпляр начнет принимать запросы
+        refresh();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-map-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    // Раньше веб-сервера и слушателей Kafka
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    private record Snapshot(String[] shards, boolean[] frozen) {
+    }
+
+}
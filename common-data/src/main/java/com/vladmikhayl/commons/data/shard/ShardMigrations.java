@@ -0,0 +1,55 @@
+package com.vladmikhayl.commons.data.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Миграции Flyway выполняются на каждом шарде с теми же настройками, что и на основном. ID строк уникальны
+// во всех шардах сразу (строки переносятся между шардами вместе с ID, а по ID привычек работают другие
+// микросервисы), поэтому последовательности i-го дополнительного шарда начинаются с i * 2^40: этого хватит
+// на триллион строк в каждом шарде, и ID остаются точными числами в JavaScript (меньше 2^53)
+@Slf4j
+public class ShardMigrations implements FlywayMigrationStrategy {
+
+    static final int ID_RANGE_BITS = 40;
+
+    // Шарды кроме основного, в порядке из настроек
+    private final Map<String, DataSource> additionalShards;
+
+    public ShardMigrations(Map<String, DataSource> additionalShards) {
+        this.additionalShards = additionalShards;
+    }
+
+    @Override
+    public void migrate(Flyway flyway) {
+        flyway.migrate();
+
+        int index = 0;
+        for (Map.Entry<String, DataSource> shard : additionalShards.entrySet()) {
+            index++;
+            Flyway.configure(flyway.getConfiguration().getClassLoader())
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(shard.getValue())
+                    .load()
+                    .migrate();
+            moveSequencesToRange(new JdbcTemplate(shard.getValue()), index);
+            log.info("Схема шарда {} обновлена", shard.getKey());
+        }
+    }
+
+    // Последовательности только сдвигаются вперед, поэтому повторный запуск ничего не меняет
+    static void moveSequencesToRange(JdbcTemplate jdbcTemplate, int shardIndex) {
+        long rangeStart = (long) shardIndex << ID_RANGE_BITS;
+        for (String sequence : jdbcTemplate.queryForList("""
+                SELECT sequencename FROM pg_sequences
+                WHERE schemaname = current_schema() AND COALESCE(last_value, 0) < ?
+                """, String.class, rangeStart)) {
+            jdbcTemplate.queryForObject("SELECT setval(?::regclass, ?)", Long.class, sequence, rangeStart);
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.vladmikhayl.commons.data.shard;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Выбор шарда для операций сервисов: по владельцу данных (пользователю), по ID сущности через каталог
+// или сразу по всем шардам. Обычно шард задается аннотацией @OnShard, а здесь - то, что ей не выразить
+// (несколько шардов в одном методе, каталог, обслуживание каждого шарда). Без шардирования (sharding.enabled
+// не задан) все методы просто выполняют задачу, поэтому сервисы и их тесты от режима не зависят
+public class ShardRouter {
+
+    private final ShardMap shardMap;
+
+    private final ShardDirectory directory;
+
+    private final List<String> shards;
+
+    private final Duration freezeRetryAfter;
+
+    public ShardRouter(ShardMap shardMap, ShardDirectory directory, List<String> shards, Duration freezeRetryAfter) {
+        this.shardMap = shardMap;
+        this.directory = directory;
+        this.shards = List.copyOf(shards);
+        this.freezeRetryAfter = freezeRetryAfter;
+    }
+
+    public static ShardRouter unsharded() {
+        return new ShardRouter(null, null, List.of(ShardingProperties.MAIN_SHARD), Duration.ZERO);
+    }
+
+    public boolean isSharded() {
+        return shardMap != null;
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    // Если бакет пользователя сейчас переносится, то сразу отвечает 503 с Retry-After. Ждать конца переноса
+    // здесь нельзя: запросы всех пользователей переносимых бакетов заняли бы потоки Tomcat и на время переноса
+    // остановили бы весь экземпляр, в том числе для остальных пользователей
+    public String shardOfUser(Long userId) {
+        if (!isSharded() || userId == null) {
+            return ShardingProperties.MAIN_SHARD;
+        }
+        int bucket = shardMap.bucketOf(userId);
+        if (shardMap.isFrozen(bucket)) {
+            throw new ShardUnavailableException(freezeRetryAfter);
+        }
+        return shardMap.shardOf(bucket);
+    }
+
+    // Сущности без записи в каталоге (созданные до включения шардирования или уже удаленные) лежат в основном шарде
+    public String shardOfEntity(Long entityId) {
+        if (!isSharded() || entityId == null) {
+            return ShardingProperties.MAIN_SHARD;
+        }
+        return directory.ownerOf(entityId)
+                .map(this::shardOfUser)
+                .orElse(ShardingProperties.MAIN_SHARD);
+    }
+
+    public <T> T onUser(Long userId, Supplier<T> task) {
+        return isSharded() ? ShardContext.on(shardOfUser(userId), task) : task.get();
+    }
+
+    public void onUser(Long userId, Runnable task) {
+        onUser(userId, asSupplier(task));
+    }
+
+    public <T> T onEntity(Long entityId, Supplier<T> task) {
+        return isSharded() ? ShardContext.on(shardOfEntity(entityId), task) : task.get();
+    }
+
+    public void onEntity(Long entityId, Runnable task) {
+        onEntity(entityId, asSupplier(task));
+    }
+
+    // Выполняет задачу на каждом шарде по очереди и объединяет результаты
+    public <T> List<T> onAllShards(Supplier<? extends Collection<T>> task) {
+        if (!isSharded()) {
+            return new ArrayList<>(task.get());
+        }
+        List<T> result = new ArrayList<>();
+        for (String shard : shards) {
+            result.addAll(ShardContext.on(shard, task));
+        }
+        return result;
+    }
+
+    // Для обслуживания (например, партиций): задача получает имя шарда, на котором выполняется
+    public void onEachShard(Consumer<String> task) {
+        for (String shard : shards) {
+            if (isSharded()) {
+                ShardContext.on(shard, asSupplier(() -> task.accept(shard)));
+            } else {
+                task.accept(shard);
+            }
+        }
+    }
+
+    // Делит сущности по шардам их владельцев и выполняет задачу один раз на каждом шарде с его частью сущностей
+    public <T> List<T> onEntities(Collection<Long> entityIds, Function<List<Long>, ? extends Collection<T>> task) {
+        if (!isSharded()) {
+            return new ArrayList<>(task.apply(List.copyOf(entityIds)));
+        }
+        Map<Long, Long> owners = directory.ownersOf(entityIds);
+        Map<String, List<Long>> entitiesByShard = new LinkedHashMap<>();
+        for (Long entityId : entityIds) {
+            Long owner = owners.get(entityId);
+            String shard = owner == null ? ShardingProperties.MAIN_SHARD : shardOfUser(owner);
+            entitiesByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(entityId);
+        }
+        List<T> result = new ArrayList<>();
+        entitiesByShard.forEach((shard, ids) -> result.addAll(ShardContext.on(shard, () -> task.apply(ids))));
+        return result;
+    }
+
+    public void registerEntity(Long entityId, Long userId) {
+        if (isSharded()) {
+            directory.register(entityId, userId, shardMap.bucketOf(userId));
+        }
+    }
+
+    public void removeEntity(Long entityId) {
+        if (isSharded()) {
+            directory.remove(entityId);
+        }
+    }
+
+    private static Supplier<Void> asSupplier(Runnable task) {
+        return () -> {
+            task.run();
+            return null;
+        };
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.vladmikhayl.commons.data.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+// Отдает соединение с шардом, выбранным в ShardContext (или с основным, если шард не выбран). Решение
+// принимается при получении соединения, поэтому этот DataSource оборачивается в LazyConnectionDataSourceProxy:
+// тогда соединение берется при первом запросе, а не в начале транзакции
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(Map<String, DataSource> shards) {
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(ShardingProperties.MAIN_SHARD));
+        // Шард из карты бакетов, которого нет в настройках, - ошибка, а не повод писать в основной
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.vladmikhayl.commons.data.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Выполняет методы с @OnShard на шарде, который задан аннотацией. Стоит снаружи транзакций,
+// чтобы шард был выбран раньше, чем транзакция возьмет соединение
+@Slf4j
+public class ShardRoutingInterceptor implements MethodInterceptor {
+
+    private final ShardRouter shardRouter;
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    public ShardRoutingInterceptor(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getThis() == null
+                ? invocation.getMethod()
+                : AopUtils.getMostSpecificMethod(invocation.getMethod(), invocation.getThis().getClass());
+        OnShard onShard = AnnotatedElementUtils.findMergedAnnotation(method, OnShard.class);
+        if (onShard == null) {
+            return invocation.proceed();
+        }
+
+        String shard = onShard.user().isEmpty()
+                ? shardRouter.shardOfEntity(evaluate(onShard.entity(), method, invocation.getArguments()))
+                : shardRouter.shardOfUser(evaluate(onShard.user(), method, invocation.getArguments()));
+
+        String previous = ShardContext.switchTo(shard);
+        try {
+            return invocation.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    // null, если выражение не задано или его значение не число (например, ID пользователя в неверном формате:
+    // такую ошибку сообщит сам метод)
+    private Long evaluate(String expression, Method method, Object[] arguments) {
+        if (expression.isEmpty()) {
+            return null;
+        }
+        Object value = expressions.computeIfAbsent(expression, parser::parseExpression)
+                .getValue(new MethodBasedEvaluationContext(null, method, arguments, parameterNames));
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String string) {
+            try {
+                return Long.parseLong(string);
+            } catch (NumberFormatException e) {
+                log.debug("Значение {} в @OnShard у {} не число", expression, method);
+            }
+        }
+        return null;
+    }
+
+}
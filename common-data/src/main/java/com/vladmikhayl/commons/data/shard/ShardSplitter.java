@@ -0,0 +1,353 @@
+package com.vladmikhayl.commons.data.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// Перенос половины бакетов одного шарда на другой (например, на новый пустой шард) без остановки микросервиса.
+// Для каждой таблицы из sharding.tables переносятся строки пользователей этих бакетов (или их сущностей).
+// Пользователи бакетов берутся из каталога сущностей по колонке bucket и из самих таблиц с userColumn
+// (у пользователя может не быть ни одной сущности, например, у подписчика без своих привычек). Перенос идет так:
+// 1. строки копируются, пока пользователи продолжают работать;
+// 2. еще раз копируются только строки, измененные во время первого копирования (по xmin, см. copyChanges);
+// 3. бакеты помечаются как переносимые: запросы их пользователей получают 503 (см. ShardRouter), и после паузы
+//    (два интервала обновления карты, чтобы ее перечитали все экземпляры, и splitGracePeriod на начатые
+//    операции) в исходном шарде они больше ничего не меняют;
+// 4. копируются строки, измененные после шага 2, и бакеты переходят на новый шард. Поэтому пауза для пользователей
+//    длится не дольше копирования изменений последних секунд, а не всех их данных;
+// 5. после такой же паузы строки удаляются из исходного шарда.
+// Ошибка до шага 4 включительно возвращает бакеты исходному шарду, и перенос можно запустить снова
+// (уже скопированные строки перезаписываются)
+@Slf4j
+public class ShardSplitter {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final ShardMap shardMap;
+
+    private final ShardDirectory directory;
+
+    private final Map<String, JdbcTemplate> shards;
+
+    private final List<ShardingProperties.Table> tables;
+
+    private final Duration settleTime;
+
+    private final Map<String, List<String>> uniqueKeys = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile String status = "переносов не было";
+
+    public ShardSplitter(
+            ShardMap shardMap,
+            ShardDirectory directory,
+            Map<String, JdbcTemplate> shards,
+            List<ShardingProperties.Table> tables,
+            Duration settleTime
+    ) {
+        this.shardMap = shardMap;
+        this.directory = directory;
+        this.shards = shards;
+        this.tables = tables;
+        this.settleTime = settleTime;
+    }
+
+    public String status() {
+        return status;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public void split(String source, String target) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Перенос бакетов уже идет");
+        }
+        try {
+            if (!shards.containsKey(source) || !shards.containsKey(target) || source.equals(target)) {
+                throw new IllegalArgumentException("Нужны два разных шарда из sharding.shards (или main)");
+            }
+            if (tables.isEmpty()) {
+                throw new IllegalStateException("Не заданы таблицы для переноса (sharding.tables)");
+            }
+            doSplit(source, target);
+        } catch (RuntimeException e) {
+            status = "перенос " + source + " -> " + target + " не удался: " + e.getMessage();
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void doSplit(String source, String target) {
+        List<Integer> sourceBuckets = shardMap.bucketsOf(source);
+        if (sourceBuckets.size() < 2) {
+            throw new IllegalStateException("У шарда " + source + " меньше двух бакетов");
+        }
+        List<Integer> moving = List.copyOf(sourceBuckets.subList(sourceBuckets.size() / 2, sourceBuckets.size()));
+        JdbcTemplate from = shards.get(source);
+        JdbcTemplate to = shards.get(target);
+
+        fillDirectoryBuckets();
+
+        report(source, target, "копирование");
+        String copyStart = oldestRunningXid(from);
+        copy(from, to, keysOf(from, moving));
+
+        report(source, target, "копирование изменений");
+        String catchUpStart = oldestRunningXid(from);
+        copyChanges(from, to, keysOf(from, moving), copyStart);
+
+        shardMap.assign(moving, source, true);
+        Keys keys;
+        try {
+            report(source, target, "ожидание, пока экземпляры перестанут менять переносимые строки");
+            settle();
+            report(source, target, "копирование последних изменений");
+            // Пока шло копирование, у бакетов могли появиться новые пользователи и сущности
+            keys = keysOf(from, moving);
+            copyChanges(from, to, keys, catchUpStart);
+        } catch (RuntimeException e) {
+            shardMap.assign(moving, source, false);
+            throw e;
+        }
+        shardMap.assign(moving, target, false);
+
+        report(source, target, "ожидание, пока экземпляры перечитают карту бакетов");
+        settle();
+        report(source, target, "удаление перенесенных строк из исходного шарда");
+        delete(from, keys);
+
+        status = "перенесено " + moving.size() + " бакетов (" + keys.users().size() + " пользователей) из "
+                + source + " в " + target;
+        log.info("Шардирование: {}", status);
+    }
+
+    private Keys keysOf(JdbcTemplate from, List<Integer> movingBuckets) {
+        Set<Long> users = new LinkedHashSet<>(directory.usersOfBuckets(movingBuckets));
+        Set<Integer> buckets = new HashSet<>(movingBuckets);
+        for (ShardingProperties.Table table : tables) {
+            if (table.getUserColumn() != null) {
+                from.queryForList("SELECT DISTINCT " + table.getUserColumn() + " FROM " + table.getName(), Long.class)
+                        .stream()
+                        .filter(userId -> buckets.contains(shardMap.bucketOf(userId)))
+                        .forEach(users::add);
+            }
+        }
+        List<Long> userList = List.copyOf(users);
+        return new Keys(userList, directory.entitiesOf(userList));
+    }
+
+    // У записей каталога, созданных до появления колонки bucket, бакет считается здесь (хеш есть только в Java)
+    private void fillDirectoryBuckets() {
+        List<Long> users;
+        while (!(users = directory.usersWithoutBucket(CHUNK_SIZE)).isEmpty()) {
+            Map<Long, Integer> buckets = new HashMap<>();
+            users.forEach(userId -> buckets.put(userId, shardMap.bucketOf(userId)));
+            directory.assignBuckets(buckets);
+        }
+    }
+
+    // Все транзакции с меньшим xid к этому моменту завершены, поэтому строки, которые копирование, начатое после
+    // этого, могло не увидеть, имеют xmin не меньше него. Номер берется в 32-битном виде, как у xmin
+    private static String oldestRunningXid(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject(
+                "SELECT (pg_snapshot_xmin(pg_current_snapshot())::TEXT::BIGINT % 4294967296)::TEXT", String.class);
+    }
+
+    private void copy(JdbcTemplate from, JdbcTemplate to, Keys keys) {
+        for (ShardingProperties.Table table : tables) {
+            for (List<Long> chunk : chunks(keys.of(table))) {
+                upsert(to, table, from.queryForList(
+                        "SELECT * FROM " + table.getName() + " WHERE " + keyColumn(table) + " = ANY(?)",
+                        (Object) chunk.toArray(Long[]::new)));
+            }
+        }
+    }
+
+    // Копирует только строки, созданные или измененные транзакциями начиная с sinceXid (age(xmin) не больше,
+    // чем age(sinceXid)): для остальных строк переносимых ключей читается только их число. Если после этого
+    // число строк ключа в шардах не совпадает (строки удалили или ключ появился в каталоге позже своих строк),
+    // то строки этого ключа сверяются целиком
+    private void copyChanges(JdbcTemplate from, JdbcTemplate to, Keys keys, String sinceXid) {
+        for (ShardingProperties.Table table : tables) {
+            String key = keyColumn(table);
+            for (List<Long> chunk : chunks(keys.of(table))) {
+                Object ids = chunk.toArray(Long[]::new);
+                Map<Long, Long> sourceRows = new HashMap<>();
+                List<Long> changedKeys = new ArrayList<>();
+                from.query("SELECT " + key + " AS key, count(*) AS total, "
+                                + "count(*) FILTER (WHERE age(xmin) <= age(?::TEXT::XID)) AS changed "
+                                + "FROM " + table.getName() + " WHERE " + key + " = ANY(?) GROUP BY " + key,
+                        rs -> {
+                            sourceRows.put(rs.getLong("key"), rs.getLong("total"));
+                            if (rs.getLong("changed") > 0) {
+                                changedKeys.add(rs.getLong("key"));
+                            }
+                        }, sinceXid, ids);
+
+                if (!changedKeys.isEmpty()) {
+                    upsert(to, table, from.queryForList(
+                            "SELECT * FROM " + table.getName() + " WHERE " + key + " = ANY(?) "
+                                    + "AND age(xmin) <= age(?::TEXT::XID)",
+                            changedKeys.toArray(Long[]::new), sinceXid));
+                }
+
+                Map<Long, Long> targetRows = countByKey(to, table, ids);
+                List<Long> differing = chunk.stream()
+                        .filter(id -> !sourceRows.getOrDefault(id, 0L).equals(targetRows.getOrDefault(id, 0L)))
+                        .toList();
+                if (!differing.isEmpty()) {
+                    resync(from, to, table, differing);
+                }
+            }
+        }
+    }
+
+    private static Map<Long, Long> countByKey(JdbcTemplate jdbcTemplate, ShardingProperties.Table table, Object ids) {
+        String key = keyColumn(table);
+        Map<Long, Long> rows = new HashMap<>();
+        jdbcTemplate.query("SELECT " + key + " AS key, count(*) AS total FROM " + table.getName()
+                        + " WHERE " + key + " = ANY(?) GROUP BY " + key,
+                rs -> {
+                    rows.put(rs.getLong("key"), rs.getLong("total"));
+                }, ids);
+        return rows;
+    }
+
+    // Строки ключей в целевом шарде становятся такими же, как в исходном
+    private void resync(JdbcTemplate from, JdbcTemplate to, ShardingProperties.Table table, List<Long> keys) {
+        Object ids = keys.toArray(Long[]::new);
+        String where = " FROM " + table.getName() + " WHERE " + keyColumn(table) + " = ANY(?)";
+        upsert(to, table, from.queryForList("SELECT *" + where, ids));
+
+        List<String> uniqueKey = uniqueKeyOf(to, table);
+        String columns = String.join(", ", uniqueKey);
+        Set<List<Object>> present = new HashSet<>();
+        from.query("SELECT " + columns + where, rs -> {
+            present.add(uniqueKeyValues(rs, uniqueKey));
+        }, ids);
+        List<Object[]> gone = new ArrayList<>();
+        to.query("SELECT " + columns + where, rs -> {
+            List<Object> values = uniqueKeyValues(rs, uniqueKey);
+            if (!present.contains(values)) {
+                gone.add(values.toArray());
+            }
+        }, ids);
+        if (!gone.isEmpty()) {
+            to.batchUpdate("DELETE FROM " + table.getName() + " WHERE "
+                    + uniqueKey.stream().map(column -> column + " = ?").collect(Collectors.joining(" AND ")), gone);
+        }
+    }
+
+    private static List<Object> uniqueKeyValues(ResultSet rs, List<String> uniqueKey) throws SQLException {
+        List<Object> values = new ArrayList<>(uniqueKey.size());
+        for (String column : uniqueKey) {
+            values.add(rs.getObject(column));
+        }
+        return values;
+    }
+
+    // Повторно скопированная строка перезаписывает прошлую копию
+    private void upsert(JdbcTemplate to, ShardingProperties.Table table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        List<String> uniqueKey = uniqueKeyOf(to, table);
+        List<String> updated = columns.stream().filter(column -> !uniqueKey.contains(column)).toList();
+        String sql = "INSERT INTO " + table.getName() + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ") "
+                + "ON CONFLICT (" + String.join(", ", uniqueKey) + ") "
+                + (updated.isEmpty()
+                        ? "DO NOTHING"
+                        : "DO UPDATE SET " + updated.stream()
+                                .map(column -> column + " = EXCLUDED." + column)
+                                .collect(Collectors.joining(", ")));
+        to.batchUpdate(sql, rows.stream().map(row -> row.values().toArray()).toList());
+    }
+
+    // Первичный ключ таблицы, а если его нет - ее первый уникальный индекс (например, у дней недели привычки)
+    private List<String> uniqueKeyOf(JdbcTemplate jdbcTemplate, ShardingProperties.Table table) {
+        return uniqueKeys.computeIfAbsent(table.getName(), name -> {
+            List<String> columns = jdbcTemplate.queryForList("""
+                    SELECT a.attname
+                    FROM (SELECT indrelid, indkey, indnkeyatts FROM pg_index
+                          WHERE indrelid = ?::REGCLASS AND indisunique AND indpred IS NULL AND indexprs IS NULL
+                          ORDER BY indisprimary DESC, indexrelid
+                          LIMIT 1) i
+                    CROSS JOIN LATERAL unnest(i.indkey::INT2[]) WITH ORDINALITY AS k(attnum, position)
+                    JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = k.attnum
+                    WHERE k.position <= i.indnkeyatts
+                    ORDER BY k.position
+                    """, String.class, name);
+            if (columns.isEmpty()) {
+                throw new IllegalStateException("У таблицы " + name + " нет уникального ключа для переноса строк");
+            }
+            return columns;
+        });
+    }
+
+    // Дочерние таблицы раньше родительских
+    private void delete(JdbcTemplate jdbcTemplate, Keys keys) {
+        List<ShardingProperties.Table> childrenFirst = new ArrayList<>(tables);
+        Collections.reverse(childrenFirst);
+        for (ShardingProperties.Table table : childrenFirst) {
+            for (List<Long> chunk : chunks(keys.of(table))) {
+                jdbcTemplate.update("DELETE FROM " + table.getName() + " WHERE " + keyColumn(table) + " = ANY(?)",
+                        (Object) chunk.toArray(Long[]::new));
+            }
+        }
+    }
+
+    private static String keyColumn(ShardingProperties.Table table) {
+        return table.getUserColumn() != null ? table.getUserColumn() : table.getEntityColumn();
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE) {
+            chunks.add(ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    private void settle() {
+        try {
+            Thread.sleep(settleTime.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Перенос бакетов прерван");
+        }
+    }
+
+    private void report(String source, String target, String stage) {
+        status = "перенос " + source + " -> " + target + ": " + stage;
+        log.info("Шардирование: {}", status);
+    }
+
+    private record Keys(List<Long> users, List<Long> entities) {
+
+        List<Long> of(ShardingProperties.Table table) {
+            return table.getUserColumn() != null ? users : entities;
+        }
+
+    }
+
+}
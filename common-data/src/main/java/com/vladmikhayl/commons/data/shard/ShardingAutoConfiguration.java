@@ -0,0 +1,197 @@
+package com.vladmikhayl.commons.data.shard;
+
+import com.vladmikhayl.commons.data.RoutingConnectionHandling;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Шардирование по пользователям в микросервисах с JPA. Включается через sharding.enabled: тогда вместо пула
+// из DataSourceAutoConfiguration создаются пулы основного шарда (spring.datasource.hikari) и дополнительных
+// (sharding.shards, общие настройки пулов - sharding.hikari), а основным DataSource становится маршрутизатор
+// между ними. Шард для операций выбирают сервисы (@OnShard и ShardRouter), Flyway обновляет схему всех шардов.
+// Без шардирования создается только ShardRouter, который ничего не переключает
+@AutoConfiguration(before = DataSourceAutoConfiguration.class)
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingAutoConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass({HikariDataSource.class, JdbcTemplate.class})
+    @ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "true")
+    @EnableConfigurationProperties(DataSourceProperties.class)
+    static class ShardingDataSourceConfiguration {
+
+        ShardingDataSourceConfiguration(Environment environment) {
+            // Оба режима подменяют основной DataSource своим маршрутизатором
+            if (environment.containsProperty("read-replica.url")) {
+                throw new IllegalStateException("Шардирование не совмещается с чтением с реплики (read-replica.url)");
+            }
+        }
+
+        @Bean
+        @ConfigurationProperties(prefix = "spring.datasource.hikari")
+        public HikariDataSource mainDataSource(DataSourceProperties properties) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            dataSource.setPoolName(ShardingProperties.MAIN_SHARD);
+            return dataSource;
+        }
+
+        @Bean
+        public ShardDataSources shardDataSources(
+                DataSourceProperties mainProperties,
+                ShardingProperties properties,
+                Environment environment
+        ) {
+            Map<String, HikariDataSource> dataSources = new LinkedHashMap<>();
+            properties.getShards().forEach((name, shard) -> {
+                if (ShardingProperties.MAIN_SHARD.equals(name)) {
+                    throw new IllegalStateException("Имя main занято основным шардом (spring.datasource)");
+                }
+                HikariDataSource dataSource = new HikariDataSource();
+                Binder.get(environment).bind("sharding.hikari", Bindable.ofInstance(dataSource));
+                dataSource.setPoolName(name);
+                dataSource.setJdbcUrl(shard.getUrl());
+                dataSource.setUsername(shard.getUsername() != null
+                        ? shard.getUsername() : mainProperties.determineUsername());
+                dataSource.setPassword(shard.getPassword() != null
+                        ? shard.getPassword() : mainProperties.determinePassword());
+                dataSource.setDriverClassName(mainProperties.determineDriverClassName());
+                dataSources.put(name, dataSource);
+            });
+            return new ShardDataSources(dataSources);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(
+                @Qualifier("mainDataSource") DataSource mainDataSource,
+                ShardDataSources shardDataSources
+        ) {
+            return new LazyConnectionDataSourceProxy(
+                    new ShardRoutingDataSource(shardDataSources.withMain(mainDataSource)));
+        }
+
+        @Bean
+        public HibernatePropertiesCustomizer shardConnectionHandling() {
+            return RoutingConnectionHandling.releaseAfterTransaction();
+        }
+
+        @Bean
+        public ShardMap shardMap(@Qualifier("mainDataSource") DataSource mainDataSource, ShardingProperties properties) {
+            return new ShardMap(new JdbcTemplate(mainDataSource), properties.getBuckets(),
+                    properties.getRefreshInterval());
+        }
+
+        @Bean
+        public ShardDirectory shardDirectory(@Qualifier("mainDataSource") DataSource mainDataSource) {
+            return new ShardDirectory(new JdbcTemplate(mainDataSource));
+        }
+
+        @Bean
+        public ShardRouter shardRouter(
+                ShardMap shardMap,
+                ShardDirectory shardDirectory,
+                ShardingProperties properties
+        ) {
+            List<String> shards = new ArrayList<>();
+            shards.add(ShardingProperties.MAIN_SHARD);
+            shards.addAll(properties.getShards().keySet());
+            return new ShardRouter(shardMap, shardDirectory, shards, properties.getFreezeRetryAfter());
+        }
+
+        // Инфраструктурный, чтобы его подхватывал тот же механизм прокси, что и @Transactional
+        @Bean
+        @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+        public Advisor shardRoutingAdvisor(ShardRouter shardRouter) {
+            DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                    AnnotationMatchingPointcut.forMethodAnnotation(OnShard.class),
+                    new ShardRoutingInterceptor(shardRouter)
+            );
+            advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return advisor;
+        }
+
+        @Bean
+        public ShardSplitter shardSplitter(
+                @Qualifier("mainDataSource") DataSource mainDataSource,
+                ShardDataSources shardDataSources,
+                ShardMap shardMap,
+                ShardDirectory shardDirectory,
+                ShardingProperties properties
+        ) {
+            Map<String, JdbcTemplate> shards = new LinkedHashMap<>();
+            shardDataSources.withMain(mainDataSource)
+                    .forEach((name, dataSource) -> shards.put(name, new JdbcTemplate(dataSource)));
+            return new ShardSplitter(shardMap, shardDirectory, shards, properties.getTables(),
+                    properties.getRefreshInterval().multipliedBy(2).plus(properties.getSplitGracePeriod()));
+        }
+
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(Flyway.class)
+        static class ShardMigrationsConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public FlywayMigrationStrategy shardMigrations(ShardDataSources shardDataSources) {
+                return new ShardMigrations(shardDataSources.additional());
+            }
+
+        }
+
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(Endpoint.class)
+        static class ShardsEndpointConfiguration {
+
+            @Bean
+            @ConditionalOnAvailableEndpoint
+            public ShardsEndpoint shardsEndpoint(ShardMap shardMap, ShardSplitter shardSplitter, ShardRouter shardRouter) {
+                return new ShardsEndpoint(shardMap, shardSplitter, shardRouter.shards());
+            }
+
+        }
+
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "sharding", name = "enabled", havingValue = "false", matchIfMissing = true)
+    static class UnshardedConfiguration {
+
+        @Bean
+        public ShardRouter shardRouter() {
+            return ShardRouter.unsharded();
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.vladmikhayl.commons.data.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Настройки шардирования по пользователям (префикс sharding). Основной шард (main) - это БД из spring.datasource:
+// в нем же хранятся карта бакетов и каталог сущностей. Остальные шарды перечисляются в shards, и их порядок менять
+// нельзя: по номеру шарда в этом списке выбирается диапазон ID для его последовательностей (см. ShardMigrations).
+// Новый шард добавляется в конец списка пустым, а пользователи переносятся в него через ShardSplitter
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+
+    public static final String MAIN_SHARD = "main";
+
+    private boolean enabled;
+
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    // На сколько бакетов делятся пользователи. Шард назначается бакету, а не пользователю, поэтому менять
+    // это число после включения шардирования нельзя
+    private int buckets = 1024;
+
+    // Как часто экземпляр перечитывает карту бакетов из основной БД
+    private Duration refreshInterval = Duration.ofSeconds(2);
+
+    // Пока бакет пользователя переносится, его запросы сразу получают 503 с таким Retry-After
+    // (перенос держит бакет примерно два интервала обновления карты и splitGracePeriod)
+    private Duration freezeRetryAfter = Duration.ofSeconds(10);
+
+    // Сколько после смены карты бакетов ShardSplitter дополнительно ждет (сверх двух интервалов обновления карты),
+    // чтобы закончились операции, начатые со старой картой
+    private Duration splitGracePeriod = Duration.ofSeconds(5);
+
+    // Таблицы, строки которых переносятся вместе с пользователем, в порядке от родительских к дочерним
+    private List<Table> tables = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Shard {
+
+        private String url;
+
+        // Если не заданы, то берутся из spring.datasource
+        private String username;
+
+        private String password;
+
+    }
+
+    // У таблицы задан либо userColumn (ID пользователя), либо entityColumn (ID сущности из ShardDirectory,
+    // например привычки): тогда строки переносятся вместе с владельцем сущности
+    @Getter
+    @Setter
+    public static class Table {
+
+        private String name;
+
+        private String userColumn;
+
+        private String entityColumn;
+
+    }
+
+}
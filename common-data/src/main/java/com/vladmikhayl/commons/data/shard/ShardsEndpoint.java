@@ -0,0 +1,61 @@
+package com.vladmikhayl.commons.data.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// GET /actuator/shards - сколько бакетов у каждого шарда и как идет перенос.
+// POST /actuator/shards {"source": "main", "target": "shard-1"} - запускает в фоне перенос половины бакетов
+// source на target (см. ShardSplitter), результат виден в GET
+@Slf4j
+@Endpoint(id = "shards")
+public class ShardsEndpoint {
+
+    private final ShardMap shardMap;
+
+    private final ShardSplitter shardSplitter;
+
+    private final List<String> shards;
+
+    public ShardsEndpoint(ShardMap shardMap, ShardSplitter shardSplitter, List<String> shards) {
+        this.shardMap = shardMap;
+        this.shardSplitter = shardSplitter;
+        this.shards = shards;
+    }
+
+    @ReadOperation
+    public Map<String, Object> shards() {
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        for (String shard : shards) {
+            buckets.put(shard, shardMap.bucketsOf(shard).size());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("buckets", buckets);
+        result.put("frozenBuckets", shardMap.frozenCount());
+        result.put("split", shardSplitter.status());
+        return result;
+    }
+
+    @WriteOperation
+    public String split(String source, String target) {
+        if (shardSplitter.isRunning()) {
+            return "перенос уже идет: " + shardSplitter.status();
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                shardSplitter.split(source, target);
+            } catch (RuntimeException e) {
+                log.error("Перенос бакетов из {} в {} не удался", source, target, e);
+            }
+        }, "shard-split");
+        thread.setDaemon(true);
+        thread.start();
+        return "перенос запущен";
+    }
+
+}
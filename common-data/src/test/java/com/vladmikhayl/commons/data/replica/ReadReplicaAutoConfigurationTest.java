@@ -0,0 +1,70 @@
+package com.vladmikhayl.commons.data.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReplicaAutoConfigurationTest {
+
+    // Пулы Hikari подключаются к БД только при первом запросе соединения, поэтому сама БД не нужна
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    ReadReplicaAutoConfiguration.class,
+                    DataSourceAutoConfiguration.class
+            ))
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:postgresql://localhost:15432/reports",
+                    "spring.datasource.username=username",
+                    "spring.datasource.password=password",
+                    "spring.datasource.hikari.maximum-pool-size=20"
+            );
+
+    @Test
+    void keepsSingleDataSourceWithoutReplicaUrl() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(ReplicaLagMonitor.class);
+            assertThat(context).doesNotHaveBean(HibernatePropertiesCustomizer.class);
+            assertThat(context.getBean(DataSource.class)).isInstanceOf(HikariDataSource.class);
+        });
+    }
+
+    @Test
+    void routesBetweenPrimaryAndReplicaPools() {
+        contextRunner
+                .withPropertyValues(
+                        "read-replica.url=jdbc:postgresql://localhost:15433/reports",
+                        "read-replica.hikari.maximum-pool-size=30"
+                )
+                .run(context -> {
+                    assertThat(context.getBean(DataSource.class)).isInstanceOf(LazyConnectionDataSourceProxy.class);
+                    assertThat(((LazyConnectionDataSourceProxy) context.getBean(DataSource.class)).getTargetDataSource())
+                            .isInstanceOf(ReplicaRoutingDataSource.class);
+
+                    HikariDataSource primary = context.getBean("primaryDataSource", HikariDataSource.class);
+                    HikariDataSource replica = context.getBean("replicaDataSource", HikariDataSource.class);
+                    assertThat(primary.getJdbcUrl()).isEqualTo("jdbc:postgresql://localhost:15432/reports");
+                    assertThat(primary.getMaximumPoolSize()).isEqualTo(20);
+                    assertThat(replica.getJdbcUrl()).isEqualTo("jdbc:postgresql://localhost:15433/reports");
+                    assertThat(replica.getMaximumPoolSize()).isEqualTo(30);
+                    // Учетные данные реплики по умолчанию те же, что у основной БД
+                    assertThat(replica.getUsername()).isEqualTo("username");
+                    assertThat(replica.isReadOnly()).isTrue();
+
+                    Map<String, Object> hibernateProperties = new HashMap<>();
+                    context.getBean(HibernatePropertiesCustomizer.class).customize(hibernateProperties);
+                    assertThat(hibernateProperties).containsEntry("hibernate.connection.handling_mode",
+                            "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+                });
+    }
+
+}
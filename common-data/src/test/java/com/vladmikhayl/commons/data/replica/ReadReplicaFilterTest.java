@@ -0,0 +1,59 @@
+package com.vladmikhayl.commons.data.replica;
+
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadReplicaFilterTest {
+
+    private final ReadReplicaFilter underTest =
+            new ReadReplicaFilter("X-User-Id", new ReadYourWrites(Duration.ofSeconds(5)));
+
+    @Test
+    void setsReadPrimaryCookieOnceAfterWritesInRequest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        underTest.doFilter(new MockHttpServletRequest("POST", "/api/v1/reports/create"), response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                assertThat(ReplicaReadScope.isPinned()).isFalse();
+                ReplicaReadScope.writeListener().run();
+                ReplicaReadScope.writeListener().run();
+            }
+        });
+
+        assertThat(response.getHeaders(HttpHeaders.SET_COOKIE)).hasSize(1);
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE))
+                .startsWith(ReadYourWrites.COOKIE + "=1")
+                .contains("Max-Age=5", "HttpOnly", "SameSite=Lax");
+    }
+
+    @Test
+    void requestWithReadPrimaryCookieIsPinnedToPrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/reports/stats");
+        request.setCookies(new Cookie(ReadYourWrites.COOKIE, "1"));
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        underTest.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                pinned.set(ReplicaReadScope.isPinned());
+            }
+        });
+
+        assertThat(pinned).isTrue();
+        // После запроса состояние не остается в потоке
+        assertThat(ReplicaReadScope.isPinned()).isFalse();
+    }
+
+}
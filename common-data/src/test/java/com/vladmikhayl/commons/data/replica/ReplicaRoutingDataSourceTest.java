@@ -0,0 +1,183 @@
+package com.vladmikhayl.commons.data.replica;
+
+import feign.RequestTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Connection primaryConnection = mock(Connection.class);
+
+    private final Connection replicaConnection = mock(Connection.class);
+
+    private final JdbcTemplate replicaJdbcTemplate = mock(JdbcTemplate.class);
+
+    private final ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(
+            replicaJdbcTemplate, Duration.ofSeconds(1), Duration.ofSeconds(1), nanoTime::get);
+
+    private ReplicaRoutingDataSource underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        underTest = new ReplicaRoutingDataSource(primary, replica, lagMonitor, meterRegistry);
+
+        replicaLagIs(0);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+        ReplicaReadScope.exit();
+    }
+
+    @Test
+    void readOnlyTransactionInRequestGoesToReplica() throws SQLException {
+        ReplicaReadScope.enter("7", false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(underTest.getConnection()).isSameAs(replicaConnection);
+        assertThat(reads("replica", "ok")).isEqualTo(1);
+    }
+
+    @Test
+    void readWriteTransactionGoesToPrimary() throws SQLException {
+        ReplicaReadScope.enter("7", false);
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readOnlyTransactionOutsideRequestGoesToPrimary() throws SQLException {
+        // Например, слушатель Kafka
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void committedWriteIsReportedOnceAfterCommit() throws SQLException {
+        AtomicInteger writes = new AtomicInteger();
+        ReplicaReadScope.enter("7", false, false, writes::incrementAndGet);
+        underTest.getConnection();
+        // До коммита записанного не видно даже в основной БД
+        assertThat(writes.get()).isZero();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(writes.get()).isEqualTo(1);
+    }
+
+    @Test
+    void requestAfterOwnWriteReadsFromPrimaryAndAsksCalledServicesToDoTheSame() throws SQLException {
+        // Запрос пришел с cookie ReadYourWrites: запись могла идти через любой экземпляр
+        ReplicaReadScope.enter("7", false, true, null);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        assertThat(reads("primary", "read-your-writes")).isEqualTo(1);
+
+        RequestTemplate request = new RequestTemplate();
+        new ReadReplicaRequestInterceptor("X-User-Id").apply(request);
+        assertThat(request.headers().get(ReplicaReadScope.PRIMARY_HEADER)).containsExactly("true");
+
+        // Запросы без cookie читают из реплики
+        ReplicaReadScope.enter("7", false);
+        assertThat(underTest.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void readsGoToPrimaryWhileReplicaLags() throws SQLException {
+        ReplicaReadScope.enter("7", false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        replicaLagIs(1500);
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        assertThat(reads("primary", "lag")).isEqualTo(1);
+
+        replicaLagIs(200);
+        assertThat(underTest.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void readsGoToPrimaryWhenLagIsNotCheckedForTooLong() throws SQLException {
+        ReplicaReadScope.enter("7", false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Реплика перестала отвечать: результат последней успешной проверки устаревает через три интервала
+        when(replicaJdbcTemplate.queryForObject(anyString(), eq(Number.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        nanoTime.addAndGet(Duration.ofSeconds(2).toNanos());
+        lagMonitor.check();
+        assertThat(underTest.getConnection()).isSameAs(replicaConnection);
+
+        nanoTime.addAndGet(Duration.ofSeconds(2).toNanos());
+        lagMonitor.check();
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        assertThat(lagMonitor.getLagMillis()).isEqualTo(-1);
+    }
+
+    @Test
+    void cacheLoadsReadFromPrimaryAndAskCalledServicesToDoTheSame() throws SQLException {
+        ReplicaReadScope.enter("7", false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReadReplicaRequestInterceptor interceptor = new ReadReplicaRequestInterceptor("X-User-Id");
+
+        RequestTemplate template = ReplicaReadScope.onPrimary(() -> {
+            assertThat(connection()).isSameAs(primaryConnection);
+            RequestTemplate request = new RequestTemplate();
+            interceptor.apply(request);
+            return request;
+        });
+
+        assertThat(template.headers().get(ReplicaReadScope.PRIMARY_HEADER)).containsExactly("true");
+        assertThat(template.headers().get("X-User-Id")).containsExactly("7");
+        // После загрузки чтения снова идут в реплику
+        assertThat(underTest.getConnection()).isSameAs(replicaConnection);
+    }
+
+    private Connection connection() {
+        try {
+            return underTest.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void replicaLagIs(long lagMillis) {
+        when(replicaJdbcTemplate.queryForObject(anyString(), eq(Number.class))).thenReturn(lagMillis);
+        lagMonitor.check();
+    }
+
+    private double reads(String target, String reason) {
+        return meterRegistry.get("read-replica.reads").tag("target", target).tag("reason", reason).counter().count();
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.vladmikhayl.commons.data.shard;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardRouterTest {
+
+    // При 16 бакетах пользователь 7 попадает в бакет 13, пользователи 1 и 42 - в бакет 12, пользователь 1000 - в 1
+    private static final int BUCKETS = 16;
+
+    private final JdbcTemplate mainJdbcTemplate = mock(JdbcTemplate.class);
+
+    private final ShardMap shardMap = new ShardMap(mainJdbcTemplate, BUCKETS, Duration.ofSeconds(1));
+
+    private final ShardDirectory directory = new ShardDirectory(mainJdbcTemplate);
+
+    private final ShardRouter underTest = new ShardRouter(
+            shardMap, directory, List.of("main", "shard-1"), Duration.ofSeconds(10));
+
+    @Test
+    void bucketOfUserNeverChanges() {
+        assertThat(ShardMap.bucketOf(7, BUCKETS)).isEqualTo(13);
+        assertThat(ShardMap.bucketOf(42, 1024)).isEqualTo(460);
+    }
+
+    @Test
+    void consecutiveUsersSpreadOverBuckets() {
+        int[] perBucket = new int[BUCKETS];
+        IntStream.range(0, 16_000).forEach(userId -> perBucket[ShardMap.bucketOf(userId, BUCKETS)]++);
+
+        assertThat(IntStream.of(perBucket).boxed()).allSatisfy(count -> assertThat(count).isBetween(800, 1200));
+    }
+
+    @Test
+    void userOperationsGoToShardOfTheirBucket() {
+        bucketsInDatabase(Map.of(13, "shard-1"), Set.of());
+
+        assertThat(underTest.onUser(7L, ShardContext::current)).isEqualTo("shard-1");
+        assertThat(underTest.onUser(1000L, ShardContext::current)).isEqualTo("main");
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    void entityOperationsGoToShardOfItsOwner() {
+        bucketsInDatabase(Map.of(13, "shard-1"), Set.of());
+        when(mainJdbcTemplate.queryForList(anyString(), eq(Long.class), eq(100L))).thenReturn(List.of(7L));
+        when(mainJdbcTemplate.queryForList(anyString(), eq(Long.class), eq(200L))).thenReturn(List.of());
+
+        assertThat(underTest.onEntity(100L, ShardContext::current)).isEqualTo("shard-1");
+        // Сущности без записи в каталоге созданы до шардирования и лежат в основном шарде
+        assertThat(underTest.onEntity(200L, ShardContext::current)).isEqualTo("main");
+    }
+
+    @Test
+    void entitiesAreGroupedByShardOfTheirOwners() {
+        bucketsInDatabase(Map.of(13, "shard-1"), Set.of());
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(directoryRow(100L, 7L));
+            handler.processRow(directoryRow(101L, 1000L));
+            handler.processRow(directoryRow(102L, 7L));
+            return null;
+        }).when(mainJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        List<String> calls = underTest.onEntities(List.of(100L, 101L, 102L),
+                ids -> List.of(ShardContext.current() + ":" + ids));
+
+        assertThat(calls).containsExactly("shard-1:[100, 102]", "main:[101]");
+    }
+
+    @Test
+    void userOfFrozenBucketGets503WithRetryAfterRightAway() {
+        bucketsInDatabase(Map.of(13, "shard-1"), Set.of(13));
+
+        assertThatThrownBy(() -> underTest.onUser(7L, ShardContext::current))
+                .isInstanceOfSatisfying(ShardUnavailableException.class, e -> assertThat(
+                        e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("10"));
+        // Остальных пользователей перенос не задерживает
+        assertThat(underTest.onUser(1000L, ShardContext::current)).isEqualTo("main");
+    }
+
+    @Test
+    void onAllShardsJoinsResultsOfEveryShard() {
+        assertThat(underTest.onAllShards(() -> List.of(ShardContext.current()))).containsExactly("main", "shard-1");
+    }
+
+    @Test
+    void annotatedMethodRunsOnShardFromItsParameters() {
+        bucketsInDatabase(Map.of(13, "shard-1"), Set.of());
+        when(mainJdbcTemplate.queryForList(anyString(), eq(Long.class), eq(100L))).thenReturn(List.of(7L));
+        ProxyFactory proxyFactory = new ProxyFactory(new HabitOperations());
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(OnShard.class),
+                new ShardRoutingInterceptor(underTest)
+        ));
+        HabitOperations proxy = (HabitOperations) proxyFactory.getProxy();
+
+        assertThat(proxy.byUser("7")).isEqualTo("shard-1");
+        assertThat(proxy.byEvent(new HabitEvent(100L))).isEqualTo("shard-1");
+        // Неверный формат ID пользователя - ошибку сообщит сам метод, а шард - основной
+        assertThat(proxy.byUser("abc")).isEqualTo("main");
+    }
+
+    @Test
+    void withoutShardingTasksRunAsIs() {
+        ShardRouter unsharded = ShardRouter.unsharded();
+
+        assertThat(unsharded.onUser(7L, ShardContext::current)).isNull();
+        assertThat(unsharded.onAllShards(() -> List.of(1))).containsExactly(1);
+        assertThat(unsharded.onEntities(List.of(1L, 2L), ids -> ids)).containsExactly(1L, 2L);
+    }
+
+    private void bucketsInDatabase(Map<Integer, String> shards, Set<Integer> frozen) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Map.Entry<Integer, String> entry : shards.entrySet()) {
+                ResultSet row = mock(ResultSet.class);
+                when(row.getInt("bucket")).thenReturn(entry.getKey());
+                when(row.getString("shard")).thenReturn(entry.getValue());
+                when(row.getBoolean("frozen")).thenReturn(frozen.contains(entry.getKey()));
+                handler.processRow(row);
+            }
+            return null;
+        }).when(mainJdbcTemplate).query(eq("SELECT bucket, shard, frozen FROM shard_buckets"),
+                any(RowCallbackHandler.class));
+        shardMap.refresh();
+    }
+
+    private static ResultSet directoryRow(long entityId, long userId) throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("entity_id")).thenReturn(entityId);
+        when(row.getLong("user_id")).thenReturn(userId);
+        return row;
+    }
+
+    record HabitEvent(Long habitId) {
+    }
+
+    static class HabitOperations {
+
+        @OnShard(user = "#userId")
+        public String byUser(String userId) {
+            return ShardContext.current();
+        }
+
+        @OnShard(entity = "#event.habitId()")
+        public String byEvent(HabitEvent event) {
+            return ShardContext.current();
+        }
+
+    }
+
+}
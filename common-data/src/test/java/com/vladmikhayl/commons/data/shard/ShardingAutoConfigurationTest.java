@@ -0,0 +1,78 @@
+package com.vladmikhayl.commons.data.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardingAutoConfigurationTest {
+
+    // Пулы Hikari подключаются к БД только при первом запросе соединения, а карта бакетов без БД
+    // остается картой по умолчанию, поэтому сама БД не нужна
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    ShardingAutoConfiguration.class,
+                    DataSourceAutoConfiguration.class
+            ))
+            .withPropertyValues(
+                    "spring.datasource.url=jdbc:postgresql://localhost:1/habits",
+                    "spring.datasource.username=username",
+                    "spring.datasource.password=password"
+            );
+
+    @Test
+    void keepsSingleDataSourceWithoutSharding() {
+        contextRunner.run(context -> {
+            assertThat(context.getBean(DataSource.class)).isInstanceOf(HikariDataSource.class);
+            assertThat(context.getBean(ShardRouter.class).isSharded()).isFalse();
+            assertThat(context).doesNotHaveBean(HibernatePropertiesCustomizer.class);
+        });
+    }
+
+    @Test
+    void routesBetweenShardPools() {
+        contextRunner
+                .withPropertyValues(
+                        "sharding.enabled=true",
+                        "sharding.shards.shard-1.url=jdbc:postgresql://localhost:2/habits",
+                        "sharding.hikari.maximum-pool-size=7"
+                )
+                .run(context -> {
+                    assertThat(((LazyConnectionDataSourceProxy) context.getBean(DataSource.class)).getTargetDataSource())
+                            .isInstanceOf(ShardRoutingDataSource.class);
+                    assertThat(context.getBean(ShardRouter.class).shards()).containsExactly("main", "shard-1");
+
+                    HikariDataSource shard = (HikariDataSource) context.getBean(ShardDataSources.class)
+                            .additional().get("shard-1");
+                    assertThat(shard.getJdbcUrl()).isEqualTo("jdbc:postgresql://localhost:2/habits");
+                    assertThat(shard.getMaximumPoolSize()).isEqualTo(7);
+                    // Учетные данные шарда по умолчанию те же, что у основной БД
+                    assertThat(shard.getUsername()).isEqualTo("username");
+
+                    Map<String, Object> hibernateProperties = new HashMap<>();
+                    context.getBean(HibernatePropertiesCustomizer.class).customize(hibernateProperties);
+                    assertThat(hibernateProperties).containsEntry("hibernate.connection.handling_mode",
+                            "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+                });
+    }
+
+    @Test
+    void refusesToCombineWithReadReplica() {
+        contextRunner
+                .withPropertyValues(
+                        "sharding.enabled=true",
+                        "read-replica.url=jdbc:postgresql://localhost:3/habits"
+                )
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+}
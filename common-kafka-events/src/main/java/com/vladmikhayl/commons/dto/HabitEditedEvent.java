@@ -0,0 +1,6 @@
+package com.vladmikhayl.commons.dto;
+
+import lombok.Builder;
+
+@Builder
+public record HabitEditedEvent(Long habitId) {}
@@ -0,0 +1,97 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Кольцо консистентного хеширования: у каждого инстанса virtualNodes точек на кольце, ключ попадает
+// на первую точку по часовой стрелке от своего хеша. Когда инстанс уходит, на другие инстансы переезжают
+// только его ключи, а остальные пользователи остаются там, где у них уже прогреты кэши
+final class ConsistentHashRing {
+
+    private final Set<String> instanceKeys;
+
+    private final long[] points;
+
+    private final String[] owners;
+
+    ConsistentHashRing(Set<String> instanceKeys, int virtualNodes) {
+        this.instanceKeys = Set.copyOf(instanceKeys);
+
+        int replicas = Math.max(1, virtualNodes);
+        Point[] all = new Point[instanceKeys.size() * replicas];
+        int i = 0;
+        for (String instanceKey : instanceKeys) {
+            for (int replica = 0; replica < replicas; replica++) {
+                all[i++] = new Point(hash(instanceKey + "#" + replica), instanceKey);
+            }
+        }
+        // При совпадении хешей порядок задает ключ инстанса, чтобы кольцо было одинаковым на всех экземплярах gateway
+        Arrays.sort(all, Comparator.comparingLong(Point::hash).thenComparing(Point::owner));
+
+        this.points = new long[all.length];
+        this.owners = new String[all.length];
+        for (int j = 0; j < all.length; j++) {
+            points[j] = all[j].hash();
+            owners[j] = all[j].owner();
+        }
+    }
+
+    boolean hasSameInstances(Set<String> keys) {
+        return instanceKeys.equals(keys);
+    }
+
+    // Первый по часовой стрелке от ключа инстанс, который подходит (каждый инстанс проверяется один раз)
+    String find(String key, Predicate<String> acceptable) {
+        if (points.length == 0) {
+            return null;
+        }
+        int start = Arrays.binarySearch(points, hash(key));
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        Set<String> checked = new HashSet<>();
+        for (int i = 0; i < points.length && checked.size() < instanceKeys.size(); i++) {
+            String owner = owners[(start + i) % points.length];
+            if (checked.add(owner) && acceptable.test(owner)) {
+                return owner;
+            }
+        }
+        return null;
+    }
+
+    // Порядок инстансов на кольце начиная с ключа (для тестов и отладки)
+    List<String> order(String key) {
+        List<String> result = new ArrayList<>();
+        find(key, owner -> {
+            result.add(owner);
+            return false;
+        });
+        return result;
+    }
+
+    // FNV-1a с перемешиванием битов из MurmurHash3: String.hashCode() для похожих строк ("host:8080#1", "host:8080#2")
+    // дает близкие значения, и точки одного инстанса шли бы на кольце подряд
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private record Point(long hash, String owner) {}
+
+}
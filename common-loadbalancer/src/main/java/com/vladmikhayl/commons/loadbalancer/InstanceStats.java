@@ -0,0 +1,106 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Статистика одного инстанса: сколько запросов к нему сейчас в полете и EWMA задержки ответа
+public class InstanceStats {
+
+    private final long decayNanos;
+
+    // Какую задержку предполагать у инстанса, для которого еще нет ни одного замера
+    private final long unmeasuredLatencyNanos;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    // Сколько последних ответов подряд закончились ошибкой (сбрасывается первым успешным ответом)
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile long lastFailureAtNanos;
+
+    // EWMA пишется под локом (это происходит один раз на ответ), а читается без него при каждом выборе инстанса
+    private volatile double ewmaNanos;
+
+    private volatile long lastSampleAtNanos;
+
+    private volatile boolean measured;
+
+    InstanceStats(long decayNanos, long unmeasuredLatencyNanos) {
+        this.decayNanos = decayNanos;
+        this.unmeasuredLatencyNanos = unmeasuredLatencyNanos;
+    }
+
+    void onRequestStarted() {
+        outstanding.incrementAndGet();
+        requests.increment();
+    }
+
+    void onRequestCompleted(long latencyNanos, boolean failed, long nowNanos) {
+        // Не уходим в минус, если начало запроса не было зафиксировано (например, статистику сбросили)
+        outstanding.updateAndGet(value -> Math.max(0, value - 1));
+        if (failed) {
+            failures.increment();
+            lastFailureAtNanos = nowNanos;
+            consecutiveFailures.incrementAndGet();
+        } else {
+            consecutiveFailures.set(0);
+        }
+        if (latencyNanos >= 0) {
+            recordLatency(latencyNanos, nowNanos);
+        }
+    }
+
+    private synchronized void recordLatency(long latencyNanos, long nowNanos) {
+        if (!measured) {
+            // Первый замер берется как есть, иначе прогревающийся инстанс долго выглядел бы быстрым
+            ewmaNanos = latencyNanos;
+            measured = true;
+        } else {
+            double weight = Math.exp(-(double) Math.max(0, nowNanos - lastSampleAtNanos) / decayNanos);
+            ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+        }
+        lastSampleAtNanos = nowNanos;
+    }
+
+    // Стоимость отправки сюда еще одного запроса: ожидаемая задержка, умноженная на длину очереди.
+    // Чем дольше у инстанса не было ответов, тем сильнее забывается его EWMA - так инстанс,
+    // который был медленным (GC, прогрев), со временем снова начинает получать запросы
+    double cost(long nowNanos) {
+        int inFlight = outstanding.get();
+        if (!measured) {
+            // Первый запрос на новый инстанс бесплатный, а пока он не ответил, инстанс считается медленным,
+            // как после ошибки. Стоимость конечна и растет с очередью: из двух новых инстансов выбирается менее
+            // загруженный (у Double.MAX_VALUE / 2 + inFlight добавка терялась бы в точности double)
+            return inFlight == 0 ? 0 : (double) unmeasuredLatencyNanos * (inFlight + 1);
+        }
+        double idleWeight = Math.exp(-(double) Math.max(0, nowNanos - lastSampleAtNanos) / decayNanos);
+        return ewmaNanos * idleWeight * (inFlight + 1);
+    }
+
+    // Инстанс подряд отвечает ошибками (или не отвечает вовсе), и с последней ошибки прошло меньше cooldown.
+    // После cooldown на него снова пойдет запрос: если он ответит успешно, серия ошибок сбросится
+    boolean isFailing(long nowNanos, int failuresThreshold, long cooldownNanos) {
+        return consecutiveFailures.get() >= failuresThreshold && nowNanos - lastFailureAtNanos < cooldownNanos;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public double getEwmaNanos() {
+        return measured ? ewmaNanos : 0;
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+public record InstanceStatsSnapshot(
+        String instance,
+        int outstanding,
+        double ewmaLatencyMillis,
+        long requests,
+        long failures
+) {
+
+    static InstanceStatsSnapshot of(String instance, InstanceStats stats) {
+        return new InstanceStatsSnapshot(
+                instance,
+                stats.getOutstanding(),
+                stats.getEwmaNanos() / 1_000_000,
+                stats.getRequests(),
+                stats.getFailures()
+        );
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntUnaryOperator;
+
+// Балансировщик "power of two choices": берутся два случайных инстанса, и запрос уходит на тот,
+// у которого меньше стоимость (EWMA задержки * число запросов в полете).
+// В отличие от round-robin, один медленный инстанс (GC, прогрев) быстро перестает получать запросы,
+// а случайный выбор пары не дает всем клиентам одновременно ломиться в один и тот же "лучший" инстанс
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final LoadBalancerStatsRegistry statsRegistry;
+
+    private final IntUnaryOperator randomIndex;
+
+    public LatencyAwareLoadBalancer(
+            ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+            LoadBalancerStatsRegistry statsRegistry
+    ) {
+        this(serviceInstanceListSupplierProvider, statsRegistry, bound -> ThreadLocalRandom.current().nextInt(bound));
+    }
+
+    LatencyAwareLoadBalancer(
+            ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+            LoadBalancerStatsRegistry statsRegistry,
+            IntUnaryOperator randomIndex
+    ) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.statsRegistry = statsRegistry;
+        this.randomIndex = randomIndex;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        statsRegistry.retainInstances(instances);
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+
+        int first = randomIndex.applyAsInt(instances.size());
+        // Второй индекс выбирается среди оставшихся, чтобы пара всегда состояла из разных инстансов
+        int second = randomIndex.applyAsInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        long now = statsRegistry.nanoTime();
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        double costA = statsRegistry.statsFor(a).cost(now);
+        double costB = statsRegistry.statsFor(b).cost(now);
+
+        return new DefaultResponse(costB < costA ? b : a);
+    }
+
+}
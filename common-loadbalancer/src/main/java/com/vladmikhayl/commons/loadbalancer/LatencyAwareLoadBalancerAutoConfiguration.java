@@ -0,0 +1,43 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Подключается автоматически в любом модуле, где есть эта библиотека (gateway и микросервисы с Feign-клиентами).
+// Заменяет стандартный round-robin для всех сервисов сразу
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "loadbalancer.latency-aware", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties({LatencyAwareLoadBalancerProperties.class, UserAffinityProperties.class})
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerConfiguration.class)
+public class LatencyAwareLoadBalancerAutoConfiguration {
+
+    @Bean
+    public LoadBalancerStatsRegistry loadBalancerStatsRegistry(LatencyAwareLoadBalancerProperties properties) {
+        return new LoadBalancerStatsRegistry(properties);
+    }
+
+    @Bean
+    public LatencyTrackingLifecycle latencyTrackingLifecycle(LoadBalancerStatsRegistry statsRegistry) {
+        return new LatencyTrackingLifecycle(statsRegistry);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnAvailableEndpoint
+        public LoadBalancerStatsEndpoint loadBalancerStatsEndpoint(LoadBalancerStatsRegistry statsRegistry) {
+            return new LoadBalancerStatsEndpoint(statsRegistry);
+        }
+
+    }
+
+}
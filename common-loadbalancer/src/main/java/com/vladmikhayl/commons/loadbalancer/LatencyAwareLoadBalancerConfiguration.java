@@ -0,0 +1,37 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+// Конфигурация дочернего контекста, который Spring Cloud LoadBalancer создает для каждого сервиса.
+// Специально без @Configuration: этот класс не должен попадать в основной контекст приложения.
+// Для сервисов из loadbalancer.user-affinity.services поверх latency-aware балансировщика включается
+// привязка пользователей к инстансам
+public class LatencyAwareLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> latencyAwareLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            LoadBalancerStatsRegistry statsRegistry,
+            UserAffinityProperties userAffinityProperties
+    ) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        ObjectProvider<ServiceInstanceListSupplier> supplierProvider =
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class);
+        LatencyAwareLoadBalancer latencyAware = new LatencyAwareLoadBalancer(supplierProvider, statsRegistry);
+
+        boolean userAffinity = serviceId != null && userAffinityProperties.getServices().stream()
+                .anyMatch(service -> service.equalsIgnoreCase(serviceId));
+        if (userAffinity) {
+            return new UserAffinityLoadBalancer(supplierProvider, statsRegistry, latencyAware, userAffinityProperties);
+        }
+        return latencyAware;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Настройки балансировщика (берутся из конфига приложения по префиксу loadbalancer.latency-aware)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "loadbalancer.latency-aware")
+public class LatencyAwareLoadBalancerProperties {
+
+    // Если false, то используется стандартный round-robin из Spring Cloud LoadBalancer
+    private boolean enabled = true;
+
+    // За какое время старые замеры задержки почти перестают влиять на EWMA
+    private Duration decayTime = Duration.ofSeconds(10);
+
+    // Какая задержка записывается инстансу за запрос, закончившийся ошибкой или 5xx
+    // (иначе быстро падающий инстанс выглядел бы самым быстрым). Такая же задержка предполагается у нового
+    // инстанса, пока на его первый запрос не пришел ответ
+    private Duration failurePenalty = Duration.ofSeconds(2);
+
+}
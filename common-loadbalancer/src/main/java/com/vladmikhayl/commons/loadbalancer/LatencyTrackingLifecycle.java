@@ -0,0 +1,70 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+
+// Собирает статистику по инстансам. Spring Cloud вызывает его и из фильтра gateway для lb:// маршрутов,
+// и из @LoadBalanced WebClient, и из блокирующих Feign-клиентов, поэтому статистика одна на все способы вызова
+public class LatencyTrackingLifecycle implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final LoadBalancerStatsRegistry statsRegistry;
+
+    public LatencyTrackingLifecycle(LoadBalancerStatsRegistry statsRegistry) {
+        this.statsRegistry = statsRegistry;
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        // Время начала хранится в контексте запроса (так же делает MicrometerStatsLoadBalancerLifecycle)
+        if (request.getContext() instanceof TimedRequestContext context && context.getRequestStartTime() == 0) {
+            context.setRequestStartTime(statsRegistry.nanoTime());
+        }
+        statsRegistry.statsFor(lbResponse.getServer()).onRequestStarted();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD
+                || lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+
+        long now = statsRegistry.nanoTime();
+        boolean failed = isFailed(completionContext);
+
+        long latency = -1;
+        Request<Object> request = completionContext.getLoadBalancerRequest();
+        if (request != null && request.getContext() instanceof TimedRequestContext context
+                && context.getRequestStartTime() != 0) {
+            latency = now - context.getRequestStartTime();
+            if (failed) {
+                latency = Math.max(latency, statsRegistry.getFailurePenaltyNanos());
+            }
+        }
+
+        statsRegistry.statsFor(lbResponse.getServer()).onRequestCompleted(latency, failed, now);
+    }
+
+    private static boolean isFailed(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            return true;
+        }
+        return completionContext.getClientResponse() instanceof ResponseData response
+                && response.getHttpStatus() != null
+                && response.getHttpStatus().is5xxServerError();
+    }
+
+}
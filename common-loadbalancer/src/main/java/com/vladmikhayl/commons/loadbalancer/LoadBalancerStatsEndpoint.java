@@ -0,0 +1,24 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+import java.util.Map;
+
+// GET /actuator/loadbalancer - текущая статистика по каждому инстансу каждого сервиса
+@Endpoint(id = "loadbalancer")
+public class LoadBalancerStatsEndpoint {
+
+    private final LoadBalancerStatsRegistry statsRegistry;
+
+    public LoadBalancerStatsEndpoint(LoadBalancerStatsRegistry statsRegistry) {
+        this.statsRegistry = statsRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, List<InstanceStatsSnapshot>> stats() {
+        return statsRegistry.snapshot();
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Общая для всех сервисов статистика по инстансам. Один экземпляр на приложение: в нее пишет LatencyTrackingLifecycle
+// (и из gateway, и из Feign-клиентов), а читает LatencyAwareLoadBalancer каждого сервиса
+public class LoadBalancerStatsRegistry {
+
+    private final Map<String, Map<String, InstanceStats>> statsByService = new ConcurrentHashMap<>();
+
+    private final long decayNanos;
+
+    private final long failurePenaltyNanos;
+
+    private final LongSupplier nanoTime;
+
+    public LoadBalancerStatsRegistry(LatencyAwareLoadBalancerProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    LoadBalancerStatsRegistry(LatencyAwareLoadBalancerProperties properties, LongSupplier nanoTime) {
+        this.decayNanos = Math.max(1, properties.getDecayTime().toNanos());
+        this.failurePenaltyNanos = properties.getFailurePenalty().toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    public InstanceStats statsFor(ServiceInstance instance) {
+        return statsByService
+                .computeIfAbsent(serviceKey(instance), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(instanceKey(instance), key -> new InstanceStats(decayNanos, failurePenaltyNanos));
+    }
+
+    // Убирает статистику инстансов, которых больше нет в списке от discovery: при каждом перезапуске или
+    // переезде инстанса появляется новый host:port, и без этого карта только росла бы (а actuator показывал бы
+    // давно остановленные инстансы). Вызывается балансировщиками на каждый выбор, поэтому сначала сравниваются
+    // только размеры: пока состав инстансов не меняется, лишних записей нет и набор ключей не собирается.
+    // Пустой список не трогает статистику - это скорее временный сбой discovery, чем остановка всех инстансов
+    public void retainInstances(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return;
+        }
+        Map<String, InstanceStats> stats = statsByService.get(serviceKey(instances.get(0)));
+        if (stats == null || stats.size() <= instances.size()) {
+            return;
+        }
+        Set<String> current = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            current.add(instanceKey(instance));
+        }
+        stats.keySet().retainAll(current);
+    }
+
+    long nanoTime() {
+        return nanoTime.getAsLong();
+    }
+
+    long getFailurePenaltyNanos() {
+        return failurePenaltyNanos;
+    }
+
+    // Снимок статистики для actuator (сервисы и инстансы отсортированы, чтобы вывод был стабильным)
+    public Map<String, List<InstanceStatsSnapshot>> snapshot() {
+        Map<String, List<InstanceStatsSnapshot>> result = new TreeMap<>();
+        statsByService.forEach((serviceId, instances) -> result.put(serviceId, instances.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> InstanceStatsSnapshot.of(entry.getKey(), entry.getValue()))
+                .toList()));
+        return result;
+    }
+
+    // Eureka отдает имена сервисов в верхнем регистре, а discovery-клиенты - как в конфиге
+    private static String serviceKey(ServiceInstance instance) {
+        return instance.getServiceId() == null ? "" : instance.getServiceId().toLowerCase(Locale.ROOT);
+    }
+
+    private static String instanceKey(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+}
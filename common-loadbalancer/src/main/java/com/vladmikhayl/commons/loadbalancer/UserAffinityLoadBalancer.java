@@ -0,0 +1,116 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Балансировщик с привязкой пользователя к инстансу (consistent hashing with bounded loads): все запросы одного
+// пользователя идут на один и тот же инстанс, поэтому его привычки, подписки и статусы отчетов лежат в кэшах
+// одного инстанса, а не размазаны по всем. Чтобы активные пользователи не перегрузили свой инстанс, у каждого
+// инстанса есть предел запросов в полете: ceil(среднее * (1 + balanceFactor)). Если инстанс пользователя
+// уже на пределе или подряд отвечает ошибками, то запрос уходит на следующий инстанс по кольцу.
+// Кольцо строится по текущему списку инстансов из Eureka: когда инстанс уходит, его пользователи
+// переезжают на соседей по кольцу, а остальные пользователи остаются на своих инстансах.
+// Запросы без ID пользователя (внутренние, swagger) распределяет обычный latency-aware балансировщик
+public class UserAffinityLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final LoadBalancerStatsRegistry statsRegistry;
+
+    private final LatencyAwareLoadBalancer fallback;
+
+    private final UserAffinityProperties properties;
+
+    // Кольцо перестраивается, только когда меняется набор инстансов
+    private volatile ConsistentHashRing ring;
+
+    public UserAffinityLoadBalancer(
+            ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+            LoadBalancerStatsRegistry statsRegistry,
+            LatencyAwareLoadBalancer fallback,
+            UserAffinityProperties properties
+    ) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.statsRegistry = statsRegistry;
+        this.fallback = fallback;
+        this.properties = properties;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String userId = userId(request);
+        return supplier.get(request).next().map(instances -> choose(instances, userId));
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> instances, String userId) {
+        if (userId == null || userId.isBlank() || instances.size() <= 1) {
+            return fallback.choose(instances);
+        }
+        statsRegistry.retainInstances(instances);
+
+        Map<String, ServiceInstance> byKey = new HashMap<>();
+        int totalOutstanding = 0;
+        for (ServiceInstance instance : instances) {
+            byKey.put(instanceKey(instance), instance);
+            totalOutstanding += statsRegistry.statsFor(instance).getOutstanding();
+        }
+
+        // Предел считается с учетом этого запроса; он всегда больше средней загрузки, поэтому
+        // хотя бы один инстанс (если не все отвечают ошибками) под него подходит
+        long capacity = (long) Math.ceil((totalOutstanding + 1) * (1 + properties.getBalanceFactor()) / byKey.size());
+        long now = statsRegistry.nanoTime();
+        long cooldownNanos = properties.getFailoverCooldown().toNanos();
+
+        String chosen = ringFor(byKey).find(userId, key -> {
+            InstanceStats stats = statsRegistry.statsFor(byKey.get(key));
+            return stats.getOutstanding() + 1 <= capacity
+                    && !stats.isFailing(now, properties.getFailoverAfterFailures(), cooldownNanos);
+        });
+
+        if (chosen == null) {
+            // Все инстансы отвечают ошибками: пусть выберет latency-aware балансировщик
+            return fallback.choose(instances);
+        }
+        return new DefaultResponse(byKey.get(chosen));
+    }
+
+    private ConsistentHashRing ringFor(Map<String, ServiceInstance> byKey) {
+        ConsistentHashRing current = ring;
+        if (current == null || !current.hasSameInstances(byKey.keySet())) {
+            current = new ConsistentHashRing(byKey.keySet(), properties.getVirtualNodes());
+            ring = current;
+        }
+        return current;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private String userId(Request request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            HttpHeaders headers = context.getClientRequest().getHeaders();
+            return headers == null ? null : headers.getFirst(properties.getHeader());
+        }
+        return null;
+    }
+
+    // Тот же ключ, что и в LoadBalancerStatsRegistry: по нему инстанс узнается после перерегистрации в Eureka
+    private static String instanceKey(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+// Настройки привязки пользователей к инстансам (префикс loadbalancer.user-affinity)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "loadbalancer.user-affinity")
+public class UserAffinityProperties {
+
+    // Сервисы, запросы к которым распределяются по ID пользователя (для остальных - latency-aware балансировщик)
+    private Set<String> services = new HashSet<>();
+
+    // Заголовок с ID пользователя (его выставляет JwtTokenFilter в gateway)
+    private String header = "X-User-Id";
+
+    // Насколько загрузка инстанса может превышать среднюю, прежде чем его пользователи пойдут на следующий
+    // инстанс по кольцу: 0.25 - не больше чем на 25% запросов в полете сверх среднего
+    private double balanceFactor = 0.25;
+
+    // Сколько точек на кольце у каждого инстанса (чем больше, тем ровнее пользователи делятся между инстансами)
+    private int virtualNodes = 100;
+
+    // После стольких ошибок подряд инстанс считается упавшим, и его пользователи временно идут на следующий
+    // инстанс по кольцу (пока Eureka и кэш списка инстансов не узнали, что он ушел)
+    private int failoverAfterFailures = 3;
+
+    // Через сколько после последней ошибки на упавший инстанс снова пробуется отправить запрос
+    private Duration failoverCooldown = Duration.ofSeconds(10);
+
+}
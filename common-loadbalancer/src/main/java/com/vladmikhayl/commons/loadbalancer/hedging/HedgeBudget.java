@@ -0,0 +1,30 @@
+package com.vladmikhayl.commons.loadbalancer.hedging;
+
+// Общий бюджет вторых запросов: каждый запрос пополняет его на budgetRatio, каждый второй запрос тратит единицу.
+// Если все инстансы разом стали медленными, то бюджет быстро кончается, и хеджирование не превращается в шторм повторов
+class HedgeBudget {
+
+    private final double ratio;
+
+    private final double max;
+
+    private double tokens;
+
+    HedgeBudget(double ratio, double max) {
+        this.ratio = ratio;
+        this.max = max;
+    }
+
+    synchronized void onRequest() {
+        tokens = Math.min(max, tokens + ratio);
+    }
+
+    synchronized boolean tryAcquire() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+}
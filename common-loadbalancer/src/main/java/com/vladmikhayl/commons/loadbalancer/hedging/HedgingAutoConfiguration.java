@@ -0,0 +1,40 @@
+package com.vladmikhayl.commons.loadbalancer.hedging;
+
+import feign.Client;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+// Оборачивает Feign-клиент с балансировкой (бин feign.Client) в HedgingFeignClient.
+// Включается только явно: loadbalancer.hedging.enabled=true
+@AutoConfiguration
+@ConditionalOnClass(Client.class)
+@ConditionalOnProperty(prefix = "loadbalancer.hedging", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(HedgingProperties.class)
+public class HedgingAutoConfiguration {
+
+    // Метод статический, а настройки берутся лениво, чтобы BeanPostProcessor не поднимал бины раньше времени.
+    // При spring.threads.virtual.enabled=true (на Java 21+) вторые запросы выполняются в виртуальных потоках
+    @Bean
+    public static BeanPostProcessor hedgingFeignClientPostProcessor(
+            ObjectProvider<HedgingProperties> properties,
+            Environment environment
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof Client client && !(bean instanceof HedgingFeignClient)) {
+                    return new HedgingFeignClient(client, properties.getObject(), Threading.VIRTUAL.isActive(environment));
+                }
+                return bean;
+            }
+        };
+    }
+
+}
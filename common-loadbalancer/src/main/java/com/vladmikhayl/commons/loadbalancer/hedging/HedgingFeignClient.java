@@ -0,0 +1,187 @@
+package com.vladmikhayl.commons.loadbalancer.hedging;
+
+import com.vladmikhayl.commons.web.concurrency.BoundedExecutors;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.AntPathMatcher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Обертка над Feign-клиентом с балансировкой. Для идемпотентных GET-эндпоинтов из конфига:
+// если ответа нет дольше, чем p95 задержки этого эндпоинта, то отправляется второй такой же запрос
+// (балансировщик отправит его на другой, менее загруженный инстанс) и берется тот ответ, который придет первым.
+// Все остальные запросы выполняются как обычно, в вызывающем потоке
+@Slf4j
+public class HedgingFeignClient implements Client, DisposableBean {
+
+    private final Client delegate;
+
+    private final HedgingProperties properties;
+
+    private final List<String> paths;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    private final HedgeBudget budget;
+
+    private final ExecutorService executor;
+
+    public HedgingFeignClient(Client delegate, HedgingProperties properties) {
+        this(delegate, properties, false);
+    }
+
+    // virtualThreads = true - вторые запросы выполняются в виртуальных потоках (только на Java 21+)
+    public HedgingFeignClient(Client delegate, HedgingProperties properties, boolean virtualThreads) {
+        // Число одновременных запросов ограничено maxThreads и в режиме виртуальных потоков: лимит нужен не из-за
+        // стоимости потоков, а чтобы хеджирование не удвоило нагрузку на вызываемый сервис
+        this(delegate, properties,
+                BoundedExecutors.newBoundedExecutor("feign-hedging-", properties.getMaxThreads(), virtualThreads));
+    }
+
+    HedgingFeignClient(Client delegate, HedgingProperties properties, ExecutorService executor) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.paths = List.copyOf(properties.getPaths());
+        this.budget = new HedgeBudget(properties.getBudgetRatio(), properties.getMaxBudget());
+        this.executor = executor;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        String pattern = request.httpMethod() == Request.HttpMethod.GET ? matchingPattern(request.url()) : null;
+        if (pattern == null) {
+            return delegate.execute(request, options);
+        }
+
+        LatencyWindow window = windows.computeIfAbsent(pattern, key -> new LatencyWindow(
+                properties.getWindowSize(), properties.getPercentile(), properties.getMinSamples()));
+        budget.onRequest();
+
+        CompletableFuture<Response> primary = submit(request, options, window);
+        if (primary == null) {
+            // Все потоки заняты - выполняем запрос без хеджирования
+            return delegate.execute(request, options);
+        }
+
+        long hedgeDelayNanos = window.getPercentileNanos();
+        if (hedgeDelayNanos < 0) {
+            return await(primary);
+        }
+        hedgeDelayNanos = Math.max(hedgeDelayNanos, properties.getMinDelay().toNanos());
+
+        try {
+            return primary.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Ответ не пришел за p95 - пробуем отправить второй запрос
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Запрос был прерван");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+
+        if (!budget.tryAcquire()) {
+            return await(primary);
+        }
+        CompletableFuture<Response> hedge = submit(request, options, window);
+        if (hedge == null) {
+            return await(primary);
+        }
+        log.debug("Отправлен второй запрос {} {} (нет ответа дольше {} мс)",
+                request.httpMethod(), pattern, TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos));
+
+        return await(firstSuccessful(primary, hedge));
+    }
+
+    private CompletableFuture<Response> submit(Request request, Request.Options options, LatencyWindow window) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    Response response = delegate.execute(request, options);
+                    window.record(System.nanoTime() - start);
+                    return response;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    // Берется первый успешный ответ, а второй (если он тоже придет) закрывается.
+    // Ошибка возвращается, только если оба запроса закончились ошибкой
+    private static CompletableFuture<Response> firstSuccessful(CompletableFuture<Response> first, CompletableFuture<Response> second) {
+        CompletableFuture<Response> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<Response> attempt : List.of(first, second)) {
+            attempt.whenComplete((response, error) -> {
+                if (error == null) {
+                    if (!winner.complete(response)) {
+                        response.close();
+                    }
+                } else if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(error);
+                }
+            });
+        }
+        return winner;
+    }
+
+    private static Response await(CompletableFuture<Response> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Запрос был прерван");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static IOException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IOException ioException) {
+            return ioException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        return new IOException(cause);
+    }
+
+    private String matchingPattern(String url) {
+        String path = URI.create(url).getPath();
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern, path)) {
+                return pattern;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+}
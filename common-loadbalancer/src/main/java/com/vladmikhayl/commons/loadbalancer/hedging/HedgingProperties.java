@@ -0,0 +1,45 @@
+package com.vladmikhayl.commons.loadbalancer.hedging;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Настройки хеджирования запросов Feign-клиентов (берутся из конфига приложения по префиксу loadbalancer.hedging)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "loadbalancer.hedging")
+public class HedgingProperties {
+
+    // Хеджирование включается явно, и только для перечисленных в paths эндпоинтов
+    private boolean enabled = false;
+
+    // Шаблоны путей (в стиле Ant) идемпотентных GET-эндпоинтов, для которых можно отправлять второй запрос.
+    // Для каждого шаблона ведется своя статистика задержек
+    private List<String> paths = new ArrayList<>();
+
+    // Если за этот перцентиль задержки ответа нет, то отправляется второй запрос
+    private double percentile = 0.95;
+
+    // Меньше этой задержки второй запрос не отправляется, даже если эндпоинт очень быстрый
+    private Duration minDelay = Duration.ofMillis(5);
+
+    // По скольким последним ответам считается перцентиль
+    private int windowSize = 1000;
+
+    // Пока ответов меньше, перцентиль считается неизвестным и второй запрос не отправляется
+    private int minSamples = 50;
+
+    // Какую долю от всех запросов могут составлять вторые запросы (чтобы при общей деградации не удвоить нагрузку)
+    private double budgetRatio = 0.1;
+
+    // Сколько вторых запросов можно отправить подряд, если бюджет был накоплен заранее
+    private int maxBudget = 10;
+
+    // Максимум одновременно выполняемых запросов через хеджирующий клиент (когда все заняты, запрос идет без хеджирования)
+    private int maxThreads = 64;
+
+}
@@ -0,0 +1,54 @@
+package com.vladmikhayl.commons.loadbalancer.hedging;
+
+import java.util.Arrays;
+
+// Скользящее окно последних задержек одного эндпоинта. Перцентиль пересчитывается не на каждый ответ,
+// а раз в несколько ответов, поэтому его чтение ничего не стоит
+class LatencyWindow {
+
+    private final long[] samples;
+
+    private final double percentile;
+
+    private final int minSamples;
+
+    private final int recomputeEvery;
+
+    private int next;
+
+    private int count;
+
+    private int sinceRecompute;
+
+    private volatile long percentileNanos = -1;
+
+    LatencyWindow(int size, double percentile, int minSamples) {
+        this.samples = new long[Math.max(1, size)];
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, Math.min(minSamples, samples.length));
+        this.recomputeEvery = Math.max(1, samples.length / 20);
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        sinceRecompute++;
+
+        if (count >= minSamples && (percentileNanos < 0 || sinceRecompute >= recomputeEvery)) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            percentileNanos = sorted[Math.min(count - 1, Math.max(0, index))];
+            sinceRecompute = 0;
+        }
+    }
+
+    // -1, если замеров пока недостаточно
+    long getPercentileNanos() {
+        return percentileNanos;
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.vladmikhayl.commons.loadbalancer.singleflight;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import com.vladmikhayl.commons.web.deadline.DeadlineExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Схлопывает одновременные одинаковые вызовы: пока вызов с таким ключом выполняется, остальные потоки
+// с тем же ключом не делают свой запрос, а ждут и получают тот же результат (или ту же ошибку).
+// Ничего не кэширует: как только вызов закончился, следующий вызов с тем же ключом выполнится заново.
+// Дедлайн (см. Deadline) у каждого запроса свой: ждущий поток ждет не дольше своего дедлайна, а если у выполнявшего
+// вызов потока истек его дедлайн, то ждущие не получают эту ошибку, а выполняют вызов заново.
+// Метрики: singleflight.calls{name, outcome=executed|collapsed} и singleflight.in-flight{name}
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter executed;
+
+    private final Counter collapsed;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.executed = Counter.builder("singleflight.calls")
+                .description("Вызовы, которые действительно были выполнены")
+                .tag("name", name)
+                .tag("outcome", "executed")
+                .register(meterRegistry);
+        this.collapsed = Counter.builder("singleflight.calls")
+                .description("Вызовы, которые получили результат уже выполнявшегося такого же вызова")
+                .tag("name", name)
+                .tag("outcome", "collapsed")
+                .register(meterRegistry);
+        Gauge.builder("singleflight.in-flight", inFlight, Map::size)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+
+        if (existing != null) {
+            collapsed.increment();
+            return await(existing, key, call);
+        }
+
+        executed.increment();
+        try {
+            V value = call.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private V await(CompletableFuture<V> future, K key, Supplier<V> call) {
+        try {
+            Optional<Duration> remaining = Deadline.remaining();
+            if (remaining.isEmpty()) {
+                return future.get();
+            }
+            return future.get(Math.max(remaining.get().toNanos(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание результата вызова прервано");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DeadlineExceededException) {
+                // Истек дедлайн выполнявшего вызов потока, а у этого потока время еще может быть
+                Deadline.throwIfExpired();
+                return execute(key, call);
+            }
+            // Ждущим потокам пробрасывается то же исключение, что получил выполнявший вызов поток
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
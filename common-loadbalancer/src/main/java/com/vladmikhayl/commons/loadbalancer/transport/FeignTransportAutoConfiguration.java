@@ -0,0 +1,44 @@
+package com.vladmikhayl.commons.loadbalancer.transport;
+
+import feign.hc5.ApacheHttp5Client;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+// Feign-клиенты ходят через пул соединений Apache HttpClient 5 (его создает Spring Cloud OpenFeign,
+// когда в модуле есть feign-hc5). Здесь пул дополняется размерами для отдельных адресов и метриками:
+// заполненность пула (httpcomponents.httpclient.pool.*) и время ожидания соединения (feign.pool.wait)
+@AutoConfiguration
+@ConditionalOnClass({ApacheHttp5Client.class, PoolingHttpClientConnectionManager.class, MeterRegistry.class})
+@ConditionalOnProperty(prefix = "spring.cloud.openfeign.httpclient.hc5", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(FeignTransportProperties.class)
+public class FeignTransportAutoConfiguration {
+
+    // Метод статический, а зависимости берутся лениво, чтобы BeanPostProcessor не поднимал бины раньше времени
+    @Bean
+    public static BeanPostProcessor feignConnectionManagerPostProcessor(
+            ObjectProvider<FeignTransportProperties> properties,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof PoolingHttpClientConnectionManager pool) {
+                    MeterRegistry registry = meterRegistry.getIfAvailable(CompositeMeterRegistry::new);
+                    new PoolingHttpClientConnectionManagerMetricsBinder(pool, "feign").bindTo(registry);
+                    return new InstrumentedConnectionManager(pool, properties.getObject().getMaxPerRoute(), registry);
+                }
+                return bean;
+            }
+        };
+    }
+
+}
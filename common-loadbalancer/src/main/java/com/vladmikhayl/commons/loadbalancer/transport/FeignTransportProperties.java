@@ -0,0 +1,21 @@
+package com.vladmikhayl.commons.loadbalancer.transport;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Дополнительные настройки пула соединений Feign-клиентов (префикс loadbalancer.transport).
+// Общие размеры пула и таймауты задаются стандартными настройками spring.cloud.openfeign.httpclient.*
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "loadbalancer.transport")
+public class FeignTransportProperties {
+
+    // Максимум соединений для отдельных адресов: ключ - "host:port" или просто "host", значение - размер пула.
+    // Для остальных адресов действует spring.cloud.openfeign.httpclient.max-connections-per-route
+    private Map<String, Integer> maxPerRoute = new LinkedHashMap<>();
+
+}
@@ -0,0 +1,189 @@
+package com.vladmikhayl.commons.loadbalancer.transport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Пул соединений Feign-клиентов, который:
+// 1) при первом обращении к адресу выставляет для него размер пула из loadbalancer.transport.max-per-route
+//    (адреса инстансов заранее неизвестны, они приходят из балансировщика);
+// 2) замеряет, сколько запрос ждал свободного соединения из пула: feign.pool.wait{route, outcome=acquired|timeout}.
+// Заполненность самого пула публикуется отдельно (httpcomponents.httpclient.pool.*).
+// Управление пулом (ConnPoolControl) передается исходному пулу: HttpClientBuilder запускает фоновую очистку
+// просроченных и простаивающих соединений только для менеджера, который его поддерживает
+public class InstrumentedConnectionManager implements HttpClientConnectionManager, ConnPoolControl<HttpRoute> {
+
+    private final PoolingHttpClientConnectionManager delegate;
+
+    private final Map<String, Integer> maxPerRoute;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<HttpRoute> configuredRoutes = ConcurrentHashMap.newKeySet();
+
+    public InstrumentedConnectionManager(
+            PoolingHttpClientConnectionManager delegate,
+            Map<String, Integer> maxPerRoute,
+            MeterRegistry meterRegistry
+    ) {
+        this.delegate = delegate;
+        this.maxPerRoute = maxPerRoute;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        configureRoute(route);
+        LeaseRequest leaseRequest = delegate.lease(id, route, requestTimeout, state);
+        String routeTag = routeKey(route.getTargetHost());
+
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                long start = System.nanoTime();
+                String outcome = "timeout";
+                try {
+                    ConnectionEndpoint endpoint = leaseRequest.get(timeout);
+                    outcome = "acquired";
+                    return endpoint;
+                } finally {
+                    waitTimer(routeTag, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return leaseRequest.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void release(ConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+        delegate.release(endpoint, newState, validDuration);
+    }
+
+    @Override
+    public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context) throws IOException {
+        delegate.connect(endpoint, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(ConnectionEndpoint endpoint, HttpContext context) throws IOException {
+        delegate.upgrade(endpoint, context);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        delegate.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+        delegate.setMaxTotal(max);
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return delegate.getMaxTotal();
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+        delegate.setDefaultMaxPerRoute(max);
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+        return delegate.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public void setMaxPerRoute(HttpRoute route, int max) {
+        delegate.setMaxPerRoute(route, max);
+    }
+
+    @Override
+    public int getMaxPerRoute(HttpRoute route) {
+        return delegate.getMaxPerRoute(route);
+    }
+
+    @Override
+    public void closeIdle(TimeValue idleTime) {
+        delegate.closeIdle(idleTime);
+    }
+
+    @Override
+    public void closeExpired() {
+        delegate.closeExpired();
+    }
+
+    @Override
+    public Set<HttpRoute> getRoutes() {
+        return delegate.getRoutes();
+    }
+
+    @Override
+    public PoolStats getTotalStats() {
+        return delegate.getTotalStats();
+    }
+
+    @Override
+    public PoolStats getStats(HttpRoute route) {
+        return delegate.getStats(route);
+    }
+
+    public PoolingHttpClientConnectionManager getDelegate() {
+        return delegate;
+    }
+
+    private void configureRoute(HttpRoute route) {
+        if (maxPerRoute.isEmpty() || !configuredRoutes.add(route)) {
+            return;
+        }
+        HttpHost target = route.getTargetHost();
+        Integer max = maxPerRoute.getOrDefault(routeKey(target), maxPerRoute.get(target.getHostName()));
+        if (max != null) {
+            delegate.setMaxPerRoute(route, max);
+        }
+    }
+
+    private Timer waitTimer(String route, String outcome) {
+        return Timer.builder("feign.pool.wait")
+                .description("Время ожидания свободного соединения в пуле Feign-клиентов")
+                .tag("route", route)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String routeKey(HttpHost host) {
+        return host.getHostName() + ":" + host.getPort();
+    }
+
+}
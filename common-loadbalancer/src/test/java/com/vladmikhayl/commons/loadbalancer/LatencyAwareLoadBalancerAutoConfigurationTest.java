@@ -0,0 +1,58 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.loadbalancer.config.LoadBalancerAutoConfiguration;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyAwareLoadBalancerAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    LoadBalancerAutoConfiguration.class,
+                    LatencyAwareLoadBalancerAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.cloud.discovery.client.simple.instances.report[0].uri=http://localhost:8083");
+
+    @Test
+    void replacesRoundRobinForEveryService() {
+        contextRunner.run(context -> {
+            LoadBalancerClientFactory factory = context.getBean(LoadBalancerClientFactory.class);
+
+            assertThat(factory.getInstance("report")).isInstanceOf(LatencyAwareLoadBalancer.class);
+            assertThat(factory.getInstance("habit")).isInstanceOf(LatencyAwareLoadBalancer.class);
+            // Lifecycle из основного контекста виден в дочерних (так его находят gateway и Feign)
+            assertThat(factory.getInstances("report", LoadBalancerLifecycle.class))
+                    .containsValue(context.getBean(LatencyTrackingLifecycle.class));
+        });
+    }
+
+    @Test
+    void enablesUserAffinityOnlyForConfiguredServices() {
+        contextRunner
+                .withPropertyValues("loadbalancer.user-affinity.services=habit")
+                .run(context -> {
+                    LoadBalancerClientFactory factory = context.getBean(LoadBalancerClientFactory.class);
+
+                    assertThat(factory.getInstance("habit")).isInstanceOf(UserAffinityLoadBalancer.class);
+                    assertThat(factory.getInstance("report")).isInstanceOf(LatencyAwareLoadBalancer.class);
+                });
+    }
+
+    @Test
+    void canBeDisabled() {
+        contextRunner
+                .withPropertyValues("loadbalancer.latency-aware.enabled=false")
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean(LoadBalancerStatsRegistry.class);
+                    assertThat(context.getBean(LoadBalancerClientFactory.class).getInstance("report"))
+                            .isInstanceOf(RoundRobinLoadBalancer.class);
+                });
+    }
+
+}
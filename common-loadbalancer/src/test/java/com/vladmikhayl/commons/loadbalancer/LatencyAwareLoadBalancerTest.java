@@ -0,0 +1,189 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class LatencyAwareLoadBalancerTest {
+
+    private static final long MS = 1_000_000;
+
+    private final ServiceInstance fast = new DefaultServiceInstance("report-1", "report", "10.0.0.1", 8080, false);
+
+    private final ServiceInstance slow = new DefaultServiceInstance("report-2", "report", "10.0.0.2", 8080, false);
+
+    private final AtomicLong now = new AtomicLong(1_000 * MS);
+
+    // Индексы, которые "случайно" выберет балансировщик (по порядку)
+    private final Deque<Integer> randomIndexes = new ArrayDeque<>();
+
+    private LoadBalancerStatsRegistry registry;
+
+    private LatencyTrackingLifecycle lifecycle;
+
+    private LatencyAwareLoadBalancer underTest;
+
+    @BeforeEach
+    void setUp() {
+        LatencyAwareLoadBalancerProperties properties = new LatencyAwareLoadBalancerProperties();
+        properties.setDecayTime(Duration.ofSeconds(10));
+        properties.setFailurePenalty(Duration.ofSeconds(2));
+
+        registry = new LoadBalancerStatsRegistry(properties, now::get);
+        lifecycle = new LatencyTrackingLifecycle(registry);
+        underTest = new LatencyAwareLoadBalancer(mock(), registry, bound -> randomIndexes.isEmpty() ? 0 : randomIndexes.poll());
+    }
+
+    @Test
+    void picksInstanceWithLowerLatency() {
+        completeRequest(fast, 10 * MS, HttpStatus.OK);
+        completeRequest(slow, 500 * MS, HttpStatus.OK);
+
+        // Пара (slow, fast) в обоих порядках
+        randomIndexes.addAll(List.of(1, 0, 0, 0));
+
+        assertThat(underTest.choose(List.of(fast, slow)).getServer()).isEqualTo(fast);
+        assertThat(underTest.choose(List.of(fast, slow)).getServer()).isEqualTo(fast);
+    }
+
+    @Test
+    void picksLessLoadedInstanceWhenLatenciesAreEqual() {
+        completeRequest(fast, 10 * MS, HttpStatus.OK);
+        completeRequest(slow, 10 * MS, HttpStatus.OK);
+
+        // На первом инстансе висят два незавершенных запроса
+        startRequest(fast);
+        startRequest(fast);
+
+        assertThat(underTest.choose(List.of(fast, slow)).getServer()).isEqualTo(slow);
+    }
+
+    @Test
+    void sendsOnlyOneRequestAtATimeToUnmeasuredInstance() {
+        completeRequest(fast, 50 * MS, HttpStatus.OK);
+        ServiceInstance fresh = new DefaultServiceInstance("report-3", "report", "10.0.0.3", 8080, false);
+
+        assertThat(underTest.choose(List.of(fast, fresh)).getServer()).isEqualTo(fresh);
+
+        startRequest(fresh);
+
+        assertThat(underTest.choose(List.of(fast, fresh)).getServer()).isEqualTo(fast);
+    }
+
+    @Test
+    void picksLessLoadedInstanceAmongUnmeasuredOnes() {
+        ServiceInstance first = new DefaultServiceInstance("report-3", "report", "10.0.0.3", 8080, false);
+        ServiceInstance second = new DefaultServiceInstance("report-4", "report", "10.0.0.4", 8080, false);
+        startRequest(first);
+        startRequest(first);
+        startRequest(second);
+
+        assertThat(underTest.choose(List.of(first, second)).getServer()).isEqualTo(second);
+    }
+
+    @Test
+    void serverErrorsArePenalized() {
+        completeRequest(fast, MS, HttpStatus.SERVICE_UNAVAILABLE);
+        completeRequest(slow, 300 * MS, HttpStatus.OK);
+
+        assertThat(underTest.choose(List.of(fast, slow)).getServer()).isEqualTo(slow);
+
+        InstanceStatsSnapshot snapshot = registry.snapshot().get("report").get(0);
+        assertThat(snapshot.instance()).isEqualTo("10.0.0.1:8080");
+        assertThat(snapshot.failures()).isEqualTo(1);
+        assertThat(snapshot.ewmaLatencyMillis()).isEqualTo(2000.0);
+        assertThat(snapshot.outstanding()).isZero();
+    }
+
+    @Test
+    void slowInstanceIsRetriedAfterItWasIdleForLong() {
+        completeRequest(fast, 20 * MS, HttpStatus.OK);
+        completeRequest(slow, 400 * MS, HttpStatus.OK);
+        startRequest(fast);
+
+        assertThat(underTest.choose(List.of(fast, slow)).getServer()).isEqualTo(fast);
+
+        // Минуту весь трафик шел на первый инстанс, а второй не получал запросов - его старый замер почти забыт
+        now.addAndGet(60_000 * MS);
+        completeRequest(fast, 20 * MS, HttpStatus.OK);
+
+        assertThat(underTest.choose(List.of(fast, slow)).getServer()).isEqualTo(slow);
+    }
+
+    @Test
+    void ewmaMovesTowardsNewSamples() {
+        completeRequest(fast, 100 * MS, HttpStatus.OK);
+        now.addAndGet(10_000 * MS);
+        completeRequest(fast, 200 * MS, HttpStatus.OK);
+
+        double ewma = registry.snapshot().get("report").get(0).ewmaLatencyMillis();
+        assertThat(ewma).isGreaterThan(100.0).isLessThan(200.0);
+    }
+
+    @Test
+    void forgetsInstancesThatLeftDiscovery() {
+        completeRequest(fast, 10 * MS, HttpStatus.OK);
+        completeRequest(slow, 20 * MS, HttpStatus.OK);
+
+        // Второй инстанс перезапустился на другом порту
+        ServiceInstance restarted = new DefaultServiceInstance("report-2", "report", "10.0.0.2", 8081, false);
+        completeRequest(restarted, 10 * MS, HttpStatus.OK);
+        underTest.choose(List.of(fast, restarted));
+
+        assertThat(registry.snapshot().get("report"))
+                .extracting(InstanceStatsSnapshot::instance)
+                .containsExactly("10.0.0.1:8080", "10.0.0.2:8081");
+    }
+
+    @Test
+    void keepsStatsWhenDiscoveryReturnsNoInstances() {
+        completeRequest(fast, 10 * MS, HttpStatus.OK);
+
+        underTest.choose(List.of());
+
+        assertThat(registry.snapshot().get("report")).hasSize(1);
+    }
+
+    @Test
+    void returnsEmptyResponseWhenThereAreNoInstances() {
+        assertThat(underTest.choose(List.of()).hasServer()).isFalse();
+    }
+
+    private Request<Object> startRequest(ServiceInstance instance) {
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext(
+                new RequestData(HttpMethod.GET, URI.create("http://report/internal/reports"), new HttpHeaders(), null, null)));
+        lifecycle.onStartRequest(request, new DefaultResponse(instance));
+        return request;
+    }
+
+    private void completeRequest(ServiceInstance instance, long latencyNanos, HttpStatus status) {
+        Request<Object> request = startRequest(instance);
+        now.addAndGet(latencyNanos);
+        Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+        ResponseData responseData = new ResponseData(status, new HttpHeaders(), null, null);
+        lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse, responseData));
+    }
+
+}
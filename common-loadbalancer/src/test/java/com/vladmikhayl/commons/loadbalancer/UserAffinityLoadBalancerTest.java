@@ -0,0 +1,195 @@
+package com.vladmikhayl.commons.loadbalancer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserAffinityLoadBalancerTest {
+
+    private static final long MS = 1_000_000;
+
+    private final ServiceInstance habit1 = new DefaultServiceInstance("habit-1", "habit", "10.0.0.1", 8080, false);
+
+    private final ServiceInstance habit2 = new DefaultServiceInstance("habit-2", "habit", "10.0.0.2", 8080, false);
+
+    private final ServiceInstance habit3 = new DefaultServiceInstance("habit-3", "habit", "10.0.0.3", 8080, false);
+
+    private final List<ServiceInstance> all = List.of(habit1, habit2, habit3);
+
+    private final AtomicLong now = new AtomicLong(1_000 * MS);
+
+    private LoadBalancerStatsRegistry registry;
+
+    private LatencyTrackingLifecycle lifecycle;
+
+    private UserAffinityLoadBalancer underTest;
+
+    @BeforeEach
+    void setUp() {
+        registry = new LoadBalancerStatsRegistry(new LatencyAwareLoadBalancerProperties(), now::get);
+        lifecycle = new LatencyTrackingLifecycle(registry);
+
+        UserAffinityProperties properties = new UserAffinityProperties();
+        properties.setBalanceFactor(0.25);
+        properties.setFailoverAfterFailures(3);
+        properties.setFailoverCooldown(Duration.ofSeconds(10));
+
+        underTest = new UserAffinityLoadBalancer(mock(), registry,
+                new LatencyAwareLoadBalancer(mock(), registry, bound -> 0), properties);
+    }
+
+    @Test
+    void sendsAllRequestsOfUserToSameInstance() {
+        ServiceInstance first = underTest.choose(all, "7").getServer();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(underTest.choose(List.of(habit3, habit1, habit2), "7").getServer()).isEqualTo(first);
+        }
+    }
+
+    @Test
+    void spreadsUsersOverAllInstances() {
+        Map<ServiceInstance, Integer> usersPerInstance = new HashMap<>();
+        IntStream.rangeClosed(1, 3000).forEach(userId ->
+                usersPerInstance.merge(underTest.choose(all, String.valueOf(userId)).getServer(), 1, Integer::sum));
+
+        assertThat(usersPerInstance).containsOnlyKeys(habit1, habit2, habit3);
+        assertThat(usersPerInstance.values()).allSatisfy(count -> assertThat(count).isBetween(700, 1300));
+    }
+
+    @Test
+    void movesOnlyUsersOfRemovedInstance() {
+        Map<String, ServiceInstance> before = new HashMap<>();
+        IntStream.rangeClosed(1, 500).mapToObj(String::valueOf)
+                .forEach(userId -> before.put(userId, underTest.choose(all, userId).getServer()));
+
+        // Инстанс habit-2 ушел из Eureka
+        List<ServiceInstance> remaining = List.of(habit1, habit3);
+        before.forEach((userId, instance) -> {
+            ServiceInstance after = underTest.choose(remaining, userId).getServer();
+            if (instance.equals(habit2)) {
+                assertThat(after).isIn(habit1, habit3);
+            } else {
+                assertThat(after).isEqualTo(instance);
+            }
+        });
+
+        // Инстанс вернулся: его пользователи возвращаются на него
+        before.forEach((userId, instance) -> assertThat(underTest.choose(all, userId).getServer()).isEqualTo(instance));
+    }
+
+    @Test
+    void sendsRequestToNextInstanceWhenUserInstanceIsOverloaded() {
+        ServiceInstance home = underTest.choose(all, "42").getServer();
+        List<ServiceInstance> ringOrder = ringOrder("42");
+        assertThat(ringOrder.get(0)).isEqualTo(home);
+
+        // 4 запроса в полете на инстансе пользователя, на остальных - ни одного: предел ceil(5 * 1.25 / 3) = 3
+        for (int i = 0; i < 4; i++) {
+            startRequest(home);
+        }
+
+        assertThat(underTest.choose(all, "42").getServer()).isEqualTo(ringOrder.get(1));
+    }
+
+    @Test
+    void skipsInstanceThatKeepsFailingUntilCooldownPasses() {
+        ServiceInstance home = underTest.choose(all, "42").getServer();
+        List<ServiceInstance> ringOrder = ringOrder("42");
+
+        for (int i = 0; i < 3; i++) {
+            completeRequest(home, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        assertThat(underTest.choose(all, "42").getServer()).isEqualTo(ringOrder.get(1));
+
+        // Прошел cooldown: на инстанс снова пробуется отправить запрос, и после успешного ответа пользователь
+        // окончательно на нем остается
+        now.addAndGet(10_001 * MS);
+        assertThat(underTest.choose(all, "42").getServer()).isEqualTo(home);
+        completeRequest(home, HttpStatus.OK);
+        now.addAndGet(MS);
+        assertThat(underTest.choose(all, "42").getServer()).isEqualTo(home);
+    }
+
+    @Test
+    void requestsWithoutUserIdGoToLatencyAwareBalancer() {
+        // Latency-aware балансировщик из setUp всегда берет пару (0, 1), а при равной стоимости - первый инстанс
+        assertThat(underTest.choose(all, null).getServer()).isEqualTo(habit1);
+        assertThat(underTest.choose(List.of(), "42").hasServer()).isFalse();
+    }
+
+    @Test
+    void takesUserIdFromRequestHeader() {
+        ServiceInstanceListSupplier supplier = mock();
+        when(supplier.get(any())).thenReturn(Flux.just(all));
+        ObjectProvider<ServiceInstanceListSupplier> supplierProvider = mock();
+        when(supplierProvider.getIfAvailable(any())).thenReturn(supplier);
+        UserAffinityLoadBalancer balancer = new UserAffinityLoadBalancer(supplierProvider, registry,
+                new LatencyAwareLoadBalancer(supplierProvider, registry, bound -> 0), new UserAffinityProperties());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-User-Id", "42");
+
+        assertThat(balancer.choose(request(headers)).block().getServer())
+                .isEqualTo(underTest.choose(all, "42").getServer());
+    }
+
+    private List<ServiceInstance> ringOrder(String userId) {
+        Map<String, ServiceInstance> byKey = new HashMap<>();
+        all.forEach(instance -> byKey.put(instance.getHost() + ":" + instance.getPort(), instance));
+        List<ServiceInstance> order = new ArrayList<>();
+        new ConsistentHashRing(new HashSet<>(byKey.keySet()), new UserAffinityProperties().getVirtualNodes())
+                .order(userId).forEach(key -> order.add(byKey.get(key)));
+        return order;
+    }
+
+    private static Request<Object> request(HttpHeaders headers) {
+        return new DefaultRequest<>(new RequestDataContext(
+                new RequestData(HttpMethod.GET, URI.create("http://habit/api/v1/habits"), headers, null, null)));
+    }
+
+    private Request<Object> startRequest(ServiceInstance instance) {
+        Request<Object> request = request(new HttpHeaders());
+        lifecycle.onStartRequest(request, new DefaultResponse(instance));
+        return request;
+    }
+
+    private void completeRequest(ServiceInstance instance, HttpStatus status) {
+        Request<Object> request = startRequest(instance);
+        now.addAndGet(MS);
+        ResponseData responseData = new ResponseData(status, new HttpHeaders(), null, null);
+        lifecycle.onComplete(new CompletionContext<>(
+                CompletionContext.Status.SUCCESS, request, new DefaultResponse(instance), responseData));
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.vladmikhayl.commons.loadbalancer.hedging;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HedgingFeignClientTest {
+
+    private static final String HEDGEABLE_URL = "http://gateway/internal/reports/1/is-completed/at-day/2025-04-11";
+
+    private final CountDownLatch slowRequestReleased = new CountDownLatch(1);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private HedgingFeignClient underTest;
+
+    @AfterEach
+    void tearDown() {
+        slowRequestReleased.countDown();
+        if (underTest != null) {
+            underTest.destroy();
+        }
+    }
+
+    @Test
+    void sendsSecondRequestWhenFirstIsSlowerThanPercentile() throws IOException {
+        underTest = client(properties(1.0), call -> call == 6 ? "slow" : "fast-" + call);
+        warmUp();
+
+        Response response = underTest.execute(request(HEDGEABLE_URL), options());
+
+        assertThat(body(response)).isEqualTo("fast-7");
+        assertThat(calls.get()).isEqualTo(7);
+    }
+
+    @Test
+    void doesNotHedgeWithoutBudget() throws IOException {
+        underTest = client(properties(0), call -> call == 6 ? "slow" : "fast-" + call);
+        warmUp();
+
+        new Thread(this::releaseSlowRequestLater).start();
+        Response response = underTest.execute(request(HEDGEABLE_URL), options());
+
+        assertThat(body(response)).isEqualTo("slow");
+        assertThat(calls.get()).isEqualTo(6);
+    }
+
+    @Test
+    void doesNotHedgeUntilPercentileIsKnown() throws IOException {
+        underTest = client(properties(1.0), call -> call == 1 ? "slow" : "fast-" + call);
+
+        new Thread(this::releaseSlowRequestLater).start();
+        Response response = underTest.execute(request(HEDGEABLE_URL), options());
+
+        assertThat(body(response)).isEqualTo("slow");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void executesOtherRequestsDirectlyOnCallerThread() throws IOException {
+        Thread caller = Thread.currentThread();
+        HedgingProperties properties = properties(1.0);
+        underTest = new HedgingFeignClient((request, options) -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            return response(request, "direct");
+        }, properties);
+
+        Response response = underTest.execute(request("http://gateway/internal/reports/1/reports-info"), options());
+
+        assertThat(body(response)).isEqualTo("direct");
+    }
+
+    @Test
+    void failsOnlyWhenBothRequestsFail() {
+        underTest = client(properties(1.0), call -> {
+            if (call == 6) {
+                awaitRelease();
+                throw new IllegalStateException("first failed");
+            }
+            if (call == 7) {
+                slowRequestReleased.countDown();
+                throw new IllegalStateException("second failed");
+            }
+            return "fast-" + call;
+        });
+        warmUpQuietly();
+
+        assertThrows(IllegalStateException.class, () -> underTest.execute(request(HEDGEABLE_URL), options()));
+        assertThat(calls.get()).isEqualTo(7);
+    }
+
+    // bodies: какое тело вернет вызов с таким номером ("slow" - ответ придет только после slowRequestReleased)
+    private HedgingFeignClient client(HedgingProperties properties, IntFunction<String> bodies) {
+        Client delegate = (request, options) -> {
+            int call = calls.incrementAndGet();
+            String body = bodies.apply(call);
+            if ("slow".equals(body)) {
+                awaitRelease();
+            }
+            return response(request, body);
+        };
+        return new HedgingFeignClient(delegate, properties);
+    }
+
+    private void warmUp() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            underTest.execute(request(HEDGEABLE_URL), options()).close();
+        }
+    }
+
+    private void warmUpQuietly() {
+        try {
+            warmUp();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            slowRequestReleased.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseSlowRequestLater() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        slowRequestReleased.countDown();
+    }
+
+    private static HedgingProperties properties(double budgetRatio) {
+        HedgingProperties properties = new HedgingProperties();
+        properties.setEnabled(true);
+        properties.setPaths(List.of("/internal/reports/*/is-completed/at-day/*"));
+        properties.setMinSamples(5);
+        properties.setWindowSize(20);
+        properties.setMinDelay(Duration.ofMillis(20));
+        properties.setBudgetRatio(budgetRatio);
+        return properties;
+    }
+
+    private static Request request(String url) {
+        return Request.create(Request.HttpMethod.GET, url, Map.of(), null, StandardCharsets.UTF_8, null);
+    }
+
+    private static Request.Options options() {
+        return new Request.Options();
+    }
+
+    private static Response response(Request request, String body) {
+        return Response.builder()
+                .status(200)
+                .reason("OK")
+                .request(request)
+                .headers(Map.of())
+                .body(body, StandardCharsets.UTF_8)
+                .build();
+    }
+
+    private static String body(Response response) throws IOException {
+        return Util.toString(response.body().asReader(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.vladmikhayl.commons.loadbalancer.singleflight;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import com.vladmikhayl.commons.web.deadline.DeadlineExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int THREADS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlight<String, Integer> underTest = new SingleFlight<>("test", meterRegistry);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void collapsesConcurrentCallsWithSameKey() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(executor.submit(() -> underTest.execute("habit-1", () -> {
+                calls.incrementAndGet();
+                awaitQuietly(release);
+                return 42;
+            })));
+        }
+
+        // Ждем, пока все потоки либо начнут вызов, либо встанут в ожидание его результата
+        waitUntil(() -> executedCount() + collapsedCount() == THREADS);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(executedCount()).isEqualTo(1);
+        assertThat(collapsedCount()).isEqualTo(THREADS - 1);
+    }
+
+    @Test
+    void doesNotCollapseCallsWithDifferentKeys() {
+        assertThat(underTest.execute("habit-1", () -> 1)).isEqualTo(1);
+        assertThat(underTest.execute("habit-2", () -> 2)).isEqualTo(2);
+
+        assertThat(executedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotCacheFinishedCalls() {
+        underTest.execute("habit-1", () -> 1);
+
+        assertThat(underTest.execute("habit-1", () -> 2)).isEqualTo(2);
+        assertThat(meterRegistry.get("singleflight.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void sharesExceptionWithWaitingCalls() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("report is down");
+
+        Future<Integer> leader = executor.submit(() -> underTest.execute("habit-1", () -> {
+            awaitQuietly(release);
+            throw failure;
+        }));
+        waitUntil(() -> executedCount() == 1);
+
+        Future<Integer> follower = executor.submit(() -> underTest.execute("habit-1", () -> 1));
+        waitUntil(() -> collapsedCount() == 1);
+        release.countDown();
+
+        for (Future<Integer> result : List.of(leader, follower)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        }
+
+        // После ошибки ключ освобождается
+        assertThat(underTest.execute("habit-1", () -> 3)).isEqualTo(3);
+    }
+
+    @Test
+    void waitingCallRunsItselfWhenLeadersDeadlineExpires() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> leader = executor.submit(() -> underTest.execute("habit-1", () -> {
+            awaitQuietly(release);
+            throw new DeadlineExceededException();
+        }));
+        waitUntil(() -> executedCount() == 1);
+
+        Future<Integer> follower = executor.submit(() -> underTest.execute("habit-1", () -> 2));
+        waitUntil(() -> collapsedCount() == 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(executedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void waitingCallStopsAtItsOwnDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> leader = executor.submit(() -> underTest.execute("habit-1", () -> {
+            awaitQuietly(release);
+            return 1;
+        }));
+        waitUntil(() -> executedCount() == 1);
+
+        Future<Integer> follower = executor.submit(() -> {
+            Deadline.start(Duration.ofMillis(100));
+            try {
+                return underTest.execute("habit-1", () -> 2);
+            } finally {
+                Deadline.clear();
+            }
+        });
+
+        // Выполняющий вызов еще не закончился, а ждущий уже отказался от ожидания
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(DeadlineExceededException.class);
+        assertThat(leader.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    private double executedCount() {
+        return meterRegistry.get("singleflight.calls").tag("outcome", "executed").counter().count();
+    }
+
+    private double collapsedCount() {
+        return meterRegistry.get("singleflight.calls").tag("outcome", "collapsed").counter().count();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+}
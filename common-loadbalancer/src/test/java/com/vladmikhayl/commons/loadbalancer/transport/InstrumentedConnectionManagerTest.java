@@ -0,0 +1,105 @@
+package com.vladmikhayl.commons.loadbalancer.transport;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InstrumentedConnectionManagerTest {
+
+    private static final HttpRoute GATEWAY = new HttpRoute(new HttpHost("http", "gateway", 8080));
+
+    private static final HttpRoute REPORT = new HttpRoute(new HttpHost("http", "report", 8083));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+
+    @AfterEach
+    void tearDown() {
+        pool.close(CloseMode.IMMEDIATE);
+    }
+
+    @Test
+    void appliesPoolSizeForConfiguredRoutesOnFirstLease() throws Exception {
+        pool.setDefaultMaxPerRoute(5);
+        InstrumentedConnectionManager underTest = new InstrumentedConnectionManager(
+                pool, Map.of("gateway:8080", 2, "report", 3), meterRegistry);
+
+        underTest.release(underTest.lease("1", GATEWAY, Timeout.ofSeconds(1), null).get(Timeout.ofSeconds(1)), null, null);
+        underTest.release(underTest.lease("2", REPORT, Timeout.ofSeconds(1), null).get(Timeout.ofSeconds(1)), null, null);
+
+        assertThat(pool.getMaxPerRoute(GATEWAY)).isEqualTo(2);
+        // Ключ может быть и без порта
+        assertThat(pool.getMaxPerRoute(REPORT)).isEqualTo(3);
+    }
+
+    @Test
+    void recordsWaitTimeAndPoolTimeouts() throws Exception {
+        pool.setDefaultMaxPerRoute(1);
+        InstrumentedConnectionManager underTest = new InstrumentedConnectionManager(pool, Map.of(), meterRegistry);
+
+        ConnectionEndpoint leased = underTest.lease("1", GATEWAY, Timeout.ofSeconds(1), null).get(Timeout.ofSeconds(1));
+
+        // Единственное соединение занято, поэтому второй запрос не дождется своей очереди
+        assertThatThrownBy(() -> underTest.lease("2", GATEWAY, Timeout.ofMilliseconds(50), null)
+                .get(Timeout.ofMilliseconds(50)))
+                .isInstanceOf(TimeoutException.class);
+
+        underTest.release(leased, null, null);
+
+        assertThat(meterRegistry.get("feign.pool.wait").tag("route", "gateway:8080").tag("outcome", "acquired")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("feign.pool.wait").tag("outcome", "timeout").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void autoConfigurationWrapsPoolAndPublishesPoolMetrics() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(FeignTransportAutoConfiguration.class))
+                .withBean(SimpleMeterRegistry.class, () -> meterRegistry)
+                .withBean("hc5ConnectionManager", HttpClientConnectionManager.class, () -> pool)
+                .withPropertyValues("loadbalancer.transport.max-per-route[gateway]=7")
+                .run(context -> {
+                    assertThat(context.getBean(HttpClientConnectionManager.class))
+                            .isInstanceOf(InstrumentedConnectionManager.class);
+                    assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.max")
+                            .tag("httpclient", "feign").gauge()).isNotNull();
+                });
+    }
+
+    @Test
+    void keepsIdleConnectionEvictorRunning() throws Exception {
+        PoolingHttpClientConnectionManager spiedPool = Mockito.spy(pool);
+        InstrumentedConnectionManager underTest = new InstrumentedConnectionManager(spiedPool, Map.of(), meterRegistry);
+
+        // Так же клиент строит Spring Cloud OpenFeign (HttpClient5FeignConfiguration)
+        try (CloseableHttpClient ignored = HttpClients.custom()
+                .setConnectionManager(underTest)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(20))
+                .build()) {
+            Mockito.verify(spiedPool, Mockito.timeout(2000).atLeastOnce()).closeExpired();
+            Mockito.verify(spiedPool, Mockito.timeout(2000).atLeastOnce()).closeIdle(TimeValue.ofMilliseconds(20));
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Пулы для вспомогательной работы внутри запроса (хеджирование, параллельная обработка элементов): одновременно
+// выполняется не больше maxThreads задач, а задача сверх лимита не ждет в очереди, а сразу отклоняется
+// с RejectedExecutionException - вызывающий поток тогда делает работу сам
+public final class BoundedExecutors {
+
+    private BoundedExecutors() {
+    }
+
+    // virtualThreads = true - каждая задача выполняется в новом виртуальном потоке (только на Java 21+).
+    // Виртуальные потоки не переиспользуются, поэтому лимит держит семафор, а не размер пула
+    public static ExecutorService newBoundedExecutor(String threadNamePrefix, int maxThreads, boolean virtualThreads) {
+        if (virtualThreads) {
+            ThreadFactory threadFactory = new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory();
+            return new SemaphoreBoundedExecutor(maxThreads, threadFactory);
+        }
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                platformThreadFactory(threadNamePrefix));
+    }
+
+    private static ThreadFactory platformThreadFactory(String threadNamePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Ограничивает число одновременно обрабатываемых запросов для каждой группы эндпоинтов (см. ConcurrencyLimiter).
+// Когда лимит исчерпан, запрос сразу получает 503, а не ждет в очереди за потоками Tomcat и соединениями Hikari,
+// пока не истекут таймауты у всех сразу
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final Map<String, ConcurrencyLimiter> limiters;
+
+    private final Map<String, String> paths = new LinkedHashMap<>();
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, Map<String, ConcurrencyLimiter> limiters) {
+        this.limiters = limiters;
+        properties.getGroups().forEach((group, groupProperties) -> paths.put(group, groupProperties.getPath()));
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        Optional<String> group = findGroup(request.getRequestURI());
+
+        if (group.isEmpty()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Optional<ConcurrencyLimiter.Permit> permit = limiters.get(group.get()).tryAcquire();
+
+        if (permit.isEmpty()) {
+            log.debug("Превышен лимит одновременных запросов группы {}", group.get());
+            reject(response);
+            return;
+        }
+
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (completed && request.isAsyncStarted()) {
+                // Асинхронный ответ (например, реактивные эндпоинты): поток уже освободился, но запрос еще
+                // обрабатывается, поэтому разрешение возвращается только когда ответ будет отправлен
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(permit.get()));
+            } else {
+                release(permit.get(), completed ? response.getStatus() : HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+    }
+
+    // Асинхронные повторные диспатчи того же запроса идут без фильтра (разрешение у запроса уже есть)
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+
+    private Optional<String> findGroup(String uri) {
+        return paths.entrySet().stream()
+                .filter(entry -> pathMatcher.match(entry.getValue(), uri))
+                .map(Map.Entry::getKey)
+                .findFirst();
+    }
+
+    private static void release(ConcurrencyLimiter.Permit permit, int status) {
+        if (status == HttpStatus.GATEWAY_TIMEOUT.value()) {
+            permit.onDropped();
+        } else if (status >= 500) {
+            permit.onIgnore();
+        } else {
+            permit.onSuccess();
+        }
+    }
+
+    private static class ReleasingAsyncListener implements AsyncListener {
+
+        private final ConcurrencyLimiter.Permit permit;
+
+        // После таймаута или ошибки контейнер еще вызывает onComplete, а разрешение возвращается один раз
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingAsyncListener(ConcurrencyLimiter.Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release(permit, ((HttpServletResponse) event.getSuppliedResponse()).getStatus());
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                permit.onDropped();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                permit.onIgnore();
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+    }
+
+    // Тело ответа в том же формате, что и у GlobalExceptionHandler в микросервисах
+    private static void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"error\":\"Сервис перегружен, повторите запрос позже\",\"timestamp\":\""
+                + LocalDateTime.now() + "\"}");
+    }
+
+}
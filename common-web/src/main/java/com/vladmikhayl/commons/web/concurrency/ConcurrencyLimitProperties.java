@@ -0,0 +1,52 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Настройки адаптивного ограничения числа одновременно обрабатываемых запросов (префикс concurrency-limit)
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = false;
+
+    // Группы эндпоинтов со своими лимитами, например internal (/internal/**) и public (/api/v1/**).
+    // Запрос попадает в первую группу, шаблон пути которой ему подошел; запросы вне групп не ограничиваются
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Group {
+
+        // Шаблон пути в стиле Ant
+        private String path;
+
+        // С какого лимита начинать (дальше он подстраивается под задержки)
+        private int initialLimit = 20;
+
+        private int minLimit = 4;
+
+        private int maxLimit = 200;
+
+        // Во сколько раз текущая задержка может превышать обычную, прежде чем лимит начнет уменьшаться
+        private double tolerance = 1.5;
+
+        // Насколько быстро лимит движется к новому значению (0..1)
+        private double smoothing = 0.2;
+
+        // Во сколько раз уменьшается лимит, когда запрос не уложился в дедлайн (ответ 504)
+        private double backoffRatio = 0.9;
+
+        // Сколько последних запросов учитывается в "текущей" и в "обычной" задержке
+        private int shortWindow = 10;
+
+        private int longWindow = 600;
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+// Пропускает запрос, только если одновременно обрабатывается меньше запросов, чем текущий адаптивный лимит.
+// Лишние запросы не ждут в очереди, а сразу отклоняются. Метрики: concurrency.limit{group},
+// concurrency.in-flight{group} и concurrency.requests{group, outcome=accepted|rejected}
+public class ConcurrencyLimiter {
+
+    private final GradientLimit limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongSupplier nanoTime;
+
+    private final Counter accepted;
+
+    private final Counter rejected;
+
+    public ConcurrencyLimiter(String group, ConcurrencyLimitProperties.Group properties, MeterRegistry meterRegistry) {
+        this(group, properties, meterRegistry, System::nanoTime);
+    }
+
+    ConcurrencyLimiter(
+            String group,
+            ConcurrencyLimitProperties.Group properties,
+            MeterRegistry meterRegistry,
+            LongSupplier nanoTime
+    ) {
+        this.limit = new GradientLimit(properties);
+        this.nanoTime = nanoTime;
+        Gauge.builder("concurrency.limit", limit, GradientLimit::getLimit)
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("concurrency.in-flight", inFlight, AtomicInteger::get)
+                .tag("group", group)
+                .register(meterRegistry);
+        this.accepted = Counter.builder("concurrency.requests")
+                .tag("group", group)
+                .tag("outcome", "accepted")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("concurrency.requests")
+                .tag("group", group)
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
+    // Пустой Optional - лимит исчерпан, запрос нужно отклонить
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.getLimit()) {
+                rejected.increment();
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return Optional.of(new Permit(current + 1, nanoTime.getAsLong()));
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public final class Permit {
+
+        private final int inFlightAtStart;
+
+        private final long startNanos;
+
+        private Permit(int inFlightAtStart, long startNanos) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.startNanos = startNanos;
+        }
+
+        // Запрос обработан, его задержка учитывается в лимите
+        public void onSuccess() {
+            inFlight.decrementAndGet();
+            limit.onSample(nanoTime.getAsLong() - startNanos, inFlightAtStart);
+        }
+
+        // Запрос не уложился в дедлайн
+        public void onDropped() {
+            inFlight.decrementAndGet();
+            limit.onDropped();
+        }
+
+        // Запрос завершился ошибкой, по которой нельзя судить о загрузке (например, недоступен другой микросервис)
+        public void onIgnore() {
+            inFlight.decrementAndGet();
+        }
+
+    }
+
+}
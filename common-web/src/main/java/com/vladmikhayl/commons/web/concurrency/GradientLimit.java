@@ -0,0 +1,68 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+// Адаптивный лимит одновременных запросов (по мотивам Gradient2 из Netflix concurrency-limits).
+// Сравнивает текущую задержку (короткое скользящее среднее) с обычной (длинное скользящее среднее):
+// пока они близки, лимит понемногу растет (на sqrt(limit) - небольшая очередь допустима), а когда текущая
+// задержка растет - значит, запросы начали стоять в очереди (за потоками, соединениями с БД и т.д.), и лимит
+// уменьшается пропорционально. Так лимит сам находится около реальной пропускной способности сервиса
+class GradientLimit {
+
+    private final ConcurrencyLimitProperties.Group properties;
+
+    private final double shortAlpha;
+
+    private final double longAlpha;
+
+    // Меняется только под блокировкой, а getLimit читает его без нее (на каждом запросе), поэтому volatile
+    private volatile double limit;
+
+    // Задержки в наносекундах; 0 - еще не было ни одного замера
+    private double shortRtt;
+
+    private double longRtt;
+
+    GradientLimit(ConcurrencyLimitProperties.Group properties) {
+        this.properties = properties;
+        this.shortAlpha = 2.0 / (properties.getShortWindow() + 1);
+        this.longAlpha = 2.0 / (properties.getLongWindow() + 1);
+        this.limit = clamp(properties.getInitialLimit());
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized void onSample(long rttNanos, int inFlight) {
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+        } else {
+            shortRtt += shortAlpha * (rttNanos - shortRtt);
+            longRtt += longAlpha * (rttNanos - longRtt);
+        }
+
+        // После долгой перегрузки "обычная" задержка сама завышена; подтягиваем ее вниз, чтобы лимит мог восстановиться
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // Пока сервис загружен меньше чем наполовину, задержка ничего не говорит о том, выдержит ли он больше
+        if (inFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing());
+    }
+
+    // Запрос не уложился в дедлайн - явный признак перегрузки
+    synchronized void onDropped() {
+        limit = clamp(limit * properties.getBackoffRatio());
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), value));
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Поток на каждую задачу, но не больше maxThreads задач одновременно. Задача без свободного разрешения
+// сразу отклоняется, очереди нет
+class SemaphoreBoundedExecutor extends AbstractExecutorService {
+
+    private final int maxThreads;
+
+    private final Semaphore permits;
+
+    private final ThreadFactory threadFactory;
+
+    // Потоки, которые сейчас выполняют задачи (нужны только для shutdownNow)
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean shutdown;
+
+    SemaphoreBoundedExecutor(int maxThreads, ThreadFactory threadFactory) {
+        this.maxThreads = Math.max(1, maxThreads);
+        this.permits = new Semaphore(this.maxThreads);
+        this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown || !permits.tryAcquire()) {
+            throw new RejectedExecutionException("Нет свободных потоков");
+        }
+        try {
+            threadFactory.newThread(() -> {
+                running.add(Thread.currentThread());
+                try {
+                    command.run();
+                } finally {
+                    running.remove(Thread.currentThread());
+                    permits.release();
+                }
+            }).start();
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        running.forEach(Thread::interrupt);
+        return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && permits.availablePermits() == maxThreads;
+    }
+
+    // Все задачи закончились, когда свободны все разрешения. До shutdown новые задачи могут прийти в любой момент,
+    // поэтому, как и в ThreadPoolExecutor, ожидание тогда просто длится весь timeout
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!shutdown) {
+            unit.sleep(timeout);
+            return isTerminated();
+        }
+        if (!permits.tryAcquire(maxThreads, timeout, unit)) {
+            return false;
+        }
+        permits.release(maxThreads);
+        return true;
+    }
+
+}
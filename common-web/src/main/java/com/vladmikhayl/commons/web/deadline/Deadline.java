@@ -0,0 +1,99 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Дедлайн текущего запроса. Gateway ставит каждому запросу заголовок X-Request-Timeout-Ms с оставшимся
+// временем (бюджетом) в миллисекундах; микросервис при получении запроса превращает его в дедлайн потока
+// (DeadlineFilter), а при вызове других микросервисов передает дальше уже оставшийся бюджет
+// (DeadlineRequestInterceptor). Передается именно бюджет, а не момент времени, чтобы не зависеть от
+// расхождения часов на разных машинах
+public final class Deadline {
+
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    // Дедлайн в единицах System.nanoTime()
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    public static void start(Duration budget) {
+        CURRENT.set(System.nanoTime() + budget.toNanos());
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // Пустой Optional, если запрос пришел без дедлайна (например, из Kafka или из тестов)
+    public static Optional<Duration> remaining() {
+        Long deadline = CURRENT.get();
+        if (deadline == null) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos(deadline - System.nanoTime()));
+    }
+
+    public static boolean isExpired() {
+        return remaining().map(remaining -> remaining.isNegative() || remaining.isZero()).orElse(false);
+    }
+
+    // Вызывается перед дорогой работой (запросом в другой микросервис или в БД): если клиент уже не ждет ответа,
+    // то ее нет смысла начинать
+    public static void throwIfExpired() {
+        if (isExpired()) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    // Оборачивает задачу так, чтобы в другом потоке (например, в пуле при параллельной обработке)
+    // она работала с тем же дедлайном, что и текущий запрос
+    public static Runnable propagate(Runnable task) {
+        Long deadline = CURRENT.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> {
+            Long previous = CURRENT.get();
+            CURRENT.set(deadline);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    // Выполняет задачу без дедлайна и затем восстанавливает его. Нужно для компенсирующих действий (например,
+    // удаления только что записанного при ошибке): они должны выполниться, даже если бюджет запроса уже исчерпан,
+    // иначе DeadlineStatementInspector не пропустит их в БД и данные останутся несогласованными
+    public static void withoutDeadline(Runnable task) {
+        Long previous = CURRENT.get();
+        CURRENT.remove();
+        try {
+            task.run();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    // Бюджет из заголовка; пустой Optional, если заголовка нет или в нем не число
+    public static Optional<Duration> parseHeader(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Duration.ofMillis(Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import feign.Client;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+// Поддержка дедлайнов в микросервисах (см. Deadline): фильтр входящих запросов, передача бюджета
+// через Feign-клиенты и остановка SQL-запросов после дедлайна. Отключается через deadline.enabled=false
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "deadline", name = "enabled", matchIfMissing = true)
+public class DeadlineAutoConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class DeadlineFilterConfiguration {
+
+        @Bean
+        public FilterRegistrationBean<DeadlineFilter> deadlineFilter() {
+            FilterRegistrationBean<DeadlineFilter> registration = new FilterRegistrationBean<>(new DeadlineFilter());
+            // Дедлайн должен быть известен раньше, чем начнется любая работа над запросом
+            registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+            return registration;
+        }
+
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Client.class)
+    static class DeadlineFeignConfiguration {
+
+        @Bean
+        public DeadlineRequestInterceptor deadlineRequestInterceptor() {
+            return new DeadlineRequestInterceptor();
+        }
+
+        // Метод статический, чтобы BeanPostProcessor не поднимал бины раньше времени
+        @Bean
+        public static BeanPostProcessor deadlineFeignClientPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof Client client && !(bean instanceof DeadlineFeignClient)) {
+                        return new DeadlineFeignClient(client);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(StatementInspector.class)
+    static class DeadlineHibernateConfiguration {
+
+        @Bean
+        public HibernatePropertiesCustomizer deadlineStatementInspectorCustomizer() {
+            return properties -> properties.put("hibernate.session_factory.statement_inspector",
+                    new DeadlineStatementInspector());
+        }
+
+    }
+
+}
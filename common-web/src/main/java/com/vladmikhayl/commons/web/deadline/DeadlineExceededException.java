@@ -0,0 +1,13 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Время, которое было отведено на запрос, истекло: клиент ответа уже не ждет, поэтому работа прекращается
+public class DeadlineExceededException extends ResponseStatusException {
+
+    public DeadlineExceededException() {
+        super(HttpStatus.GATEWAY_TIMEOUT, "Время на обработку запроса истекло");
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+// Ограничивает таймауты Feign-запроса оставшимся бюджетом из заголовка X-Request-Timeout-Ms
+// (его ставит DeadlineRequestInterceptor): нет смысла ждать ответ дольше, чем клиент готов ждать наш.
+// Бюджет берется из самого запроса, а не из потока, потому что запрос может выполняться в другом потоке (хеджирование)
+public class DeadlineFeignClient implements Client {
+
+    private final Client delegate;
+
+    public DeadlineFeignClient(Client delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        Collection<String> values = request.headers().get(Deadline.HEADER);
+        if (values == null || values.isEmpty()) {
+            return delegate.execute(request, options);
+        }
+
+        long budgetMillis = Deadline.parseHeader(values.iterator().next())
+                .map(Duration::toMillis)
+                .orElse(Long.MAX_VALUE);
+
+        Request.Options limited = new Request.Options(
+                Math.min(options.connectTimeoutMillis(), budgetMillis), TimeUnit.MILLISECONDS,
+                Math.min(options.readTimeoutMillis(), budgetMillis), TimeUnit.MILLISECONDS,
+                options.isFollowRedirects()
+        );
+        return delegate.execute(request, limited);
+    }
+
+    public Client getDelegate() {
+        return delegate;
+    }
+
+}
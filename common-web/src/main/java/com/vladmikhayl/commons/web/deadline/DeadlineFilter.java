@@ -0,0 +1,47 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+// Превращает бюджет из заголовка X-Request-Timeout-Ms в дедлайн потока, который обрабатывает запрос.
+// Если бюджет уже исчерпан (запрос слишком долго шел или стоял в очереди), то запрос сразу отклоняется с 504
+@Slf4j
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+        Optional<Duration> budget = Deadline.parseHeader(request.getHeader(Deadline.HEADER));
+
+        if (budget.isEmpty()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (budget.get().isNegative() || budget.get().isZero()) {
+            log.warn("Запрос к {} пришел с уже истекшим дедлайном", request.getRequestURI());
+            response.sendError(HttpStatus.GATEWAY_TIMEOUT.value());
+            return;
+        }
+
+        Deadline.start(budget.get());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Deadline.clear();
+        }
+    }
+
+}
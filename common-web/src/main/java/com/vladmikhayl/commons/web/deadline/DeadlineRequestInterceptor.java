@@ -0,0 +1,17 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+
+// Передает оставшийся бюджет запроса в вызываемый микросервис. Если дедлайн уже прошел, то запрос не отправляется
+public class DeadlineRequestInterceptor implements RequestInterceptor {
+
+    @Override
+    public void apply(RequestTemplate template) {
+        Deadline.remaining().ifPresent(remaining -> {
+            Deadline.throwIfExpired();
+            template.header(Deadline.HEADER, String.valueOf(Math.max(1, remaining.toMillis())));
+        });
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Вызывается Hibernate перед каждым SQL-запросом: если дедлайн запроса уже прошел, то в БД ничего не отправляется
+public class DeadlineStatementInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        Deadline.throwIfExpired();
+        return sql;
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ConcurrencyLimitProperties.Group properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConcurrencyLimitProperties.Group();
+        properties.setInitialLimit(10);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(50);
+    }
+
+    private ConcurrencyLimiter limiter() {
+        return new ConcurrencyLimiter("internal", properties, meterRegistry, now::get);
+    }
+
+    // Выполняет волну из limit одновременных запросов, каждый из которых длится rttMillis
+    private void runSaturatedWave(ConcurrencyLimiter limiter, long rttMillis) {
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        int limit = limiter.getLimit();
+        for (int i = 0; i < limit; i++) {
+            permits.add(limiter.tryAcquire().orElseThrow());
+        }
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        permits.forEach(ConcurrencyLimiter.Permit::onSuccess);
+    }
+
+    @Test
+    void rejectsRequestsOverLimitAndPublishesMetrics() {
+        ConcurrencyLimiter underTest = limiter();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(underTest.tryAcquire()).isPresent();
+        }
+
+        assertThat(underTest.tryAcquire()).isEmpty();
+        assertThat(meterRegistry.get("concurrency.in-flight").tag("group", "internal").gauge().value()).isEqualTo(10);
+        assertThat(meterRegistry.get("concurrency.limit").tag("group", "internal").gauge().value()).isEqualTo(10);
+        assertThat(meterRegistry.get("concurrency.requests").tag("outcome", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void growsLimitWhileLatencyStaysStable() {
+        ConcurrencyLimiter underTest = limiter();
+
+        for (int i = 0; i < 20; i++) {
+            runSaturatedWave(underTest, 10);
+        }
+
+        assertThat(underTest.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void shrinksLimitWhenLatencyGrows() {
+        ConcurrencyLimiter underTest = limiter();
+        for (int i = 0; i < 20; i++) {
+            runSaturatedWave(underTest, 10);
+        }
+        int limitBeforeOverload = underTest.getLimit();
+
+        // Запросы начали стоять в очереди: задержка выросла в 5 раз
+        for (int i = 0; i < 20; i++) {
+            runSaturatedWave(underTest, 50);
+        }
+
+        assertThat(underTest.getLimit()).isLessThan(limitBeforeOverload);
+        assertThat(underTest.getLimit()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void doesNotGrowLimitWhenServiceIsBarelyLoaded() {
+        ConcurrencyLimiter underTest = limiter();
+
+        for (int i = 0; i < 100; i++) {
+            ConcurrencyLimiter.Permit permit = underTest.tryAcquire().orElseThrow();
+            now.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            permit.onSuccess();
+        }
+
+        assertThat(underTest.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void filterRejectsWithServiceUnavailableAndKeepsGroupsSeparate() throws Exception {
+        properties.setInitialLimit(2);
+        properties.setMinLimit(1);
+        properties.setPath("/internal/**");
+        ConcurrencyLimitProperties.Group publicGroup = new ConcurrencyLimitProperties.Group();
+        publicGroup.setPath("/api/v1/**");
+
+        ConcurrencyLimitProperties filterProperties = new ConcurrencyLimitProperties();
+        filterProperties.setGroups(Map.of("internal", properties, "public", publicGroup));
+        ConcurrencyLimiter internal = limiter();
+        ConcurrencyLimiter publicLimiter = new ConcurrencyLimiter("public", publicGroup, meterRegistry, now::get);
+        ConcurrencyLimitFilter underTest = new ConcurrencyLimitFilter(
+                filterProperties, Map.of("internal", internal, "public", publicLimiter));
+
+        // Два внутренних запроса уже обрабатываются
+        internal.tryAcquire();
+        internal.tryAcquire();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        underTest.doFilter(new MockHttpServletRequest("GET", "/internal/habits/1/is-current"), rejected,
+                new MockFilterChain());
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        underTest.doFilter(new MockHttpServletRequest("GET", "/api/v1/habits/1/general-info"), accepted,
+                new MockFilterChain());
+        assertThat(accepted.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(publicLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void filterKeepsPermitOfAsyncRequestUntilResponseIsSent() throws Exception {
+        properties.setPath("/api/v1/**");
+        ConcurrencyLimitProperties filterProperties = new ConcurrencyLimitProperties();
+        filterProperties.setGroups(Map.of("public", properties));
+        ConcurrencyLimiter limiter = limiter();
+        ConcurrencyLimitFilter underTest = new ConcurrencyLimitFilter(filterProperties, Map.of("public", limiter));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/habits/1/general-info");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        underTest.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                req.startAsync(req, res);
+            }
+        });
+
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.vladmikhayl.commons.web.concurrency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SemaphoreBoundedExecutorTest {
+
+    private final AtomicInteger createdThreads = new AtomicInteger();
+
+    private final SemaphoreBoundedExecutor underTest = new SemaphoreBoundedExecutor(2, runnable -> {
+        createdThreads.incrementAndGet();
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        underTest.shutdownNow();
+    }
+
+    @Test
+    void rejectsTasksOverLimitWithoutQueueing() {
+        underTest.submit(this::awaitRelease);
+        underTest.submit(this::awaitRelease);
+
+        assertThatThrownBy(() -> underTest.submit(this::awaitRelease))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void startsNewThreadForEveryTask() throws Exception {
+        Future<?> first = underTest.submit(() -> {
+        });
+        Future<?> second = underTest.submit(() -> {
+        });
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+
+        assertThat(createdThreads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void terminatesAfterShutdownWhenRunningTasksEnd() throws InterruptedException {
+        underTest.submit(this::awaitRelease);
+        underTest.shutdown();
+
+        assertThatThrownBy(() -> underTest.submit(() -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+        assertThat(underTest.awaitTermination(50, TimeUnit.MILLISECONDS)).isFalse();
+
+        release.countDown();
+
+        assertThat(underTest.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(underTest.isTerminated()).isTrue();
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.vladmikhayl.commons.web.deadline;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeadlineTest {
+
+    private final DeadlineRequestInterceptor interceptor = new DeadlineRequestInterceptor();
+
+    @AfterEach
+    void tearDown() {
+        Deadline.clear();
+    }
+
+    @Test
+    void filterStartsDeadlineFromHeaderAndClearsItAfterRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/habits");
+        request.addHeader(Deadline.HEADER, "3000");
+        AtomicReference<Duration> remainingInsideRequest = new AtomicReference<>();
+
+        new DeadlineFilter().doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                remainingInsideRequest.set(Deadline.remaining().orElseThrow());
+            }
+        });
+
+        assertThat(remainingInsideRequest.get()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(3));
+        assertThat(Deadline.remaining()).isEmpty();
+    }
+
+    @Test
+    void filterRejectsRequestWithExhaustedBudget() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/internal/reports/1/reports-info");
+        request.addHeader(Deadline.HEADER, "0");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        new DeadlineFilter().doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT.value());
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void interceptorPropagatesRemainingBudget() {
+        Deadline.start(Duration.ofSeconds(2));
+        RequestTemplate template = new RequestTemplate();
+
+        interceptor.apply(template);
+
+        long budget = Long.parseLong(template.headers().get(Deadline.HEADER).iterator().next());
+        assertThat(budget).isPositive().isLessThanOrEqualTo(2000);
+    }
+
+    @Test
+    void interceptorDoesNothingWithoutDeadline() {
+        RequestTemplate template = new RequestTemplate();
+
+        interceptor.apply(template);
+
+        assertThat(template.headers()).doesNotContainKey(Deadline.HEADER);
+    }
+
+    @Test
+    void interceptorAndStatementInspectorStopWorkAfterDeadline() {
+        Deadline.start(Duration.ofMillis(-1));
+
+        assertThatThrownBy(() -> interceptor.apply(new RequestTemplate()))
+                .isInstanceOf(DeadlineExceededException.class);
+        assertThatThrownBy(() -> new DeadlineStatementInspector().inspect("select 1"))
+                .isInstanceOf(DeadlineExceededException.class);
+    }
+
+    @Test
+    void feignClientLimitsTimeoutsByBudget() throws Exception {
+        AtomicReference<Request.Options> usedOptions = new AtomicReference<>();
+        Client delegate = (request, options) -> {
+            usedOptions.set(options);
+            return Response.builder().status(200).request(request).headers(Map.of()).build();
+        };
+        Request.Options options = new Request.Options(2, TimeUnit.SECONDS, 5, TimeUnit.SECONDS, true);
+
+        new DeadlineFeignClient(delegate).execute(request(Map.of(Deadline.HEADER, List.of("800"))), options);
+        assertThat(usedOptions.get().connectTimeoutMillis()).isEqualTo(800);
+        assertThat(usedOptions.get().readTimeoutMillis()).isEqualTo(800);
+
+        new DeadlineFeignClient(delegate).execute(request(Map.of()), options);
+        assertThat(usedOptions.get()).isSameAs(options);
+    }
+
+    @Test
+    void propagatesDeadlineToAnotherThread() throws Exception {
+        Deadline.start(Duration.ofSeconds(3));
+        AtomicReference<Duration> remainingInWorker = new AtomicReference<>();
+        AtomicReference<Boolean> clearedAfterTask = new AtomicReference<>();
+
+        Runnable task = Deadline.propagate(() -> remainingInWorker.set(Deadline.remaining().orElseThrow()));
+        Thread worker = new Thread(() -> {
+            task.run();
+            clearedAfterTask.set(Deadline.remaining().isEmpty());
+        });
+        worker.start();
+        worker.join();
+
+        assertThat(remainingInWorker.get()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(3));
+        assertThat(clearedAfterTask.get()).isTrue();
+    }
+
+    @Test
+    void suspendsDeadlineForTaskAndRestoresItAfterwards() {
+        Deadline.start(Duration.ofMillis(-1));
+        AtomicReference<Boolean> deadlineInsideTask = new AtomicReference<>();
+
+        Deadline.withoutDeadline(() -> {
+            new DeadlineStatementInspector().inspect("delete from habits where id = 1");
+            deadlineInsideTask.set(Deadline.remaining().isPresent());
+        });
+
+        assertThat(deadlineInsideTask.get()).isFalse();
+        assertThat(Deadline.isExpired()).isTrue();
+    }
+
+    private static Request request(Map<String, Collection<String>> headers) {
+        return Request.create(Request.HttpMethod.GET, "http://gateway/internal/reports/1/reports-info",
+                headers, null, StandardCharsets.UTF_8, null);
+    }
+
+}
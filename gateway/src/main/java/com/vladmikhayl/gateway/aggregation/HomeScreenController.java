@@ -0,0 +1,55 @@
+package com.vladmikhayl.gateway.aggregation;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+// Этот эндпоинт обрабатывается в самом gateway (а не пересылается в микросервис):
+// JWT проверяется один раз, а ответ собирается из нескольких микросервисов
+@RestController
+@RequestMapping("/api/v1/home")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "BearerAuth") // показываем, что для этих эндпоинтов нужен JWT (для Сваггера)
+@Tag(name = "Главный экран", description = "Агрегированные эндпоинты для главного экрана")
+@ApiResponses(value = {
+        @ApiResponse(responseCode = "400", description = "Переданы некорректные параметры", content = @Content),
+        @ApiResponse(responseCode = "401", description = "Передан некорректный JWT", content = @Content)
+})
+public class HomeScreenController {
+
+    private final HomeScreenService homeScreenService;
+
+    @GetMapping("/at-day/{date}")
+    @Operation(
+            summary = "Получить всё для главного экрана одним запросом",
+            description = "Возвращает привычки пользователя, привычки, на которые он подписан, его необработанные заявки " +
+                    "и принятые подписки. Если какую-то часть не удалось получить вовремя, то она будет null, " +
+                    "а ее название попадет в failedParts"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешно получена информация (возможно, не вся)"),
+            @ApiResponse(responseCode = "503", description = "Не удалось получить ни одной части", content = @Content)
+    })
+    public Mono<HomeScreenResponse> getHomeScreen(
+            @PathVariable @Parameter(description = "За какую дату нужно вернуть привычки", example = "2025-04-11")
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestHeader("X-User-Id") @Parameter(hidden = true) String userId,
+            @RequestHeader(value = Deadline.HEADER, required = false) @Parameter(hidden = true) String requestTimeout,
+            @CookieValue(value = HomeScreenService.READ_PRIMARY_COOKIE, required = false) @Parameter(hidden = true)
+            String readPrimary
+    ) {
+        return homeScreenService.getHomeScreen(date, userId, Deadline.parseHeader(requestTimeout), readPrimary != null);
+    }
+
+}
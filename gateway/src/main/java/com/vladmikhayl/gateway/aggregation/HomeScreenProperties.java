@@ -0,0 +1,29 @@
+package com.vladmikhayl.gateway.aggregation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Настройки агрегированного эндпоинта главного экрана (берутся из конфига gateway по префиксу aggregation.home)
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "aggregation.home")
+public class HomeScreenProperties {
+
+    // Сколько максимум ждать ответа от одного микросервиса, если для него не задано свое значение
+    private Duration defaultTimeout = Duration.ofSeconds(3);
+
+    // Свои таймауты для отдельных частей ответа (ключи - названия частей из HomeScreenService)
+    private Map<String, Duration> timeouts = new HashMap<>();
+
+    public Duration getTimeout(String part) {
+        return timeouts.getOrDefault(part, defaultTimeout);
+    }
+
+}
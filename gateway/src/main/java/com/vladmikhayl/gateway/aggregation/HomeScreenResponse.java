@@ -0,0 +1,37 @@
+package com.vladmikhayl.gateway.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// Части ответа передаются как есть (в том виде, в котором их вернули микросервисы),
+// поэтому gateway не нужно дублировать у себя их DTO
+@Data
+@Builder
+@Schema(description = "Всё, что нужно для главного экрана, одним ответом")
+public class HomeScreenResponse {
+
+    @Schema(description = "Текущие привычки пользователя в этот день (как в /api/v1/habits/all-user-habits/at-day/{date}), " +
+            "или null, если их не удалось получить")
+    private JsonNode habits;
+
+    @Schema(description = "Текущие в этот день привычки, на которые подписан пользователь " +
+            "(как в /api/v1/habits/all-user-subscribed-habits/at-day/{date}), или null, если их не удалось получить")
+    private JsonNode subscribedHabits;
+
+    @Schema(description = "Необработанные заявки пользователя (как в /api/v1/subscriptions/get-user-unprocessed-requests), " +
+            "или null, если их не удалось получить")
+    private JsonNode unprocessedRequests;
+
+    @Schema(description = "Принятые подписки пользователя (как в /api/v1/subscriptions/get-user-accepted-subscriptions), " +
+            "или null, если их не удалось получить")
+    private JsonNode acceptedSubscriptions;
+
+    @Schema(description = "Какие части ответа не удалось получить (пустой список, если ответ полный)",
+            example = "[\"subscribedHabits\"]")
+    private List<String> failedParts;
+
+}
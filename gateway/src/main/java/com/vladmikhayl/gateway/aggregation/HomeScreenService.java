@@ -0,0 +1,152 @@
+package com.vladmikhayl.gateway.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import com.vladmikhayl.commons.web.deadline.DeadlineExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Собирает данные для главного экрана из habit и subscription.
+// Все запросы отправляются параллельно, у каждого свой таймаут, но не больше оставшегося бюджета всего запроса
+// (X-Request-Timeout-Ms, его ставит RequestDeadlineFilter). Если какая-то часть не пришла вовремя
+// или пришла с ошибкой, то возвращаются остальные части, а неудавшаяся попадает в failedParts
+@Slf4j
+@Service
+public class HomeScreenService {
+
+    static final String HABITS = "habits";
+
+    static final String SUBSCRIBED_HABITS = "subscribedHabits";
+
+    static final String UNPROCESSED_REQUESTS = "unprocessedRequests";
+
+    static final String ACCEPTED_SUBSCRIPTIONS = "acceptedSubscriptions";
+
+    // Cookie, которую микросервисы ставят после записи пользователя, и заголовок, с которым они читают только
+    // из основной БД (см. ReadYourWrites в common-data). Запросы по маршрутам передают cookie сами,
+    // а запросы главного экрана собирает gateway, поэтому требование передается им явно
+    static final String READ_PRIMARY_COOKIE = "read-primary";
+
+    static final String READ_PRIMARY_HEADER = "X-Read-Primary";
+
+    private final WebClient webClient;
+
+    private final HomeScreenProperties properties;
+
+    public HomeScreenService(
+            @Qualifier("loadBalancedWebClientBuilder") WebClient.Builder webClientBuilder,
+            HomeScreenProperties properties
+    ) {
+        this.webClient = webClientBuilder.build();
+        this.properties = properties;
+    }
+
+    // budget - бюджет всего запроса; пустой Optional, если запрос пришел без него (тогда действуют только
+    // таймауты частей). readPrimary - пользователь недавно что-то записал и должен сразу это увидеть
+    public Mono<HomeScreenResponse> getHomeScreen(
+            LocalDate date,
+            String userId,
+            Optional<Duration> budget,
+            boolean readPrimary
+    ) {
+        // Дедлайн в единицах System.nanoTime(): оставшееся время считается от него, а не от начала каждой части
+        Optional<Long> deadline = budget.map(requestBudget -> System.nanoTime() + requestBudget.toNanos());
+
+        Mono<Optional<JsonNode>> habits = fetchPart(HABITS,
+                "http://habit/api/v1/habits/all-user-habits/at-day/" + date, userId, deadline, readPrimary);
+
+        Mono<Optional<JsonNode>> subscribedHabits = fetchPart(SUBSCRIBED_HABITS,
+                "http://habit/api/v1/habits/all-user-subscribed-habits/at-day/" + date, userId, deadline, readPrimary);
+
+        Mono<Optional<JsonNode>> unprocessedRequests = fetchPart(UNPROCESSED_REQUESTS,
+                "http://subscription/api/v1/subscriptions/get-user-unprocessed-requests", userId, deadline, readPrimary);
+
+        Mono<Optional<JsonNode>> acceptedSubscriptions = fetchPart(ACCEPTED_SUBSCRIPTIONS,
+                "http://subscription/api/v1/subscriptions/get-user-accepted-subscriptions", userId, deadline, readPrimary);
+
+        return Mono.zip(habits, subscribedHabits, unprocessedRequests, acceptedSubscriptions)
+                .map(parts -> {
+                    List<String> failedParts = new ArrayList<>();
+                    addIfFailed(failedParts, HABITS, parts.getT1());
+                    addIfFailed(failedParts, SUBSCRIBED_HABITS, parts.getT2());
+                    addIfFailed(failedParts, UNPROCESSED_REQUESTS, parts.getT3());
+                    addIfFailed(failedParts, ACCEPTED_SUBSCRIPTIONS, parts.getT4());
+
+                    if (failedParts.size() == 4) {
+                        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
+                    }
+
+                    return HomeScreenResponse.builder()
+                            .habits(parts.getT1().orElse(null))
+                            .subscribedHabits(parts.getT2().orElse(null))
+                            .unprocessedRequests(parts.getT3().orElse(null))
+                            .acceptedSubscriptions(parts.getT4().orElse(null))
+                            .failedParts(failedParts)
+                            .build();
+                });
+    }
+
+    // Ошибка или таймаут одной части не должны ронять весь ответ, поэтому они превращаются в пустой Optional.
+    // Таймаут части передается микросервису как дедлайн: после него ответ уже не нужен.
+    // Он вычисляется при подписке, чтобы учитывать время, уже потраченное на запрос
+    private Mono<Optional<JsonNode>> fetchPart(
+            String part,
+            String uri,
+            String userId,
+            Optional<Long> deadline,
+            boolean readPrimary
+    ) {
+        return Mono.defer(() -> {
+                    Duration timeout = timeoutFor(part, deadline);
+                    if (timeout.isNegative() || timeout.isZero()) {
+                        return Mono.<JsonNode>error(new DeadlineExceededException());
+                    }
+                    return webClient.get()
+                            .uri(uri)
+                            .header("X-User-Id", userId)
+                            .header(Deadline.HEADER, String.valueOf(timeout.toMillis()))
+                            .headers(headers -> {
+                                if (readPrimary) {
+                                    headers.set(READ_PRIMARY_HEADER, "true");
+                                }
+                            })
+                            .retrieve()
+                            .bodyToMono(JsonNode.class)
+                            .timeout(timeout);
+                })
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(e -> {
+                    log.warn("Не удалось получить часть {} главного экрана: {}", part, e.toString());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    // Меньшее из таймаута части и оставшегося бюджета всего запроса
+    private Duration timeoutFor(String part, Optional<Long> deadline) {
+        Duration timeout = properties.getTimeout(part);
+        if (deadline.isEmpty()) {
+            return timeout;
+        }
+        Duration remaining = Duration.ofNanos(deadline.get() - System.nanoTime());
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    private static void addIfFailed(List<String> failedParts, String part, Optional<JsonNode> value) {
+        if (value.isEmpty()) {
+            failedParts.add(part);
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.vladmikhayl.gateway.config;
+
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+public class WebClientConfig {
+
+    // WebClient, который понимает адреса вида http://habit (инстанс выбирается через Eureka, как у маршрутов lb://).
+    // Используется, когда gateway сам собирает ответ из нескольких микросервисов
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder() {
+        return WebClient.builder();
+    }
+
+}
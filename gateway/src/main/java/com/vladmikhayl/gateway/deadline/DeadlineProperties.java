@@ -0,0 +1,24 @@
+package com.vladmikhayl.gateway.deadline;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Настройки дедлайнов запросов (берутся из конфига gateway по префиксу deadline)
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "deadline")
+public class DeadlineProperties {
+
+    private boolean enabled = true;
+
+    // Сколько времени отводится на обработку внешнего запроса во всех микросервисах. Внешние клиенты бюджет
+    // не задают (их заголовок X-Request-Timeout-Ms убирает GatewayHeadersFilter); внутренние запросы микросервисов
+    // приходят со своим, уже уменьшенным бюджетом, и он сохраняется, но никогда не больше этого значения
+    private Duration timeout = Duration.ofSeconds(10);
+
+}
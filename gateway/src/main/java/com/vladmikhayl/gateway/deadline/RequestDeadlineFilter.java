@@ -0,0 +1,45 @@
+package com.vladmikhayl.gateway.deadline;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+// Ставит каждому проходящему через gateway запросу заголовок X-Request-Timeout-Ms - бюджет времени в миллисекундах.
+// Микросервисы передают его дальше уже уменьшенным (см. Deadline в common-web), поэтому внутренние запросы
+// приходят сюда со своим бюджетом, и он сохраняется. Из внешних запросов заголовок убирает GatewayHeadersFilter,
+// и им всегда ставится deadline.timeout. Бюджет никогда не больше deadline.timeout, так что и микросервис
+// не может его увеличить.
+// Фильтр стоит после ограничения частоты запросов, чтобы не обрабатывать запросы, которые все равно будут отклонены
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class RequestDeadlineFilter implements WebFilter {
+
+    private final DeadlineProperties properties;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled() || exchange.getRequest().getPath().value().startsWith("/actuator/")) {
+            return chain.filter(exchange);
+        }
+
+        Duration budget = Deadline.parseHeader(exchange.getRequest().getHeaders().getFirst(Deadline.HEADER))
+                .filter(requested -> requested.compareTo(properties.getTimeout()) < 0)
+                .orElse(properties.getTimeout());
+
+        ServerWebExchange withDeadline = exchange.mutate()
+                .request(request -> request.headers(headers ->
+                        headers.set(Deadline.HEADER, String.valueOf(budget.toMillis()))))
+                .build();
+
+        return chain.filter(withDeadline);
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.vladmikhayl.gateway.ratelimit;
+
+import com.vladmikhayl.gateway.security.jwt.JwtTokenFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+// Ограничивает частоту внешних запросов для каждого пользователя.
+// Фильтр стоит после цепочки Spring Security (у нее порядок -100), поэтому к этому моменту JwtTokenFilter
+// уже проверил JWT и запомнил ID пользователя в атрибутах запроса
+@Slf4j
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class RateLimitFilter implements WebFilter {
+
+    private final RateLimitProperties properties;
+
+    private final RateLimiter rateLimiter;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().value();
+
+        // Ограничиваем только внешние запросы
+        if (!properties.isEnabled() || !path.startsWith("/api/")) {
+            return chain.filter(exchange);
+        }
+
+        String clientKey = getClientKey(exchange);
+        long waitNanos = rateLimiter.tryAcquire(path, clientKey);
+
+        if (waitNanos == 0) {
+            return chain.filter(exchange);
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.debug("Превышен лимит запросов к {} для клиента {}", path, clientKey);
+
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        return exchange.getResponse().setComplete();
+    }
+
+    // Для аутентифицированных запросов ключ - ID пользователя, для остальных (например, логин) - IP клиента
+    private String getClientKey(ServerWebExchange exchange) {
+        String userId = exchange.getAttribute(JwtTokenFilter.USER_ID_ATTRIBUTE);
+
+        if (userId != null) {
+            return "user:" + userId;
+        }
+
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (remoteAddress == null ? "unknown" : remoteAddress.getHostString());
+    }
+
+}
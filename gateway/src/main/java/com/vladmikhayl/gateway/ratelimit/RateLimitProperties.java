@@ -0,0 +1,53 @@
+package com.vladmikhayl.gateway.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Настройки ограничения частоты запросов (берутся из конфига gateway по префиксу rate-limit)
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = false;
+
+    // Сколько максимум корзин (пар "маршрут + клиент") держать в памяти
+    private int maxBuckets = 100_000;
+
+    // Бюджет для внешних запросов, которые не попали ни в один из маршрутов ниже
+    private Budget defaultBudget = new Budget();
+
+    // Маршруты со своими бюджетами. Проверяются по порядку, используется первый подошедший
+    private List<RouteBudget> routes = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Budget {
+
+        // Сколько запросов можно сделать подряд (размер корзины)
+        private int capacity = 100;
+
+        // Сколько запросов в секунду восстанавливается в корзине
+        private double refillPerSecond = 10;
+
+    }
+
+    @Getter
+    @Setter
+    public static class RouteBudget extends Budget {
+
+        // Название маршрута (используется в метриках)
+        private String id;
+
+        // Шаблон пути, например /api/v1/habits/all-user-habits/at-day/**
+        private String path;
+
+    }
+
+}
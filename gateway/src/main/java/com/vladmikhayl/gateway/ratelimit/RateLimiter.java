@@ -0,0 +1,146 @@
+package com.vladmikhayl.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// Хранит корзины для всех пар "маршрут + клиент" прямо в памяти gateway (без Redis и других внешних хранилищ).
+// Кэш Caffeine сам разбит на независимые сегменты, а сами корзины обновляются без блокировок,
+// поэтому запросы разных клиентов друг друга не ждут. Число корзин ограничено maxBuckets, а корзина,
+// к которой не обращались дольше времени ее полного восстановления, удаляется сама: она уже ничем
+// не отличается от новой. Поэтому на пути запроса корзины никогда не перебираются
+@Component
+public class RateLimiter {
+
+    private static final String DEFAULT_ROUTE_ID = "default";
+
+    private final List<Route> routes = new ArrayList<>();
+
+    private final Route defaultRoute;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        // Обслуживание кэша (удаление корзин) - в потоке запроса, частями по несколько корзин,
+        // чтобы не зависеть от общего пула ForkJoinPool
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                .expireAfter(new FullRefillExpiry())
+                .ticker(nanoTime::getAsLong)
+                .executor(Runnable::run)
+                .build();
+
+        for (RateLimitProperties.RouteBudget routeBudget : properties.getRoutes()) {
+            PathPattern pattern = PathPatternParser.defaultInstance.parse(routeBudget.getPath());
+            routes.add(new Route(routeBudget.getId(), pattern, routeBudget, meterRegistry));
+        }
+        this.defaultRoute = new Route(DEFAULT_ROUTE_ID, null, properties.getDefaultBudget(), meterRegistry);
+
+        Gauge.builder("gateway.rate-limit.buckets", buckets, Cache::estimatedSize)
+                .description("Сколько корзин сейчас хранится в памяти")
+                .register(meterRegistry);
+    }
+
+    // Возвращает 0, если запрос можно пропустить, иначе - через сколько наносекунд его можно будет повторить
+    public long tryAcquire(String path, String clientKey) {
+        Route route = findRoute(path);
+        long now = nanoTime.getAsLong();
+
+        TokenBucket bucket = buckets.get(route.id + ":" + clientKey, key -> new TokenBucket(route.budget, now));
+
+        long waitNanos = bucket.tryAcquire(now);
+
+        if (waitNanos == 0) {
+            route.allowed.increment();
+        } else {
+            route.rejected.increment();
+        }
+
+        return waitNanos;
+    }
+
+    int bucketsCount() {
+        buckets.cleanUp();
+        return (int) buckets.estimatedSize();
+    }
+
+    private Route findRoute(String path) {
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (Route route : routes) {
+            if (route.pattern.matches(pathContainer)) {
+                return route;
+            }
+        }
+        return defaultRoute;
+    }
+
+    // Корзина живет время своего полного восстановления после последнего обращения (у каждого маршрута свое)
+    private static class FullRefillExpiry implements Expiry<String, TokenBucket> {
+
+        @Override
+        public long expireAfterCreate(String key, TokenBucket bucket, long currentTime) {
+            return bucket.fullRefillNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+            return bucket.fullRefillNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, TokenBucket bucket, long currentTime, long currentDuration) {
+            return bucket.fullRefillNanos();
+        }
+
+    }
+
+    private static class Route {
+
+        private final String id;
+
+        private final PathPattern pattern;
+
+        private final RateLimitProperties.Budget budget;
+
+        private final Counter allowed;
+
+        private final Counter rejected;
+
+        private Route(String id, PathPattern pattern, RateLimitProperties.Budget budget, MeterRegistry meterRegistry) {
+            TokenBucket.validate(id, budget);
+            this.id = id;
+            this.pattern = pattern;
+            this.budget = budget;
+            this.allowed = Counter.builder("gateway.rate-limit.requests")
+                    .tag("route", id)
+                    .tag("outcome", "allowed")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("gateway.rate-limit.requests")
+                    .tag("route", id)
+                    .tag("outcome", "rejected")
+                    .register(meterRegistry);
+        }
+
+    }
+
+}
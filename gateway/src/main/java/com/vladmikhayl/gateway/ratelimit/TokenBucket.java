@@ -0,0 +1,67 @@
+package com.vladmikhayl.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket без блокировок. Вместо пары "число токенов + время последнего пополнения" хранится одно число -
+// теоретическое время прихода следующего запроса (алгоритм GCRA), поэтому корзина обновляется одним CAS.
+// Поведение полностью совпадает с обычной корзиной: capacity запросов подряд, дальше по refillPerSecond в секунду
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // Через сколько наносекунд восстанавливается один токен
+    private final long nanosPerToken;
+
+    // За сколько наносекунд восстанавливается вся корзина
+    private final long burstNanos;
+
+    private final AtomicLong theoreticalArrivalTime;
+
+    // Бюджет должен быть заранее проверен через validate
+    public TokenBucket(RateLimitProperties.Budget budget, long nowNanos) {
+        this.nanosPerToken = (long) (NANOS_PER_SECOND / budget.getRefillPerSecond());
+        this.burstNanos = nanosPerToken * budget.getCapacity();
+        this.theoreticalArrivalTime = new AtomicLong(nowNanos);
+    }
+
+    // Проверяет бюджет маршрута при старте gateway, а не на первом запросе клиента. Скорость пополнения
+    // не больше 1e9 в секунду, иначе на один токен приходится 0 наносекунд и ограничение не работает
+    public static void validate(String routeId, RateLimitProperties.Budget budget) {
+        if (budget.getCapacity() < 1) {
+            throw new IllegalArgumentException("Размер корзины маршрута " + routeId + " должен быть положительным");
+        }
+        if (!(budget.getRefillPerSecond() > 0 && budget.getRefillPerSecond() <= NANOS_PER_SECOND)) {
+            throw new IllegalArgumentException("Скорость пополнения корзины маршрута " + routeId +
+                    " должна быть больше 0 и не больше " + NANOS_PER_SECOND + " в секунду");
+        }
+        long nanosPerToken = (long) (NANOS_PER_SECOND / budget.getRefillPerSecond());
+        if (nanosPerToken > Long.MAX_VALUE / budget.getCapacity()) {
+            throw new IllegalArgumentException("Корзина маршрута " + routeId + " восстанавливается слишком долго");
+        }
+    }
+
+    // Пытается взять один токен. Возвращает 0, если токен взят,
+    // иначе - через сколько наносекунд в корзине появится свободный токен
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrivalTime.get();
+            long next = Math.max(current, nowNanos) + nanosPerToken;
+            long allowedAt = next - burstNanos;
+
+            if (allowedAt > nowNanos) {
+                return allowedAt - nowNanos;
+            }
+
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // За это время без запросов корзина гарантированно восстанавливается полностью,
+    // то есть после него ее можно удалить без изменения поведения
+    public long fullRefillNanos() {
+        return burstNanos;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.vladmikhayl.gateway.security;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Убирает из внешних запросов (/api/) заголовки, которые ставит сам gateway и которым верят микросервисы:
+// ID пользователя (его ставит JwtTokenFilter из проверенного JWT), бюджет времени (RequestDeadlineFilter)
+// и требование читать из основной БД (его передают только сами микросервисы, а пользователь после своей записи
+// получает cookie, см. ReadYourWrites в common-data). Иначе клиент, например, без JWT к открытым эндпоинтам
+// передал бы в микросервис чужой X-User-Id или направил бы все свои чтения в основную БД.
+// Внутренние запросы (/internal/) приходят от микросервисов, и их заголовки сохраняются.
+// Фильтр стоит раньше всех, в том числе раньше Spring Security
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class GatewayHeadersFilter implements WebFilter {
+
+    static final List<String> GATEWAY_HEADERS = List.of("X-User-Id", Deadline.HEADER, "X-Read-Primary");
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getPath().value().startsWith("/api/")
+                || GATEWAY_HEADERS.stream().noneMatch(exchange.getRequest().getHeaders()::containsKey)) {
+            return chain.filter(exchange);
+        }
+
+        ServerWebExchange withoutGatewayHeaders = exchange.mutate()
+                .request(request -> request.headers(headers -> GATEWAY_HEADERS.forEach(headers::remove)))
+                .build();
+
+        return chain.filter(withoutGatewayHeaders);
+    }
+
+}
@@ -27,7 +27,8 @@ public class SecurityConfig {
                         .pathMatchers("/api/v1/auth/**").permitAll()
                         .pathMatchers("/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**", "/webjars/**", "/swagger-resources/**").permitAll()
                         .pathMatchers("/habit/v3/api-docs/**", "/auth/v3/api-docs/**", "/report/v3/api-docs/**", "/subscription/v3/api-docs/**").permitAll()
-                        .pathMatchers("/internal/**").authenticated()
+                        .pathMatchers("/actuator/health").permitAll()
+                        .pathMatchers("/internal/**", "/actuator/**").authenticated()
                         .pathMatchers("/api/**").authenticated()
                 )
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(authEntryPoint));
@@ -27,8 +27,9 @@ public class InternalTokenFilter implements WebFilter {
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         String path = exchange.getRequest().getPath().toString();
 
-        // Пропускаем, если это не внутренний запрос
-        if (!path.startsWith("/internal/")) {
+        // Пропускаем, если это не внутренний запрос и не запрос к служебным эндпоинтам actuator (кроме health)
+        boolean isActuatorRequest = path.startsWith("/actuator/") && !path.equals("/actuator/health");
+        if (!path.startsWith("/internal/") && !isActuatorRequest) {
             return chain.filter(exchange);
         }
 
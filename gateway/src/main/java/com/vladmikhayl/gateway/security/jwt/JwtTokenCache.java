@@ -0,0 +1,100 @@
+package com.vladmikhayl.gateway.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// Ограниченный по размеру кэш уже проверенных JWT.
+// Ключ - SHA-256 от всего токена (а не сам токен и не его подпись), чтобы по ключу нельзя было подделать payload.
+// Запись живет ровно до exp токена: просроченная запись никогда не отдается, а удаляет ее сам Caffeine.
+// Caffeine же при переполнении выбирает, какую запись вытеснить, поэтому на пути запроса записи не перебираются
+@Component
+public class JwtTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    });
+
+    private final Cache<String, VerifiedJwt> entries;
+
+    private final int maxSize;
+
+    private final Clock clock;
+
+    public JwtTokenCache(@Value("${spring.app.jwtCacheMaxSize:10000}") int maxSize) {
+        this(maxSize, Clock.systemUTC());
+    }
+
+    JwtTokenCache(int maxSize, Clock clock) {
+        this.maxSize = maxSize;
+        this.clock = clock;
+        // Обслуживание кэша - в потоке запроса, чтобы не зависеть от общего пула ForkJoinPool
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxSize, 0))
+                .expireAfter(new TokenExpiry())
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .executor(Runnable::run)
+                .build();
+    }
+
+    public VerifiedJwt get(String token) {
+        if (maxSize <= 0) {
+            return null;
+        }
+
+        return entries.getIfPresent(hash(token));
+    }
+
+    public void put(String token, VerifiedJwt verifiedJwt) {
+        if (maxSize <= 0 || verifiedJwt.isExpiredAt(clock.millis())) {
+            return;
+        }
+
+        entries.put(hash(token), verifiedJwt);
+    }
+
+    public int size() {
+        entries.cleanUp();
+        return (int) entries.estimatedSize();
+    }
+
+    private static String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        byte[] hashed = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hashed);
+    }
+
+    // Запись живет до exp токена; чтение срок не продлевает
+    private class TokenExpiry implements Expiry<String, VerifiedJwt> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedJwt verifiedJwt, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(verifiedJwt.expiresAtMillis() - clock.millis());
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedJwt verifiedJwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, verifiedJwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedJwt verifiedJwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
@@ -16,6 +16,10 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class JwtTokenFilter implements WebFilter {
 
+    // Атрибут запроса, в котором лежит ID пользователя из проверенного JWT
+    // (в отличие от заголовка X-User-Id, его не может подставить сам клиент)
+    public static final String USER_ID_ATTRIBUTE = "verifiedUserId";
+
     private final JwtUtils jwtUtils;
 
     @Override
@@ -30,10 +34,14 @@ public class JwtTokenFilter implements WebFilter {
 
         String token = jwtUtils.getJwtTokenFromRequest(request);
 
-        if (token != null && jwtUtils.validateJwtToken(token)) {
-            Authentication authentication = jwtUtils.getAuthenticationFromJwtToken(token);
+        // Токен проверяется и разбирается ровно один раз за запрос (или вообще берется из кэша)
+        VerifiedJwt verifiedJwt = token == null ? null : jwtUtils.verifyJwtToken(token);
+
+        if (verifiedJwt != null) {
+            Authentication authentication = jwtUtils.getAuthentication(verifiedJwt);
             SecurityContext securityContext = new SecurityContextImpl(authentication);
-            String userId = jwtUtils.getClaimsFromJwtToken(token).getId(); // Получаем ID юзера
+            String userId = verifiedJwt.userId(); // Получаем ID юзера
+            exchange.getAttributes().put(USER_ID_ATTRIBUTE, userId);
             exchange = exchange.mutate()
                     .request(r -> r.header("X-User-Id", userId))
                     .build(); // Добавляем ID юзера в заголовок запроса
@@ -2,9 +2,12 @@ package com.vladmikhayl.gateway.security.jwt;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
@@ -13,40 +16,61 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
 import java.util.Collections;
+import java.util.Date;
 
 @Component
+@RequiredArgsConstructor
 public class JwtUtils {
 
     @Value("${spring.app.jwtSecret}")
     private String secretKey;
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
-    }
+    private final JwtTokenCache jwtTokenCache;
 
-    public Claims getClaimsFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
+    // Ключ и парсер потокобезопасны, поэтому создаются один раз, а не на каждый запрос
+    private JwtParser jwtParser;
 
-    public Authentication getAuthenticationFromJwtToken(String token) {
-        Claims claims = getClaimsFromJwtToken(token);
-        String username = claims.getSubject();
-        return new UsernamePasswordAuthenticationToken(username, null, Collections.emptyList());
+    @PostConstruct
+    void init() {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        jwtParser = Jwts.parser()
+                .verifyWith(key)
+                .build();
     }
 
-    public boolean validateJwtToken(String token) {
+    // Проверяет токен и достает из него всё нужное за один разбор.
+    // Если токен уже проверялся и еще не истек, то он берется из кэша без проверки подписи и разбора JSON.
+    // Возвращает null, если токен невалиден
+    public VerifiedJwt verifyJwtToken(String token) {
+        VerifiedJwt cached = jwtTokenCache.get(token);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims;
+
         try {
-            Jwts.parser().verifyWith((SecretKey) key()).build().parseSignedClaims(token);
-            return true;
+            claims = jwtParser.parseSignedClaims(token).getPayload();
         } catch (JwtException | IllegalArgumentException ex) {
-            return false;
+            return null;
         }
+
+        Date expiration = claims.getExpiration();
+
+        // Токены без exp в кэш не попадают, так как для них неизвестно, когда запись станет неактуальной
+        if (expiration == null) {
+            return new VerifiedJwt(claims.getId(), claims.getSubject(), Long.MAX_VALUE);
+        }
+
+        VerifiedJwt verifiedJwt = new VerifiedJwt(claims.getId(), claims.getSubject(), expiration.getTime());
+        jwtTokenCache.put(token, verifiedJwt);
+        return verifiedJwt;
+    }
+
+    public Authentication getAuthentication(VerifiedJwt verifiedJwt) {
+        return new UsernamePasswordAuthenticationToken(verifiedJwt.username(), null, Collections.emptyList());
     }
 
     public String getJwtTokenFromRequest(ServerHttpRequest request) {
@@ -0,0 +1,14 @@
+package com.vladmikhayl.gateway.security.jwt;
+
+// Результат однократной проверки JWT: всё, что фильтру нужно знать о токене после проверки подписи
+public record VerifiedJwt(
+        String userId,
+        String username,
+        long expiresAtMillis
+) {
+
+    public boolean isExpiredAt(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.vladmikhayl.gateway.aggregation;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HomeScreenServiceTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 4, 11);
+
+    private final Map<String, Function<ClientRequest, Mono<ClientResponse>>> handlers = new ConcurrentHashMap<>();
+
+    private final Map<String, String> receivedUserIds = new ConcurrentHashMap<>();
+
+    private final Map<String, String> receivedBudgets = new ConcurrentHashMap<>();
+
+    private final Map<String, String> receivedReadPrimary = new ConcurrentHashMap<>();
+
+    private HomeScreenService underTest;
+
+    @BeforeEach
+    void setUp() {
+        HomeScreenProperties properties = new HomeScreenProperties();
+        // С запасом: первый запрос в тесте заметно медленнее из-за инициализации Jackson и Reactor
+        properties.setDefaultTimeout(Duration.ofSeconds(1));
+
+        WebClient.Builder builder = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String path = request.url().getPath();
+                    receivedUserIds.put(path, request.headers().getFirst("X-User-Id"));
+                    receivedBudgets.put(path, request.headers().getFirst(Deadline.HEADER));
+                    receivedReadPrimary.put(path, String.valueOf(request.headers().getFirst(HomeScreenService.READ_PRIMARY_HEADER)));
+                    return handlers.getOrDefault(path, r -> json("[]")).apply(request);
+                });
+
+        underTest = new HomeScreenService(builder, properties);
+    }
+
+    @Test
+    void returnsAllPartsWhenAllServicesRespond() {
+        handlers.put("/api/v1/habits/all-user-habits/at-day/2025-04-11", r -> json("[{\"habitId\":1}]"));
+        handlers.put("/api/v1/subscriptions/get-user-accepted-subscriptions", r -> json("[{\"habitId\":2}]"));
+
+        HomeScreenResponse response = underTest.getHomeScreen(DATE, "7", Optional.empty(), false).block();
+
+        assertThat(response).isNotNull();
+        assertThat(response.getFailedParts()).isEmpty();
+        assertThat(response.getHabits().get(0).get("habitId").asLong()).isEqualTo(1L);
+        assertThat(response.getSubscribedHabits().isArray()).isTrue();
+        assertThat(response.getUnprocessedRequests().isArray()).isTrue();
+        assertThat(response.getAcceptedSubscriptions().get(0).get("habitId").asLong()).isEqualTo(2L);
+
+        assertThat(receivedUserIds).hasSize(4);
+        assertThat(receivedUserIds.values()).containsOnly("7");
+    }
+
+    @Test
+    void returnsPartialResponseWhenOneServiceIsTooSlow() {
+        handlers.put("/api/v1/habits/all-user-subscribed-habits/at-day/2025-04-11",
+                r -> json("[]").delayElement(Duration.ofSeconds(5)));
+
+        // Ответ должен прийти по таймауту части, а не через 5 секунд
+        HomeScreenResponse response = underTest.getHomeScreen(DATE, "7", Optional.empty(), false).block(Duration.ofSeconds(2));
+
+        assertThat(response).isNotNull();
+        assertThat(response.getFailedParts()).containsExactly(HomeScreenService.SUBSCRIBED_HABITS);
+        assertThat(response.getSubscribedHabits()).isNull();
+        assertThat(response.getHabits()).isNotNull();
+    }
+
+    @Test
+    void passesPartTimeoutAsBudgetWhenRequestHasNoBudget() {
+        underTest.getHomeScreen(DATE, "7", Optional.empty(), false).block();
+
+        assertThat(receivedBudgets).hasSize(4);
+        assertThat(receivedBudgets.values()).containsOnly("1000");
+    }
+
+    @Test
+    void asksServicesToReadFromPrimaryAfterUsersWrite() {
+        underTest.getHomeScreen(DATE, "7", Optional.empty(), true).block();
+
+        assertThat(receivedReadPrimary).hasSize(4);
+        assertThat(receivedReadPrimary.values()).containsOnly("true");
+    }
+
+    @Test
+    void limitsPartsByRemainingRequestBudget() {
+        handlers.put("/api/v1/habits/all-user-subscribed-habits/at-day/2025-04-11",
+                r -> json("[]").delayElement(Duration.ofMillis(700)));
+
+        // Таймаут части 1 с, но на весь запрос осталось только 400 мс
+        HomeScreenResponse response = underTest.getHomeScreen(DATE, "7", Optional.of(Duration.ofMillis(400)), false)
+                .block(Duration.ofSeconds(2));
+
+        assertThat(response).isNotNull();
+        assertThat(response.getFailedParts()).contains(HomeScreenService.SUBSCRIBED_HABITS);
+        assertThat(response.getSubscribedHabits()).isNull();
+        assertThat(receivedBudgets.values()).allSatisfy(budget -> assertThat(Long.parseLong(budget)).isBetween(0L, 400L));
+    }
+
+    @Test
+    void doesNotCallServicesWhenRequestBudgetIsExhausted() {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> underTest.getHomeScreen(DATE, "7", Optional.of(Duration.ZERO), false).block(Duration.ofSeconds(2)));
+
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(receivedBudgets).isEmpty();
+    }
+
+    @Test
+    void returnsPartialResponseWhenServicesRespondWithErrors() {
+        handlers.put("/api/v1/subscriptions/get-user-unprocessed-requests",
+                r -> Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+        handlers.put("/api/v1/subscriptions/get-user-accepted-subscriptions",
+                r -> Mono.error(new IllegalStateException("connection refused")));
+
+        HomeScreenResponse response = underTest.getHomeScreen(DATE, "7", Optional.empty(), false).block();
+
+        assertThat(response).isNotNull();
+        assertThat(response.getFailedParts()).isEqualTo(List.of(
+                HomeScreenService.UNPROCESSED_REQUESTS,
+                HomeScreenService.ACCEPTED_SUBSCRIPTIONS
+        ));
+        assertThat(response.getHabits()).isNotNull();
+        assertThat(response.getSubscribedHabits()).isNotNull();
+    }
+
+    @Test
+    void failsWithServiceUnavailableWhenAllPartsFail() {
+        handlers.put("/api/v1/habits/all-user-habits/at-day/2025-04-11", r -> Mono.error(new IllegalStateException()));
+        handlers.put("/api/v1/habits/all-user-subscribed-habits/at-day/2025-04-11", r -> Mono.error(new IllegalStateException()));
+        handlers.put("/api/v1/subscriptions/get-user-unprocessed-requests", r -> Mono.error(new IllegalStateException()));
+        handlers.put("/api/v1/subscriptions/get-user-accepted-subscriptions", r -> Mono.error(new IllegalStateException()));
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> underTest.getHomeScreen(DATE, "7", Optional.empty(), false).block(Duration.ofSeconds(2)));
+
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static Mono<ClientResponse> json(String body) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.vladmikhayl.gateway.benchmark;
+
+import com.vladmikhayl.gateway.security.jwt.JwtTokenCache;
+import com.vladmikhayl.gateway.security.jwt.JwtTokenFilter;
+import com.vladmikhayl.gateway.security.jwt.JwtUtils;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Бенчмарк JwtTokenFilter: сравнивает обработку запроса с полной проверкой JWT (кэш выключен)
+// и с попаданием в кэш уже проверенных токенов.
+// Запускается через main() из IDE или через org.openjdk.jmh.Main с тестовым classpath (после ./mvnw test-compile)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenFilterBenchmark {
+
+    private static final String SECRET = "BSyus78W73UHhqpIOJS9Jjd03928u3rdh9UIHD89wh9dw";
+
+    private static final WebFilterChain CHAIN = exchange -> Mono.empty();
+
+    @Param({"0", "10000"})
+    private int cacheMaxSize;
+
+    private JwtTokenFilter filter;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtUtils jwtUtils = new JwtUtils(new JwtTokenCache(cacheMaxSize));
+        ReflectionTestUtils.setField(jwtUtils, "secretKey", SECRET);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+
+        filter = new JwtTokenFilter(jwtUtils);
+
+        token = Jwts.builder()
+                .subject("benchmark-user")
+                .id("42")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .compact();
+    }
+
+    @Benchmark
+    public void filterAuthenticatedRequest() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/api/v1/habits/all-user-habits/at-day/2025-04-12")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+        );
+        filter.filter(exchange, CHAIN).block();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtTokenFilterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.vladmikhayl.gateway.deadline;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestDeadlineFilterTest {
+
+    private final AtomicReference<String> forwardedBudget = new AtomicReference<>();
+
+    private final WebFilterChain chain = exchange -> {
+        forwardedBudget.set(exchange.getRequest().getHeaders().getFirst(Deadline.HEADER));
+        return Mono.empty();
+    };
+
+    private RequestDeadlineFilter underTest;
+
+    @BeforeEach
+    void setUp() {
+        DeadlineProperties properties = new DeadlineProperties();
+        properties.setTimeout(Duration.ofSeconds(5));
+        underTest = new RequestDeadlineFilter(properties);
+    }
+
+    private void sendRequest(MockServerHttpRequest.BaseBuilder<?> request) {
+        underTest.filter(MockServerWebExchange.from(request), chain).block();
+    }
+
+    @Test
+    void stampsDefaultBudgetOnExternalRequest() {
+        sendRequest(MockServerHttpRequest.get("/api/v1/habits/all-user-habits/at-day/2025-04-12"));
+
+        assertThat(forwardedBudget.get()).isEqualTo("5000");
+    }
+
+    @Test
+    void keepsSmallerBudgetOfInternalRequest() {
+        sendRequest(MockServerHttpRequest.get("/internal/reports/1/reports-info").header(Deadline.HEADER, "1200"));
+
+        assertThat(forwardedBudget.get()).isEqualTo("1200");
+    }
+
+    @Test
+    void doesNotLetClientIncreaseBudget() {
+        sendRequest(MockServerHttpRequest.get("/api/v1/habits/1/general-info").header(Deadline.HEADER, "600000"));
+        assertThat(forwardedBudget.get()).isEqualTo("5000");
+
+        sendRequest(MockServerHttpRequest.get("/api/v1/habits/1/general-info").header(Deadline.HEADER, "abc"));
+        assertThat(forwardedBudget.get()).isEqualTo("5000");
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.vladmikhayl.gateway.ratelimit;
+
+import com.vladmikhayl.gateway.security.jwt.JwtTokenFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitFilterTest {
+
+    private static final String HABITS_AT_DAY_PATH = "/api/v1/habits/all-user-habits/at-day/2025-04-12";
+
+    private static final String HOME_PATH = "/api/v1/home/at-day/2025-04-12";
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    private final AtomicInteger passedRequests = new AtomicInteger();
+
+    private final WebFilterChain chain = exchange -> {
+        passedRequests.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RateLimiter rateLimiter;
+
+    private RateLimitFilter underTest;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.RouteBudget habitsAtDay = new RateLimitProperties.RouteBudget();
+        habitsAtDay.setId("habits-at-day");
+        habitsAtDay.setPath("/api/v1/habits/{type:all-user-habits|all-user-subscribed-habits}/at-day/**");
+        habitsAtDay.setCapacity(2);
+        habitsAtDay.setRefillPerSecond(0.5);
+
+        RateLimitProperties.RouteBudget home = new RateLimitProperties.RouteBudget();
+        home.setId("home");
+        home.setPath("/api/v1/home/**");
+        home.setCapacity(1);
+        home.setRefillPerSecond(0.25);
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEnabled(true);
+        properties.setMaxBuckets(3);
+        properties.getDefaultBudget().setCapacity(100);
+        properties.setRoutes(List.of(habitsAtDay, home));
+
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimiter = new RateLimiter(properties, meterRegistry, now::get);
+        underTest = new RateLimitFilter(properties, rateLimiter);
+    }
+
+    private MockServerWebExchange sendRequest(String path, String userId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        if (userId != null) {
+            exchange.getAttributes().put(JwtTokenFilter.USER_ID_ATTRIBUTE, userId);
+        }
+        underTest.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    @Test
+    void rejectsRequestsOverRouteBudgetWithRetryAfter() {
+        sendRequest(HABITS_AT_DAY_PATH, "1");
+        sendRequest(HABITS_AT_DAY_PATH, "1");
+        MockServerWebExchange rejected = sendRequest(HABITS_AT_DAY_PATH, "1");
+
+        assertThat(passedRequests.get()).isEqualTo(2);
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(meterRegistry.get("gateway.rate-limit.requests")
+                .tag("route", "habits-at-day")
+                .tag("outcome", "rejected")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void refillsBucketOverTime() {
+        sendRequest(HABITS_AT_DAY_PATH, "1");
+        sendRequest(HABITS_AT_DAY_PATH, "1");
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        MockServerWebExchange exchange = sendRequest(HABITS_AT_DAY_PATH, "1");
+
+        assertThat(passedRequests.get()).isEqualTo(3);
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void usersHaveIndependentBudgets() {
+        sendRequest(HABITS_AT_DAY_PATH, "1");
+        sendRequest(HABITS_AT_DAY_PATH, "1");
+        sendRequest(HABITS_AT_DAY_PATH, "2");
+
+        assertThat(passedRequests.get()).isEqualTo(3);
+    }
+
+    // Главный экран сам вызывает оба тяжелых эндпоинта в обход их маршрута, поэтому у него свой бюджет
+    @Test
+    void limitsHomeScreenWithItsOwnBudget() {
+        sendRequest(HOME_PATH, "1");
+        MockServerWebExchange rejected = sendRequest(HOME_PATH, "1");
+
+        assertThat(passedRequests.get()).isEqualTo(1);
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("4");
+        assertThat(meterRegistry.get("gateway.rate-limit.requests")
+                .tag("route", "home")
+                .tag("outcome", "rejected")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void otherRoutesUseDefaultBudget() {
+        for (int i = 0; i < 10; i++) {
+            sendRequest("/api/v1/habits/1/general-info", "1");
+        }
+
+        assertThat(passedRequests.get()).isEqualTo(10);
+    }
+
+    @Test
+    void doesNotLimitInternalRequests() {
+        for (int i = 0; i < 10; i++) {
+            sendRequest("/internal/reports/1/is-completed/at-day/2025-04-12", null);
+        }
+
+        assertThat(passedRequests.get()).isEqualTo(10);
+        assertThat(rateLimiter.bucketsCount()).isZero();
+    }
+
+    @Test
+    void removesBucketsThatHaveFullyRefilled() {
+        sendRequest(HABITS_AT_DAY_PATH, "1");
+        sendRequest(HABITS_AT_DAY_PATH, "2");
+
+        // Корзина маршрута восстанавливается полностью за 4 секунды
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        sendRequest(HABITS_AT_DAY_PATH, "3");
+
+        assertThat(rateLimiter.bucketsCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsNoMoreBucketsThanLimit() {
+        for (int i = 0; i < 10; i++) {
+            sendRequest(HABITS_AT_DAY_PATH, String.valueOf(i));
+        }
+
+        assertThat(passedRequests.get()).isEqualTo(10);
+        assertThat(rateLimiter.bucketsCount()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectsZeroRefillAtStartup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getDefaultBudget().setRefillPerSecond(0);
+
+        assertThatThrownBy(() -> new RateLimiter(properties, new SimpleMeterRegistry(), now::get))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("default");
+    }
+
+    @Test
+    void rejectsRefillThatWouldDisableLimitingAtStartup() {
+        RateLimitProperties.RouteBudget tooFast = new RateLimitProperties.RouteBudget();
+        tooFast.setId("too-fast");
+        tooFast.setPath("/api/v1/**");
+        tooFast.setRefillPerSecond(2e9);
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRoutes(List.of(tooFast));
+
+        assertThatThrownBy(() -> new RateLimiter(properties, new SimpleMeterRegistry(), now::get))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too-fast");
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.vladmikhayl.gateway.security;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayHeadersFilterTest {
+
+    private final AtomicReference<HttpHeaders> forwardedHeaders = new AtomicReference<>();
+
+    private final WebFilterChain chain = exchange -> {
+        forwardedHeaders.set(exchange.getRequest().getHeaders());
+        return Mono.empty();
+    };
+
+    private final GatewayHeadersFilter underTest = new GatewayHeadersFilter();
+
+    private void sendRequest(MockServerHttpRequest.BaseBuilder<?> request) {
+        underTest.filter(MockServerWebExchange.from(request), chain).block();
+    }
+
+    @Test
+    void removesGatewayHeadersFromExternalRequest() {
+        sendRequest(MockServerHttpRequest.get("/api/v1/reports/1/stats")
+                .header("X-User-Id", "1")
+                .header(Deadline.HEADER, "600000")
+                .header("X-Read-Primary", "true")
+                .header("Idempotency-Key", "first-attempt"));
+
+        assertThat(forwardedHeaders.get().keySet())
+                .doesNotContain("X-User-Id", Deadline.HEADER, "X-Read-Primary")
+                .contains("Idempotency-Key");
+    }
+
+    @Test
+    void keepsHeadersOfInternalRequest() {
+        sendRequest(MockServerHttpRequest.get("/internal/reports/1/reports-info")
+                .header("X-User-Id", "1")
+                .header(Deadline.HEADER, "1200")
+                .header("X-Read-Primary", "true"));
+
+        assertThat(forwardedHeaders.get().getFirst("X-User-Id")).isEqualTo("1");
+        assertThat(forwardedHeaders.get().getFirst(Deadline.HEADER)).isEqualTo("1200");
+        assertThat(forwardedHeaders.get().getFirst("X-Read-Primary")).isEqualTo("true");
+    }
+
+}
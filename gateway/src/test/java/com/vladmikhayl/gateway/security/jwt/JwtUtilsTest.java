@@ -0,0 +1,135 @@
+package com.vladmikhayl.gateway.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "BSyus78W73UHhqpIOJS9Jjd03928u3rdh9UIHD89wh9dw";
+
+    private static final String OTHER_SECRET = "c29tZU90aGVyU2VjcmV0S2V5VGhhdElzTG9uZ0Vub3VnaEZvckhTMjU2";
+
+    private JwtTokenCache jwtTokenCache;
+
+    private JwtUtils underTest;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenCache = new JwtTokenCache(100);
+        underTest = new JwtUtils(jwtTokenCache);
+        ReflectionTestUtils.setField(underTest, "secretKey", SECRET);
+        underTest.init();
+    }
+
+    private String generateToken(String secret, long expiresAtMillis) {
+        return Jwts.builder()
+                .subject("vladmikhayl")
+                .id("7")
+                .issuedAt(new Date())
+                .expiration(new Date(expiresAtMillis))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .compact();
+    }
+
+    @Test
+    void canVerifyValidTokenAndPutItIntoCache() {
+        String token = generateToken(SECRET, System.currentTimeMillis() + 60_000);
+
+        VerifiedJwt verifiedJwt = underTest.verifyJwtToken(token);
+
+        assertThat(verifiedJwt).isNotNull();
+        assertThat(verifiedJwt.userId()).isEqualTo("7");
+        assertThat(verifiedJwt.username()).isEqualTo("vladmikhayl");
+        assertThat(jwtTokenCache.size()).isEqualTo(1);
+        assertThat(underTest.verifyJwtToken(token)).isEqualTo(verifiedJwt);
+    }
+
+    @Test
+    void returnsNullForTokenWithWrongSignature() {
+        String token = generateToken(OTHER_SECRET, System.currentTimeMillis() + 60_000);
+
+        assertThat(underTest.verifyJwtToken(token)).isNull();
+        assertThat(jwtTokenCache.size()).isZero();
+    }
+
+    @Test
+    void returnsNullForExpiredToken() {
+        String token = generateToken(SECRET, System.currentTimeMillis() - 60_000);
+
+        assertThat(underTest.verifyJwtToken(token)).isNull();
+    }
+
+    @Test
+    void returnsNullForMalformedToken() {
+        assertThat(underTest.verifyJwtToken("not-a-jwt")).isNull();
+    }
+
+    @Test
+    void cacheDoesNotReturnEntryAfterExpiration() {
+        MutableClock clock = new MutableClock(1_000);
+        JwtTokenCache cache = new JwtTokenCache(10, clock);
+
+        cache.put("token", new VerifiedJwt("1", "user", 2_000));
+        assertThat(cache.get("token")).isNotNull();
+
+        clock.millis = 2_000;
+
+        assertThat(cache.get("token")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void cacheNeverExceedsMaxSize() {
+        JwtTokenCache cache = new JwtTokenCache(3, Clock.fixed(Instant.ofEpochMilli(1_000), ZoneOffset.UTC));
+
+        for (int i = 0; i < 10; i++) {
+            cache.put("token-" + i, new VerifiedJwt(String.valueOf(i), "user", 5_000));
+        }
+
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    // Часы, время на которых можно двигать вручную
+    private static class MutableClock extends Clock {
+
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+    }
+
+}
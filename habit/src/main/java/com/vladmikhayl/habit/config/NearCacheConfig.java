@@ -0,0 +1,18 @@
+package com.vladmikhayl.habit.config;
+
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class NearCacheConfig {
+
+    // Число подписчиков привычки (по id привычки) для главного экрана. Сбрасывается на всех экземплярах habit,
+    // когда тот экземпляр, который обработал событие о принятой/удаленной подписке, изменил subscriptions_cache
+    @Bean
+    public NearCache<Long, Integer> subscribersCountNearCache(NearCacheManager nearCacheManager) {
+        return nearCacheManager.create("habit-subscribers-count");
+    }
+
+}
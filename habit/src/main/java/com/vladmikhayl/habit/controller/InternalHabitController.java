@@ -1,5 +1,6 @@
 package com.vladmikhayl.habit.controller;
 
+import com.vladmikhayl.habit.dto.request.HabitAtDayRequest;
 import com.vladmikhayl.habit.service.InternalHabitService;
 import io.swagger.v3.oas.annotations.Hidden;
 import lombok.RequiredArgsConstructor;
@@ -7,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/internal/habits")
@@ -26,4 +28,14 @@ public class InternalHabitController {
         return ResponseEntity.ok(isCurrent);
     }
 
+    // То же для нескольких пар (привычка, день) одного пользователя: ответы в том же порядке, что и пары
+    @PostMapping("/is-current")
+    public ResponseEntity<List<Boolean>> areCurrent(
+            @RequestParam Long userId,
+            @RequestBody List<HabitAtDayRequest> habits
+    ) {
+        List<Boolean> areCurrent = internalHabitService.areCurrent(userId, habits);
+        return ResponseEntity.ok(areCurrent);
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.vladmikhayl.habit.dto.request;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Элемент массовой проверки is-current (см. InternalHabitController): привычка и день
+@Data
+@Builder
+public class HabitAtDayRequest {
+
+    private Long habitId;
+
+    private LocalDate date;
+
+}
@@ -1,5 +1,6 @@
 package com.vladmikhayl.habit.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Builder;
 import lombok.Data;
@@ -8,7 +9,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @Schema(description = "Подробная информация о конкретной привычке, связанная с ее выполнением и отчетами о ней")
 public class HabitReportsInfoResponse {
 
@@ -62,4 +63,13 @@ public class HabitReportsInfoResponse {
     )
     private List<LocalDate> uncompletedDays;
 
+    // Только если Report сейчас недоступен и ответ взят из кэша (иначе поле не возвращается)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(
+            description = "true, если информация взята из кэша, потому что она сейчас недоступна " +
+                    "(иначе поле отсутствует)",
+            example = "true"
+    )
+    private Boolean isStale;
+
 }
@@ -1,6 +1,7 @@
 package com.vladmikhayl.habit.dto.response;
 
 import com.vladmikhayl.habit.entity.FrequencyType;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Builder;
 import lombok.Data;
@@ -50,4 +51,13 @@ public class HabitShortInfoResponse {
     @Schema(description = "ID отчёта (только если выполнена в этот день, иначе null)", example = "14")
     private Long reportId;
 
+    // Только если Report сейчас недоступен и данные о выполнении взяты из кэша (иначе поле не возвращается)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(
+            description = "true, если данные о выполнении взяты из кэша, потому что они сейчас недоступны " +
+                    "(иначе поле отсутствует)",
+            example = "true"
+    )
+    private Boolean isStale;
+
 }
@@ -1,5 +1,6 @@
 package com.vladmikhayl.habit.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Builder;
 import lombok.Data;
@@ -7,7 +8,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @Schema(description = "Информация об отчете о выполнении привычки за конкретный день")
 public class ReportFullInfoResponse {
 
@@ -23,4 +24,13 @@ public class ReportFullInfoResponse {
     @Schema(description = "URL прикрепленного фото (только если есть, иначе null)", example = "https://i.pinimg.com/736x/b9/a7/55/b9a75516248779bead50d84c52daebf3.jpg")
     private String photoUrl;
 
+    // Только если Report сейчас недоступен и ответ взят из кэша (иначе поле не возвращается)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Schema(
+            description = "true, если информация взята из кэша, потому что она сейчас недоступна " +
+                    "(иначе поле отсутствует)",
+            example = "true"
+    )
+    private Boolean isStale;
+
 }
@@ -2,6 +2,8 @@ package com.vladmikhayl.habit.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.DayOfWeek;
@@ -15,11 +17,20 @@ import java.util.Set;
 @AllArgsConstructor
 @Entity
 @Table(name = "habits")
+// Привычки читаются почти в каждом запросе, а меняются редко, поэтому они (вместе с днями недели) лежат
+// в second-level cache. Регионы и их размеры настроены в application.conf, сброс кэша на других экземплярах
+// habit после изменения привычки - в HabitCacheListener
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Habit.CACHE_REGION)
 public class Habit {
 
+    public static final String CACHE_REGION = "habit";
+
+    public static final String DAYS_OF_WEEK_CACHE_REGION = "habit-days-of-week";
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "habit_seq")
-    @SequenceGenerator(name = "habit_seq", sequenceName = "habit_seq", allocationSize = 1)
+    @SequenceGenerator(name = "habit_seq", sequenceName = "habit_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -44,6 +55,7 @@ public class Habit {
     private FrequencyType frequencyType;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Habit.DAYS_OF_WEEK_CACHE_REGION)
     @CollectionTable(name = "habit_week_days", joinColumns = @JoinColumn(name = "habit_id"))
     private Set<DayOfWeek> daysOfWeek; // если frequencyType == WEEKLY_ON_DAYS
 
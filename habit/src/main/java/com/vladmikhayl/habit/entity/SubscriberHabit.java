@@ -0,0 +1,21 @@
+package com.vladmikhayl.habit.entity;
+
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.*;
+
+// Копия подписки из subscriptions_cache на шарде подписчика (см. V6__subscriber_habits.sql)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "subscriber_habits")
+public class SubscriberHabit {
+
+    @EmbeddedId
+    private SubscriberHabitId id;
+
+}
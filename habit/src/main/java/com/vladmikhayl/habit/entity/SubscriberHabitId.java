@@ -0,0 +1,20 @@
+package com.vladmikhayl.habit.entity;
+
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SubscriberHabitId implements Serializable {
+
+    private Long subscriberId;
+
+    private Long habitId;
+
+}
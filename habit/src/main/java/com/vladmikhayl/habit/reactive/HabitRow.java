@@ -0,0 +1,23 @@
+package com.vladmikhayl.habit.reactive;
+
+import com.vladmikhayl.habit.entity.FrequencyType;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+// Строка таблицы habits для чтения через R2DBC (таблицей владеет JPA-сущность Habit).
+// Дни недели лежат в отдельной таблице habit_week_days, см. ReactiveHabitRepository.findDaysOfWeek
+@Table("habits")
+public record HabitRow(
+        @Id Long id,
+        Long userId,
+        String name,
+        String description,
+        boolean isPhotoAllowed,
+        Integer durationDays,
+        FrequencyType frequencyType,
+        Integer timesPerWeek,
+        Integer timesPerMonth,
+        LocalDateTime createdAt
+) {}
@@ -0,0 +1,44 @@
+package com.vladmikhayl.habit.reactive;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+
+// Реактивный вариант читающих эндпоинтов включается профилем reactive (см. ReactiveHabitRoutes).
+// Автоконфигурация R2DBC в habit выключена (application.yml): иначе ее менеджер транзакций заменил бы JPA-шный,
+// а без профиля reactive ей вообще не к чему подключаться. Поэтому ConnectionFactory создается здесь,
+// из обычных настроек spring.r2dbc.*
+@Configuration
+@Profile("reactive")
+@EnableConfigurationProperties(R2dbcProperties.class)
+@EnableR2dbcRepositories(basePackageClasses = ReactiveConfig.class)
+public class ReactiveConfig extends AbstractR2dbcConfiguration {
+
+    private final R2dbcProperties properties;
+
+    public ReactiveConfig(R2dbcProperties properties, @Value("${sharding.enabled:false}") boolean sharded) {
+        // R2DBC подключается к одной БД, а шард для операции выбирает только JPA-шный DataSource
+        if (sharded) {
+            throw new IllegalStateException("Профиль reactive не совмещается с шардированием (sharding.enabled)");
+        }
+        this.properties = properties;
+    }
+
+    @Bean
+    @Override
+    public ConnectionFactory connectionFactory() {
+        // Пул включается адресом вида r2dbc:pool:postgresql://...
+        return ConnectionFactoryBuilder.withUrl(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.vladmikhayl.habit.reactive;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import com.vladmikhayl.commons.web.deadline.DeadlineExceededException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+
+// Дедлайн запроса для реактивной цепочки. Deadline хранит его в ThreadLocal потока запроса, а цепочка
+// выполняется в потоках R2DBC и Netty, поэтому дедлайн переносится в контекст Reactor
+final class ReactiveDeadline {
+
+    // Дедлайн в единицах System.nanoTime(), как и в Deadline
+    private static final String CONTEXT_KEY = ReactiveDeadline.class.getName();
+
+    private ReactiveDeadline() {
+    }
+
+    // Вызывается в потоке запроса: ограничивает цепочку оставшимся временем и кладет дедлайн в ее контекст
+    static <T> Mono<T> withCurrentDeadline(Mono<T> mono) {
+        Optional<Duration> budget = Deadline.remaining();
+        if (budget.isEmpty()) {
+            return mono;
+        }
+        long deadline = System.nanoTime() + budget.get().toNanos();
+        return mono
+                .timeout(budget.get())
+                .onErrorMap(TimeoutException.class, e -> new DeadlineExceededException())
+                .contextWrite(context -> context.put(CONTEXT_KEY, deadline));
+    }
+
+    static Optional<Duration> remaining(ContextView context) {
+        return context.<Long>getOrEmpty(CONTEXT_KEY)
+                .map(deadline -> Duration.ofNanos(deadline - System.nanoTime()));
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.vladmikhayl.habit.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ReactiveHabitRepository extends R2dbcRepository<HabitRow, Long> {
+
+    Flux<HabitRow> findAllByUserId(Long userId);
+
+    Flux<HabitRow> findAllByIdIn(Collection<Long> ids);
+
+    Mono<Boolean> existsByIdAndUserId(Long id, Long userId);
+
+    // Hibernate хранит дни недели из @ElementCollection порядковыми номерами (DayOfWeek.ordinal())
+    @Query("SELECT CAST(days_of_week AS INTEGER) FROM habit_week_days WHERE habit_id = :habitId")
+    Flux<Integer> findDaysOfWeek(Long habitId);
+
+}
@@ -0,0 +1,89 @@
+package com.vladmikhayl.habit.reactive;
+
+import com.vladmikhayl.habit.exception.GlobalExceptionHandler;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+// В профиле reactive эти три эндпоинта обслуживает ReactiveHabitService, остальные - как обычно, HabitController.
+// Функциональные маршруты Spring MVC проверяются раньше аннотированных контроллеров, поэтому пути и ответы
+// остаются прежними. Сервер остается сервлетным (фильтры дедлайна и лимита конкурентности работают как раньше),
+// но ответ асинхронный: поток Tomcat освобождается сразу, а ответ отправляется, когда цепочка завершится
+@Configuration
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveHabitRoutes {
+
+    private static final String USER_ID_HEADER = "X-User-Id";
+
+    private final ReactiveHabitService habitService;
+
+    private final GlobalExceptionHandler exceptionHandler;
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveHabitReadRoutes() {
+        return RouterFunctions.route()
+                .GET("/api/v1/habits/{habitId}/general-info", request -> respond(() -> habitService.getGeneralInfo(
+                        Long.valueOf(request.pathVariable("habitId")), userId(request))))
+                .GET("/api/v1/habits/all-user-habits/at-day/{date}", request -> respond(() ->
+                        habitService.getAllUserHabitsAtDay(date(request), userId(request))))
+                .GET("/api/v1/habits/all-user-subscribed-habits/at-day/{date}", request -> respond(() ->
+                        habitService.getAllUserSubscribedHabitsAtDay(date(request), userId(request))))
+                .build();
+    }
+
+    private ServerResponse respond(ResponseSupplier body) {
+        Mono<ServerResponse> response = ReactiveDeadline.withCurrentDeadline(Mono.defer(body::get))
+                .<ServerResponse>map(value -> ServerResponse.ok().body(value))
+                .onErrorResume(e -> Mono.justOrEmpty(toErrorResponse(e)).switchIfEmpty(Mono.error(e)));
+
+        return ServerResponse.async(response);
+    }
+
+    // Ошибки в том же виде, что и у HabitController (через тот же GlobalExceptionHandler)
+    private ServerResponse toErrorResponse(Throwable e) {
+        ResponseEntity<?> entity;
+        if (e instanceof ResponseStatusException responseStatusException) {
+            entity = exceptionHandler.handleResponseStatus(responseStatusException);
+        } else if (e instanceof EntityNotFoundException entityNotFoundException) {
+            entity = exceptionHandler.handleEntityNotFound(entityNotFoundException);
+        } else if (e instanceof IllegalArgumentException illegalArgumentException) {
+            entity = exceptionHandler.handleIllegalArgument(illegalArgumentException);
+        } else {
+            return null;
+        }
+        return ServerResponse.status(entity.getStatusCode()).body(entity.getBody());
+    }
+
+    private static String userId(ServerRequest request) {
+        return request.headers().firstHeader(USER_ID_HEADER);
+    }
+
+    private static LocalDate date(ServerRequest request) {
+        try {
+            return LocalDate.parse(request.pathVariable("date"));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Неверный формат даты");
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseSupplier {
+
+        Mono<?> get();
+
+    }
+
+}
@@ -0,0 +1,248 @@
+package com.vladmikhayl.habit.reactive;
+
+import com.vladmikhayl.habit.dto.response.HabitGeneralInfoResponse;
+import com.vladmikhayl.habit.dto.response.HabitShortInfoResponse;
+import com.vladmikhayl.habit.dto.response.ReportShortInfoResponse;
+import com.vladmikhayl.habit.dto.response.SubscribedHabitShortInfoResponse;
+import com.vladmikhayl.habit.entity.FrequencyType;
+import com.vladmikhayl.habit.entity.Period;
+import com.vladmikhayl.habit.service.InternalHabitService;
+import com.vladmikhayl.habit.service.feign.ReportCallExecutor;
+import com.vladmikhayl.habit.service.feign.ReportCallResult;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Реактивный вариант getGeneralInfo, getAllUserHabitsAtDay и getAllUserSubscribedHabitsAtDay из HabitService
+// с теми же ответами и ошибками. Ни один поток не ждет ни БД, ни Report: пока идут запросы, поток свободен.
+// Привычки обрабатываются параллельно (не больше habit.fan-out.parallelism одновременно), порядок сохраняется
+@Service
+@Profile("reactive")
+public class ReactiveHabitService {
+
+    private final ReactiveHabitRepository habitRepository;
+
+    private final ReactiveSubscriptionCacheRepository subscriptionCacheRepository;
+
+    private final ReactiveReportClient reportClient;
+
+    private final ReportCallExecutor reportCallExecutor;
+
+    private final Clock clock;
+
+    private final int parallelism;
+
+    public ReactiveHabitService(
+            ReactiveHabitRepository habitRepository,
+            ReactiveSubscriptionCacheRepository subscriptionCacheRepository,
+            ReactiveReportClient reportClient,
+            ReportCallExecutor reportCallExecutor,
+            Clock clock,
+            @Value("${habit.fan-out.parallelism:6}") int parallelism
+    ) {
+        this.habitRepository = habitRepository;
+        this.subscriptionCacheRepository = subscriptionCacheRepository;
+        this.reportClient = reportClient;
+        this.reportCallExecutor = reportCallExecutor;
+        this.clock = clock;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    private Long parseUserId(String userId) {
+        try {
+            return Long.parseLong(userId);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Неверный формат ID пользователя");
+        }
+    }
+
+    public Mono<HabitGeneralInfoResponse> getGeneralInfo(Long habitId, String userId) {
+        return Mono.defer(() -> {
+            Long userIdLong = parseUserId(userId);
+
+            return checkUserIsEitherHabitCreatorOrSubscriber(habitId, userIdLong)
+                    .then(habitRepository.findById(habitId))
+                    .switchIfEmpty(Mono.error(() -> new EntityNotFoundException("Привычка не найдена")))
+                    .flatMap(habit -> Mono.zip(
+                            subscriptionCacheRepository.countByHabitId(habitId),
+                            findDaysOfWeek(habit)
+                    ).map(tuple -> toGeneralInfo(habit, tuple.getT1().intValue(), tuple.getT2())));
+        });
+    }
+
+    public Mono<List<HabitShortInfoResponse>> getAllUserHabitsAtDay(LocalDate date, String userId) {
+        return Mono.defer(() -> {
+            Long userIdLong = parseUserId(userId);
+
+            return habitRepository.findAllByUserId(userIdLong)
+                    .filterWhen(habit -> isCurrent(habit, date))
+                    .flatMapSequential(habit -> getHabitShortInfoAtDay(habit, date), parallelism)
+                    .collectList();
+        });
+    }
+
+    public Mono<List<SubscribedHabitShortInfoResponse>> getAllUserSubscribedHabitsAtDay(LocalDate date, String userId) {
+        return Mono.defer(() -> {
+            Long userIdLong = parseUserId(userId);
+
+            return subscriptionCacheRepository.findAllBySubscriberId(userIdLong)
+                    .map(SubscriptionCacheRow::habitId)
+                    .collectList()
+                    .flatMapMany(habitIds -> habitIds.isEmpty() ? Flux.empty() : habitRepository.findAllByIdIn(habitIds))
+                    .filterWhen(habit -> isCurrent(habit, date))
+                    .flatMapSequential(habit -> getSubscribedHabitShortInfoAtDay(habit, date), parallelism)
+                    .collectList();
+        });
+    }
+
+    private Mono<Void> checkUserIsEitherHabitCreatorOrSubscriber(Long habitId, Long userId) {
+        return Mono.zip(
+                habitRepository.existsByIdAndUserId(habitId, userId),
+                subscriptionCacheRepository.existsByHabitIdAndSubscriberId(habitId, userId)
+        ).flatMap(tuple -> tuple.getT1() || tuple.getT2()
+                ? Mono.empty()
+                : Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Отсутствует доступ к указанной привычке")));
+    }
+
+    private Mono<Boolean> isCurrent(HabitRow habit, LocalDate date) {
+        return findDaysOfWeek(habit).map(daysOfWeek -> InternalHabitService.isCurrent(
+                habit.createdAt(), habit.durationDays(), habit.frequencyType(), daysOfWeek, date));
+    }
+
+    // Дни недели есть только у WEEKLY_ON_DAYS, для остальных привычек в БД не ходим
+    private Mono<Set<DayOfWeek>> findDaysOfWeek(HabitRow habit) {
+        if (habit.frequencyType() != FrequencyType.WEEKLY_ON_DAYS) {
+            return Mono.just(Set.of());
+        }
+        return habitRepository.findDaysOfWeek(habit.id())
+                .map(ordinal -> DayOfWeek.values()[ordinal])
+                .collect(Collectors.toSet());
+    }
+
+    private Mono<HabitShortInfoResponse> getHabitShortInfoAtDay(HabitRow habit, LocalDate date) {
+        return Mono.zip(
+                subscriptionCacheRepository.countByHabitId(habit.id()),
+                getIsCompleted(habit.id(), date),
+                getCompletionsInPeriod(habit, date)
+        ).map(tuple -> {
+            ReportShortInfoResponse reportResponse = tuple.getT2().value();
+            Optional<ReportCallResult<Integer>> completions = tuple.getT3();
+            boolean isStale = tuple.getT2().stale() || completions.map(ReportCallResult::stale).orElse(false);
+
+            return HabitShortInfoResponse.builder()
+                    .habitId(habit.id())
+                    .name(habit.name())
+                    .subscribersCount(tuple.getT1().intValue())
+                    .frequencyType(habit.frequencyType())
+                    .completionsInPeriod(completions.map(ReportCallResult::value).orElse(null))
+                    .completionsPlannedInPeriod(getCompletionsPlannedInPeriod(habit))
+                    .isCompleted(reportResponse.isCompleted())
+                    .isPhotoAllowed(habit.isPhotoAllowed())
+                    .isPhotoUploaded(reportResponse.isPhotoUploaded())
+                    .reportId(reportResponse.getReportId())
+                    .isStale(isStale ? true : null)
+                    .build();
+        });
+    }
+
+    private Mono<SubscribedHabitShortInfoResponse> getSubscribedHabitShortInfoAtDay(HabitRow habit, LocalDate date) {
+        return Mono.zip(
+                subscriptionCacheRepository.findCreatorLogin(habit.id()),
+                subscriptionCacheRepository.countByHabitId(habit.id()),
+                getIsCompleted(habit.id(), date),
+                getCompletionsInPeriod(habit, date)
+        ).map(tuple -> {
+            ReportShortInfoResponse reportResponse = tuple.getT3().value();
+            Optional<ReportCallResult<Integer>> completions = tuple.getT4();
+            boolean isStale = tuple.getT3().stale() || completions.map(ReportCallResult::stale).orElse(false);
+
+            return SubscribedHabitShortInfoResponse.builder()
+                    .habitId(habit.id())
+                    .creatorLogin(tuple.getT1())
+                    .name(habit.name())
+                    .subscribersCount(tuple.getT2().intValue())
+                    .frequencyType(habit.frequencyType())
+                    .completionsInPeriod(completions.map(ReportCallResult::value).orElse(null))
+                    .completionsPlannedInPeriod(getCompletionsPlannedInPeriod(habit))
+                    .isCompleted(reportResponse.isCompleted())
+                    .isPhotoAllowed(habit.isPhotoAllowed())
+                    .isPhotoUploaded(reportResponse.isPhotoUploaded())
+                    .reportId(reportResponse.getReportId())
+                    .isStale(isStale ? true : null)
+                    .build();
+        });
+    }
+
+    private Mono<ReportCallResult<ReportShortInfoResponse>> getIsCompleted(Long habitId, LocalDate date) {
+        return reportCallExecutor.executeAsync(ReportCallExecutor.IS_COMPLETED, List.of(habitId, date),
+                reportClient.isCompletedAtDay(habitId, date));
+    }
+
+    // Пустой Optional для привычек, у которых нет плана на период (WEEKLY_ON_DAYS)
+    private Mono<Optional<ReportCallResult<Integer>>> getCompletionsInPeriod(HabitRow habit, LocalDate date) {
+        FrequencyType frequencyType = habit.frequencyType();
+
+        if (frequencyType != FrequencyType.WEEKLY_X_TIMES && frequencyType != FrequencyType.MONTHLY_X_TIMES) {
+            return Mono.just(Optional.empty());
+        }
+
+        Period period = frequencyType == FrequencyType.WEEKLY_X_TIMES ? Period.WEEK : Period.MONTH;
+        return reportCallExecutor.executeAsync(ReportCallExecutor.COMPLETION_COUNT, List.of(habit.id(), period, date),
+                        reportClient.countCompletionsInPeriod(habit.id(), period, date))
+                .map(Optional::of);
+    }
+
+    private static Integer getCompletionsPlannedInPeriod(HabitRow habit) {
+        if (habit.frequencyType() == FrequencyType.WEEKLY_X_TIMES) {
+            return habit.timesPerWeek();
+        }
+        if (habit.frequencyType() == FrequencyType.MONTHLY_X_TIMES) {
+            return habit.timesPerMonth();
+        }
+        return null;
+    }
+
+    private HabitGeneralInfoResponse toGeneralInfo(HabitRow habit, int subscribersCount, Set<DayOfWeek> daysOfWeek) {
+        Integer howManyDaysLeft = null;
+
+        if (habit.durationDays() != null) {
+            // Сколько полных дней прошло с момента создания привычки (то есть исключая текущий день)
+            int howManyFullDaysPassed = (int) ChronoUnit.DAYS.between(
+                    habit.createdAt().toLocalDate(),
+                    LocalDate.now(clock)
+            );
+
+            howManyDaysLeft = habit.durationDays() - howManyFullDaysPassed;
+        }
+
+        return HabitGeneralInfoResponse.builder()
+                .id(habit.id())
+                .name(habit.name())
+                .description(habit.description())
+                .isPhotoAllowed(habit.isPhotoAllowed())
+                .durationDays(habit.durationDays())
+                .howManyDaysLeft(howManyDaysLeft)
+                .frequencyType(habit.frequencyType())
+                .daysOfWeek(daysOfWeek.isEmpty() ? null : daysOfWeek)
+                .timesPerWeek(habit.timesPerWeek())
+                .timesPerMonth(habit.timesPerMonth())
+                .createdAt(habit.createdAt())
+                .subscribersCount(subscribersCount)
+                .build();
+    }
+
+}
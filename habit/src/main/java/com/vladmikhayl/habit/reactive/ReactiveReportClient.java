@@ -0,0 +1,56 @@
+package com.vladmikhayl.habit.reactive;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import com.vladmikhayl.habit.dto.response.ReportShortInfoResponse;
+import com.vladmikhayl.habit.entity.Period;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+// Неблокирующий аналог нужных реактивным эндпоинтам методов ReportClient: те же внутренние эндпоинты Report
+// через gateway, адрес которого выбирает Spring Cloud LoadBalancer
+@Component
+@Profile("reactive")
+public class ReactiveReportClient {
+
+    private final WebClient webClient;
+
+    private final String internalToken;
+
+    public ReactiveReportClient(
+            WebClient.Builder webClientBuilder,
+            LoadBalancedExchangeFilterFunction loadBalancerFilter,
+            @Value("${internal.token}") String internalToken
+    ) {
+        this.webClient = webClientBuilder
+                .baseUrl("http://gateway")
+                .filter(loadBalancerFilter)
+                .build();
+        this.internalToken = internalToken;
+    }
+
+    public Mono<ReportShortInfoResponse> isCompletedAtDay(Long habitId, LocalDate date) {
+        return get(ReportShortInfoResponse.class, "/internal/reports/{habitId}/is-completed/at-day/{date}", habitId, date);
+    }
+
+    public Mono<Integer> countCompletionsInPeriod(Long habitId, Period period, LocalDate date) {
+        return get(Integer.class, "/internal/reports/{habitId}/completion-count/{period}/at/{date}", habitId, period, date);
+    }
+
+    private <T> Mono<T> get(Class<T> responseType, String uri, Object... uriVariables) {
+        // Оставшийся бюджет запроса передается дальше так же, как это делает DeadlineRequestInterceptor у Feign
+        return Mono.deferContextual(context -> webClient.get()
+                .uri(uri, uriVariables)
+                .header("X-Internal-Token", internalToken)
+                .headers(headers -> ReactiveDeadline.remaining(context).ifPresent(remaining ->
+                        headers.set(Deadline.HEADER, String.valueOf(Math.max(remaining.toMillis(), 0)))))
+                .retrieve()
+                .bodyToMono(responseType));
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.vladmikhayl.habit.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// У subscriptions_cache составной ключ, который Spring Data R2DBC не поддерживает, поэтому все запросы явные
+public interface ReactiveSubscriptionCacheRepository extends Repository<SubscriptionCacheRow, Long> {
+
+    @Query("SELECT COUNT(*) FROM subscriptions_cache WHERE habit_id = :habitId")
+    Mono<Long> countByHabitId(Long habitId);
+
+    @Query("SELECT * FROM subscriptions_cache WHERE subscriber_id = :subscriberId")
+    Flux<SubscriptionCacheRow> findAllBySubscriberId(Long subscriberId);
+
+    @Query("SELECT creator_login FROM subscriptions_cache WHERE habit_id = :habitId LIMIT 1")
+    Mono<String> findCreatorLogin(Long habitId);
+
+    @Query("SELECT EXISTS(SELECT 1 FROM subscriptions_cache WHERE habit_id = :habitId AND subscriber_id = :subscriberId)")
+    Mono<Boolean> existsByHabitIdAndSubscriberId(Long habitId, Long subscriberId);
+
+}
@@ -0,0 +1,11 @@
+package com.vladmikhayl.habit.reactive;
+
+import org.springframework.data.relational.core.mapping.Table;
+
+// Строка таблицы subscriptions_cache для чтения через R2DBC (таблицей владеет JPA-сущность SubscriptionCache)
+@Table("subscriptions_cache")
+public record SubscriptionCacheRow(
+        Long habitId,
+        Long subscriberId,
+        String creatorLogin
+) {}
@@ -2,7 +2,9 @@ package com.vladmikhayl.habit.repository;
 
 import com.vladmikhayl.habit.entity.Habit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +22,28 @@ public interface HabitRepository extends JpaRepository<Habit, Long> {
 
     List<Habit> findAllByIdIn(List<Long> ids);
 
+    // Привычки пользователя вместе с днями недели одним запросом: без JOIN FETCH дни каждой привычки
+    // догружались бы отдельным запросом
+    @Query("""
+            SELECT DISTINCT h FROM Habit h
+            LEFT JOIN FETCH h.daysOfWeek
+            WHERE h.id IN :ids AND h.userId = :userId
+            """)
+    List<Habit> findAllWithDaysOfWeekByIdInAndUserId(Collection<Long> ids, Long userId);
+
+    // Одним запросом и привычка, и проверка доступа, и число подписчиков (вместо четырех отдельных запросов).
+    // Пустой Optional, если привычки нет
+    @Query("""
+            SELECT new com.vladmikhayl.habit.repository.HabitWithAccess(
+                h,
+                CASE WHEN h.userId = :userId OR EXISTS (
+                    SELECT 1 FROM SubscriptionCache s WHERE s.id.habitId = h.id AND s.id.subscriberId = :userId
+                ) THEN true ELSE false END,
+                (SELECT COUNT(*) FROM SubscriptionCache c WHERE c.id.habitId = h.id)
+            )
+            FROM Habit h
+            WHERE h.id = :habitId
+            """)
+    Optional<HabitWithAccess> findWithAccess(Long habitId, Long userId);
+
 }
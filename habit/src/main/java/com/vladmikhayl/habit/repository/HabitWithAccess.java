@@ -0,0 +1,7 @@
+package com.vladmikhayl.habit.repository;
+
+import com.vladmikhayl.habit.entity.Habit;
+
+// Результат HabitRepository.findWithAccess: привычка, есть ли у пользователя к ней доступ
+// (он ее создатель или подписчик) и сколько у нее подписчиков
+public record HabitWithAccess(Habit habit, boolean hasAccess, long subscribersCount) {}
@@ -0,0 +1,13 @@
+package com.vladmikhayl.habit.repository;
+
+import com.vladmikhayl.habit.entity.SubscriberHabit;
+import com.vladmikhayl.habit.entity.SubscriberHabitId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SubscriberHabitRepository extends JpaRepository<SubscriberHabit, SubscriberHabitId> {
+
+    List<SubscriberHabit> findAllById_SubscriberId(Long subscriberId);
+
+}
@@ -10,8 +10,6 @@ public interface SubscriptionCacheRepository extends JpaRepository<SubscriptionC
 
     int countById_HabitId(Long habitId);
 
-    List<SubscriptionCache> findAllById_SubscriberId(Long subscriberId);
-
     List<SubscriptionCache> findAllById_HabitId(Long habitId);
 
 }
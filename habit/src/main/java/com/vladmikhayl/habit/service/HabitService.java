@@ -1,7 +1,12 @@
 package com.vladmikhayl.habit.service;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
+import com.vladmikhayl.commons.data.shard.OnShard;
+import com.vladmikhayl.commons.data.shard.ShardRouter;
 import com.vladmikhayl.commons.dto.HabitCreatedEvent;
 import com.vladmikhayl.commons.dto.HabitDeletedEvent;
+import com.vladmikhayl.commons.dto.HabitEditedEvent;
+import com.vladmikhayl.commons.web.deadline.Deadline;
 import com.vladmikhayl.habit.dto.request.HabitCreationRequest;
 import com.vladmikhayl.habit.dto.request.HabitEditingRequest;
 import com.vladmikhayl.habit.dto.response.*;
@@ -10,26 +15,30 @@ import com.vladmikhayl.habit.entity.Habit;
 import com.vladmikhayl.habit.entity.Period;
 import com.vladmikhayl.habit.entity.SubscriptionCacheId;
 import com.vladmikhayl.habit.repository.HabitRepository;
+import com.vladmikhayl.habit.repository.HabitWithAccess;
+import com.vladmikhayl.habit.repository.SubscriberHabitRepository;
 import com.vladmikhayl.habit.repository.SubscriptionCacheRepository;
+import com.vladmikhayl.habit.service.feign.ReportCallExecutor;
+import com.vladmikhayl.habit.service.feign.ReportCallResult;
 import com.vladmikhayl.habit.service.feign.ReportClient;
 import com.vladmikhayl.habit.service.kafka.HabitEventProducer;
-import feign.FeignException;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.Clock;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @Slf4j
@@ -46,12 +55,22 @@ public class HabitService {
 
     private final SubscriptionCacheRepository subscriptionCacheRepository;
 
+    private final SubscriberHabitRepository subscriberHabitRepository;
+
     private final ReportClient reportClient;
 
+    private final ReportCallExecutor reportCallExecutor;
+
     private final Clock clock;
 
     private final InternalHabitService internalHabitService;
 
+    private final ParallelFanOut parallelFanOut;
+
+    private final NearCache<Long, Integer> subscribersCountNearCache;
+
+    private final ShardRouter shardRouter;
+
     private Long parseUserId(String userId) {
         try {
             return Long.parseLong(userId);
@@ -60,6 +79,7 @@ public class HabitService {
         }
     }
 
+    @OnShard(user = "#userId")
     public void createHabit(
             HabitCreationRequest request,
             String userId
@@ -85,6 +105,17 @@ public class HabitService {
 
         Habit savedHabit = habitRepository.save(habit);
 
+        // По каталогу запросы подписчиков, внутренние запросы и слушатели находят шард владельца привычки.
+        // Каталог лежит в основной БД, а привычка - на шарде владельца, поэтому общей транзакции у них нет:
+        // если записать привычку в каталог не удалось, то она удаляется, иначе ее не нашли бы на ее шарде.
+        // Удаление выполняется и тогда, когда дедлайн запроса уже прошел (например, каталог ответил слишком поздно)
+        try {
+            shardRouter.registerEntity(savedHabit.getId(), userIdLong);
+        } catch (RuntimeException e) {
+            Deadline.withoutDeadline(() -> habitRepository.delete(savedHabit));
+            throw e;
+        }
+
         // Отправка события о создании привычки всем, кто подписан на habit-created
         HabitCreatedEvent event = HabitCreatedEvent.builder()
                 .habitId(savedHabit.getId())
@@ -95,6 +126,7 @@ public class HabitService {
         habitEventProducer.sendHabitCreatedEvent(event);
     }
 
+    @OnShard(user = "#userId")
     @Transactional
     public void editHabit(
             Long habitId,
@@ -134,8 +166,15 @@ public class HabitService {
                 habit.setDurationDays(request.getDurationDays());
             }
         }
+
+        // Отправка события об изменении привычки, чтобы другие экземпляры habit сбросили ее из кэша
+        HabitEditedEvent event = HabitEditedEvent.builder()
+                .habitId(habitId)
+                .build();
+        habitEventProducer.sendHabitEditedEvent(event);
     }
 
+    @OnShard(user = "#userId")
     public void deleteHabit(Long habitId, String userId) {
         Long userIdLong = parseUserId(userId);
 
@@ -145,6 +184,8 @@ public class HabitService {
 
         habitRepository.delete(habit);
 
+        shardRouter.removeEntity(habitId);
+
         // Отправка события об удалении привычки всем, кто подписан на habit-deleted
         HabitDeletedEvent event = HabitDeletedEvent.builder()
                 .habitId(habitId)
@@ -152,19 +193,17 @@ public class HabitService {
         habitEventProducer.sendHabitDeletedEvent(event);
     }
 
+    @OnShard(entity = "#habitId")
+    @Transactional(readOnly = true)
     public HabitGeneralInfoResponse getGeneralInfo(Long habitId, String userId) {
         Long userIdLong = parseUserId(userId);
 
-        boolean doesUserHaveAccess = isUserEitherHabitCreatorOrSubscriber(habitId, userIdLong);
-
-        if (!doesUserHaveAccess) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Отсутствует доступ к указанной привычке");
-        }
-
-        Habit habit = habitRepository.findById(habitId)
+        HabitWithAccess habitWithAccess = findHabitCheckingAccess(habitId, userIdLong)
                 .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"));
 
-        int subscribersCount = subscriptionCacheRepository.countById_HabitId(habitId);
+        Habit habit = habitWithAccess.habit();
+
+        int subscribersCount = (int) habitWithAccess.subscribersCount();
 
         Integer howManyDaysLeft = null;
 
@@ -197,228 +236,221 @@ public class HabitService {
                 .build();
     }
 
+    @OnShard(entity = "#habitId")
     public HabitReportsInfoResponse getReportsInfo(Long habitId, String userId) {
         Long userIdLong = parseUserId(userId);
 
-        boolean doesUserHaveAccess = isUserEitherHabitCreatorOrSubscriber(habitId, userIdLong);
+        Habit habit = findHabitCheckingAccess(habitId, userIdLong)
+                .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"))
+                .habit();
 
-        if (!doesUserHaveAccess) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Отсутствует доступ к указанной привычке");
-        }
+        ReportCallResult<HabitReportsInfoResponse> result = getReportsInfoOrThrow(habit);
 
-        Habit habit = habitRepository.findById(habitId)
-                .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"));
-
-        return getReportsInfoOrThrow(habit);
+        return result.stale() ? result.value().toBuilder().isStale(true).build() : result.value();
     }
 
+    @OnShard(entity = "#habitId")
     public ReportFullInfoResponse getReportAtDay(Long habitId, LocalDate date, String userId) {
         Long userIdLong = parseUserId(userId);
 
-        boolean doesUserHaveAccess = isUserEitherHabitCreatorOrSubscriber(habitId, userIdLong);
+        findHabitCheckingAccess(habitId, userIdLong);
 
-        if (!doesUserHaveAccess) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Отсутствует доступ к указанной привычке");
-        }
+        ReportCallResult<ReportFullInfoResponse> result = getReportAtDayOrThrow(habitId, date);
 
-        return getReportAtDayOrThrow(habitId, date);
+        return result.stale() ? result.value().toBuilder().isStale(true).build() : result.value();
     }
 
+    @OnShard(user = "#userId")
     public List<HabitShortInfoResponse> getAllUserHabitsAtDay(LocalDate date, String userId) {
         Long userIdLong = parseUserId(userId);
         
         List<Habit> allUserHabits = habitRepository.findAllByUserId(userIdLong);
 
-        List<HabitShortInfoResponse> currentUserHabitsAtDay = new ArrayList<>();
-
-        for (Habit habit : allUserHabits) {
-
-            Long habitId = habit.getId();
-
-            if (internalHabitService.isCurrent(habitId, userIdLong, date)) {
-
-                FrequencyType frequencyType = habit.getFrequencyType();
+        // Текущие привычки выбираются в потоке запроса (здесь нужны lazy-поля привычек),
+        // а запросы в Report по каждой привычке выполняются параллельно
+        List<Habit> currentUserHabits = allUserHabits.stream()
+                .filter(habit -> internalHabitService.isCurrent(habit.getId(), userIdLong, date))
+                .toList();
 
-                int subscribersCount = subscriptionCacheRepository.countById_HabitId(habitId);
+        return parallelFanOut.map(currentUserHabits, habit -> Optional.of(getHabitShortInfoAtDay(habit, date)));
+    }
 
-                ReportShortInfoResponse reportResponse = getIsCompletedOrThrow(habitId, date);
+    private HabitShortInfoResponse getHabitShortInfoAtDay(Habit habit, LocalDate date) {
+        Long habitId = habit.getId();
 
-                Integer completionsInPeriod = null;
+        FrequencyType frequencyType = habit.getFrequencyType();
 
-                if (frequencyType == FrequencyType.WEEKLY_X_TIMES) {
-                    completionsInPeriod = countCompletionsInPeriodOrThrow(habitId, Period.WEEK, date);
-                }
+        int subscribersCount = subscribersCountNearCache.get(habitId,
+                () -> subscriptionCacheRepository.countById_HabitId(habitId));
 
-                if (frequencyType == FrequencyType.MONTHLY_X_TIMES) {
-                    completionsInPeriod = countCompletionsInPeriodOrThrow(habitId, Period.MONTH, date);
-                }
+        ReportCallResult<ReportShortInfoResponse> reportResult = getIsCompletedOrThrow(habitId, date);
+        ReportShortInfoResponse reportResponse = reportResult.value();
+        boolean isStale = reportResult.stale();
 
-                Integer completionsPlannedInPeriod = null;
+        Integer completionsInPeriod = null;
 
-                if (frequencyType == FrequencyType.WEEKLY_X_TIMES) {
-                    completionsPlannedInPeriod = habit.getTimesPerWeek();
-                }
+        if (frequencyType == FrequencyType.WEEKLY_X_TIMES || frequencyType == FrequencyType.MONTHLY_X_TIMES) {
+            Period period = frequencyType == FrequencyType.WEEKLY_X_TIMES ? Period.WEEK : Period.MONTH;
+            ReportCallResult<Integer> completionsResult = countCompletionsInPeriodOrThrow(habitId, period, date);
+            completionsInPeriod = completionsResult.value();
+            isStale = isStale || completionsResult.stale();
+        }
 
-                if (frequencyType == FrequencyType.MONTHLY_X_TIMES) {
-                    completionsPlannedInPeriod = habit.getTimesPerMonth();
-                }
+        Integer completionsPlannedInPeriod = null;
 
-                boolean isPhotoAllowed = habit.isPhotoAllowed();
+        if (frequencyType == FrequencyType.WEEKLY_X_TIMES) {
+            completionsPlannedInPeriod = habit.getTimesPerWeek();
+        }
 
-                currentUserHabitsAtDay.add(HabitShortInfoResponse.builder()
-                        .habitId(habitId)
-                        .name(habit.getName())
-                        .subscribersCount(subscribersCount)
-                        .frequencyType(frequencyType)
-                        .completionsInPeriod(completionsInPeriod)
-                        .completionsPlannedInPeriod(completionsPlannedInPeriod)
-                        .isCompleted(reportResponse.isCompleted())
-                        .isPhotoAllowed(isPhotoAllowed)
-                        .isPhotoUploaded(reportResponse.isPhotoUploaded())
-                        .reportId(reportResponse.getReportId())
-                        .build());
-            }
+        if (frequencyType == FrequencyType.MONTHLY_X_TIMES) {
+            completionsPlannedInPeriod = habit.getTimesPerMonth();
         }
 
-        return currentUserHabitsAtDay;
+        boolean isPhotoAllowed = habit.isPhotoAllowed();
+
+        return HabitShortInfoResponse.builder()
+                .habitId(habitId)
+                .name(habit.getName())
+                .subscribersCount(subscribersCount)
+                .frequencyType(frequencyType)
+                .completionsInPeriod(completionsInPeriod)
+                .completionsPlannedInPeriod(completionsPlannedInPeriod)
+                .isCompleted(reportResponse.isCompleted())
+                .isPhotoAllowed(isPhotoAllowed)
+                .isPhotoUploaded(reportResponse.isPhotoUploaded())
+                .reportId(reportResponse.getReportId())
+                .isStale(isStale ? true : null)
+                .build();
     }
 
     public List<SubscribedHabitShortInfoResponse> getAllUserSubscribedHabitsAtDay(LocalDate date, String userId) {
         Long userIdLong = parseUserId(userId);
 
-        List<Long> allUserSubscribedHabitsIds = subscriptionCacheRepository
-                .findAllById_SubscriberId(userIdLong).stream()
-                .map(subscriptionCache -> subscriptionCache.getId().getHabitId())
+        // Копия подписок пользователя лежит на его шарде, а сами привычки читаются с шардов их владельцев
+        List<Long> allUserSubscribedHabitsIds = shardRouter
+                .onUser(userIdLong, () -> subscriberHabitRepository.findAllById_SubscriberId(userIdLong)).stream()
+                .map(subscriberHabit -> subscriberHabit.getId().getHabitId())
                 .toList();
 
-        List<Habit> allUserSubscribedHabits = habitRepository.findAllByIdIn(allUserSubscribedHabitsIds);
-
-        List<SubscribedHabitShortInfoResponse> currentUserSubscribedHabitsAtDay = new ArrayList<>();
-
-        for (Habit habit : allUserSubscribedHabits) {
-
-            Long habitId = habit.getId();
-            Long creatorId = habit.getUserId();
+        List<Habit> allUserSubscribedHabits = shardRouter.onEntities(
+                allUserSubscribedHabitsIds, habitRepository::findAllByIdIn);
 
-            if (internalHabitService.isCurrent(habitId, creatorId, date)) {
-
-                String creatorLogin = subscriptionCacheRepository.findAllById_HabitId(habitId).get(0).getCreatorLogin();
+        List<Habit> currentUserSubscribedHabits = allUserSubscribedHabits.stream()
+                .filter(habit -> internalHabitService.isCurrent(habit.getId(), habit.getUserId(), date))
+                .toList();
 
-                FrequencyType frequencyType = habit.getFrequencyType();
+        return parallelFanOut.map(
+                currentUserSubscribedHabits,
+                habit -> Optional.of(getSubscribedHabitShortInfoAtDay(habit, date))
+        );
+    }
 
-                int subscribersCount = subscriptionCacheRepository.countById_HabitId(habitId);
+    private SubscribedHabitShortInfoResponse getSubscribedHabitShortInfoAtDay(Habit habit, LocalDate date) {
+        Long habitId = habit.getId();
 
-                ReportShortInfoResponse reportResponse = getIsCompletedOrThrow(habitId, date);
+        String creatorLogin = shardRouter.onUser(habit.getUserId(),
+                () -> subscriptionCacheRepository.findAllById_HabitId(habitId).get(0).getCreatorLogin());
 
-                Integer completionsInPeriod = null;
+        FrequencyType frequencyType = habit.getFrequencyType();
 
-                if (frequencyType == FrequencyType.WEEKLY_X_TIMES) {
-                    completionsInPeriod = countCompletionsInPeriodOrThrow(habitId, Period.WEEK, date);
-                }
+        int subscribersCount = subscribersCountNearCache.get(habitId, () -> shardRouter.onUser(habit.getUserId(),
+                () -> subscriptionCacheRepository.countById_HabitId(habitId)));
 
-                if (frequencyType == FrequencyType.MONTHLY_X_TIMES) {
-                    completionsInPeriod = countCompletionsInPeriodOrThrow(habitId, Period.MONTH, date);
-                }
+        ReportCallResult<ReportShortInfoResponse> reportResult = getIsCompletedOrThrow(habitId, date);
+        ReportShortInfoResponse reportResponse = reportResult.value();
+        boolean isStale = reportResult.stale();
 
-                Integer completionsPlannedInPeriod = null;
+        Integer completionsInPeriod = null;
 
-                if (frequencyType == FrequencyType.WEEKLY_X_TIMES) {
-                    completionsPlannedInPeriod = habit.getTimesPerWeek();
-                }
+        if (frequencyType == FrequencyType.WEEKLY_X_TIMES || frequencyType == FrequencyType.MONTHLY_X_TIMES) {
+            Period period = frequencyType == FrequencyType.WEEKLY_X_TIMES ? Period.WEEK : Period.MONTH;
+            ReportCallResult<Integer> completionsResult = countCompletionsInPeriodOrThrow(habitId, period, date);
+            completionsInPeriod = completionsResult.value();
+            isStale = isStale || completionsResult.stale();
+        }
 
-                if (frequencyType == FrequencyType.MONTHLY_X_TIMES) {
-                    completionsPlannedInPeriod = habit.getTimesPerMonth();
-                }
+        Integer completionsPlannedInPeriod = null;
 
-                boolean isPhotoAllowed = habit.isPhotoAllowed();
+        if (frequencyType == FrequencyType.WEEKLY_X_TIMES) {
+            completionsPlannedInPeriod = habit.getTimesPerWeek();
+        }
 
-                currentUserSubscribedHabitsAtDay.add(SubscribedHabitShortInfoResponse.builder()
-                        .habitId(habitId)
-                        .creatorLogin(creatorLogin)
-                        .name(habit.getName())
-                        .subscribersCount(subscribersCount)
-                        .frequencyType(frequencyType)
-                        .completionsInPeriod(completionsInPeriod)
-                        .completionsPlannedInPeriod(completionsPlannedInPeriod)
-                        .isCompleted(reportResponse.isCompleted())
-                        .isPhotoAllowed(isPhotoAllowed)
-                        .isPhotoUploaded(reportResponse.isPhotoUploaded())
-                        .reportId(reportResponse.getReportId())
-                        .build());
-            }
+        if (frequencyType == FrequencyType.MONTHLY_X_TIMES) {
+            completionsPlannedInPeriod = habit.getTimesPerMonth();
         }
 
-        return currentUserSubscribedHabitsAtDay;
+        boolean isPhotoAllowed = habit.isPhotoAllowed();
+
+        return SubscribedHabitShortInfoResponse.builder()
+                .habitId(habitId)
+                .creatorLogin(creatorLogin)
+                .name(habit.getName())
+                .subscribersCount(subscribersCount)
+                .frequencyType(frequencyType)
+                .completionsInPeriod(completionsInPeriod)
+                .completionsPlannedInPeriod(completionsPlannedInPeriod)
+                .isCompleted(reportResponse.isCompleted())
+                .isPhotoAllowed(isPhotoAllowed)
+                .isPhotoUploaded(reportResponse.isPhotoUploaded())
+                .reportId(reportResponse.getReportId())
+                .isStale(isStale ? true : null)
+                .build();
     }
 
-    private boolean isUserEitherHabitCreatorOrSubscriber(Long habitId, Long userId) {
-        boolean isUserCreator = habitRepository.existsByIdAndUserId(habitId, userId);
+    // Выбрасывает 403, если пользователь не создатель привычки и не ее подписчик. Пустой Optional - если доступ есть,
+    // но самой привычки уже нет (в кэше подписок осталась запись о подписке)
+    private Optional<HabitWithAccess> findHabitCheckingAccess(Long habitId, Long userId) {
+        Optional<HabitWithAccess> habitWithAccess = habitRepository.findWithAccess(habitId, userId);
 
-        boolean isUserSubscriber = subscriptionCacheRepository.existsById(
-                SubscriptionCacheId.builder()
-                        .habitId(habitId)
-                        .subscriberId(userId)
-                        .build()
-        );
+        boolean doesUserHaveAccess = habitWithAccess.isPresent()
+                ? habitWithAccess.get().hasAccess()
+                : subscriptionCacheRepository.existsById(
+                        SubscriptionCacheId.builder()
+                                .habitId(habitId)
+                                .subscriberId(userId)
+                                .build()
+                );
+
+        if (!doesUserHaveAccess) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Отсутствует доступ к указанной привычке");
+        }
 
-        return isUserCreator || isUserSubscriber;
+        return habitWithAccess;
     }
 
-    private ReportShortInfoResponse getIsCompletedOrThrow(Long habitId, LocalDate date) {
-        try {
-            return reportClient.isCompletedAtDay(internalToken, habitId, date).getBody();
-        } catch (FeignException.ServiceUnavailable e) {
-            log.error("Микросервис Report недоступен");
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
-        } catch (FeignException e) {
-            log.error("Микросервис Report вернул ошибку");
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
-        }
+    private ReportCallResult<ReportShortInfoResponse> getIsCompletedOrThrow(Long habitId, LocalDate date) {
+        return reportCallExecutor.execute(ReportCallExecutor.IS_COMPLETED, List.of(habitId, date),
+                () -> reportClient.isCompletedAtDay(internalToken, habitId, date));
     }
 
-    private Integer countCompletionsInPeriodOrThrow(Long habitId, Period period, LocalDate date) {
-        try {
-            return reportClient.countCompletionsInPeriod(internalToken, habitId, period, date).getBody();
-        } catch (FeignException.ServiceUnavailable e) {
-            log.error("Микросервис Report недоступен");
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
-        } catch (FeignException e) {
-            log.error("Микросервис Report вернул ошибку");
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
-        }
+    private ReportCallResult<Integer> countCompletionsInPeriodOrThrow(Long habitId, Period period, LocalDate date) {
+        return reportCallExecutor.execute(ReportCallExecutor.COMPLETION_COUNT, List.of(habitId, period, date),
+                () -> reportClient.countCompletionsInPeriod(internalToken, habitId, period, date));
     }
 
-    private ReportFullInfoResponse getReportAtDayOrThrow(Long habitId, LocalDate date) {
-        try {
-            return reportClient.getReportAtDay(internalToken, habitId, date).getBody();
-        } catch (FeignException.ServiceUnavailable e) {
-            log.error("Микросервис Report недоступен");
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
-        } catch (FeignException e) {
-            log.error("Микросервис Report вернул ошибку");
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
-        }
+    private ReportCallResult<ReportFullInfoResponse> getReportAtDayOrThrow(Long habitId, LocalDate date) {
+        return reportCallExecutor.execute(ReportCallExecutor.REPORT_AT_DAY, List.of(habitId, date),
+                () -> reportClient.getReportAtDay(internalToken, habitId, date));
     }
 
-    private HabitReportsInfoResponse getReportsInfoOrThrow(Habit habit) {
-        try {
-            Set<DayOfWeek> daysOfWeek = habit.getDaysOfWeek();
-            return reportClient.getReportsInfo(
-                    internalToken,
-                    habit.getId(),
-                    habit.getFrequencyType(),
-                    daysOfWeek == null || daysOfWeek.isEmpty() ? null : daysOfWeek,
-                    habit.getTimesPerWeek(),
-                    habit.getTimesPerMonth(),
-                    habit.getCreatedAt().toLocalDate()
-            ).getBody();
-        } catch (FeignException.ServiceUnavailable e) {
-            log.error("Микросервис Report недоступен");
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
-        } catch (FeignException e) {
-            log.error("Микросервис Report вернул ошибку");
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
-        }
+    private ReportCallResult<HabitReportsInfoResponse> getReportsInfoOrThrow(Habit habit) {
+        Set<DayOfWeek> daysOfWeek = habit.getDaysOfWeek() == null || habit.getDaysOfWeek().isEmpty()
+                ? null : habit.getDaysOfWeek();
+        LocalDate createdAt = habit.getCreatedAt().toLocalDate();
+
+        // Arrays.asList, потому что часть аргументов может быть null
+        List<Object> args = Arrays.asList(habit.getId(), habit.getFrequencyType(), daysOfWeek,
+                habit.getTimesPerWeek(), habit.getTimesPerMonth(), createdAt);
+
+        return reportCallExecutor.execute(ReportCallExecutor.REPORTS_INFO, args, () -> reportClient.getReportsInfo(
+                internalToken,
+                habit.getId(),
+                habit.getFrequencyType(),
+                daysOfWeek,
+                habit.getTimesPerWeek(),
+                habit.getTimesPerMonth(),
+                createdAt
+        ));
     }
 
 }
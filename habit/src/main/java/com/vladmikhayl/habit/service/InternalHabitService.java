@@ -1,15 +1,23 @@
 package com.vladmikhayl.habit.service;
 
+import com.vladmikhayl.commons.data.shard.OnShard;
+import com.vladmikhayl.habit.dto.request.HabitAtDayRequest;
 import com.vladmikhayl.habit.entity.FrequencyType;
 import com.vladmikhayl.habit.entity.Habit;
 import com.vladmikhayl.habit.repository.HabitRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -17,31 +25,75 @@ public class InternalHabitService {
 
     private final HabitRepository habitRepository;
 
+    @OnShard(user = "#userId")
+    @Transactional(readOnly = true)
     public boolean isCurrent(Long habitId, Long userId, LocalDate date) {
-        Optional<Habit> habit = habitRepository.findByIdAndUserId(habitId, userId);
+        // Поиск именно по id (а не findByIdAndUserId), чтобы привычка бралась из second-level cache без запроса в БД
+        Optional<Habit> habit = habitRepository.findById(habitId)
+                .filter(foundHabit -> foundHabit.getUserId().equals(userId));
 
         if (habit.isEmpty()) {
             return false;
         }
 
-        LocalDate createdAt = LocalDate.from(habit.get().getCreatedAt());
+        return isCurrent(
+                habit.get().getCreatedAt(),
+                habit.get().getDurationDays(),
+                habit.get().getFrequencyType(),
+                habit.get().getDaysOfWeek(),
+                date
+        );
+    }
+
+    // Все привычки пользователя вместе с днями недели читаются одним запросом, а не по одной на каждую пару
+    // (привычка, день). Чужие привычки запрос не возвращает, и для них ответ - false
+    @OnShard(user = "#userId")
+    @Transactional(readOnly = true)
+    public List<Boolean> areCurrent(Long userId, List<HabitAtDayRequest> habitsAtDays) {
+        List<Long> habitIds = habitsAtDays.stream()
+                .map(HabitAtDayRequest::getHabitId)
+                .distinct()
+                .toList();
+
+        Map<Long, Habit> userHabits = habitRepository.findAllWithDaysOfWeekByIdInAndUserId(habitIds, userId).stream()
+                .collect(Collectors.toMap(Habit::getId, Function.identity()));
+
+        return habitsAtDays.stream()
+                .map(habitAtDay -> {
+                    Habit habit = userHabits.get(habitAtDay.getHabitId());
+                    return habit != null && isCurrent(
+                            habit.getCreatedAt(),
+                            habit.getDurationDays(),
+                            habit.getFrequencyType(),
+                            habit.getDaysOfWeek(),
+                            habitAtDay.getDate()
+                    );
+                })
+                .toList();
+    }
+
+    // Само правило, без обращения к БД: его же использует реактивный вариант эндпоинтов (профиль reactive).
+    // daysOfWeek нужны только для WEEKLY_ON_DAYS
+    public static boolean isCurrent(
+            LocalDateTime createdAtDateTime,
+            Integer durationDays,
+            FrequencyType frequencyType,
+            Set<DayOfWeek> daysOfWeek,
+            LocalDate date
+    ) {
+        LocalDate createdAt = LocalDate.from(createdAtDateTime);
 
         if (createdAt.isAfter(date)) {
             return false;
         }
 
-        Integer durationDays = habit.get().getDurationDays();
-
         if (durationDays != null && createdAt.plusDays(durationDays - 1).isBefore(date)) {
             return false;
         }
 
-        FrequencyType frequencyType = habit.get().getFrequencyType();
-
         if (frequencyType == FrequencyType.WEEKLY_X_TIMES || frequencyType == FrequencyType.MONTHLY_X_TIMES) {
             return true;
         } else {
-            Set<DayOfWeek> daysOfWeek = habit.get().getDaysOfWeek();
             return daysOfWeek.contains(date.getDayOfWeek());
         }
     }
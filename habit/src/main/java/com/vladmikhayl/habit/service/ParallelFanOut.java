@@ -0,0 +1,162 @@
+package com.vladmikhayl.habit.service;
+
+import com.vladmikhayl.commons.data.replica.ReplicaReadScope;
+import com.vladmikhayl.commons.data.shard.ShardContext;
+import com.vladmikhayl.commons.web.concurrency.BoundedExecutors;
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+// Параллельная обработка элементов одного запроса (например, привычек на главном экране, где для каждой привычки
+// нужно несколько запросов в Report и в БД). Ограничения два:
+// - parallelism: сколько элементов одного запроса обрабатываются одновременно (включая поток самого запроса);
+// - maxThreads: сколько вспомогательных потоков всего на все запросы, чтобы пользователь с сотней привычек
+//   не занял все потоки. Если свободных потоков нет, то запрос обрабатывает свои элементы сам, последовательно,
+//   как раньше, поэтому в очереди за потоками он никогда не стоит.
+// Результаты возвращаются в порядке элементов. Если обработка какого-то элемента упала, то новые элементы
+// больше не берутся, и наружу пробрасывается это же исключение (например, 503 или 502 от ReportCallExecutor).
+// Задачи выполняются в других потоках без транзакции и без открытой сессии Hibernate, поэтому в них нельзя
+// обращаться к lazy-полям сущностей, загруженных в потоке запроса
+@Slf4j
+@Component
+public class ParallelFanOut implements DisposableBean {
+
+    private final int parallelism;
+
+    private final ExecutorService executor;
+
+    @Autowired
+    public ParallelFanOut(
+            @Value("${habit.fan-out.parallelism:6}") int parallelism,
+            @Value("${habit.fan-out.max-threads:32}") int maxThreads,
+            Environment environment
+    ) {
+        this(parallelism, maxThreads, Threading.VIRTUAL.isActive(environment));
+    }
+
+    ParallelFanOut(int parallelism, int maxThreads, boolean virtualThreads) {
+        this.parallelism = Math.max(1, parallelism);
+        this.executor = BoundedExecutors.newBoundedExecutor("habit-fan-out-", maxThreads, virtualThreads);
+    }
+
+    // Пустой Optional от задачи означает, что для этого элемента в результате ничего не будет
+    public <T, R> List<R> map(List<T> items, Function<T, Optional<R>> task) {
+        Batch<T, R> batch = new Batch<>(items, task);
+
+        List<Future<?>> helpers = new ArrayList<>();
+        int helpersCount = Math.min(parallelism, items.size()) - 1;
+        for (int i = 0; i < helpersCount; i++) {
+            try {
+                helpers.add(executor.submit(
+                        Deadline.propagate(ReplicaReadScope.propagate(ShardContext.propagate(batch::drain)))));
+            } catch (RejectedExecutionException e) {
+                log.debug("Все потоки для параллельной обработки заняты, запрос обработает оставшиеся элементы сам");
+                break;
+            }
+        }
+
+        batch.drain();
+        awaitAll(helpers, batch);
+
+        return batch.results();
+    }
+
+    private static void awaitAll(List<Future<?>> helpers, Batch<?, ?> batch) {
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                batch.stop();
+                helpers.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
+            } catch (ExecutionException e) {
+                // Исключения задач собирает сам Batch, сюда попадают только Error
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    // Элементы одного запроса: все потоки (поток запроса и вспомогательные) берут из него следующий
+    // необработанный элемент, пока элементы не кончатся или какая-то задача не упадет
+    private static class Batch<T, R> {
+
+        private final List<T> items;
+
+        private final Function<T, Optional<R>> task;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final AtomicReferenceArray<Optional<R>> results;
+
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        private volatile boolean stopped;
+
+        Batch(List<T> items, Function<T, Optional<R>> task) {
+            this.items = items;
+            this.task = task;
+            this.results = new AtomicReferenceArray<>(items.size());
+        }
+
+        void drain() {
+            while (!stopped) {
+                int index = next.getAndIncrement();
+                if (index >= items.size()) {
+                    return;
+                }
+                try {
+                    results.set(index, task.apply(items.get(index)));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                    stopped = true;
+                }
+            }
+        }
+
+        void stop() {
+            stopped = true;
+        }
+
+        List<R> results() {
+            RuntimeException e = failure.get();
+            if (e != null) {
+                throw e;
+            }
+            List<R> list = new ArrayList<>();
+            for (int i = 0; i < results.length(); i++) {
+                results.get(i).ifPresent(list::add);
+            }
+            return list;
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.vladmikhayl.habit.service.feign;
+
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.commons.loadbalancer.singleflight.SingleFlight;
+import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// Все вызовы ReportClient идут через этот класс. На каждый внутренний эндпоинт свой circuit breaker
+// (настройки в resilience4j.circuitbreaker.instances): если Report начал падать или тормозить, то breaker
+// открывается, и запросы к Report какое-то время вообще не отправляются, а потоки habit не висят на таймаутах.
+// Пока Report недоступен, отдается последний успешный ответ для тех же аргументов (с пометкой stale),
+// а если его нет, то ошибка, как и раньше (503 или 502).
+// Одновременные одинаковые вызовы (тот же эндпоинт и те же аргументы) схлопываются в один запрос к Report:
+// например, когда сотни подписчиков одной привычки одновременно обновляют свой список привычек.
+// Свежие ответы Report кэшируются на каждом экземпляре habit (near-cache report-status) и сбрасываются
+// по id привычки, когда Report сохраняет, меняет или удаляет отчет о ней
+@Slf4j
+@Component
+public class ReportCallExecutor {
+
+    public static final String IS_COMPLETED = "report-is-completed";
+
+    public static final String COMPLETION_COUNT = "report-completion-count";
+
+    public static final String REPORT_AT_DAY = "report-report-at-day";
+
+    public static final String REPORTS_INFO = "report-reports-info";
+
+    // Имя near-cache, по которому Report рассылает инвалидации
+    public static final String REPORT_STATUS_CACHE = "report-status";
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final StaleValueCache staleValueCache;
+
+    private final SingleFlight<CacheKey, ReportCallResult<?>> singleFlight;
+
+    private final NearCache<CacheKey, ReportCallResult<?>> reportStatuses;
+
+    public ReportCallExecutor(
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            StaleValueCache staleValueCache,
+            MeterRegistry meterRegistry,
+            NearCacheManager nearCacheManager
+    ) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.staleValueCache = staleValueCache;
+        this.singleFlight = new SingleFlight<>("report", meterRegistry);
+        // Первый аргумент всех вызовов - id привычки
+        this.reportStatuses = nearCacheManager.create(REPORT_STATUS_CACHE, key -> String.valueOf(key.args().get(0)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> ReportCallResult<T> execute(String endpoint, List<Object> args, Supplier<ResponseEntity<T>> call) {
+        CacheKey key = new CacheKey(endpoint, args);
+        // Значения из кэша последних ответов (stale) в near-cache не попадают
+        return (ReportCallResult<T>) reportStatuses.get(
+                key,
+                () -> singleFlight.execute(key, () -> executeWithCircuitBreaker(key, call)),
+                result -> !result.stale()
+        );
+    }
+
+    private <T> ReportCallResult<T> executeWithCircuitBreaker(CacheKey key, Supplier<ResponseEntity<T>> call) {
+        String endpoint = key.endpoint();
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(endpoint);
+
+        try {
+            T value = circuitBreaker.executeSupplier(() -> call.get().getBody());
+            staleValueCache.put(key, value);
+            return new ReportCallResult<>(value, false);
+        } catch (CallNotPermittedException e) {
+            log.warn("Circuit breaker {} открыт, запрос в Report не отправлялся", endpoint);
+            return staleOrThrow(key, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (FeignException.FeignClientException e) {
+            // 4xx - это не сбой Report, а его ответ по существу, поэтому старое значение тут не подставляется
+            log.error("Микросервис Report вернул ошибку");
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
+        } catch (FeignException.ServiceUnavailable e) {
+            log.error("Микросервис Report недоступен");
+            return staleOrThrow(key, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (FeignException e) {
+            log.error("Микросервис Report вернул ошибку");
+            return staleOrThrow(key, HttpStatus.BAD_GATEWAY);
+        }
+    }
+
+    // То же самое для неблокирующего вызова (WebClient в профиле reactive): те же circuit breaker'ы и тот же кэш
+    // последних ответов, что и у Feign. Одинаковые вызовы здесь не схлопываются (SingleFlight блокирует поток),
+    // и near-cache здесь не используется
+    public <T> Mono<ReportCallResult<T>> executeAsync(String endpoint, List<Object> args, Mono<T> call) {
+        CacheKey key = new CacheKey(endpoint, args);
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(endpoint);
+
+        return withCircuitBreaker(circuitBreaker, call)
+                .doOnNext(value -> staleValueCache.put(key, value))
+                .map(value -> new ReportCallResult<>(value, false))
+                .onErrorResume(e -> Mono.fromCallable(() -> this.<T>handleAsyncFailure(key, e)));
+    }
+
+    private static <T> Mono<T> withCircuitBreaker(CircuitBreaker circuitBreaker, Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+            long start = circuitBreaker.getCurrentTimestamp();
+            return call
+                    .doOnSuccess(value -> circuitBreaker.onSuccess(
+                            circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit()))
+                    .doOnError(e -> {
+                        if (isClientError(e)) {
+                            // Как и FeignClientException в ignore-exceptions: 4xx не считаются сбоями Report
+                            circuitBreaker.releasePermission();
+                        } else {
+                            circuitBreaker.onError(
+                                    circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), e);
+                        }
+                    })
+                    .doOnCancel(circuitBreaker::releasePermission);
+        });
+    }
+
+    private <T> ReportCallResult<T> handleAsyncFailure(CacheKey key, Throwable e) {
+        if (e instanceof CallNotPermittedException) {
+            log.warn("Circuit breaker {} открыт, запрос в Report не отправлялся", key.endpoint());
+            return staleOrThrow(key, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (isClientError(e)) {
+            log.error("Микросервис Report вернул ошибку");
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
+        }
+        if (e instanceof WebClientResponseException.ServiceUnavailable) {
+            log.error("Микросервис Report недоступен");
+            return staleOrThrow(key, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (e instanceof WebClientException) {
+            log.error("Микросервис Report вернул ошибку");
+            return staleOrThrow(key, HttpStatus.BAD_GATEWAY);
+        }
+        // Например, истекший дедлайн запроса: его нельзя подменять значением из кэша
+        throw Exceptions.propagate(e);
+    }
+
+    private static boolean isClientError(Throwable e) {
+        return e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
+    }
+
+    private <T> ReportCallResult<T> staleOrThrow(CacheKey key, HttpStatus status) {
+        Optional<T> staleValue = staleValueCache.get(key);
+        if (staleValue.isPresent()) {
+            log.warn("Вместо ответа Report отдается значение из кэша ({})", key.endpoint());
+            return new ReportCallResult<>(staleValue.get(), true);
+        }
+        throw new ResponseStatusException(status, "Произошла внутренняя ошибка");
+    }
+
+    private record CacheKey(String endpoint, List<Object> args) {}
+
+}
@@ -0,0 +1,4 @@
+package com.vladmikhayl.habit.service.feign;
+
+// Ответ микросервиса Report и признак того, что он взят из кэша (stale = true), потому что Report сейчас недоступен
+public record ReportCallResult<T>(T value, boolean stale) {}
@@ -0,0 +1,56 @@
+package com.vladmikhayl.habit.service.feign;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+// Последние успешные ответы микросервиса Report. Используются, только когда Report недоступен,
+// поэтому кэш ограничен по размеру и по возрасту значений. Кэш Caffeine без общей блокировки:
+// ответы Report сохраняются на каждом успешном вызове, и потоки не должны ждать друг друга
+@Component
+public class StaleValueCache {
+
+    private final int maxSize;
+
+    private final Cache<Object, Object> entries;
+
+    public StaleValueCache(
+            @Value("${report.stale-cache.max-size:10000}") int maxSize,
+            @Value("${report.stale-cache.max-age:PT1H}") Duration maxAge,
+            Clock clock
+    ) {
+        this.maxSize = maxSize;
+        // Обслуживание кэша - в вызывающем потоке, чтобы не зависеть от общего пула ForkJoinPool
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(Math.max(maxSize, 0))
+                .expireAfterWrite(maxAge)
+                .ticker(() -> ChronoUnit.NANOS.between(Instant.EPOCH, clock.instant()))
+                .executor(Runnable::run)
+                .build();
+    }
+
+    public void put(Object key, Object value) {
+        if (maxSize <= 0 || value == null) {
+            return;
+        }
+        entries.put(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> get(Object key) {
+        return Optional.ofNullable((T) entries.getIfPresent(key));
+    }
+
+    public int size() {
+        entries.cleanUp();
+        return (int) entries.estimatedSize();
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.vladmikhayl.habit.service.kafka;
+
+import com.vladmikhayl.commons.dto.HabitDeletedEvent;
+import com.vladmikhayl.commons.dto.HabitEditedEvent;
+import com.vladmikhayl.habit.entity.Habit;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// Second-level cache у каждого экземпляра habit свой, а привычку меняет только один из них (тот, к которому
+// пришел запрос; в его кэше Hibernate обновляет ее сам). Поэтому остальные экземпляры сбрасывают привычку
+// из своего кэша по событию. У каждого экземпляра своя consumer group, чтобы событие получили все они.
+// Если чтения идут с реплики (read-replica), то сразу после сброса привычка может снова попасть в кэш из еще
+// не догнавшей реплики, поэтому через repeat-eviction-after привычка сбрасывается еще раз
+@Slf4j
+@Service
+public class HabitCacheListener {
+
+    private static final String DAYS_OF_WEEK_ROLE = Habit.class.getName() + ".daysOfWeek";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Executor repeatedEvictionExecutor;
+
+    public HabitCacheListener(
+            EntityManagerFactory entityManagerFactory,
+            @Value("${habit.cache.repeat-eviction-after:3s}") Duration repeatEvictionAfter
+    ) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.repeatedEvictionExecutor = CompletableFuture.delayedExecutor(
+                repeatEvictionAfter.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @KafkaListener(topics = "habit-edited", groupId = "habit-cache-${random.uuid}")
+    public void listen(HabitEditedEvent event) {
+        evict(event.habitId());
+        repeatedEvictionExecutor.execute(() -> evict(event.habitId()));
+    }
+
+    @KafkaListener(topics = "habit-deleted", groupId = "habit-cache-${random.uuid}")
+    public void listen(HabitDeletedEvent event) {
+        evict(event.habitId());
+        repeatedEvictionExecutor.execute(() -> evict(event.habitId()));
+    }
+
+    private void evict(Long habitId) {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictEntityData(Habit.class, habitId);
+        sessionFactory.getCache().evictCollectionData(DAYS_OF_WEEK_ROLE, habitId);
+
+        log.info("Привычка {} сброшена из second-level cache", habitId);
+    }
+
+}
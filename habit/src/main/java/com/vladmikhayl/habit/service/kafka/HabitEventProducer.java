@@ -2,9 +2,12 @@ package com.vladmikhayl.habit.service.kafka;
 
 import com.vladmikhayl.commons.dto.HabitCreatedEvent;
 import com.vladmikhayl.commons.dto.HabitDeletedEvent;
+import com.vladmikhayl.commons.dto.HabitEditedEvent;
 import lombok.RequiredArgsConstructor;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @RequiredArgsConstructor
@@ -20,4 +23,19 @@ public class HabitEventProducer {
         kafkaTemplate.send("habit-deleted", event);
     }
 
+    // Отправляется только после коммита текущей транзакции: иначе другой экземпляр habit может сбросить
+    // привычку из кэша и сразу же снова загрузить в него ее старую версию
+    public void sendHabitEditedEvent(HabitEditedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            kafkaTemplate.send("habit-edited", event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                kafkaTemplate.send("habit-edited", event);
+            }
+        });
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.vladmikhayl.habit.service.kafka;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
+import com.vladmikhayl.commons.data.shard.OnShard;
 import com.vladmikhayl.commons.dto.AcceptedSubscriptionCreatedEvent;
 import com.vladmikhayl.commons.dto.AcceptedSubscriptionDeletedEvent;
 import com.vladmikhayl.habit.entity.SubscriptionCache;
@@ -17,6 +19,10 @@ public class HabitListener {
 
     private final SubscriptionCacheRepository subscriptionCacheRepository;
 
+    private final NearCache<Long, Integer> subscribersCountNearCache;
+
+    // Подписки хранятся на шарде владельца привычки, рядом с ней
+    @OnShard(entity = "#event.habitId()")
     @KafkaListener(topics = "accepted-subscription-created", groupId = "habit-group")
     public void listen(AcceptedSubscriptionCreatedEvent event) {
         log.info("Получено событие: появилась принятая подписка на привычку {} от юзера {}", event.habitId(), event.subscriberId());
@@ -34,8 +40,11 @@ public class HabitListener {
         );
 
         log.info("В таблицу subscriptions_cache добавлена принятая подписка на привычку {} от юзера {}", event.habitId(), event.subscriberId());
+
+        subscribersCountNearCache.invalidate(event.habitId());
     }
 
+    @OnShard(entity = "#event.habitId()")
     @KafkaListener(topics = "accepted-subscription-deleted", groupId = "habit-group")
     public void listen(AcceptedSubscriptionDeletedEvent event) {
         log.info("Получено событие: удалена принятая подписка на привычку {} от юзера {}", event.habitId(), event.subscriberId());
@@ -48,6 +57,8 @@ public class HabitListener {
         );
 
         log.info("Из таблицы subscriptions_cache удалена принятая подписка на привычку {} от юзера {}", event.habitId(), event.subscriberId());
+
+        subscribersCountNearCache.invalidate(event.habitId());
     }
 
 }
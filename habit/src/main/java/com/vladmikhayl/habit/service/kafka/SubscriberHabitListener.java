@@ -0,0 +1,54 @@
+package com.vladmikhayl.habit.service.kafka;
+
+import com.vladmikhayl.commons.data.shard.OnShard;
+import com.vladmikhayl.commons.dto.AcceptedSubscriptionCreatedEvent;
+import com.vladmikhayl.commons.dto.AcceptedSubscriptionDeletedEvent;
+import com.vladmikhayl.habit.entity.SubscriberHabit;
+import com.vladmikhayl.habit.entity.SubscriberHabitId;
+import com.vladmikhayl.habit.repository.SubscriberHabitRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+// Ведет копию подписок на шарде подписчика (subscriber_habits). При шардировании шард подписчика обычно
+// не тот, что у владельца привычки (туда подписку пишет HabitListener), поэтому у этого слушателя своя
+// consumer group: событие обрабатывается независимо и повторяется отдельно, если один из шардов недоступен
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubscriberHabitListener {
+
+    private final SubscriberHabitRepository subscriberHabitRepository;
+
+    @OnShard(user = "#event.subscriberId()")
+    @KafkaListener(topics = "accepted-subscription-created", groupId = "habit-subscriber-group")
+    public void listen(AcceptedSubscriptionCreatedEvent event) {
+        subscriberHabitRepository.save(
+                SubscriberHabit.builder()
+                        .id(
+                                SubscriberHabitId.builder()
+                                        .subscriberId(event.subscriberId())
+                                        .habitId(event.habitId())
+                                        .build()
+                        )
+                        .build()
+        );
+
+        log.info("В таблицу subscriber_habits добавлена подписка юзера {} на привычку {}", event.subscriberId(), event.habitId());
+    }
+
+    @OnShard(user = "#event.subscriberId()")
+    @KafkaListener(topics = "accepted-subscription-deleted", groupId = "habit-subscriber-group")
+    public void listen(AcceptedSubscriptionDeletedEvent event) {
+        subscriberHabitRepository.deleteById(
+                SubscriberHabitId.builder()
+                        .subscriberId(event.subscriberId())
+                        .habitId(event.habitId())
+                        .build()
+        );
+
+        log.info("Из таблицы subscriber_habits удалена подписка юзера {} на привычку {}", event.subscriberId(), event.habitId());
+    }
+
+}
@@ -0,0 +1,30 @@
+-- Исходная схема (та же, что раньше создавал Hibernate при ddl-auto: create-drop)
+
+CREATE SEQUENCE habit_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE habits (
+    id               BIGINT       NOT NULL,
+    user_id          BIGINT       NOT NULL,
+    name             VARCHAR(255) NOT NULL,
+    description      TEXT,
+    is_photo_allowed BOOLEAN      NOT NULL,
+    duration_days    INTEGER,
+    frequency_type   VARCHAR(255) NOT NULL
+        CHECK (frequency_type IN ('WEEKLY_ON_DAYS', 'WEEKLY_X_TIMES', 'MONTHLY_X_TIMES')),
+    times_per_week   INTEGER,
+    times_per_month  INTEGER,
+    created_at       TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE habit_week_days (
+    habit_id     BIGINT NOT NULL REFERENCES habits,
+    days_of_week SMALLINT CHECK (days_of_week BETWEEN 0 AND 6)
+);
+
+CREATE TABLE subscriptions_cache (
+    habit_id      BIGINT NOT NULL,
+    subscriber_id BIGINT NOT NULL,
+    creator_login VARCHAR(255),
+    PRIMARY KEY (habit_id, subscriber_id)
+);
@@ -0,0 +1,11 @@
+-- Индексы под запросы HabitRepository, SubscriptionCacheRepository и их реактивных вариантов
+-- (проверяются в QueryPlanIntegrationTest)
+
+-- findAllByUserId, existsByUserIdAndName (findByIdAndUserId и existsByIdAndUserId идут по первичному ключу)
+CREATE INDEX habits_user_id_name_idx ON habits (user_id, name);
+
+-- Загрузка дней недели привычки (коллекция daysOfWeek). Это множество, поэтому индекс уникальный
+CREATE UNIQUE INDEX habit_week_days_habit_id_day_idx ON habit_week_days (habit_id, days_of_week);
+
+-- findAllById_SubscriberId (поиск по habit_id и по паре habit_id, subscriber_id - по первичному ключу)
+CREATE INDEX subscriptions_cache_subscriber_id_idx ON subscriptions_cache (subscriber_id);
@@ -0,0 +1,24 @@
+-- Таблицы шардирования по пользователям (ShardingAutoConfiguration в common-data, sharding.enabled).
+-- Миграции выполняются на всех шардах, но эти таблицы читаются только в основной БД.
+-- Без шардирования они не используются
+
+-- Шард каждого бакета пользователей. Бакеты без строки здесь лежат в основной БД
+CREATE TABLE shard_buckets (
+    bucket INTEGER     NOT NULL,
+    shard  VARCHAR(64) NOT NULL,
+    frozen BOOLEAN     NOT NULL DEFAULT FALSE,
+    PRIMARY KEY (bucket)
+);
+
+-- Владелец каждой привычки: по нему находится шард для запросов подписчиков, внутренних запросов и слушателей Kafka
+CREATE TABLE shard_directory (
+    entity_id BIGINT NOT NULL,
+    user_id   BIGINT NOT NULL,
+    PRIMARY KEY (entity_id)
+);
+
+-- Сущности пользователей при переносе их на другой шард
+CREATE INDEX shard_directory_user_id_idx ON shard_directory (user_id);
+
+INSERT INTO shard_directory (entity_id, user_id)
+SELECT id, user_id FROM habits;
@@ -0,0 +1,3 @@
+-- ID привычек выделяются блоками по 50 (оптимизатор pooled-lo), шаг последовательности равен размеру блока.
+-- Существующие ID не меняются: новые блоки начинаются выше last_value
+ALTER SEQUENCE habit_seq INCREMENT BY 50;
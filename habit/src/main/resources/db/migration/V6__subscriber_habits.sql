@@ -0,0 +1,12 @@
+-- Привычки, на которые подписан пользователь. Та же подписка, что в subscriptions_cache, но при шардировании
+-- лежит на шарде подписчика (subscriptions_cache - на шарде владельца привычки), поэтому список подписок
+-- пользователя для главного экрана читается одним запросом с одного шарда, а не со всех шардов
+CREATE TABLE subscriber_habits (
+    subscriber_id BIGINT NOT NULL,
+    habit_id      BIGINT NOT NULL,
+    PRIMARY KEY (subscriber_id, habit_id)
+);
+
+-- До шардирования все подписки лежат в основной БД, и копия заполняется из нее
+INSERT INTO subscriber_habits (subscriber_id, habit_id)
+SELECT subscriber_id, habit_id FROM subscriptions_cache;
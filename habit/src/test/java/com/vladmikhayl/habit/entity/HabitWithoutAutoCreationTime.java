@@ -19,7 +19,7 @@ public class HabitWithoutAutoCreationTime {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "habit_seq")
-    @SequenceGenerator(name = "habit_seq", sequenceName = "habit_seq", allocationSize = 1)
+    @SequenceGenerator(name = "habit_seq", sequenceName = "habit_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -8,6 +8,7 @@ import com.vladmikhayl.habit.dto.response.*;
 import com.vladmikhayl.habit.entity.Period;
 import com.vladmikhayl.habit.entity.*;
 import com.vladmikhayl.habit.repository.HabitRepository;
+import com.vladmikhayl.habit.repository.SubscriberHabitRepository;
 import com.vladmikhayl.habit.repository.SubscriptionCacheRepository;
 import com.vladmikhayl.habit.service.feign.ReportClient;
 import org.junit.jupiter.api.BeforeAll;
@@ -67,6 +68,16 @@ public class HabitControllerIntegrationTest {
     @Value("${internal.token}")
     private String testInternalToken;
 
+    // Та же подписка в копии на шарде подписчика (ее ведет SubscriberHabitListener)
+    private static SubscriberHabit subscriberHabitOf(SubscriptionCache subscription) {
+        return SubscriberHabit.builder()
+                .id(SubscriberHabitId.builder()
+                        .subscriberId(subscription.getId().getSubscriberId())
+                        .habitId(subscription.getId().getHabitId())
+                        .build())
+                .build();
+    }
+
     @TestConfiguration
     static class FixedClockConfig {
         @Bean
@@ -93,6 +104,9 @@ public class HabitControllerIntegrationTest {
     @Autowired
     private SubscriptionCacheRepository subscriptionCacheRepository;
 
+    @Autowired
+    private SubscriberHabitRepository subscriberHabitRepository;
+
     @Autowired
     private HabitWithoutAutoCreationTimeRepository habitWithoutAutoCreationTimeRepository;
 
@@ -1458,6 +1472,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription1);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription1));
 
         // Это привычка другого юзера, на которую текущий юзер не подписан
         HabitWithoutAutoCreationTime existingHabit2 = HabitWithoutAutoCreationTime.builder()
@@ -1482,6 +1497,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription2);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription2));
 
         mockMvc.perform(get("/api/v1/habits/all-user-subscribed-habits/at-day/2025-04-12")
                         .header("X-User-Id", userIdStr))
@@ -1521,6 +1537,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription1);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription1));
 
         // Еще один юзер подписан на привычку 1
         SubscriptionCache subscription2 = SubscriptionCache.builder()
@@ -1532,6 +1549,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription2);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription2));
 
         // Это привычка другого юзера, на которую не подписан текущий юзер, и она является текущей в TODAY_DATE
         HabitWithoutAutoCreationTime existingHabit2 = HabitWithoutAutoCreationTime.builder()
@@ -1583,6 +1601,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription1);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription1));
 
         // Это привычка другого юзера, на которую подписан текущий юзер, и она является текущей в TODAY_DATE
         // (на нее не будет больше подписчиков)
@@ -1608,6 +1627,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription2);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription2));
 
         // Это привычка другого юзера, на которую подписан текущий юзер, и она является текущей в TODAY_DATE
         // (на нее будут еще подписчики)
@@ -1634,6 +1654,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription3);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription3));
 
         // Еще один юзер подписан на привычку 3
         SubscriptionCache subscription4 = SubscriptionCache.builder()
@@ -1645,6 +1666,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription4);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription4));
 
         Mockito.when(reportClient.isCompletedAtDay(testInternalToken, 2L, TODAY_DATE)).thenReturn(ResponseEntity.ok(
                 ReportShortInfoResponse.builder()
@@ -1729,6 +1751,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription1);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription1));
 
         // Это привычка другого юзера, на которую подписан текущий юзер, и она является текущей в TODAY_DATE
         HabitWithoutAutoCreationTime existingHabit2 = HabitWithoutAutoCreationTime.builder()
@@ -1753,6 +1776,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription2);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription2));
 
         // Это привычка другого юзера, на которую подписан текущий юзер, и она является текущей в TODAY_DATE
         HabitWithoutAutoCreationTime existingHabit3 = HabitWithoutAutoCreationTime.builder()
@@ -1778,6 +1802,7 @@ public class HabitControllerIntegrationTest {
                 .build();
 
         subscriptionCacheRepository.save(subscription3);
+        subscriberHabitRepository.save(subscriberHabitOf(subscription3));
 
         Mockito.when(reportClient.isCompletedAtDay(testInternalToken, 2L, TODAY_DATE)).thenReturn(ResponseEntity.ok(
                 ReportShortInfoResponse.builder()
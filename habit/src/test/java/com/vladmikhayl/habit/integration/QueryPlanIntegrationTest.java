@@ -0,0 +1,120 @@
+package com.vladmikhayl.habit.integration;
+
+import com.vladmikhayl.habit.FeignClientTestConfig;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Проверяет, что на схеме из миграций Flyway ни один частый запрос HabitRepository и SubscriptionCacheRepository
+// (и их реактивных вариантов) не читает таблицу целиком. SQL здесь повторяет тот, что генерируют Hibernate и R2DBC
+@SpringBootTest
+@ActiveProfiles("test") // чтобы CommandLineRunner в коде Application не выполнялся
+@TestPropertySource(properties = {
+        // чтобы Спринг не пытался использовать конфиг-сервер и Эврику
+        "spring.config.location=classpath:/application-test.yml",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false"
+})
+@Transactional // чтобы после теста сгенерированные данные откатывались обратно
+// чтобы создалась встроенная Кафка, которая не будет отправлять сообщения на реальные микросервисы
+@EmbeddedKafka(partitions = 1, topics = {"habit-created", "habit-deleted"})
+@Import(FeignClientTestConfig.class) // импортируем конфиг, где мы создали замоканный бин Feign-клиента
+public class QueryPlanIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public static void setUp() {
+        // Явным образом получаем контейнер Postgres (если он еще не создавался, то в этот момент создастся его синглтон)
+        TestPostgresContainer.getInstance();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        // Задаем настройки для БД, используя синглтон контейнера Postgres
+        TestPostgresContainer container = TestPostgresContainer.getInstance();
+        registry.add("spring.datasource.url", container::getJdbcUrl);
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @BeforeEach
+    void seed() {
+        // 50 тысяч привычек у 10 тысяч пользователей, у каждой привычки два дня недели и четыре подписчика
+        jdbcTemplate.execute("""
+                INSERT INTO habits (id, user_id, name, is_photo_allowed, frequency_type, created_at)
+                SELECT habit, habit % 10000, 'Привычка ' || habit, false, 'WEEKLY_ON_DAYS', now()
+                FROM generate_series(1, 50000) habit
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO habit_week_days (habit_id, days_of_week)
+                SELECT habit, day FROM generate_series(1, 50000) habit, generate_series(0, 1) day
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO subscriptions_cache (habit_id, subscriber_id, creator_login)
+                SELECT habit, (habit * 7 + n) % 20000, 'user' || habit % 10000
+                FROM generate_series(1, 50000) habit, generate_series(1, 4) n
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO subscriber_habits (subscriber_id, habit_id)
+                SELECT subscriber_id, habit_id FROM subscriptions_cache
+                """);
+        // Без свежей статистики планировщик не знает, сколько в таблицах строк
+        jdbcTemplate.execute("ANALYZE habits");
+        jdbcTemplate.execute("ANALYZE habit_week_days");
+        jdbcTemplate.execute("ANALYZE subscriptions_cache");
+        jdbcTemplate.execute("ANALYZE subscriber_habits");
+    }
+
+    @Test
+    void hotQueriesDoNotUseSeqScan() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("findAllByUserId", "SELECT h.* FROM habits h WHERE h.user_id = 42");
+        queries.put("existsByUserIdAndName", """
+                SELECT h.id FROM habits h WHERE h.user_id = 42 AND h.name = 'Привычка 10042' FETCH FIRST 1 ROWS ONLY""");
+        queries.put("findByIdAndUserId", "SELECT h.* FROM habits h WHERE h.id = 10042 AND h.user_id = 42");
+        queries.put("daysOfWeek", "SELECT d.days_of_week FROM habit_week_days d WHERE d.habit_id = 10042");
+        queries.put("findAllWithDaysOfWeekByIdInAndUserId", """
+                SELECT DISTINCT h.*, d.days_of_week FROM habits h
+                LEFT JOIN habit_week_days d ON d.habit_id = h.id
+                WHERE h.id IN (10042, 10043) AND h.user_id = 42""");
+        queries.put("findWithAccess", """
+                SELECT h.*,
+                    CASE WHEN h.user_id = 42 OR EXISTS (
+                        SELECT 1 FROM subscriptions_cache s WHERE s.habit_id = h.id AND s.subscriber_id = 42
+                    ) THEN true ELSE false END,
+                    (SELECT count(*) FROM subscriptions_cache c WHERE c.habit_id = h.id)
+                FROM habits h WHERE h.id = 10042""");
+        queries.put("countById_HabitId", "SELECT count(*) FROM subscriptions_cache s WHERE s.habit_id = 10042");
+        queries.put("findAllById_HabitId", "SELECT s.* FROM subscriptions_cache s WHERE s.habit_id = 10042");
+        queries.put("findAllBySubscriberId", "SELECT s.* FROM subscriptions_cache s WHERE s.subscriber_id = 42");
+        queries.put("SubscriberHabitRepository.findAllById_SubscriberId",
+                "SELECT s.* FROM subscriber_habits s WHERE s.subscriber_id = 42");
+        queries.put("existsById", """
+                SELECT 1 FROM subscriptions_cache s WHERE s.habit_id = 10042 AND s.subscriber_id = 42""");
+
+        SoftAssertions.assertSoftly(softly -> queries.forEach((method, sql) ->
+                softly.assertThat(explain(sql)).as(method).doesNotContain("Seq Scan")));
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.vladmikhayl.habit.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vladmikhayl.commons.data.shard.ShardDataSources;
+import com.vladmikhayl.commons.data.shard.ShardMap;
+import com.vladmikhayl.habit.FeignClientTestConfig;
+import com.vladmikhayl.habit.dto.request.HabitCreationRequest;
+import com.vladmikhayl.habit.dto.response.ReportShortInfoResponse;
+import com.vladmikhayl.habit.entity.FrequencyType;
+import com.vladmikhayl.habit.service.feign.ReportClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Дополнительным шардом здесь служит второй контейнер Postgres, схему в нем создает сам микросервис при старте.
+// Подписчик лежит в основном шарде, а автор привычки - в дополнительном, поэтому один запрос подписчика
+// читает из обоих шардов
+@SpringBootTest
+@ActiveProfiles("test") // чтобы CommandLineRunner в коде Application не выполнялся
+@TestPropertySource(properties = {
+        // чтобы Спринг не пытался использовать конфиг-сервер и Эврику
+        "spring.config.location=classpath:/application-test.yml",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "sharding.enabled=true",
+        "sharding.refresh-interval=100ms"
+})
+// чтобы создалась встроенная Кафка, которая не будет отправлять сообщения на реальные микросервисы
+@EmbeddedKafka(partitions = 1, topics = {"habit-created", "habit-deleted"})
+@Import(FeignClientTestConfig.class) // импортируем конфиг, где мы создали замоканный бин Feign-клиента
+@AutoConfigureMockMvc
+public class ShardingIntegrationTest {
+
+    private static final long SUBSCRIBER_ID = 3_000_000L;
+
+    private static final String HABIT_NAME = "Привычка на другом шарде";
+
+    private static final PostgreSQLContainer<?> SHARD = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReportClient reportClient;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    @Qualifier("mainDataSource")
+    private DataSource mainDataSource;
+
+    private long creatorId;
+
+    @BeforeAll
+    public static void setUp() {
+        // Явным образом получаем контейнер Postgres (если он еще не создавался, то в этот момент создастся его синглтон)
+        TestPostgresContainer.getInstance();
+        SHARD.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        // Задаем настройки для БД, используя синглтон контейнера Postgres
+        TestPostgresContainer container = TestPostgresContainer.getInstance();
+        registry.add("spring.datasource.url", container::getJdbcUrl);
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("sharding.shards.shard-1.url", SHARD::getJdbcUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Остальные интеграционные тесты работают с той же основной БД без шардирования
+        JdbcTemplate main = new JdbcTemplate(mainDataSource);
+        main.update("DELETE FROM shard_buckets");
+        main.update("DELETE FROM shard_directory WHERE user_id = ?", creatorId);
+        main.update("DELETE FROM subscriber_habits WHERE subscriber_id = ?", SUBSCRIBER_ID);
+        JdbcTemplate shard = shardJdbcTemplate();
+        shard.update("DELETE FROM subscriptions_cache");
+        shard.update("DELETE FROM habit_week_days");
+        shard.update("DELETE FROM habits");
+        shardMap.refresh();
+    }
+
+    @Test
+    void subscriberSeesHabitStoredOnAuthorsShard() throws Exception {
+        // Автор - любой пользователь из другого бакета, чем подписчик; его бакет переносится на shard-1
+        creatorId = SUBSCRIBER_ID + 1;
+        while (shardMap.bucketOf(creatorId) == shardMap.bucketOf(SUBSCRIBER_ID)) {
+            creatorId++;
+        }
+        shardMap.assign(List.of(shardMap.bucketOf(creatorId)), "shard-1", false);
+
+        // Проверка названия и сохранение привычки идут в шард автора
+        HabitCreationRequest request = HabitCreationRequest.builder()
+                .name(HABIT_NAME)
+                .isPhotoAllowed(false)
+                .frequencyType(FrequencyType.WEEKLY_ON_DAYS)
+                .daysOfWeek(EnumSet.allOf(DayOfWeek.class))
+                .build();
+        mockMvc.perform(post("/api/v1/habits/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(request))
+                        .header("X-User-Id", String.valueOf(creatorId)))
+                .andExpect(status().isCreated());
+
+        JdbcTemplate shard = shardJdbcTemplate();
+        Long habitId = shard.queryForObject("SELECT id FROM habits WHERE user_id = ?", Long.class, creatorId);
+
+        // Подписка в копии у автора привычки и в копии у подписчика (их ведут слушатели событий Subscription)
+        shard.update("INSERT INTO subscriptions_cache (habit_id, subscriber_id, creator_login) VALUES (?, ?, ?)",
+                habitId, SUBSCRIBER_ID, "creator");
+        new JdbcTemplate(mainDataSource).update(
+                "INSERT INTO subscriber_habits (subscriber_id, habit_id) VALUES (?, ?)", SUBSCRIBER_ID, habitId);
+
+        Mockito.when(reportClient.isCompletedAtDay(ArgumentMatchers.any(), ArgumentMatchers.eq(habitId),
+                ArgumentMatchers.any())).thenReturn(ResponseEntity.ok(ReportShortInfoResponse.builder()
+                .isCompleted(false)
+                .isPhotoUploaded(false)
+                .build()));
+
+        // Подписки читаются из основного шарда, а сама привычка, ее автор и число подписчиков - из shard-1
+        mockMvc.perform(get("/api/v1/habits/all-user-subscribed-habits/at-day/{date}", LocalDate.now())
+                        .header("X-User-Id", String.valueOf(SUBSCRIBER_ID)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].habitId").value(habitId))
+                .andExpect(jsonPath("$[0].name").value(HABIT_NAME))
+                .andExpect(jsonPath("$[0].creatorLogin").value("creator"))
+                .andExpect(jsonPath("$[0].subscribersCount").value(1));
+
+        assertThat(new JdbcTemplate(mainDataSource).queryForObject(
+                "SELECT count(*) FROM habits WHERE id = ?", Integer.class, habitId)).isEqualTo(0);
+    }
+
+    private JdbcTemplate shardJdbcTemplate() {
+        return new JdbcTemplate(shardDataSources.additional().get("shard-1"));
+    }
+
+}
@@ -0,0 +1,190 @@
+package com.vladmikhayl.habit.reactive;
+
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheProperties;
+import com.vladmikhayl.habit.dto.response.HabitGeneralInfoResponse;
+import com.vladmikhayl.habit.dto.response.HabitShortInfoResponse;
+import com.vladmikhayl.habit.dto.response.ReportShortInfoResponse;
+import com.vladmikhayl.habit.dto.response.SubscribedHabitShortInfoResponse;
+import com.vladmikhayl.habit.entity.Period;
+import com.vladmikhayl.habit.service.feign.ReportCallExecutor;
+import com.vladmikhayl.habit.service.feign.StaleValueCache;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+
+import static com.vladmikhayl.habit.entity.FrequencyType.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveHabitServiceTest {
+
+    // 12 апреля 2025 - суббота
+    private static final LocalDate TODAY_DATE = LocalDate.of(2025, 4, 12);
+
+    @Mock
+    private ReactiveHabitRepository habitRepository;
+
+    @Mock
+    private ReactiveSubscriptionCacheRepository subscriptionCacheRepository;
+
+    @Mock
+    private ReactiveReportClient reportClient;
+
+    private ReactiveHabitService underTest;
+
+    @BeforeEach
+    void setUp() {
+        ReportCallExecutor reportCallExecutor = new ReportCallExecutor(
+                CircuitBreakerRegistry.ofDefaults(),
+                new StaleValueCache(100, Duration.ofHours(1), Clock.systemDefaultZone()),
+                new SimpleMeterRegistry(),
+                new NearCacheManager(new NearCacheProperties(), invalidation -> {}, new SimpleMeterRegistry(),
+                        Clock.systemUTC())
+        );
+        Clock clock = Clock.fixed(TODAY_DATE.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        underTest = new ReactiveHabitService(
+                habitRepository, subscriptionCacheRepository, reportClient, reportCallExecutor, clock, 4);
+    }
+
+    @Test
+    void getAllUserHabitsAtDayReturnsOnlyCurrentHabitsInOrder() {
+        HabitRow notCurrentToday = habit(1L, 10L, WEEKLY_ON_DAYS, null, null);
+        HabitRow onSaturdays = habit(2L, 10L, WEEKLY_ON_DAYS, null, null);
+        HabitRow twiceAWeek = habit(3L, 10L, WEEKLY_X_TIMES, 2, null);
+
+        when(habitRepository.findAllByUserId(10L)).thenReturn(Flux.just(notCurrentToday, onSaturdays, twiceAWeek));
+        when(habitRepository.findDaysOfWeek(1L)).thenReturn(Flux.just(DayOfWeek.FRIDAY.ordinal()));
+        when(habitRepository.findDaysOfWeek(2L)).thenReturn(Flux.just(DayOfWeek.SATURDAY.ordinal()));
+
+        when(subscriptionCacheRepository.countByHabitId(2L)).thenReturn(Mono.just(3L));
+        when(subscriptionCacheRepository.countByHabitId(3L)).thenReturn(Mono.just(0L));
+        when(reportClient.isCompletedAtDay(2L, TODAY_DATE)).thenReturn(Mono.just(
+                ReportShortInfoResponse.builder().isCompleted(true).reportId(100L).build()));
+        when(reportClient.isCompletedAtDay(3L, TODAY_DATE)).thenReturn(Mono.just(
+                ReportShortInfoResponse.builder().isCompleted(false).build()));
+        when(reportClient.countCompletionsInPeriod(3L, Period.WEEK, TODAY_DATE)).thenReturn(Mono.just(1));
+
+        List<HabitShortInfoResponse> response = underTest.getAllUserHabitsAtDay(TODAY_DATE, "10").block();
+
+        assertThat(response).containsExactly(
+                HabitShortInfoResponse.builder()
+                        .habitId(2L)
+                        .name("Привычка 2")
+                        .subscribersCount(3)
+                        .frequencyType(WEEKLY_ON_DAYS)
+                        .isCompleted(true)
+                        .isPhotoAllowed(false)
+                        .isPhotoUploaded(false)
+                        .reportId(100L)
+                        .build(),
+                HabitShortInfoResponse.builder()
+                        .habitId(3L)
+                        .name("Привычка 3")
+                        .subscribersCount(0)
+                        .frequencyType(WEEKLY_X_TIMES)
+                        .completionsInPeriod(1)
+                        .completionsPlannedInPeriod(2)
+                        .isCompleted(false)
+                        .isPhotoAllowed(false)
+                        .isPhotoUploaded(false)
+                        .build()
+        );
+        verify(reportClient, never()).isCompletedAtDay(1L, TODAY_DATE);
+    }
+
+    @Test
+    void getAllUserSubscribedHabitsAtDayReturnsCreatorLogin() {
+        HabitRow monthly = habit(5L, 20L, MONTHLY_X_TIMES, null, 10);
+
+        when(subscriptionCacheRepository.findAllBySubscriberId(10L))
+                .thenReturn(Flux.just(new SubscriptionCacheRow(5L, 10L, "creator")));
+        when(habitRepository.findAllByIdIn(List.of(5L))).thenReturn(Flux.just(monthly));
+        when(subscriptionCacheRepository.findCreatorLogin(5L)).thenReturn(Mono.just("creator"));
+        when(subscriptionCacheRepository.countByHabitId(5L)).thenReturn(Mono.just(1L));
+        when(reportClient.isCompletedAtDay(5L, TODAY_DATE)).thenReturn(Mono.just(
+                ReportShortInfoResponse.builder().isCompleted(false).build()));
+        when(reportClient.countCompletionsInPeriod(5L, Period.MONTH, TODAY_DATE)).thenReturn(Mono.just(4));
+
+        List<SubscribedHabitShortInfoResponse> response =
+                underTest.getAllUserSubscribedHabitsAtDay(TODAY_DATE, "10").block();
+
+        assertThat(response).containsExactly(SubscribedHabitShortInfoResponse.builder()
+                .habitId(5L)
+                .creatorLogin("creator")
+                .name("Привычка 5")
+                .subscribersCount(1)
+                .frequencyType(MONTHLY_X_TIMES)
+                .completionsInPeriod(4)
+                .completionsPlannedInPeriod(10)
+                .isCompleted(false)
+                .isPhotoAllowed(false)
+                .isPhotoUploaded(false)
+                .build());
+        verify(habitRepository, never()).findDaysOfWeek(any());
+    }
+
+    @Test
+    void getGeneralInfoReturnsInfoForCreator() {
+        HabitRow habit = new HabitRow(7L, 10L, "Привычка 7", "Описание", true, 30, WEEKLY_ON_DAYS, null, null,
+                TODAY_DATE.minusDays(2).atStartOfDay());
+
+        when(habitRepository.existsByIdAndUserId(7L, 10L)).thenReturn(Mono.just(true));
+        when(subscriptionCacheRepository.existsByHabitIdAndSubscriberId(7L, 10L)).thenReturn(Mono.just(false));
+        when(habitRepository.findById(7L)).thenReturn(Mono.just(habit));
+        when(subscriptionCacheRepository.countByHabitId(7L)).thenReturn(Mono.just(2L));
+        when(habitRepository.findDaysOfWeek(7L)).thenReturn(Flux.just(DayOfWeek.MONDAY.ordinal()));
+
+        HabitGeneralInfoResponse response = underTest.getGeneralInfo(7L, "10").block();
+
+        assertThat(response).isEqualTo(HabitGeneralInfoResponse.builder()
+                .id(7L)
+                .name("Привычка 7")
+                .description("Описание")
+                .isPhotoAllowed(true)
+                .durationDays(30)
+                .howManyDaysLeft(28)
+                .frequencyType(WEEKLY_ON_DAYS)
+                .daysOfWeek(Set.of(DayOfWeek.MONDAY))
+                .createdAt(TODAY_DATE.minusDays(2).atStartOfDay())
+                .subscribersCount(2)
+                .build());
+    }
+
+    @Test
+    void getGeneralInfoFailsWhenUserIsNotCreatorAndIsNotSubscriber() {
+        when(habitRepository.existsByIdAndUserId(7L, 10L)).thenReturn(Mono.just(false));
+        when(subscriptionCacheRepository.existsByHabitIdAndSubscriberId(7L, 10L)).thenReturn(Mono.just(false));
+        when(habitRepository.findById(7L)).thenReturn(Mono.empty());
+
+        assertThatThrownBy(() -> underTest.getGeneralInfo(7L, "10").block())
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode())
+                        .isEqualTo(HttpStatus.FORBIDDEN));
+    }
+
+    private static HabitRow habit(Long id, Long userId, com.vladmikhayl.habit.entity.FrequencyType frequencyType,
+                                  Integer timesPerWeek, Integer timesPerMonth) {
+        return new HabitRow(id, userId, "Привычка " + id, null, false, null, frequencyType, timesPerWeek,
+                timesPerMonth, TODAY_DATE.minusDays(3).atStartOfDay());
+    }
+
+}
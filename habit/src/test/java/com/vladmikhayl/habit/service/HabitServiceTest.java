@@ -1,15 +1,31 @@
 package com.vladmikhayl.habit.service;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheProperties;
+import com.vladmikhayl.commons.data.shard.ShardRouter;
 import com.vladmikhayl.commons.dto.HabitCreatedEvent;
 import com.vladmikhayl.commons.dto.HabitDeletedEvent;
+import com.vladmikhayl.commons.dto.HabitEditedEvent;
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import com.vladmikhayl.commons.web.deadline.DeadlineExceededException;
 import com.vladmikhayl.habit.dto.request.HabitCreationRequest;
 import com.vladmikhayl.habit.dto.request.HabitEditingRequest;
 import com.vladmikhayl.habit.dto.response.*;
-import com.vladmikhayl.habit.entity.Period;
 import com.vladmikhayl.habit.entity.*;
+import com.vladmikhayl.habit.entity.Period;
 import com.vladmikhayl.habit.repository.HabitRepository;
+import com.vladmikhayl.habit.repository.HabitWithAccess;
+import com.vladmikhayl.habit.repository.SubscriberHabitRepository;
 import com.vladmikhayl.habit.repository.SubscriptionCacheRepository;
+import com.vladmikhayl.habit.service.feign.ReportCallExecutor;
 import com.vladmikhayl.habit.service.feign.ReportClient;
+import com.vladmikhayl.habit.service.feign.StaleValueCache;
+import feign.FeignException;
+import jakarta.persistence.EntityNotFoundException;
+import feign.Request;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.vladmikhayl.habit.service.kafka.HabitEventProducer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,10 +42,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
 import java.time.*;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.vladmikhayl.habit.entity.FrequencyType.*;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -58,17 +78,62 @@ class HabitServiceTest {
     @Mock
     private SubscriptionCacheRepository subscriptionCacheRepository;
 
+    @Mock
+    private SubscriberHabitRepository subscriberHabitRepository;
+
     @Mock
     private Clock clock;
 
+    // Near-cache выключены (каждый вызов доходит до моков), их поведение проверяется в ReportCallExecutorTest
+    private final NearCacheManager nearCacheManager = disabledNearCacheManager();
+
+    // Настоящий ReportCallExecutor (с circuit breaker'ами по умолчанию и своим кэшем на каждый тест),
+    // чтобы проверять и обычные ответы Report, и подстановку значений из кэша
+    @Spy
+    private ReportCallExecutor reportCallExecutor = new ReportCallExecutor(
+            CircuitBreakerRegistry.ofDefaults(),
+            new StaleValueCache(100, Duration.ofHours(1), Clock.systemDefaultZone()),
+            new SimpleMeterRegistry(),
+            nearCacheManager
+    );
+
+    @Spy
+    private NearCache<Long, Integer> subscribersCountNearCache = nearCacheManager.create("habit-subscribers-count");
+
     // Этот InternalHabitService (он внедрится в HabitService) будет не моком,
     // а реально выполняющим логику сервисом с моком HabitRepository
     @Spy
     private InternalHabitService internalHabitService = new InternalHabitService(habitRepository);
 
+    // Настоящая параллельная обработка привычек (несколько потоков), чтобы проверять и порядок результатов
+    @Spy
+    private ParallelFanOut parallelFanOut = new ParallelFanOut(4, 8, false);
+
+    // Без шардирования: задачи выполняются как есть, в основной БД
+    @Spy
+    private ShardRouter shardRouter = ShardRouter.unsharded();
+
     @InjectMocks
     private HabitService underTest;
 
+    private static NearCacheManager disabledNearCacheManager() {
+        NearCacheProperties properties = new NearCacheProperties();
+        properties.setEnabled(false);
+        return new NearCacheManager(properties, invalidation -> {}, new SimpleMeterRegistry(), Clock.systemUTC());
+    }
+
+    // Копия подписок на шарде подписчика (subscriber_habits) для тех же подписок
+    private static List<SubscriberHabit> subscriberHabitsOf(SubscriptionCache... subscriptions) {
+        return Arrays.stream(subscriptions)
+                .map(subscription -> SubscriberHabit.builder()
+                        .id(SubscriberHabitId.builder()
+                                .subscriberId(subscription.getId().getSubscriberId())
+                                .habitId(subscription.getId().getHabitId())
+                                .build())
+                        .build())
+                .toList();
+    }
+
     @BeforeEach
     void setUp() {
         // Указываем, что при вызове LocalDate.now(clock) в методах сервиса, нужно возвращать TODAY_DATE
@@ -239,6 +304,92 @@ class HabitServiceTest {
         verify(habitEventProducer, never()).sendHabitCreatedEvent(any());
     }
 
+    @Test
+    void createdHabitIsDeletedWhenItCannotBeRegisteredInShardDirectory() {
+        HabitCreationRequest request = HabitCreationRequest.builder()
+                .name("Чистить зубы 2 раза в день")
+                .isPhotoAllowed(false)
+                .frequencyType(FrequencyType.WEEKLY_X_TIMES)
+                .timesPerWeek(5)
+                .build();
+
+        String userIdStr = "1";
+        Long userId = 1L;
+
+        Habit savedHabit = Habit.builder()
+                .id(30L)
+                .userId(userId)
+                .name("Чистить зубы 2 раза в день")
+                .build();
+
+        when(habitRepository.existsByUserIdAndName(userId, request.getName())).thenReturn(false);
+
+        when(habitRepository.save(any(Habit.class))).thenReturn(savedHabit);
+
+        // Основная БД с каталогом шардирования недоступна
+        doThrow(new IllegalStateException("Нет соединения с основной БД"))
+                .when(shardRouter).registerEntity(30L, userId);
+
+        assertThatThrownBy(() -> underTest.createHabit(request, userIdStr))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(habitRepository).delete(savedHabit);
+
+        verify(habitEventProducer, never()).sendHabitCreatedEvent(any());
+    }
+
+    @Test
+    void createdHabitIsDeletedEvenWhenDeadlinePassesDuringShardDirectoryRegistration() {
+        HabitCreationRequest request = HabitCreationRequest.builder()
+                .name("Чистить зубы 2 раза в день")
+                .isPhotoAllowed(false)
+                .frequencyType(FrequencyType.WEEKLY_X_TIMES)
+                .timesPerWeek(5)
+                .build();
+
+        String userIdStr = "1";
+        Long userId = 1L;
+
+        Habit savedHabit = Habit.builder()
+                .id(30L)
+                .userId(userId)
+                .name("Чистить зубы 2 раза в день")
+                .build();
+
+        when(habitRepository.existsByUserIdAndName(userId, request.getName())).thenReturn(false);
+
+        when(habitRepository.save(any(Habit.class))).thenReturn(savedHabit);
+
+        // Основная БД с каталогом ответила уже после дедлайна запроса
+        Deadline.start(Duration.ofSeconds(1));
+        doAnswer(invocation -> {
+            Deadline.start(Duration.ofMillis(-1));
+            throw new DeadlineExceededException();
+        }).when(shardRouter).registerEntity(30L, userId);
+
+        // Как DeadlineStatementInspector: с прошедшим дедлайном запрос в БД не отправился бы
+        AtomicBoolean deleted = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Deadline.throwIfExpired();
+            deleted.set(true);
+            return null;
+        }).when(habitRepository).delete(savedHabit);
+
+        try {
+            assertThatThrownBy(() -> underTest.createHabit(request, userIdStr))
+                    .isInstanceOf(DeadlineExceededException.class);
+
+            assertThat(deleted.get()).isTrue();
+
+            verify(habitEventProducer, never()).sendHabitCreatedEvent(any());
+
+            // После удаления дедлайн запроса восстановлен
+            assertThat(Deadline.isExpired()).isTrue();
+        } finally {
+            Deadline.clear();
+        }
+    }
+
     @Test
     void canMaxEditHabit() {
         Habit habit = Habit.builder()
@@ -270,6 +421,13 @@ class HabitServiceTest {
         assertThat(habit.getDescription()).isEqualTo("Новое описание привычки");
 //        assertThat(habit.isHarmful()).isTrue();
         assertThat(habit.getDurationDays()).isEqualTo(60);
+
+        ArgumentCaptor<HabitEditedEvent> habitEditedEventArgumentCaptor =
+                ArgumentCaptor.forClass(HabitEditedEvent.class);
+
+        verify(habitEventProducer).sendHabitEditedEvent(habitEditedEventArgumentCaptor.capture());
+
+        assertThat(habitEditedEventArgumentCaptor.getValue().habitId()).isEqualTo(2L);
     }
 
 //    @Test
@@ -390,6 +548,8 @@ class HabitServiceTest {
                     assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
                 })
                 .hasMessageContaining("У текущего пользователя отсутствует указанная привычка");
+
+        verify(habitEventProducer, never()).sendHabitEditedEvent(any());
     }
 
 //    @Test
@@ -515,13 +675,6 @@ class HabitServiceTest {
 
         LocalDateTime createdAt = LocalDateTime.of(2025, 4, 10, 12, 40);
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(true);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(false);
-
         Habit existingHabit = Habit.builder()
                 .id(habitId)
                 .frequencyType(WEEKLY_ON_DAYS)
@@ -531,7 +684,8 @@ class HabitServiceTest {
                 .createdAt(createdAt)
                 .build();
 
-        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(existingHabit, true, 0)));
 
         when(reportClient.getReportsInfo(
                 testInternalToken,
@@ -556,13 +710,6 @@ class HabitServiceTest {
 
         LocalDateTime createdAt = LocalDateTime.of(2025, 4, 10, 12, 40);
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(true);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(false);
-
         Habit existingHabit = Habit.builder()
                 .id(habitId)
                 .frequencyType(FrequencyType.WEEKLY_X_TIMES)
@@ -572,7 +719,8 @@ class HabitServiceTest {
                 .createdAt(createdAt)
                 .build();
 
-        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(existingHabit, true, 0)));
 
         when(reportClient.getReportsInfo(
                 testInternalToken,
@@ -597,13 +745,6 @@ class HabitServiceTest {
 
         LocalDateTime createdAt = LocalDateTime.of(2025, 4, 10, 12, 40);
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(false);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(true);
-
         Habit existingHabit = Habit.builder()
                 .id(habitId)
                 .frequencyType(FrequencyType.MONTHLY_X_TIMES)
@@ -613,7 +754,8 @@ class HabitServiceTest {
                 .createdAt(createdAt)
                 .build();
 
-        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(existingHabit, true, 0)));
 
         when(reportClient.getReportsInfo(
                 testInternalToken,
@@ -636,12 +778,8 @@ class HabitServiceTest {
         Long userId = 10L;
         Long habitId = 52L;
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(false);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(false);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(Habit.builder().id(habitId).build(), false, 0)));
 
         assertThatThrownBy(() -> underTest.getReportsInfo(habitId, userIdStr))
                 .isInstanceOf(ResponseStatusException.class)
@@ -662,12 +800,8 @@ class HabitServiceTest {
 
         LocalDate date = LocalDate.of(2025, 4, 10);
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(true);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(false);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(Habit.builder().id(habitId).build(), true, 0)));
 
         when(reportClient.getReportAtDay(testInternalToken, habitId, date))
                 .thenReturn(ResponseEntity.ok(ReportFullInfoResponse.builder().build()));
@@ -685,12 +819,8 @@ class HabitServiceTest {
 
         LocalDate date = LocalDate.of(2025, 4, 10);
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(false);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(true);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(Habit.builder().id(habitId).build(), true, 0)));
 
         when(reportClient.getReportAtDay(testInternalToken, habitId, date))
                 .thenReturn(ResponseEntity.ok(ReportFullInfoResponse.builder().build()));
@@ -701,19 +831,45 @@ class HabitServiceTest {
     }
 
     @Test
-    void failGetReportAtDayWhenUserIsNotCreatorAndIsNotSubscriber() {
+    void getReportAtDayReturnsStaleReportWhenReportIsUnavailable() {
         String userIdStr = "10";
         Long userId = 10L;
         Long habitId = 52L;
 
         LocalDate date = LocalDate.of(2025, 4, 10);
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(false);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(Habit.builder().id(habitId).build(), true, 0)));
 
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(false);
+        ReportFullInfoResponse report = ReportFullInfoResponse.builder()
+                .reportId(25L)
+                .isCompleted(true)
+                .build();
+
+        Request request = Request.create(Request.HttpMethod.GET, "http://gateway/internal/reports", Map.of(),
+                null, StandardCharsets.UTF_8, null);
+
+        when(reportClient.getReportAtDay(testInternalToken, habitId, date))
+                .thenReturn(ResponseEntity.ok(report))
+                .thenThrow(new FeignException.ServiceUnavailable("unavailable", request, null, null));
+
+        ReportFullInfoResponse freshResponse = underTest.getReportAtDay(habitId, date, userIdStr);
+        ReportFullInfoResponse staleResponse = underTest.getReportAtDay(habitId, date, userIdStr);
+
+        assertThat(freshResponse.getIsStale()).isNull();
+        assertThat(staleResponse).isEqualTo(report.toBuilder().isStale(true).build());
+    }
+
+    @Test
+    void failGetReportAtDayWhenUserIsNotCreatorAndIsNotSubscriber() {
+        String userIdStr = "10";
+        Long userId = 10L;
+        Long habitId = 52L;
+
+        LocalDate date = LocalDate.of(2025, 4, 10);
+
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(Habit.builder().id(habitId).build(), false, 0)));
 
         assertThatThrownBy(() -> underTest.getReportAtDay(habitId, date, userIdStr))
                 .isInstanceOf(ResponseStatusException.class)
@@ -734,13 +890,6 @@ class HabitServiceTest {
 
         LocalDateTime createdAt = TODAY_DATE.atStartOfDay();
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(true);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(false);
-
         Habit existingHabit = Habit.builder()
                 .id(habitId)
                 .userId(userId)
@@ -752,9 +901,8 @@ class HabitServiceTest {
                 .createdAt(createdAt)
                 .build();
 
-        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
-
-        when(subscriptionCacheRepository.countById_HabitId(habitId)).thenReturn(3);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(existingHabit, true, 3)));
 
         HabitGeneralInfoResponse response = underTest.getGeneralInfo(habitId, userIdStr);
 
@@ -777,13 +925,6 @@ class HabitServiceTest {
 
         LocalDateTime createdAt = TODAY_DATE.atStartOfDay();
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(true);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(false);
-
         Habit existingHabit = Habit.builder()
                 .id(habitId)
                 .userId(userId)
@@ -795,9 +936,8 @@ class HabitServiceTest {
                 .createdAt(createdAt)
                 .build();
 
-        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
-
-        when(subscriptionCacheRepository.countById_HabitId(habitId)).thenReturn(0);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(existingHabit, true, 0)));
 
         HabitGeneralInfoResponse response = underTest.getGeneralInfo(habitId, userIdStr);
 
@@ -820,13 +960,6 @@ class HabitServiceTest {
 
         LocalDateTime createdAt = TODAY_DATE.minusDays(2).atStartOfDay();
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(false);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(true);
-
         Habit existingHabit = Habit.builder()
                 .id(habitId)
                 .userId(userId)
@@ -838,9 +971,8 @@ class HabitServiceTest {
                 .createdAt(createdAt)
                 .build();
 
-        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
-
-        when(subscriptionCacheRepository.countById_HabitId(habitId)).thenReturn(10);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(existingHabit, true, 10)));
 
         HabitGeneralInfoResponse response = underTest.getGeneralInfo(habitId, userIdStr);
 
@@ -863,13 +995,6 @@ class HabitServiceTest {
 
         LocalDateTime createdAt = TODAY_DATE.minusDays(4).atStartOfDay();
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(false);
-
-        when(subscriptionCacheRepository.existsById(argThat(id ->
-                id.getHabitId().equals(habitId) &&
-                        id.getSubscriberId().equals(userId)
-        ))).thenReturn(true);
-
         Habit existingHabit = Habit.builder()
                 .id(habitId)
                 .userId(userId)
@@ -881,9 +1006,8 @@ class HabitServiceTest {
                 .createdAt(createdAt)
                 .build();
 
-        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
-
-        when(subscriptionCacheRepository.countById_HabitId(habitId)).thenReturn(10);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(existingHabit, true, 10)));
 
         HabitGeneralInfoResponse response = underTest.getGeneralInfo(habitId, userIdStr);
 
@@ -904,7 +1028,25 @@ class HabitServiceTest {
         Long userId = 10L;
         Long habitId = 52L;
 
-        when(habitRepository.existsByIdAndUserId(habitId, userId)).thenReturn(false);
+        when(habitRepository.findWithAccess(habitId, userId))
+                .thenReturn(Optional.of(new HabitWithAccess(Habit.builder().id(habitId).build(), false, 0)));
+
+        assertThatThrownBy(() -> underTest.getGeneralInfo(habitId, userIdStr))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> {
+                    ResponseStatusException e = (ResponseStatusException) ex;
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+                })
+                .hasMessageContaining("Отсутствует доступ к указанной привычке");
+    }
+
+    @Test
+    void failGetGeneralInfoWithForbiddenWhenHabitDoesNotExistAndUserIsNotSubscriber() {
+        String userIdStr = "10";
+        Long userId = 10L;
+        Long habitId = 52L;
+
+        when(habitRepository.findWithAccess(habitId, userId)).thenReturn(Optional.empty());
 
         when(subscriptionCacheRepository.existsById(argThat(id ->
                 id.getHabitId().equals(habitId) &&
@@ -916,8 +1058,25 @@ class HabitServiceTest {
                 .satisfies(ex -> {
                     ResponseStatusException e = (ResponseStatusException) ex;
                     assertThat(e.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
-                })
-                .hasMessageContaining("Отсутствует доступ к указанной привычке");
+                });
+    }
+
+    @Test
+    void failGetGeneralInfoWithNotFoundWhenHabitDoesNotExistButUserIsSubscriber() {
+        String userIdStr = "10";
+        Long userId = 10L;
+        Long habitId = 52L;
+
+        when(habitRepository.findWithAccess(habitId, userId)).thenReturn(Optional.empty());
+
+        when(subscriptionCacheRepository.existsById(argThat(id ->
+                id.getHabitId().equals(habitId) &&
+                        id.getSubscriberId().equals(userId)
+        ))).thenReturn(true);
+
+        assertThatThrownBy(() -> underTest.getGeneralInfo(habitId, userIdStr))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessageContaining("Привычка не найдена");
     }
 
     @Test
@@ -962,9 +1121,9 @@ class HabitServiceTest {
 
         when(habitRepository.findAllByUserId(userId)).thenReturn(List.of(existingHabit1, existingHabit2));
 
-        when(habitRepository.findByIdAndUserId(1L, userId)).thenReturn(Optional.of(existingHabit1));
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(existingHabit1));
 
-        when(habitRepository.findByIdAndUserId(2L, userId)).thenReturn(Optional.of(existingHabit2));
+        when(habitRepository.findById(2L)).thenReturn(Optional.of(existingHabit2));
 
         List<HabitShortInfoResponse> response = underTest.getAllUserHabitsAtDay(TODAY_DATE, userIdStr);
 
@@ -1002,9 +1161,9 @@ class HabitServiceTest {
 
         when(habitRepository.findAllByUserId(userId)).thenReturn(List.of(existingHabit1, existingHabit2));
 
-        when(habitRepository.findByIdAndUserId(1L, userId)).thenReturn(Optional.of(existingHabit1));
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(existingHabit1));
 
-        when(habitRepository.findByIdAndUserId(2L, userId)).thenReturn(Optional.of(existingHabit2));
+        when(habitRepository.findById(2L)).thenReturn(Optional.of(existingHabit2));
 
         when(subscriptionCacheRepository.countById_HabitId(2L)).thenReturn(3);
 
@@ -1092,13 +1251,13 @@ class HabitServiceTest {
                 existingHabit1, existingHabit2, existingHabit3, existingHabit4
         ));
 
-        when(habitRepository.findByIdAndUserId(1L, userId)).thenReturn(Optional.of(existingHabit1));
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(existingHabit1));
 
-        when(habitRepository.findByIdAndUserId(2L, userId)).thenReturn(Optional.of(existingHabit2));
+        when(habitRepository.findById(2L)).thenReturn(Optional.of(existingHabit2));
 
-        when(habitRepository.findByIdAndUserId(3L, userId)).thenReturn(Optional.of(existingHabit3));
+        when(habitRepository.findById(3L)).thenReturn(Optional.of(existingHabit3));
 
-        when(habitRepository.findByIdAndUserId(4L, userId)).thenReturn(Optional.of(existingHabit4));
+        when(habitRepository.findById(4L)).thenReturn(Optional.of(existingHabit4));
 
         when(subscriptionCacheRepository.countById_HabitId(2L)).thenReturn(3);
 
@@ -1181,7 +1340,7 @@ class HabitServiceTest {
         String userIdStr = "10";
         Long userId = 10L;
 
-        when(subscriptionCacheRepository.findAllById_SubscriberId(userId)).thenReturn(List.of());
+        when(subscriberHabitRepository.findAllById_SubscriberId(userId)).thenReturn(List.of());
 
         when(habitRepository.findAllByIdIn(List.of())).thenReturn(List.of());
 
@@ -1206,7 +1365,7 @@ class HabitServiceTest {
                 .creatorLogin("user2")
                 .build();
 
-        when(subscriptionCacheRepository.findAllById_SubscriberId(userId)).thenReturn(List.of(existingSubscription));
+        when(subscriberHabitRepository.findAllById_SubscriberId(userId)).thenReturn(subscriberHabitsOf(existingSubscription));
 
         // Эта привычка не будет текущей в TODAY_DATE (так как неподходящий день недели)
         Habit existingHabit = Habit.builder()
@@ -1222,7 +1381,7 @@ class HabitServiceTest {
 
         when(habitRepository.findAllByIdIn(List.of(1L))).thenReturn(List.of(existingHabit));
 
-        when(habitRepository.findByIdAndUserId(1L, 2L)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(existingHabit));
 
         List<SubscribedHabitShortInfoResponse> response = underTest.getAllUserSubscribedHabitsAtDay(TODAY_DATE, userIdStr);
 
@@ -1254,7 +1413,7 @@ class HabitServiceTest {
                 .creatorLogin("user3")
                 .build();
 
-        when(subscriptionCacheRepository.findAllById_SubscriberId(userId)).thenReturn(List.of(
+        when(subscriberHabitRepository.findAllById_SubscriberId(userId)).thenReturn(subscriberHabitsOf(
                 existingSubscription1, existingSubscription2
         ));
 
@@ -1287,9 +1446,9 @@ class HabitServiceTest {
                 existingHabit1, existingHabit2
         ));
 
-        when(habitRepository.findByIdAndUserId(1L, 2L)).thenReturn(Optional.of(existingHabit1));
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(existingHabit1));
 
-        when(habitRepository.findByIdAndUserId(2L, 3L)).thenReturn(Optional.of(existingHabit2));
+        when(habitRepository.findById(2L)).thenReturn(Optional.of(existingHabit2));
 
         when(subscriptionCacheRepository.findAllById_HabitId(2L)).thenReturn(List.of(existingSubscription2));
 
@@ -1348,7 +1507,7 @@ class HabitServiceTest {
                 .creatorLogin("user2")
                 .build();
 
-        when(subscriptionCacheRepository.findAllById_SubscriberId(userId)).thenReturn(List.of(
+        when(subscriberHabitRepository.findAllById_SubscriberId(userId)).thenReturn(subscriberHabitsOf(
                 existingSubscription1, existingSubscription2
         ));
 
@@ -1383,7 +1542,7 @@ class HabitServiceTest {
 
         // Стабы для привычки 1
 
-        when(habitRepository.findByIdAndUserId(1L, 2L)).thenReturn(Optional.of(existingHabit1));
+        when(habitRepository.findById(1L)).thenReturn(Optional.of(existingHabit1));
 
         when(subscriptionCacheRepository.findAllById_HabitId(1L)).thenReturn(List.of(existingSubscription1));
 
@@ -1402,7 +1561,7 @@ class HabitServiceTest {
 
         // Стабы для привычки 2
 
-        when(habitRepository.findByIdAndUserId(2L, 2L)).thenReturn(Optional.of(existingHabit2));
+        when(habitRepository.findById(2L)).thenReturn(Optional.of(existingHabit2));
 
         when(subscriptionCacheRepository.findAllById_HabitId(2L)).thenReturn(List.of(existingSubscription2));
 
@@ -1,5 +1,6 @@
 package com.vladmikhayl.habit.service;
 
+import com.vladmikhayl.habit.dto.request.HabitAtDayRequest;
 import com.vladmikhayl.habit.entity.FrequencyType;
 import com.vladmikhayl.habit.entity.Habit;
 import com.vladmikhayl.habit.repository.HabitRepository;
@@ -12,10 +13,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,7 +47,7 @@ class InternalHabitServiceTest {
                 .createdAt(LocalDateTime.of(2025, 4, 7, 12, 30))
                 .build();
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isTrue();
@@ -63,7 +68,7 @@ class InternalHabitServiceTest {
                 .createdAt(LocalDateTime.of(2025, 4, 7, 12, 30))
                 .build();
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isTrue();
@@ -84,7 +89,7 @@ class InternalHabitServiceTest {
                 .createdAt(LocalDateTime.of(2025, 4, 7, 12, 30))
                 .build();
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isTrue();
@@ -105,7 +110,7 @@ class InternalHabitServiceTest {
                 .createdAt(LocalDateTime.of(2025, 4, 7, 12, 30))
                 .build();
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isFalse();
@@ -117,7 +122,28 @@ class InternalHabitServiceTest {
         Long userId = 12L;
         LocalDate date = LocalDate.of(2025, 4, 9);
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.empty());
+        when(habitRepository.findById(habitId)).thenReturn(Optional.empty());
+
+        boolean isCurrent = underTest.isCurrent(habitId, userId, date);
+        assertThat(isCurrent).isFalse();
+    }
+
+    @Test
+    void testIsCurrentWhenHabitBelongsToAnotherUser() {
+        Long habitId = 59L;
+        Long userId = 12L;
+        LocalDate date = LocalDate.of(2025, 4, 7);
+
+        Habit existingHabit = Habit.builder()
+                .id(habitId)
+                .userId(13L)
+                .frequencyType(FrequencyType.WEEKLY_X_TIMES)
+                .timesPerWeek(4)
+                .durationDays(null)
+                .createdAt(LocalDateTime.of(2025, 4, 7, 12, 30))
+                .build();
+
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isFalse();
@@ -138,7 +164,7 @@ class InternalHabitServiceTest {
                 .createdAt(LocalDateTime.of(2025, 4, 9, 0, 0))
                 .build();
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isFalse();
@@ -159,7 +185,7 @@ class InternalHabitServiceTest {
                 .createdAt(LocalDateTime.of(2025, 3, 26, 12, 30))
                 .build();
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isFalse();
@@ -180,10 +206,37 @@ class InternalHabitServiceTest {
                 .createdAt(LocalDateTime.of(2025, 3, 27, 12, 30))
                 .build();
 
-        when(habitRepository.findByIdAndUserId(habitId, userId)).thenReturn(Optional.of(existingHabit));
+        when(habitRepository.findById(habitId)).thenReturn(Optional.of(existingHabit));
 
         boolean isCurrent = underTest.isCurrent(habitId, userId, date);
         assertThat(isCurrent).isTrue();
     }
 
-}
\ No newline at end of file
+    @Test
+    void testAreCurrentChecksAllPairsWithOneQuery() {
+        Long userId = 12L;
+
+        Habit weeklyOnMondays = Habit.builder()
+                .id(1L)
+                .userId(userId)
+                .frequencyType(FrequencyType.WEEKLY_ON_DAYS)
+                .daysOfWeek(Set.of(DayOfWeek.MONDAY))
+                .createdAt(LocalDateTime.of(2025, 4, 7, 12, 30))
+                .build();
+
+        // Привычку 2 другого пользователя запрос не возвращает
+        when(habitRepository.findAllWithDaysOfWeekByIdInAndUserId(List.of(1L, 2L, 3L), userId))
+                .thenReturn(List.of(weeklyOnMondays));
+
+        List<Boolean> areCurrent = underTest.areCurrent(userId, List.of(
+                HabitAtDayRequest.builder().habitId(1L).date(LocalDate.of(2025, 4, 14)).build(),
+                HabitAtDayRequest.builder().habitId(1L).date(LocalDate.of(2025, 4, 15)).build(),
+                HabitAtDayRequest.builder().habitId(2L).date(LocalDate.of(2025, 4, 14)).build(),
+                HabitAtDayRequest.builder().habitId(3L).date(LocalDate.of(2025, 4, 14)).build()
+        ));
+
+        assertThat(areCurrent).containsExactly(true, false, false, false);
+        verify(habitRepository, never()).findById(anyLong());
+    }
+
+}
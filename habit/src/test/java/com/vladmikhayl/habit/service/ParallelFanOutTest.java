@@ -0,0 +1,135 @@
+package com.vladmikhayl.habit.service;
+
+import com.vladmikhayl.commons.web.deadline.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelFanOutTest {
+
+    private ParallelFanOut underTest = new ParallelFanOut(4, 8, false);
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+        Deadline.clear();
+    }
+
+    @Test
+    void keepsOrderOfItemsAndSkipsEmptyResults() {
+        List<Integer> items = IntStream.rangeClosed(1, 20).boxed().toList();
+
+        List<Integer> result = underTest.map(items, item -> {
+            // Первые элементы обрабатываются дольше, чтобы они закончились позже последующих
+            sleepQuietly(item <= 4 ? 30 : 1);
+            return item % 5 == 0 ? Optional.empty() : Optional.of(item * 10);
+        });
+
+        assertThat(result).isEqualTo(items.stream().filter(item -> item % 5 != 0).map(item -> item * 10).toList());
+    }
+
+    @Test
+    void processesAtMostParallelismItemsOfOneRequestAtOnce() {
+        AtomicInteger inProgress = new AtomicInteger();
+        AtomicInteger maxInProgress = new AtomicInteger();
+
+        underTest.map(IntStream.range(0, 20).boxed().toList(), item -> {
+            maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+            sleepQuietly(10);
+            inProgress.decrementAndGet();
+            return Optional.of(item);
+        });
+
+        assertThat(maxInProgress.get()).isBetween(2, 4);
+    }
+
+    @Test
+    void rethrowsFailureOfItemAndStopsTakingNewItems() {
+        AtomicInteger processed = new AtomicInteger();
+
+        assertThatThrownBy(() -> underTest.map(IntStream.range(0, 100).boxed().toList(), item -> {
+            processed.incrementAndGet();
+            if (item == 2) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
+            }
+            sleepQuietly(5);
+            return Optional.of(item);
+        }))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThat(processed.get()).isLessThan(100);
+    }
+
+    @Test
+    void processesItemsInRequestThreadWhenAllThreadsAreBusy() throws Exception {
+        underTest = new ParallelFanOut(4, 1, false);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        // Первый запрос занимает единственный вспомогательный поток
+        Thread firstRequest = new Thread(() -> underTest.map(List.of(1, 2), item -> {
+            started.countDown();
+            awaitQuietly(release);
+            return Optional.of(item);
+        }));
+        firstRequest.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Integer> result = underTest.map(List.of(1, 2, 3), item -> {
+            threads.add(Thread.currentThread().getName());
+            return Optional.of(item);
+        });
+
+        release.countDown();
+        firstRequest.join(5000);
+
+        assertThat(result).containsExactly(1, 2, 3);
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    void passesDeadlineOfRequestToOtherThreads() {
+        Deadline.start(Duration.ofSeconds(3));
+
+        List<Boolean> result = underTest.map(IntStream.range(0, 8).boxed().toList(), item -> {
+            sleepQuietly(5);
+            return Optional.of(Deadline.remaining().isPresent());
+        });
+
+        assertThat(result).containsOnly(true);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.vladmikhayl.habit.service.feign;
+
+import com.vladmikhayl.commons.cache.nearcache.NearCacheInvalidation;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheProperties;
+import feign.FeignException;
+import feign.Request;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportCallExecutorTest {
+
+    private static final String ENDPOINT = ReportCallExecutor.IS_COMPLETED;
+
+    private static final Request REQUEST = Request.create(
+            Request.HttpMethod.GET, "http://gateway/internal/reports", Map.of(), null, StandardCharsets.UTF_8, null);
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private StaleValueCache staleValueCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ReportCallExecutor underTest;
+
+    @BeforeEach
+    void setUp() {
+        // Breaker открывается после 4 вызовов, из которых хотя бы половина неудачные
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .permittedNumberOfCallsInHalfOpenState(1)
+                .ignoreExceptions(FeignException.FeignClientException.class)
+                .build());
+        staleValueCache = new StaleValueCache(100, Duration.ofHours(1), Clock.systemDefaultZone());
+        meterRegistry = new SimpleMeterRegistry();
+        // Near-cache здесь выключен, чтобы каждый вызов доходил до breaker'а (он проверяется отдельными тестами)
+        underTest = new ReportCallExecutor(circuitBreakerRegistry, staleValueCache, meterRegistry, nearCacheManager(false));
+    }
+
+    @Test
+    void returnsFreshValueAndRemembersIt() {
+        ReportCallResult<Integer> result = underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+
+        assertThat(result).isEqualTo(new ReportCallResult<>(5, false));
+        assertThat(staleValueCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void returnsStaleValueWhenReportIsUnavailable() {
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+
+        ReportCallResult<Integer> result = underTest.execute(ENDPOINT, List.of(1L), unavailable());
+
+        assertThat(result).isEqualTo(new ReportCallResult<>(5, true));
+    }
+
+    @Test
+    void staleValueIsTakenOnlyForSameArguments() {
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+
+        assertThatThrownBy(() -> underTest.execute(ENDPOINT, List.of(2L), unavailable()))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode())
+                        .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    void throwsBadGatewayOnClientErrorEvenIfStaleValueExists() {
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+
+        assertThatThrownBy(() -> underTest.execute(ENDPOINT, List.of(1L), () -> {
+            throw new FeignException.NotFound("not found", REQUEST, null, null);
+        }))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode())
+                        .isEqualTo(HttpStatus.BAD_GATEWAY));
+
+        // 4xx не считаются сбоями Report
+        assertThat(circuitBreakerRegistry.circuitBreaker(ENDPOINT).getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void stopsCallingReportWhenBreakerIsOpen() {
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+        for (int i = 0; i < 3; i++) {
+            underTest.execute(ENDPOINT, List.of(1L), unavailable());
+        }
+        assertThat(circuitBreakerRegistry.circuitBreaker(ENDPOINT).getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        AtomicInteger calls = new AtomicInteger();
+        ReportCallResult<Integer> result = underTest.execute(ENDPOINT, List.of(1L), () -> {
+            calls.incrementAndGet();
+            return ResponseEntity.ok(6);
+        });
+
+        assertThat(calls.get()).isZero();
+        assertThat(result).isEqualTo(new ReportCallResult<>(5, true));
+
+        // У других эндпоинтов свои breaker'ы
+        assertThat(underTest.execute(ReportCallExecutor.REPORTS_INFO, List.of(1L), () -> ResponseEntity.ok(7)))
+                .isEqualTo(new ReportCallResult<>(7, false));
+    }
+
+    @Test
+    void closesBreakerAfterSuccessfulProbeInHalfOpenState() {
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> underTest.execute(ENDPOINT, List.of(1L), unavailable()))
+                    .isInstanceOf(ResponseStatusException.class);
+        }
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(ENDPOINT);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        circuitBreaker.transitionToHalfOpenState();
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void doesNotReturnTooOldStaleValues() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-04-12T10:00:00Z"));
+        staleValueCache = new StaleValueCache(100, Duration.ofMinutes(10), clock);
+        underTest = new ReportCallExecutor(circuitBreakerRegistry, staleValueCache, meterRegistry, nearCacheManager(false));
+
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+        clock.instant = clock.instant.plus(Duration.ofMinutes(11));
+
+        assertThatThrownBy(() -> underTest.execute(ENDPOINT, List.of(1L), unavailable()))
+                .isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void collapsesConcurrentIdenticalCalls() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<ReportCallResult<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> underTest.execute(ENDPOINT, List.of(1L), () -> {
+                    calls.incrementAndGet();
+                    awaitQuietly(release);
+                    return ResponseEntity.ok(5);
+                })));
+            }
+
+            // Ждем, пока один поток начнет запрос в Report, а остальные встанут в ожидание его ответа
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (collapsedCount() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<ReportCallResult<Integer>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(new ReportCallResult<>(5, false));
+            }
+            assertThat(calls.get()).isEqualTo(1);
+            assertThat(collapsedCount()).isEqualTo(3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncCallReturnsStaleValueWhenReportIsUnavailable() {
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+
+        ReportCallResult<Integer> result = underTest.executeAsync(ENDPOINT, List.of(1L), Mono.<Integer>error(
+                WebClientResponseException.create(503, "Service Unavailable", null, null, null))).block();
+
+        assertThat(result).isEqualTo(new ReportCallResult<>(5, true));
+        assertThat(circuitBreakerRegistry.circuitBreaker(ENDPOINT).getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void asyncCallThrowsBadGatewayOnClientErrorWithoutCountingFailure() {
+        assertThatThrownBy(() -> underTest.executeAsync(ENDPOINT, List.of(1L), Mono.<Integer>error(
+                WebClientResponseException.create(404, "Not Found", null, null, null))).block())
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> assertThat(((ResponseStatusException) ex).getStatusCode())
+                        .isEqualTo(HttpStatus.BAD_GATEWAY));
+
+        assertThat(circuitBreakerRegistry.circuitBreaker(ENDPOINT).getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void asyncAndBlockingCallsShareBreakerAndCache() {
+        ReportCallResult<Integer> fresh = underTest.executeAsync(ENDPOINT, List.of(1L), Mono.just(5)).block();
+        assertThat(fresh).isEqualTo(new ReportCallResult<>(5, false));
+
+        // Значение, полученное реактивным вызовом, подставляется и в обычный, когда Report недоступен
+        assertThat(underTest.execute(ENDPOINT, List.of(1L), unavailable())).isEqualTo(new ReportCallResult<>(5, true));
+        assertThat(circuitBreakerRegistry.circuitBreaker(ENDPOINT).getMetrics().getNumberOfBufferedCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsFreshAnswersInNearCacheUntilReportInvalidatesHabit() {
+        NearCacheManager nearCacheManager = nearCacheManager(true);
+        underTest = new ReportCallExecutor(circuitBreakerRegistry, staleValueCache, meterRegistry, nearCacheManager);
+        AtomicInteger calls = new AtomicInteger();
+
+        underTest.execute(ENDPOINT, List.of(1L, "2025-04-12"), () -> ResponseEntity.ok(calls.incrementAndGet()));
+        underTest.execute(ReportCallExecutor.REPORTS_INFO, List.of(1L), () -> ResponseEntity.ok(calls.incrementAndGet()));
+        assertThat(underTest.execute(ENDPOINT, List.of(1L, "2025-04-12"), () -> ResponseEntity.ok(calls.incrementAndGet())))
+                .isEqualTo(new ReportCallResult<>(1, false));
+        assertThat(calls.get()).isEqualTo(2);
+
+        // Report сохранил отчет о привычке 1 на другом экземпляре: сбрасываются все ответы по этой привычке
+        nearCacheManager.onInvalidation(new NearCacheInvalidation(
+                ReportCallExecutor.REPORT_STATUS_CACHE, "1", "report-instance", System.currentTimeMillis()));
+
+        assertThat(underTest.execute(ENDPOINT, List.of(1L, "2025-04-12"), () -> ResponseEntity.ok(calls.incrementAndGet())))
+                .isEqualTo(new ReportCallResult<>(3, false));
+        assertThat(underTest.execute(ReportCallExecutor.REPORTS_INFO, List.of(1L), () -> ResponseEntity.ok(calls.incrementAndGet())))
+                .isEqualTo(new ReportCallResult<>(4, false));
+    }
+
+    @Test
+    void doesNotKeepStaleAnswersInNearCache() {
+        // Последний ответ Report запомнен (в общем кэше последних ответов), а в near-cache его нет
+        underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(5));
+        underTest = new ReportCallExecutor(circuitBreakerRegistry, staleValueCache, meterRegistry, nearCacheManager(true));
+
+        assertThat(underTest.execute(ENDPOINT, List.of(1L), unavailable())).isEqualTo(new ReportCallResult<>(5, true));
+        assertThat(underTest.execute(ENDPOINT, List.of(1L), () -> ResponseEntity.ok(6)))
+                .isEqualTo(new ReportCallResult<>(6, false));
+    }
+
+    private double collapsedCount() {
+        return meterRegistry.get("singleflight.calls").tag("outcome", "collapsed").counter().count();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static NearCacheManager nearCacheManager(boolean enabled) {
+        NearCacheProperties properties = new NearCacheProperties();
+        properties.setEnabled(enabled);
+        return new NearCacheManager(properties, invalidation -> {}, new SimpleMeterRegistry(), Clock.systemUTC());
+    }
+
+    private static <T> Supplier<ResponseEntity<T>> unavailable() {
+        return () -> {
+            throw new FeignException.ServiceUnavailable("unavailable", REQUEST, null, null);
+        };
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+
+    }
+
+}
@@ -0,0 +1,5 @@
+-- Только для интеграционных тестов: они перед тестом сбрасывают последовательности (RESTART WITH 1) и ждут
+-- ID 1, 2, ... по порядку, а блок ID, выделенный Hibernate в предыдущем тесте, жил бы в памяти дальше.
+-- Поэтому в тестовой БД шаг возвращается к 1, а Hibernate берет его из БД
+-- (increment_size_mismatch_strategy: fix в application-test.yml)
+ALTER SEQUENCE habit_seq INCREMENT BY 1;
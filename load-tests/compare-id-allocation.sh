@@ -0,0 +1,57 @@
+#!/usr/bin/env sh
+# Сравнение вставок до и после перехода на выделение ID блоками (pooled-lo, allocationSize = 50) и JDBC-батчи.
+# В отдельном контейнере Postgres 15 схемы report, subscription и habit создаются их же миграциями, затем pgbench
+# по DURATION секунд в CLIENTS соединений выполняет те же запросы, что Hibernate отправляет при создании отчета,
+# при вставке в habits_cache по событию habit-created и при создании привычки с 7 днями недели - сначала как
+# раньше, затем как теперь (load-tests/id-allocation). Итоги (tps и задержка) сохраняются в
+# load-tests/results/id-allocation.txt. pgbench подключается по TCP внутри контейнера, поэтому сетевая задержка
+# почти нулевая: между микросервисом и БД в другой машине каждый сэкономленный запрос стоит еще больше.
+# Требуется docker
+set -eu
+
+cd "$(dirname "$0")/.."
+mkdir -p load-tests/results
+
+DURATION="${DURATION:-30}"
+CLIENTS="${CLIENTS:-8}"
+CONTAINER=id-allocation-bench
+RESULT=load-tests/results/id-allocation.txt
+
+docker run -d --rm --name "$CONTAINER" -e POSTGRES_PASSWORD=bench \
+    -v "$PWD/load-tests/id-allocation:/bench:ro" \
+    -v "$PWD/report/src/main/resources/db/migration:/migration/report:ro" \
+    -v "$PWD/subscription/src/main/resources/db/migration:/migration/subscription:ro" \
+    -v "$PWD/habit/src/main/resources/db/migration:/migration/habit:ro" \
+    postgres:15 > /dev/null
+trap 'docker stop "$CONTAINER" > /dev/null' EXIT
+
+until docker exec "$CONTAINER" pg_isready -U postgres -q; do
+    sleep 1
+done
+
+psql() {
+    docker exec -i "$CONTAINER" psql -U postgres -v ON_ERROR_STOP=1 -q "$@"
+}
+
+for service in report subscription habit; do
+    psql -c "DROP DATABASE IF EXISTS $service" -c "CREATE DATABASE $service"
+    for migration in $(docker exec "$CONTAINER" ls /migration/$service | sort -V); do
+        psql -d "$service" -f "/migration/$service/$migration"
+    done
+done
+# Партиция текущего месяца, как ее создает ReportPartitionMaintenance
+psql -d report -c "SELECT create_reports_partition(date_trunc('month', CURRENT_DATE)::DATE)" > /dev/null
+
+: > "$RESULT"
+for scenario in report:report-per-row report:report-pooled \
+        subscription:habits-cache-per-row subscription:habits-cache-pooled \
+        habit:habit-per-row habit:habit-batched; do
+    database="${scenario%%:*}"
+    script="${scenario#*:}"
+    echo "=== $script" | tee -a "$RESULT"
+    docker exec "$CONTAINER" pgbench -U postgres -h localhost -n -c "$CLIENTS" -j "$CLIENTS" -T "$DURATION" \
+            -D next=0 -D hi=0 -f "/bench/$script.sql" "$database" \
+        | grep -E 'number of transactions actually processed|latency average|tps' | tee -a "$RESULT"
+done
+
+echo "Результаты: $RESULT"
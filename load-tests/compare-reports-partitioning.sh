@@ -0,0 +1,43 @@
+#!/usr/bin/env sh
+# Сравнение таблицы reports до и после разбиения на помесячные партиции (миграция V3 в report).
+# В отдельном контейнере Postgres 15 создаются обе версии таблицы с одинаковыми ROWS отчетами
+# (по умолчанию 100 млн: 100 тысяч привычек, отчеты за 1000 дней), затем для каждой выполняются частые запросы
+# ReportRepository через EXPLAIN (ANALYZE, BUFFERS). Планы и время сохраняются в
+# load-tests/results/reports-{unpartitioned,partitioned}.txt. Требуется docker; на 100 млн строк нужно ~30 ГБ диска
+set -eu
+
+cd "$(dirname "$0")/.."
+mkdir -p load-tests/results
+
+ROWS="${ROWS:-100000000}"
+HABITS="${HABITS:-100000}"
+DAYS=$(( ROWS / HABITS ))
+CONTAINER=reports-partitioning-bench
+
+docker run -d --rm --name "$CONTAINER" -e POSTGRES_PASSWORD=bench \
+    -v "$PWD/load-tests/reports-partitioning:/bench:ro" \
+    -v "$PWD/report/src/main/resources/db/migration:/migration:ro" \
+    postgres:15 -c shared_buffers=1GB -c max_wal_size=8GB > /dev/null
+trap 'docker stop "$CONTAINER" > /dev/null' EXIT
+
+until docker exec "$CONTAINER" pg_isready -U postgres -q; do
+    sleep 1
+done
+
+psql() {
+    docker exec -i "$CONTAINER" psql -U postgres -v ON_ERROR_STOP=1 -q -v days="$DAYS" -v habits="$HABITS" "$@"
+}
+
+for layout in unpartitioned partitioned; do
+    psql -c "DROP DATABASE IF EXISTS $layout" -c "CREATE DATABASE $layout"
+    psql -d "$layout" -f /migration/V1__init_schema.sql -f /migration/V2__query_indexes.sql
+    psql -d "$layout" -f /bench/seed.sql
+    if [ "$layout" = partitioned ]; then
+        # Та же миграция, что выполняет Flyway: переносит уже заполненную таблицу в партиции
+        psql -d "$layout" -f /migration/V3__partition_reports_by_month.sql
+    fi
+    psql -d "$layout" -c "VACUUM ANALYZE reports"
+    psql -d "$layout" -f /bench/queries.sql > "load-tests/results/reports-${layout}.txt"
+done
+
+echo "Результаты: load-tests/results/reports-{unpartitioned,partitioned}.txt"
@@ -0,0 +1,25 @@
+#!/usr/bin/env sh
+# Сравнение обычного (поток на запрос) и реактивного вариантов habit под одной и той же нагрузкой.
+# Поднимает окружение по очереди в каждом режиме и в каждом прогоняет load-tests/dashboard.js.
+# Итоги k6 сохраняются в load-tests/results/{platform,reactive}-summary.json
+# (задержки p50/p95/p99, пропускная способность, доля ошибок). Требуются docker-compose и k6
+set -eu
+
+cd "$(dirname "$0")/.."
+mkdir -p load-tests/results
+
+run() {
+    mode="$1"
+    shift
+    docker-compose "$@" up -d --build
+    # Даем Eureka время разослать всем адреса микросервисов (см. README)
+    sleep "${WARMUP_SECONDS:-60}"
+    k6 run --summary-export "load-tests/results/${mode}-summary.json" \
+        -e RUN_ID="${mode}-$(date +%s)" load-tests/dashboard.js
+    docker-compose "$@" down
+}
+
+run platform -f docker-compose.yml
+run reactive -f docker-compose.yml -f docker-compose.reactive.yml
+
+echo "Результаты: load-tests/results/{platform,reactive}-summary.json"
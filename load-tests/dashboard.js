@@ -0,0 +1,70 @@
+// Нагрузочный тест главных экранов (списки привычек и подписок на день) - самых тяжелых по I/O запросов:
+// habit на каждую привычку ходит в report, subscription - в auth.
+// Запуск: k6 run load-tests/dashboard.js (подробнее - в README, раздел про реактивный вариант)
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+
+const BASE_URL = __ENV.GATEWAY_URL || 'http://localhost:8080/api/v1';
+
+// Пользователей много, чтобы тест не упирался в ограничение частоты запросов на одного пользователя в gateway
+const USERS = Number(__ENV.USERS || 200);
+const HABITS_PER_USER = Number(__ENV.HABITS_PER_USER || 10);
+const RUN_ID = __ENV.RUN_ID || `${Date.now()}`;
+
+export const options = {
+    setupTimeout: '10m',
+    scenarios: {
+        dashboards: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '1m', target: Number(__ENV.MAX_VUS || 400) },
+                { duration: __ENV.STEADY || '3m', target: Number(__ENV.MAX_VUS || 400) },
+                { duration: '30s', target: 0 },
+            ],
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+function today() {
+    return new Date().toISOString().slice(0, 10);
+}
+
+export function setup() {
+    const tokens = [];
+    for (let i = 0; i < USERS; i++) {
+        const credentials = JSON.stringify({ username: `load-${RUN_ID}-${i}`.slice(0, 30), password: 'password' });
+        http.post(`${BASE_URL}/auth/register`, credentials, { headers: JSON_HEADERS });
+        const token = http.post(`${BASE_URL}/auth/login`, credentials, { headers: JSON_HEADERS }).json('token');
+
+        const authHeaders = { ...JSON_HEADERS, Authorization: `Bearer ${token}` };
+        for (let j = 0; j < HABITS_PER_USER; j++) {
+            http.post(`${BASE_URL}/habits/create`, JSON.stringify({
+                name: `Привычка ${j}`,
+                isPhotoAllowed: false,
+                frequencyType: 'WEEKLY_X_TIMES',
+                timesPerWeek: 5,
+            }), { headers: authHeaders });
+        }
+        tokens.push(token);
+    }
+    return { tokens };
+}
+
+export default function (data) {
+    const token = data.tokens[(__VU - 1) % data.tokens.length];
+    const params = { headers: { Authorization: `Bearer ${token}` } };
+
+    const habits = http.get(`${BASE_URL}/habits/all-user-habits/at-day/${today()}`,
+        { ...params, tags: { name: 'all-user-habits' } });
+    const subscribed = http.get(`${BASE_URL}/habits/all-user-subscribed-habits/at-day/${today()}`,
+        { ...params, tags: { name: 'all-user-subscribed-habits' } });
+
+    check(habits, { 'habits 200': (r) => r.status === 200 });
+    check(subscribed, { 'subscribed habits 200': (r) => r.status === 200 });
+
+    sleep(0.5);
+}
@@ -0,0 +1,14 @@
+-- Создание привычки с 7 днями недели после изменения: ID из блока (pooled-lo), а дни недели одним
+-- JDBC-батчем, который драйвер с reWriteBatchedInserts отправляет одним многострочным INSERT
+BEGIN;
+\if :next >= :hi
+SELECT nextval('habit_seq') AS next \gset
+\set hi :next + 50
+\endif
+INSERT INTO habits (id, user_id, name, description, is_photo_allowed, duration_days, frequency_type,
+                    times_per_week, times_per_month, created_at)
+VALUES (:next, 1, 'Привычка', NULL, false, NULL, 'WEEKLY_ON_DAYS', NULL, NULL, now());
+INSERT INTO habit_week_days (habit_id, days_of_week)
+VALUES (:next, 0), (:next, 1), (:next, 2), (:next, 3), (:next, 4), (:next, 5), (:next, 6);
+COMMIT;
+\set next :next + 1
@@ -0,0 +1,14 @@
+-- Создание привычки с 7 днями недели до изменения: nextval и отдельный INSERT на каждый день
+BEGIN;
+SELECT nextval('habit_seq') AS id \gset
+INSERT INTO habits (id, user_id, name, description, is_photo_allowed, duration_days, frequency_type,
+                    times_per_week, times_per_month, created_at)
+VALUES (:id, 1, 'Привычка', NULL, false, NULL, 'WEEKLY_ON_DAYS', NULL, NULL, now());
+INSERT INTO habit_week_days (habit_id, days_of_week) VALUES (:id, 0);
+INSERT INTO habit_week_days (habit_id, days_of_week) VALUES (:id, 1);
+INSERT INTO habit_week_days (habit_id, days_of_week) VALUES (:id, 2);
+INSERT INTO habit_week_days (habit_id, days_of_week) VALUES (:id, 3);
+INSERT INTO habit_week_days (habit_id, days_of_week) VALUES (:id, 4);
+INSERT INTO habit_week_days (habit_id, days_of_week) VALUES (:id, 5);
+INSERT INTO habit_week_days (habit_id, days_of_week) VALUES (:id, 6);
+COMMIT;
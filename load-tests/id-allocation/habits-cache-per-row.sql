@@ -0,0 +1,5 @@
+-- SubscriptionListener на событие habit-created до изменения
+BEGIN;
+SELECT nextval('habits_cache_seq') AS id \gset
+INSERT INTO habits_cache (id, habit_id, creator_id, habit_name) VALUES (:id, :id, 1, 'Привычка');
+COMMIT;
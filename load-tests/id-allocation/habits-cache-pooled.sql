@@ -0,0 +1,9 @@
+-- SubscriptionListener на событие habit-created после изменения (pooled-lo, см. report-pooled.sql)
+BEGIN;
+\if :next >= :hi
+SELECT nextval('habits_cache_seq') AS next \gset
+\set hi :next + 50
+\endif
+INSERT INTO habits_cache (id, habit_id, creator_id, habit_name) VALUES (:next, :next, 1, 'Привычка');
+COMMIT;
+\set next :next + 1
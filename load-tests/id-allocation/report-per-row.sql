@@ -0,0 +1,6 @@
+-- Создание отчета до изменения: отдельный nextval на каждую строку (allocationSize = 1)
+BEGIN;
+SELECT nextval('report_seq') AS id \gset
+INSERT INTO reports (id, user_id, habit_id, date, photo_url, created_at)
+VALUES (:id, 1, :id, CURRENT_DATE, NULL, now());
+COMMIT;
@@ -0,0 +1,11 @@
+-- Создание отчета после изменения: nextval раз в 50 строк, остальные ID экземпляр берет из своего блока
+-- (так работает оптимизатор pooled-lo; next и hi задаются через pgbench -D и живут между транзакциями клиента)
+BEGIN;
+\if :next >= :hi
+SELECT nextval('report_seq') AS next \gset
+\set hi :next + 50
+\endif
+INSERT INTO reports (id, user_id, habit_id, date, photo_url, created_at)
+VALUES (:next, 1, :next, CURRENT_DATE, NULL, now());
+COMMIT;
+\set next :next + 1
@@ -0,0 +1,37 @@
+-- Частые запросы ReportRepository в том виде, в котором их генерирует Hibernate.
+-- Каждый выполняется дважды: время второго запуска показывает работу с прогретым кешем
+\timing on
+\set habit (:habits / 2)
+
+\echo '=== findByHabitIdAndDate / existsByHabitIdAndDate: отчет за день'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.id, r.created_at, r.date, r.habit_id, r.photo_url, r.user_id FROM reports r
+WHERE r.habit_id = :habit AND r.date = CURRENT_DATE - 10;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.id, r.created_at, r.date, r.habit_id, r.photo_url, r.user_id FROM reports r
+WHERE r.habit_id = :habit AND r.date = CURRENT_DATE - 10;
+
+\echo '=== countByHabitIdAndDateBetween: отчеты за последний месяц'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(r.id) FROM reports r
+WHERE r.habit_id = :habit AND r.date BETWEEN CURRENT_DATE - 30 AND CURRENT_DATE;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(r.id) FROM reports r
+WHERE r.habit_id = :habit AND r.date BETWEEN CURRENT_DATE - 30 AND CURRENT_DATE;
+
+\echo '=== countByHabitIdAndDateGreaterThanEqual: отчеты привычки, созданной 90 дней назад'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(r.id) FROM reports r WHERE r.habit_id = :habit AND r.date >= CURRENT_DATE - 90;
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT count(r.id) FROM reports r WHERE r.habit_id = :habit AND r.date >= CURRENT_DATE - 90;
+
+\echo '=== отчеты всех привычек за неделю: диапазон по дате без habit_id'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.habit_id, count(r.id) FROM reports r
+WHERE r.date BETWEEN CURRENT_DATE - 7 AND CURRENT_DATE
+GROUP BY r.habit_id;
+
+\echo '=== findByIdAndUserId: поиск по id (без даты читает индексы всех партиций)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT r.id, r.created_at, r.date, r.habit_id, r.photo_url, r.user_id FROM reports r
+WHERE r.id = 12345 AND r.user_id = 12345 % (:habits / 4);
@@ -0,0 +1,5 @@
+-- :habits привычек у :habits / 4 пользователей, у каждой привычки отчеты за :days дней подряд,
+-- заканчивая сегодняшним днем. Вставка идет по дням, как копились бы реальные отчеты
+INSERT INTO reports (id, user_id, habit_id, date, photo_url, created_at)
+SELECT nextval('report_seq'), habit % (:habits / 4), habit, CURRENT_DATE - :days + 1 + day, NULL, now()
+FROM generate_series(0, :days - 1) day, generate_series(1, :habits) habit;
@@ -2,10 +2,12 @@ package com.vladmikhayl.report.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.time.Clock;
 
 @Configuration
+@EnableScheduling // для ReportPartitionMaintenance
 public class AppConfig {
 
     // Этот бин указывает, что по умолчанию при вызове LocalDate.now(clock) в методах сервиса нужно возвращать текущую дату.
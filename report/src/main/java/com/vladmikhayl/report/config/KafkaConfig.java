@@ -0,0 +1,33 @@
+package com.vladmikhayl.report.config;
+
+import com.vladmikhayl.commons.data.shard.ShardUnavailableException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+@Configuration
+public class KafkaConfig {
+
+    // Пока бакет владельца данных переносится на другой шард, слушатели с @OnShard сразу получают
+    // ShardUnavailableException. Такое событие повторяется раз в секунду, пока перенос не закончится
+    // (но не дольше пяти минут), вместо стандартных 10 мгновенных попыток, после которых событие было бы пропущено
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler() {
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler();
+        errorHandler.setBackOffFunction((record, exception) -> isShardUnavailable(exception)
+                ? new FixedBackOff(1_000, 300)
+                : null);
+        return errorHandler;
+    }
+
+    private static boolean isShardUnavailable(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ShardUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
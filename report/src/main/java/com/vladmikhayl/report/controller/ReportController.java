@@ -2,6 +2,8 @@ package com.vladmikhayl.report.controller;
 
 import com.vladmikhayl.report.dto.request.ReportCreationRequest;
 import com.vladmikhayl.report.dto.request.ReportPhotoEditingRequest;
+import com.vladmikhayl.report.dto.request.ReportsCreationRequest;
+import com.vladmikhayl.report.dto.response.ReportCreationResultResponse;
 import com.vladmikhayl.report.service.FileUploadService;
 import com.vladmikhayl.report.service.ReportService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -18,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -54,24 +57,51 @@ public class ReportController {
     @PostMapping("/create")
     @Operation(
             summary = "Создать отчет",
-            description = "Помечает переданную привычку в переданную дату выполненной"
+            description = "Помечает переданную привычку в переданную дату выполненной. Если передать заголовок Idempotency-Key, " +
+                    "то повтор запроса с тем же ключом тоже вернет 201, не создавая второй отчет, а запрос с тем же ключом, " +
+                    "но с другим фото - 422"
     )
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "201", description = "Успешное создание"),
+            @ApiResponse(responseCode = "201", description = "Успешное создание (или повтор запроса с тем же ключом идемпотентности)"),
             @ApiResponse(responseCode = "403", description = "Пользователь не имеет доступа к созданию отчетов к этой привычке в этот день " +
                     "(либо он не является создателем этой привычки, либо эта привычка не является текущей в переданный день)"),
             @ApiResponse(responseCode = "409", description = "Эта привычка уже отмечена выполненной в этот день"),
+            @ApiResponse(responseCode = "422", description = "Ключ идемпотентности уже использован для запроса с другим фото", content = @Content),
             @ApiResponse(responseCode = "502", description = "Микросервис, на который делается внутренний запрос, вернул ошибку", content = @Content),
             @ApiResponse(responseCode = "503", description = "Недоступен микросервис, на который делается внутренний запрос", content = @Content)
     })
     public ResponseEntity<Void> createReport(
             @Valid @RequestBody ReportCreationRequest request,
-            @RequestHeader("X-User-Id") @Parameter(hidden = true) String userId
+            @RequestHeader("X-User-Id") @Parameter(hidden = true) String userId,
+            @RequestHeader(value = "Idempotency-Key", required = false)
+            @Parameter(description = "Любая строка до 64 символов, одинаковая у всех повторов одного запроса") String idempotencyKey
     ) {
-        reportService.createReport(request, userId);
+        reportService.createReport(request, userId, idempotencyKey);
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    @PostMapping("/create-batch")
+    @Operation(
+            summary = "Создать несколько отчетов",
+            description = "Помечает выполненными сразу несколько привычек (не более 50 пар привычка-дата за запрос). " +
+                    "Каждый отчет проверяется так же, как в /create, но ошибка в одном не мешает создать остальные: " +
+                    "для каждого в том же порядке возвращается статус, который вернул бы /create"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Запрос обработан, результат по каждому отчету - в теле ответа. " +
+                    "Отчет, который уже есть или одновременно был создан другим запросом, получает в теле статус 409, " +
+                    "остальные отчеты при этом создаются"),
+            @ApiResponse(responseCode = "502", description = "Микросервис, на который делается внутренний запрос, вернул ошибку", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Недоступен микросервис, на который делается внутренний запрос", content = @Content)
+    })
+    public ResponseEntity<List<ReportCreationResultResponse>> createReports(
+            @Valid @RequestBody ReportsCreationRequest request,
+            @RequestHeader("X-User-Id") @Parameter(hidden = true) String userId
+    ) {
+        List<ReportCreationResultResponse> results = reportService.createReports(request.getReports(), userId);
+        return ResponseEntity.ok(results);
+    }
+
     @PutMapping("/{reportId}/change-photo")
     @Operation(
             summary = "Изменить фото в отчете",
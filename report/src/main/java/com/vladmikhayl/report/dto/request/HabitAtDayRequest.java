@@ -0,0 +1,17 @@
+package com.vladmikhayl.report.dto.request;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Элемент массовой проверки is-current в Habit (см. HabitClient.areCurrent): привычка и день
+@Data
+@Builder
+public class HabitAtDayRequest {
+
+    private Long habitId;
+
+    private LocalDate date;
+
+}
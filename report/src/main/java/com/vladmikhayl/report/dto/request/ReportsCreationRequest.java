@@ -0,0 +1,22 @@
+package com.vladmikhayl.report.dto.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@Schema(description = "Запрос на создание сразу нескольких отчетов о выполнении привычек")
+public class ReportsCreationRequest {
+
+    @NotEmpty(message = "Не указано ни одного отчета")
+    @Size(max = 50, message = "За один запрос можно создать не более 50 отчетов")
+    @Schema(description = "Создаваемые отчеты", requiredMode = Schema.RequiredMode.REQUIRED)
+    private List<@Valid ReportCreationRequest> reports;
+
+}
@@ -0,0 +1,29 @@
+package com.vladmikhayl.report.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@Schema(description = "Результат создания одного отчета из массового запроса")
+public class ReportCreationResultResponse {
+
+    @Schema(description = "ID привычки", example = "1")
+    private Long habitId;
+
+    @Schema(description = "Дата отчета", example = "2025-03-30")
+    private LocalDate date;
+
+    @Schema(description = "HTTP-статус, который вернул бы запрос на создание только этого отчета", example = "201")
+    private int status;
+
+    @Schema(description = "ID созданного отчета (только при успешном создании)", example = "1")
+    private Long reportId;
+
+    @Schema(description = "Причина, по которой отчет не создан", example = "Этот день ещё не наступил")
+    private String error;
+
+}
@@ -1,9 +1,12 @@
 package com.vladmikhayl.report.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Getter
 @Setter
@@ -12,8 +15,15 @@ import lombok.*;
 @AllArgsConstructor
 @Entity
 @Table(name = "habits_photo_allowed_cache")
+// Проверяется при каждом создании отчета с фото и смене фото, а меняется только по событиям о создании
+// и удалении привычки, поэтому лежит в second-level cache (регион настроен в application.conf).
+// Строки только добавляются и удаляются, но не изменяются, поэтому READ_ONLY
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = HabitPhotoAllowedCache.CACHE_REGION)
 public class HabitPhotoAllowedCache {
 
+    public static final String CACHE_REGION = "habit-photo-allowed";
+
     @Id
     private Long habitId;
 
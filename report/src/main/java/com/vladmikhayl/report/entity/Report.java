@@ -16,9 +16,10 @@ import java.time.LocalDateTime;
 @Table(name = "reports")
 public class Report {
 
+    // ID выделяются блоками по 50 без обращения к БД (pooled-lo), шаг report_seq такой же (миграция V5)
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "report_seq")
-    @SequenceGenerator(name = "report_seq", sequenceName = "report_seq", allocationSize = 1)
+    @SequenceGenerator(name = "report_seq", sequenceName = "report_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -32,6 +33,9 @@ public class Report {
 
     private String photoUrl;
 
+    // Заголовок Idempotency-Key запроса, которым отчет был создан (если клиент его передал)
+    private String idempotencyKey;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
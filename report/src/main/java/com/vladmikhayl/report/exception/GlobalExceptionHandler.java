@@ -28,7 +28,8 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<?> handleResponseStatus(ResponseStatusException ex) {
-        return ResponseEntity.status(ex.getStatusCode()).body(
+        // Заголовки исключения (например, Retry-After у ShardUnavailableException) сохраняются в ответе
+        return ResponseEntity.status(ex.getStatusCode()).headers(ex.getHeaders()).body(
                 Map.of(
                         "error", ex.getReason(),
                         "timestamp", LocalDateTime.now()
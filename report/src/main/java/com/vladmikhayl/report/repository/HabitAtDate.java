@@ -0,0 +1,7 @@
+package com.vladmikhayl.report.repository;
+
+import java.time.LocalDate;
+
+// Пара (привычка, день), по которой уникален отчет
+public record HabitAtDate(Long habitId, LocalDate date) {
+}
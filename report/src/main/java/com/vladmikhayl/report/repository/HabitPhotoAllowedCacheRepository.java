@@ -4,4 +4,10 @@ import com.vladmikhayl.report.entity.HabitPhotoAllowedCache;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface HabitPhotoAllowedCacheRepository extends JpaRepository<HabitPhotoAllowedCache, Long> {
+
+    // existsById - это всегда запрос в БД, а findById сначала смотрит в second-level cache
+    default boolean isPhotoAllowed(Long habitId) {
+        return findById(habitId).isPresent();
+    }
+
 }
@@ -0,0 +1,7 @@
+package com.vladmikhayl.report.repository;
+
+import java.time.LocalDateTime;
+
+// Отчет о привычке за день - только то, что нужно ответам getReportAtDay и isCompletedAtDay
+public record ReportAtDay(Long id, String photoUrl, LocalDateTime createdAt) {
+}
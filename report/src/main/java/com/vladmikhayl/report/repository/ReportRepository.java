@@ -2,6 +2,9 @@ package com.vladmikhayl.report.repository;
 
 import com.vladmikhayl.report.entity.Report;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -11,18 +14,64 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
 
     boolean existsByHabitIdAndDate(Long habitId, LocalDate date);
 
+    // Создает отчет одним запросом, если за этот день его еще нет. Уникальность (habit_id, date) проверяет сама БД,
+    // поэтому два параллельных запроса не создадут два отчета. Возвращает ID созданного отчета, а если отчет уже есть -
+    // его ID только тогда, когда он создан этим же пользователем с этим же ключом идемпотентности и с тем же фото
+    // (повтор запроса).
+    // ID выделяет ReportIdGenerator из блока pooled-lo, как и для отчетов, которые сохраняет Hibernate
+    @Transactional
+    @Query(value = """
+            INSERT INTO reports (id, user_id, habit_id, date, photo_url, idempotency_key, created_at)
+            VALUES (:id, :userId, :habitId, :date, CAST(:photoUrl AS VARCHAR),
+                    CAST(:idempotencyKey AS VARCHAR), now())
+            ON CONFLICT (habit_id, date) DO UPDATE SET idempotency_key = EXCLUDED.idempotency_key
+            WHERE reports.idempotency_key = EXCLUDED.idempotency_key AND reports.user_id = EXCLUDED.user_id
+              AND reports.photo_url IS NOT DISTINCT FROM EXCLUDED.photo_url
+            RETURNING id
+            """, nativeQuery = true)
+    Optional<Long> insertIfAbsent(Long id, Long userId, Long habitId, LocalDate date, String photoUrl, String idempotencyKey);
+
     boolean existsByIdAndUserId(Long id, Long userId);
 
+    // Пакетный вариант insertIfAbsent: отчеты передаются массивами (элементы с одним индексом - один отчет)
+    // и вставляются одним запросом, а отчеты за уже отмеченные дни БД пропускает. Возвращает ID вставленных
+    // отчетов: ID выделяет ReportIdGenerator заранее, поэтому по ним видно, какие отчеты уже были
+    @Transactional
+    @Query(value = """
+            INSERT INTO reports (id, user_id, habit_id, date, photo_url, created_at)
+            SELECT report.id, :userId, report.habit_id, report.date, report.photo_url, now()
+            FROM unnest(CAST(:ids AS BIGINT[]), CAST(:habitIds AS BIGINT[]), CAST(:dates AS DATE[]),
+                        CAST(:photoUrls AS VARCHAR[])) AS report (id, habit_id, date, photo_url)
+            ON CONFLICT (habit_id, date) DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    List<Long> insertAllIfAbsent(Long userId, Long[] ids, Long[] habitIds, LocalDate[] dates, String[] photoUrls);
+
     Optional<Report> findByHabitIdAndDate(Long habitId, LocalDate date);
 
+    // Отчет за день одним запросом. Все три колонки лежат в индексе уникальности (habit_id, date) (миграция V7),
+    // поэтому Postgres отвечает из индекса, не читая строку таблицы
+    @Query("""
+            SELECT new com.vladmikhayl.report.repository.ReportAtDay(r.id, r.photoUrl, r.createdAt)
+            FROM Report r
+            WHERE r.habitId = :habitId AND r.date = :date
+            """)
+    Optional<ReportAtDay> findReportAtDay(Long habitId, LocalDate date);
+
     Optional<Report> findByIdAndUserId(Long id, Long userId);
 
-    List<Report> findAllByHabitId(Long habitId);
+    // Отчетов раньше даты создания привычки не бывает, а нижняя граница по дате позволяет Postgres
+    // не читать партиции reports за месяцы до создания привычки
+    List<Report> findAllByHabitIdAndDateGreaterThanEqual(Long habitId, LocalDate habitCreatedAt);
 
     int countByHabitIdAndDateBetween(Long habitId, LocalDate startDate, LocalDate endDate);
 
-    int countByHabitId(Long habitId);
+    int countByHabitIdAndDateGreaterThanEqual(Long habitId, LocalDate habitCreatedAt);
 
+    // Одним запросом (производный deleteBy сначала загружает все отчеты, а потом удаляет их по одному по id,
+    // и каждое такое удаление без даты проверяет все партиции)
+    @Modifying
+    @Query("DELETE FROM Report r WHERE r.habitId = :habitId")
     void deleteByHabitId(Long habitId);
 
 }
@@ -1,15 +1,17 @@
 package com.vladmikhayl.report.service;
 
+import com.vladmikhayl.commons.data.shard.OnShard;
 import com.vladmikhayl.report.dto.response.HabitReportsInfoResponse;
 import com.vladmikhayl.report.dto.response.ReportFullInfoResponse;
 import com.vladmikhayl.report.dto.response.ReportShortInfoResponse;
 import com.vladmikhayl.report.entity.FrequencyType;
 import com.vladmikhayl.report.entity.Period;
 import com.vladmikhayl.report.entity.Report;
+import com.vladmikhayl.report.repository.ReportAtDay;
 import com.vladmikhayl.report.repository.ReportRepository;
-import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Clock;
 import java.time.DayOfWeek;
@@ -20,6 +22,8 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+// Все методы только читают, поэтому при настроенной реплике (read-replica) идут в нее.
+// При шардировании отчеты о привычке читаются с шарда ее владельца (по каталогу привычек)
 @Service
 @RequiredArgsConstructor
 public class InternalReportService {
@@ -28,11 +32,13 @@ public class InternalReportService {
 
     private final Clock clock;
 
+    @OnShard(entity = "#habitId")
+    @Transactional(readOnly = true)
     public ReportFullInfoResponse getReportAtDay(
             Long habitId,
             LocalDate date
     ) {
-        Optional<Report> report = reportRepository.findByHabitIdAndDate(habitId, date);
+        Optional<ReportAtDay> report = reportRepository.findReportAtDay(habitId, date);
 
         if (report.isEmpty()) {
             return ReportFullInfoResponse.builder()
@@ -44,35 +50,31 @@ public class InternalReportService {
         }
 
         return ReportFullInfoResponse.builder()
-                .reportId(report.get().getId())
+                .reportId(report.get().id())
                 .isCompleted(true)
-                .completionTime(report.get().getCreatedAt())
-                .photoUrl(report.get().getPhotoUrl())
+                .completionTime(report.get().createdAt())
+                .photoUrl(report.get().photoUrl())
                 .build();
     }
 
+    // Вызывается для каждой привычки на главных экранах, поэтому отвечает одним запросом (тем же, что и getReportAtDay)
+    @OnShard(entity = "#habitId")
+    @Transactional(readOnly = true)
     public ReportShortInfoResponse isCompletedAtDay(
             Long habitId,
             LocalDate date
     ) {
-        boolean isCompleted = reportRepository.existsByHabitIdAndDate(habitId, date);
-        boolean isPhotoUploaded = false;
-        Long reportId = null;
-
-        if (isCompleted) {
-            Report report = reportRepository.findByHabitIdAndDate(habitId, date)
-                    .orElseThrow(() -> new EntityNotFoundException("Отчёт не найден"));
-            isPhotoUploaded = report.getPhotoUrl() != null;
-            reportId = report.getId();
-        }
+        Optional<ReportAtDay> report = reportRepository.findReportAtDay(habitId, date);
 
         return ReportShortInfoResponse.builder()
-                .reportId(reportId)
-                .isCompleted(isCompleted)
-                .isPhotoUploaded(isPhotoUploaded)
+                .reportId(report.map(ReportAtDay::id).orElse(null))
+                .isCompleted(report.isPresent())
+                .isPhotoUploaded(report.map(ReportAtDay::photoUrl).isPresent())
                 .build();
     }
 
+    @OnShard(entity = "#habitId")
+    @Transactional(readOnly = true)
     public int countCompletionsInPeriod(
             Long habitId,
             Period period,
@@ -92,6 +94,8 @@ public class InternalReportService {
         return reportRepository.countByHabitIdAndDateBetween(habitId, startDate, endDate);
     }
 
+    @OnShard(entity = "#habitId")
+    @Transactional(readOnly = true)
     public HabitReportsInfoResponse getReportsInfo(
             Long habitId,
             FrequencyType frequencyType,
@@ -103,7 +107,7 @@ public class InternalReportService {
         // Защита от случайной неверной передачи параметров разработчиком (например при тестировании)
         validateFrequencyParams(frequencyType, daysOfWeek, timesPerWeek, timesPerMonth);
 
-        int completionsInTotal = reportRepository.countByHabitId(habitId);
+        int completionsInTotal = reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt);
 
         Integer completionsPercent = null;
 
@@ -134,7 +138,7 @@ public class InternalReportService {
             completionsPlannedInPeriod = timesPerMonth;
         }
 
-        List<LocalDate> completedDays = getCompletedDays(habitId);
+        List<LocalDate> completedDays = getCompletedDays(habitId, createdAt);
 
         List<LocalDate> uncompletedDays = null;
 
@@ -244,15 +248,15 @@ public class InternalReportService {
     }
 
     // Вызывается для всех привычек
-    private List<LocalDate> getCompletedDays(Long habitId) {
-        return reportRepository.findAllByHabitId(habitId).stream()
+    private List<LocalDate> getCompletedDays(Long habitId, LocalDate createdAt) {
+        return reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt).stream()
                 .map(Report::getDate)
                 .collect(Collectors.toList());
     }
 
     // Вызывается только для привычек WEEKLY ON DAYS
     private List<LocalDate> getUncompletedDays(Long habitId, Set<DayOfWeek> daysOfWeek, LocalDate createdAt) {
-        List<LocalDate> completedDays = getCompletedDays(habitId);
+        List<LocalDate> completedDays = getCompletedDays(habitId, createdAt);
 
         List<LocalDate> allDaysFromHabitCreating = createdAt.datesUntil(LocalDate.now(clock).plusDays(1))
                 .toList();
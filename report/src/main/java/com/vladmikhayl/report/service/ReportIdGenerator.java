@@ -0,0 +1,45 @@
+package com.vladmikhayl.report.service;
+
+import com.vladmikhayl.report.entity.Report;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// ID для отчетов, которые вставляются нативными запросами (INSERT ... ON CONFLICT), из того же генератора
+// report_seq, что у сущности Report: ID берутся из блока pooled-lo экземпляра, и nextval выполняется
+// раз в 50 отчетов, как и при вставке через Hibernate. Транзакция нужна, чтобы у генератора была сессия
+// с соединением текущего шарда (nextval при исчерпании блока)
+@Component
+@RequiredArgsConstructor
+public class ReportIdGenerator {
+
+    private final EntityManager entityManager;
+
+    @Transactional
+    public Long nextId() {
+        return nextIds(1).get(0);
+    }
+
+    @Transactional
+    public List<Long> nextIds(int count) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        BeforeExecutionGenerator generator = (BeforeExecutionGenerator) session.getFactory()
+                .getMappingMetamodel()
+                .getEntityDescriptor(Report.class)
+                .getGenerator();
+
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add((Long) generator.generate(session, null, null, EventType.INSERT));
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.vladmikhayl.report.service;
+
+import com.vladmikhayl.commons.data.shard.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Обслуживание помесячных партиций таблицы reports (см. миграцию V3__partition_reports_by_month).
+// При старте и раз в сутки создаются партиции на monthsAhead месяцев вперед, чтобы новые отчеты никогда
+// не попадали в reports_default. Если задан retentionMonths, то партиции месяцев старше этого срока
+// отсоединяются от reports: их отчеты больше не учитываются в статистике, а сама партиция остается в БД
+// таблицей reports_archive_YYYY_MM (ее можно выгрузить и удалить вручную) или сразу удаляется (dropDetached).
+// При шардировании партиции обслуживаются на каждом шарде независимо
+@Slf4j
+@Component
+public class ReportPartitionMaintenance {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("reports_(\\d{4})_(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ShardRouter shardRouter;
+
+    private final Clock clock;
+
+    private final int monthsAhead;
+
+    private final int retentionMonths;
+
+    private final boolean dropDetached;
+
+    public ReportPartitionMaintenance(
+            JdbcTemplate jdbcTemplate,
+            ShardRouter shardRouter,
+            Clock clock,
+            @Value("${report.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${report.partitions.retention-months:0}") int retentionMonths,
+            @Value("${report.partitions.drop-detached:false}") boolean dropDetached
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.clock = clock;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.dropDetached = dropDetached;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${report.partitions.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        shardRouter.onEachShard(shard -> {
+            try {
+                createUpcomingPartitions();
+                detachExpiredPartitions();
+            } catch (DataAccessException e) {
+                // Партиции созданы с запасом на несколько месяцев, поэтому до следующего запуска ничего не сломается,
+                // а недоступность одного шарда не мешает обслужить остальные
+                log.error("Не удалось обновить партиции таблицы reports на шарде {}", shard, e);
+            }
+        });
+    }
+
+    void createUpcomingPartitions() {
+        YearMonth currentMonth = YearMonth.now(clock);
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = currentMonth.plusMonths(i);
+            // Функция сама пропускает уже существующие партиции и ставит блокировку на случай,
+            // если одновременно с этим экземпляром report то же самое делает другой
+            Boolean created = jdbcTemplate.queryForObject(
+                    "SELECT create_reports_partition(?)", Boolean.class, month.atDay(1));
+            if (Boolean.TRUE.equals(created)) {
+                log.info("Создана партиция таблицы reports за {}", month);
+            }
+        }
+    }
+
+    void detachExpiredPartitions() {
+        if (retentionMonths <= 0) {
+            return;
+        }
+        YearMonth oldestKeptMonth = YearMonth.now(clock).minusMonths(retentionMonths);
+
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'reports'::regclass
+                ORDER BY c.relname
+                """, String.class);
+
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            // reports_default не отсоединяется никогда
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (!month.isBefore(oldestKeptMonth)) {
+                continue;
+            }
+
+            jdbcTemplate.execute("ALTER TABLE reports DETACH PARTITION " + partition);
+            if (dropDetached) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Партиция таблицы reports за {} отсоединена и удалена", month);
+            } else {
+                String archive = "reports_archive_" + partition.substring("reports_".length());
+                jdbcTemplate.execute("ALTER TABLE " + partition + " RENAME TO " + archive);
+                log.info("Партиция таблицы reports за {} отсоединена и сохранена как {}", month, archive);
+            }
+        }
+    }
+
+}
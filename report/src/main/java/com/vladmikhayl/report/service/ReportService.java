@@ -1,8 +1,13 @@
 package com.vladmikhayl.report.service;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.commons.data.shard.OnShard;
+import com.vladmikhayl.report.dto.request.HabitAtDayRequest;
 import com.vladmikhayl.report.dto.request.ReportCreationRequest;
 import com.vladmikhayl.report.dto.request.ReportPhotoEditingRequest;
+import com.vladmikhayl.report.dto.response.ReportCreationResultResponse;
 import com.vladmikhayl.report.entity.Report;
+import com.vladmikhayl.report.repository.HabitAtDate;
 import com.vladmikhayl.report.repository.HabitPhotoAllowedCacheRepository;
 import com.vladmikhayl.report.repository.ReportRepository;
 import com.vladmikhayl.report.service.feign.HabitClient;
@@ -12,26 +17,45 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ReportService {
 
+    // Near-cache ответов Report в habit (по id привычки): после любого изменения отчетов о привычке
+    // все экземпляры habit сбрасывают закэшированные ответы о ней
+    private static final String REPORT_STATUS_CACHE = "report-status";
+
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+
     @Value("${internal.token}")
     private String internalToken;
 
     private final ReportRepository reportRepository;
 
+    private final ReportIdGenerator reportIdGenerator;
+
     private final HabitPhotoAllowedCacheRepository habitPhotoAllowedCacheRepository;
 
     private final HabitClient habitClient;
 
+    private final NearCacheManager nearCacheManager;
+
     private Long parseUserId(String userId) {
         try {
             return Long.parseLong(userId);
@@ -40,12 +64,25 @@ public class ReportService {
         }
     }
 
+    // Отчет создается одним запросом INSERT ... ON CONFLICT, без предварительной проверки, что его еще нет.
+    // С ключом идемпотентности повтор уже выполненного запроса (например, после таймаута) тоже получает 201,
+    // а тот же ключ с другим фото - 422: это уже другой запрос, и молча вернуть 201 нельзя.
+    // Порядок ответов прежний: дубликат получает 409, даже если в нем есть и другие ошибки (фото к привычке
+    // без фотоотчетов, день в будущем). Поэтому при такой ошибке наличие отчета проверяется отдельным
+    // запросом - только на этом пути, а не при каждом создании
+    @OnShard(user = "#userId")
     public void createReport(
             ReportCreationRequest request,
-            String userId
+            String userId,
+            String idempotencyKey
     ) {
         Long userIdLong = parseUserId(userId);
 
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Ключ идемпотентности должен быть непустым и не длиннее " + MAX_IDEMPOTENCY_KEY_LENGTH + " символов");
+        }
+
         boolean isHabitCurrentAtThatDateForThatUser = getIsCurrentOrThrow(request.getHabitId(), userIdLong, request.getDate());
 
         if (!isHabitCurrentAtThatDateForThatUser) {
@@ -55,29 +92,154 @@ public class ReportService {
 
         Long habitId = request.getHabitId();
 
-        if (reportRepository.existsByHabitIdAndDate(habitId, request.getDate())) {
-            throw new DataIntegrityViolationException("Эта привычка уже отмечена как выполненная в указанный день");
-        }
-
-        if (request.getPhotoUrl() != null && !habitPhotoAllowedCacheRepository.existsById(habitId)) {
+        if (request.getPhotoUrl() != null && !habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)) {
+            throwIfAlreadyReported(habitId, request.getDate());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "К отчёту было прикреплено фото, хотя эта привычка не подразумевает фотоотчёты");
         }
 
         if (request.getDate().isAfter(LocalDate.now())) {
+            throwIfAlreadyReported(habitId, request.getDate());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Этот день ещё не наступил");
         }
 
-        Report report = Report.builder()
-                .userId(userIdLong)
-                .habitId(habitId)
-                .date(request.getDate())
-                .photoUrl(request.getPhotoUrl())
-                .build();
+        Long reportId = reportIdGenerator.nextId();
+
+        reportRepository.insertIfAbsent(reportId, userIdLong, habitId, request.getDate(), request.getPhotoUrl(), idempotencyKey)
+                .orElseThrow(() -> notInserted(habitId, request.getDate(), userIdLong, idempotencyKey));
+
+        nearCacheManager.invalidate(REPORT_STATUS_CACHE, habitId);
+    }
+
+    private void throwIfAlreadyReported(Long habitId, LocalDate date) {
+        if (reportRepository.existsByHabitIdAndDate(habitId, date)) {
+            throw new DataIntegrityViolationException("Эта привычка уже отмечена как выполненная в указанный день");
+        }
+    }
+
+    // Вставка ничего не вернула, значит отчет за этот день уже есть. Если его создал этот же пользователь с этим же
+    // ключом, то повтор отличается от исходного запроса (иначе БД вернула бы ID отчета), и ключ использован повторно
+    private RuntimeException notInserted(Long habitId, LocalDate date, Long userId, String idempotencyKey) {
+        if (idempotencyKey != null && reportRepository.findByHabitIdAndDate(habitId, date)
+                .filter(report -> idempotencyKey.equals(report.getIdempotencyKey()) && userId.equals(report.getUserId()))
+                .isPresent()) {
+            return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Этот ключ идемпотентности уже использован для запроса с другими данными");
+        }
+        return new DataIntegrityViolationException("Эта привычка уже отмечена как выполненная в указанный день");
+    }
+
+    // Массовый вариант createReport (например, когда пользователь в конце дня отмечает сразу все привычки):
+    // вместо запросов на каждый отчет - одна проверка is-current в Habit и один INSERT ... ON CONFLICT на все
+    // отчеты. Отчеты проверяются по тем же правилам, но ошибка в одном не мешает создать остальные: для каждого
+    // возвращается статус, который вернул бы запрос на создание только его. День в будущем отсеивается
+    // первым, без запросов: отчета за еще не наступивший день быть не может, так что 409 он бы не получил
+    @OnShard(user = "#userId")
+    public List<ReportCreationResultResponse> createReports(
+            List<ReportCreationRequest> requests,
+            String userId
+    ) {
+        Long userIdLong = parseUserId(userId);
+
+        ReportCreationResultResponse[] results = new ReportCreationResultResponse[requests.size()];
+        List<Integer> pending = new ArrayList<>();
+
+        // Сначала то, что проверяется без запросов
+        Set<HabitAtDate> requested = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ReportCreationRequest request = requests.get(i);
+            if (request.getDate().isAfter(LocalDate.now())) {
+                results[i] = failed(request, HttpStatus.BAD_REQUEST, "Этот день ещё не наступил");
+            } else if (!requested.add(new HabitAtDate(request.getHabitId(), request.getDate()))) {
+                results[i] = failed(request, HttpStatus.CONFLICT, "Этот отчет уже есть в запросе");
+            } else {
+                pending.add(i);
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return List.of(results);
+        }
+
+        List<HabitAtDayRequest> habitsAtDays = pending.stream()
+                .map(requests::get)
+                .map(request -> HabitAtDayRequest.builder()
+                        .habitId(request.getHabitId())
+                        .date(request.getDate())
+                        .build())
+                .toList();
+
+        List<Boolean> areCurrent = callHabitOrThrow(() -> habitClient.areCurrent(internalToken, userIdLong, habitsAtDays));
+
+        if (areCurrent == null || areCurrent.size() != habitsAtDays.size()) {
+            log.error("Микросервис Habit вернул ответ не по всем привычкам");
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
+        }
 
-        reportRepository.save(report);
+        List<Integer> current = new ArrayList<>();
+        for (int j = 0; j < pending.size(); j++) {
+            ReportCreationRequest request = requests.get(pending.get(j));
+            if (Boolean.TRUE.equals(areCurrent.get(j))) {
+                current.add(pending.get(j));
+            } else {
+                results[pending.get(j)] = failed(request, HttpStatus.FORBIDDEN,
+                        "Эта привычка не является текущей в указанный день для текущего пользователя");
+            }
+        }
+
+        Map<Long, Boolean> isPhotoAllowed = new HashMap<>();
+        List<Integer> accepted = new ArrayList<>();
+        for (int i : current) {
+            ReportCreationRequest request = requests.get(i);
+            if (request.getPhotoUrl() != null && !isPhotoAllowed.computeIfAbsent(
+                    request.getHabitId(), habitPhotoAllowedCacheRepository::isPhotoAllowed)) {
+                // Как и в createReport, дубликат получает 409, а не 400
+                results[i] = reportRepository.existsByHabitIdAndDate(request.getHabitId(), request.getDate())
+                        ? failed(request, HttpStatus.CONFLICT, "Эта привычка уже отмечена как выполненная в указанный день")
+                        : failed(request, HttpStatus.BAD_REQUEST,
+                                "К отчёту было прикреплено фото, хотя эта привычка не подразумевает фотоотчёты");
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        if (!accepted.isEmpty()) {
+            // Один запрос без предварительной проверки: отчеты, которые за этот день уже есть (в том числе
+            // созданные параллельным запросом), БД пропускает, и только они получают 409
+            List<Long> ids = reportIdGenerator.nextIds(accepted.size());
+            List<ReportCreationRequest> acceptedRequests = accepted.stream().map(requests::get).toList();
+            Set<Long> inserted = new HashSet<>(reportRepository.insertAllIfAbsent(
+                    userIdLong,
+                    ids.toArray(Long[]::new),
+                    acceptedRequests.stream().map(ReportCreationRequest::getHabitId).toArray(Long[]::new),
+                    acceptedRequests.stream().map(ReportCreationRequest::getDate).toArray(LocalDate[]::new),
+                    acceptedRequests.stream().map(ReportCreationRequest::getPhotoUrl).toArray(String[]::new)
+            ));
+
+            Set<Long> changedHabitIds = new LinkedHashSet<>();
+            for (int k = 0; k < accepted.size(); k++) {
+                ReportCreationRequest request = acceptedRequests.get(k);
+                if (inserted.contains(ids.get(k))) {
+                    changedHabitIds.add(request.getHabitId());
+                    results[accepted.get(k)] = ReportCreationResultResponse.builder()
+                            .habitId(request.getHabitId())
+                            .date(request.getDate())
+                            .status(HttpStatus.CREATED.value())
+                            .reportId(ids.get(k))
+                            .build();
+                } else {
+                    results[accepted.get(k)] = failed(request, HttpStatus.CONFLICT,
+                            "Эта привычка уже отмечена как выполненная в указанный день");
+                }
+            }
+
+            changedHabitIds.forEach(habitId -> nearCacheManager.invalidate(REPORT_STATUS_CACHE, habitId));
+        }
+
+        return List.of(results);
     }
 
+    @OnShard(user = "#userId")
     @Transactional
     public void changeReportPhoto(
             Long reportId,
@@ -92,7 +254,7 @@ public class ReportService {
 
         long habitId = report.getHabitId();
 
-        if (!habitPhotoAllowedCacheRepository.existsById(habitId)) {
+        if (!habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Эта привычка не подразумевает фотоотчёты");
         }
 
@@ -108,25 +270,33 @@ public class ReportService {
         } else {
             report.setPhotoUrl(photoUrl);
         }
+
+        nearCacheManager.invalidate(REPORT_STATUS_CACHE, habitId);
     }
 
+    @OnShard(user = "#userId")
     public void deleteReport(
             Long reportId,
             String userId
     ) {
         Long userIdLong = parseUserId(userId);
 
-        if (!reportRepository.existsByIdAndUserId(reportId, userIdLong)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
-                    "У текущего пользователя отсутствует указанный отчёт");
-        }
+        Report report = reportRepository.findByIdAndUserId(reportId, userIdLong)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN,
+                        "У текущего пользователя отсутствует указанный отчёт"));
 
         reportRepository.deleteById(reportId);
+
+        nearCacheManager.invalidate(REPORT_STATUS_CACHE, report.getHabitId());
     }
 
     private boolean getIsCurrentOrThrow(Long habitId, Long userId, LocalDate date) {
+        return Boolean.TRUE.equals(callHabitOrThrow(() -> habitClient.isCurrent(internalToken, habitId, userId, date)));
+    }
+
+    private <T> T callHabitOrThrow(Supplier<ResponseEntity<T>> call) {
         try {
-            return Boolean.TRUE.equals(habitClient.isCurrent(internalToken, habitId, userId, date).getBody());
+            return call.get().getBody();
         } catch (FeignException.ServiceUnavailable e) {
             log.error("Микросервис Habit недоступен");
             throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
@@ -136,4 +306,13 @@ public class ReportService {
         }
     }
 
+    private static ReportCreationResultResponse failed(ReportCreationRequest request, HttpStatus status, String error) {
+        return ReportCreationResultResponse.builder()
+                .habitId(request.getHabitId())
+                .date(request.getDate())
+                .status(status.value())
+                .error(error)
+                .build();
+    }
+
 }
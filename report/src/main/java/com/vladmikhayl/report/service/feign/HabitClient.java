@@ -1,15 +1,19 @@
 package com.vladmikhayl.report.service.feign;
 
+import com.vladmikhayl.report.dto.request.HabitAtDayRequest;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @FeignClient(name = "gateway")
 @Profile("!test") // чтобы в интеграционных тестах бин этого Feign-клиента не поднимался (там будет свой бин с замоканным ответом)
@@ -23,4 +27,12 @@ public interface HabitClient {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
     );
 
+    // Ответы в том же порядке, что и пары (привычка, день)
+    @PostMapping("/internal/habits/is-current")
+    ResponseEntity<List<Boolean>> areCurrent(
+            @RequestHeader("X-Internal-Token") String internalToken,
+            @RequestParam Long userId,
+            @RequestBody List<HabitAtDayRequest> habits
+    );
+
 }
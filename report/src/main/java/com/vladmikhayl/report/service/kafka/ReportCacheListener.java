@@ -0,0 +1,28 @@
+package com.vladmikhayl.report.service.kafka;
+
+import com.vladmikhayl.commons.dto.HabitDeletedEvent;
+import com.vladmikhayl.report.entity.HabitPhotoAllowedCache;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+// Событие habit-deleted в ReportListener обрабатывает только один экземпляр report (общая consumer group),
+// и только в его second-level cache Hibernate сам сбрасывает удаленную строку habits_photo_allowed_cache.
+// Здесь у каждого экземпляра своя consumer group, чтобы привычку сбросили из своего кэша все экземпляры
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReportCacheListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @KafkaListener(topics = "habit-deleted", groupId = "report-cache-${random.uuid}")
+    public void listen(HabitDeletedEvent event) {
+        entityManagerFactory.getCache().evict(HabitPhotoAllowedCache.class, event.habitId());
+
+        log.info("Привычка {} сброшена из second-level cache", event.habitId());
+    }
+
+}
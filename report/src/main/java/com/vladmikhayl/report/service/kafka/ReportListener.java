@@ -1,5 +1,7 @@
 package com.vladmikhayl.report.service.kafka;
 
+import com.vladmikhayl.commons.data.shard.OnShard;
+import com.vladmikhayl.commons.data.shard.ShardRouter;
 import com.vladmikhayl.commons.dto.HabitCreatedEvent;
 import com.vladmikhayl.commons.dto.HabitDeletedEvent;
 import com.vladmikhayl.report.entity.HabitPhotoAllowedCache;
@@ -20,10 +22,16 @@ public class ReportListener {
 
     private final ReportRepository reportRepository;
 
+    private final ShardRouter shardRouter;
+
+    // Владелец привычки записывается в каталог шардирования, чтобы отчеты о ней попадали на его шард
+    @OnShard(user = "#event.userId()")
     @KafkaListener(topics = "habit-created", groupId = "report-group")
     public void listen(HabitCreatedEvent event) {
         log.info("Получено событие: создана привычка {}", event.habitId());
 
+        shardRouter.registerEntity(event.habitId(), event.userId());
+
         if (event.isPhotoAllowed()) {
             habitPhotoAllowedCacheRepository.save(
                     HabitPhotoAllowedCache.builder()
@@ -34,6 +42,7 @@ public class ReportListener {
         }
     }
 
+    @OnShard(entity = "#event.habitId()")
     @Transactional
     @KafkaListener(topics = "habit-deleted", groupId = "report-group")
     public void listen(HabitDeletedEvent event) {
@@ -48,6 +57,8 @@ public class ReportListener {
         reportRepository.deleteByHabitId(habitId);
 
         log.info("Удалены все отчеты о привычке {} (если они существовали)", habitId);
+
+        shardRouter.removeEntity(habitId);
     }
 
 }
@@ -0,0 +1,18 @@
+-- Исходная схема (та же, что раньше создавал Hibernate при ddl-auto: create-drop)
+
+CREATE SEQUENCE report_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE reports (
+    id         BIGINT       NOT NULL,
+    user_id    BIGINT       NOT NULL,
+    habit_id   BIGINT       NOT NULL,
+    date       DATE         NOT NULL,
+    photo_url  VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE habits_photo_allowed_cache (
+    habit_id BIGINT NOT NULL,
+    PRIMARY KEY (habit_id)
+);
@@ -0,0 +1,7 @@
+-- Индексы под запросы ReportRepository (проверяются в QueryPlanIntegrationTest)
+
+-- Привычку можно отметить выполненной только один раз за день, теперь это гарантирует сама БД.
+-- Этот же индекс обслуживает findByHabitIdAndDate, existsByHabitIdAndDate, countByHabitIdAndDateBetween,
+-- а по его первому столбцу - findAllByHabitId, countByHabitId и deleteByHabitId
+-- (findByIdAndUserId и existsByIdAndUserId идут по первичному ключу)
+ALTER TABLE reports ADD CONSTRAINT reports_habit_id_date_key UNIQUE (habit_id, date);
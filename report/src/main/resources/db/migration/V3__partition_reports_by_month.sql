@@ -0,0 +1,65 @@
+-- Таблица reports разбивается на помесячные партиции по дате отчета. Запросы с датой (отчет за день,
+-- число отчетов за период, отчеты с даты создания привычки) читают только партиции нужных месяцев,
+-- а старые месяцы можно отсоединять целиком (ReportPartitionMaintenance), не удаляя строки по одной.
+-- Первичный ключ и уникальность у партиционированной таблицы обязаны включать дату
+
+ALTER TABLE reports RENAME TO reports_unpartitioned;
+ALTER TABLE reports_unpartitioned RENAME CONSTRAINT reports_pkey TO reports_unpartitioned_pkey;
+ALTER TABLE reports_unpartitioned RENAME CONSTRAINT reports_habit_id_date_key TO reports_unpartitioned_habit_id_date_key;
+
+CREATE TABLE reports (
+    id         BIGINT       NOT NULL,
+    user_id    BIGINT       NOT NULL,
+    habit_id   BIGINT       NOT NULL,
+    date       DATE         NOT NULL,
+    photo_url  VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, date),
+    CONSTRAINT reports_habit_id_date_key UNIQUE (habit_id, date)
+) PARTITION BY RANGE (date);
+
+-- Сюда попадают отчеты за месяцы, для которых партиции еще нет (например, за день до самой старой партиции).
+-- Когда партиция для месяца создается, его отчеты переносятся из нее
+CREATE TABLE reports_default PARTITION OF reports DEFAULT;
+
+-- Создает партицию reports_YYYY_MM для месяца, если ее еще нет. Вызывается из этой миграции
+-- и по расписанию из ReportPartitionMaintenance (с нескольких экземпляров report одновременно)
+CREATE FUNCTION create_reports_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    partition_name TEXT := 'reports_' || to_char(month_start, 'YYYY_MM');
+    month_end      DATE := (month_start + INTERVAL '1 month')::DATE;
+BEGIN
+    -- Экземпляры report не должны создавать одну и ту же партицию параллельно
+    PERFORM pg_advisory_xact_lock(hashtext('create_reports_partition'));
+
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    -- Партиция создается отдельной таблицей и присоединяется уже с перенесенными отчетами:
+    -- иначе Postgres не даст создать партицию, пока строки ее месяца лежат в reports_default
+    EXECUTE format('CREATE TABLE %I (LIKE reports INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format(
+            'WITH moved AS (DELETE FROM reports_default WHERE date >= %L AND date < %L RETURNING *) ' ||
+            'INSERT INTO %I SELECT * FROM moved',
+            month_start, month_end, partition_name);
+    EXECUTE format('ALTER TABLE reports ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+            partition_name, month_start, month_end);
+
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Партиции для всех месяцев, за которые уже есть отчеты, и на три месяца вперед
+SELECT create_reports_partition(month::DATE)
+FROM generate_series(
+        date_trunc('month', LEAST(COALESCE((SELECT min(date) FROM reports_unpartitioned), CURRENT_DATE), CURRENT_DATE)),
+        date_trunc('month', CURRENT_DATE) + INTERVAL '3 months',
+        INTERVAL '1 month'
+) AS month;
+
+INSERT INTO reports (id, user_id, habit_id, date, photo_url, created_at)
+SELECT id, user_id, habit_id, date, photo_url, created_at
+FROM reports_unpartitioned;
+
+DROP TABLE reports_unpartitioned;
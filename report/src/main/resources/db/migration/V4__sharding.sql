@@ -0,0 +1,27 @@
+-- Таблицы шардирования по пользователям (ShardingAutoConfiguration в common-data, sharding.enabled).
+-- Миграции выполняются на всех шардах, но эти таблицы читаются только в основной БД.
+-- Без шардирования они не используются
+
+-- Шард каждого бакета пользователей. Бакеты без строки здесь лежат в основной БД
+CREATE TABLE shard_buckets (
+    bucket INTEGER     NOT NULL,
+    shard  VARCHAR(64) NOT NULL,
+    frozen BOOLEAN     NOT NULL DEFAULT FALSE,
+    PRIMARY KEY (bucket)
+);
+
+-- Владелец каждой привычки (заполняется по событиям habit-created): по нему находится шард
+-- для внутренних запросов от habit и для слушателей Kafka, которые знают только ID привычки
+CREATE TABLE shard_directory (
+    entity_id BIGINT NOT NULL,
+    user_id   BIGINT NOT NULL,
+    PRIMARY KEY (entity_id)
+);
+
+-- Сущности пользователей при переносе их на другой шард
+CREATE INDEX shard_directory_user_id_idx ON shard_directory (user_id);
+
+-- Отчеты пишет только владелец привычки, поэтому владельцы уже известных привычек берутся из них
+INSERT INTO shard_directory (entity_id, user_id)
+SELECT DISTINCT habit_id, user_id FROM reports
+ON CONFLICT (entity_id) DO NOTHING;
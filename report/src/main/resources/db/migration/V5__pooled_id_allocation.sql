@@ -0,0 +1,5 @@
+-- Hibernate выделяет ID блоками по 50 (allocationSize = 50, оптимизатор pooled-lo): nextval возвращает
+-- начало блока, остальные 49 ID экземпляр раздает сам, не обращаясь к БД. Последовательность должна
+-- шагать на размер блока. Уже выданные ID не меняются: следующий nextval вернет last_value + 50,
+-- поэтому новые блоки начинаются выше всех существующих строк
+ALTER SEQUENCE report_seq INCREMENT BY 50;
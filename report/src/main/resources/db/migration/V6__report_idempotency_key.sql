@@ -0,0 +1,3 @@
+-- Ключ идемпотентности, с которым клиент создавал отчет (заголовок Idempotency-Key). Повтор запроса
+-- с тем же ключом получает тот же ответ, что и первый, а не 409. Колонка добавляется и во все партиции
+ALTER TABLE reports ADD COLUMN idempotency_key VARCHAR(64);
@@ -0,0 +1,7 @@
+-- Отчет за день (getReportAtDay и isCompletedAtDay - по запросу на каждую привычку на главных экранах)
+-- читается из индекса уникальности целиком, без обращения к строкам таблицы (Index Only Scan).
+-- Ключ индекса остается (habit_id, date), поэтому ON CONFLICT (habit_id, date) по-прежнему выбирает его.
+-- Цена - смена фото отчета теперь обновляет и индекс, но это редкая операция
+ALTER TABLE reports
+    DROP CONSTRAINT reports_habit_id_date_key,
+    ADD CONSTRAINT reports_habit_id_date_key UNIQUE (habit_id, date) INCLUDE (id, photo_url, created_at);
@@ -0,0 +1,6 @@
+-- Бакет владельца сущности (ShardMap.bucketOf). Перенос бакетов выбирает по нему только пользователей
+-- переносимых бакетов, а не весь каталог. Хеш считается в Java, поэтому у уже существующих записей бакет
+-- пустой, пока его не заполнит ShardSplitter перед первым переносом
+ALTER TABLE shard_directory ADD COLUMN bucket INTEGER;
+
+CREATE INDEX shard_directory_bucket_idx ON shard_directory (bucket, user_id);
@@ -3,6 +3,8 @@ package com.vladmikhayl.report.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.vladmikhayl.report.dto.request.ReportCreationRequest;
+import com.vladmikhayl.report.dto.request.ReportsCreationRequest;
+import com.vladmikhayl.report.dto.response.ReportCreationResultResponse;
 import com.vladmikhayl.report.service.ReportService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,11 +18,13 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
@@ -55,7 +59,7 @@ class ReportControllerTest {
 
         String userIdStr = "2";
 
-        doNothing().when(reportService).createReport(any(ReportCreationRequest.class), eq(userIdStr));
+        doNothing().when(reportService).createReport(any(ReportCreationRequest.class), eq(userIdStr), isNull());
 
         mockMvc.perform(post("/api/v1/reports/create")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -63,7 +67,7 @@ class ReportControllerTest {
                         .header("X-User-Id", userIdStr))
                 .andExpect(status().isCreated());
 
-        verify(reportService).createReport(argThat(req -> req.equals(request)), eq(userIdStr));
+        verify(reportService).createReport(argThat(req -> req.equals(request)), eq(userIdStr), isNull());
     }
 
     @Test
@@ -78,15 +82,16 @@ class ReportControllerTest {
 
         String userIdStr = "2";
 
-        doNothing().when(reportService).createReport(any(ReportCreationRequest.class), eq(userIdStr));
+        doNothing().when(reportService).createReport(any(ReportCreationRequest.class), eq(userIdStr), eq("b6f3c1a0-retry-key"));
 
         mockMvc.perform(post("/api/v1/reports/create")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request))
-                        .header("X-User-Id", userIdStr))
+                        .header("X-User-Id", userIdStr)
+                        .header("Idempotency-Key", "b6f3c1a0-retry-key"))
                 .andExpect(status().isCreated());
 
-        verify(reportService).createReport(argThat(req -> req.equals(request)), eq(userIdStr));
+        verify(reportService).createReport(argThat(req -> req.equals(request)), eq(userIdStr), eq("b6f3c1a0-retry-key"));
     }
 
     @Test
@@ -110,7 +115,7 @@ class ReportControllerTest {
                 })
                 .andExpect(status().isBadRequest());
 
-        verify(reportService, never()).createReport(any(), any());
+        verify(reportService, never()).createReport(any(), any(), any());
     }
 
     @Test
@@ -134,7 +139,79 @@ class ReportControllerTest {
                 })
                 .andExpect(status().isBadRequest());
 
-        verify(reportService, never()).createReport(any(), any());
+        verify(reportService, never()).createReport(any(), any(), any());
+    }
+
+    @Test
+    void canCreateReportsInBatch() throws Exception {
+        ReportCreationRequest first = ReportCreationRequest.builder()
+                .habitId(2L)
+                .date(LocalDate.of(2025, 3, 28))
+                .build();
+
+        ReportCreationRequest second = ReportCreationRequest.builder()
+                .habitId(3L)
+                .date(LocalDate.of(2025, 3, 28))
+                .build();
+
+        ReportsCreationRequest request = ReportsCreationRequest.builder()
+                .reports(List.of(first, second))
+                .build();
+
+        String userIdStr = "2";
+
+        when(reportService.createReports(List.of(first, second), userIdStr)).thenReturn(List.of(
+                ReportCreationResultResponse.builder().habitId(2L).date(first.getDate()).status(201).reportId(7L).build(),
+                ReportCreationResultResponse.builder().habitId(3L).date(second.getDate()).status(409)
+                        .error("Эта привычка уже отмечена как выполненная в указанный день").build()
+        ));
+
+        mockMvc.perform(post("/api/v1/reports/create-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-User-Id", userIdStr))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].reportId").value(7))
+                .andExpect(jsonPath("$[1].status").value(409));
+    }
+
+    @Test
+    void failCreateReportsWithoutReports() throws Exception {
+        ReportsCreationRequest request = ReportsCreationRequest.builder()
+                .reports(List.of())
+                .build();
+
+        mockMvc.perform(post("/api/v1/reports/create-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-User-Id", "2"))
+                .andExpect(status().isBadRequest());
+
+        verify(reportService, never()).createReports(any(), any());
+    }
+
+    @Test
+    void failCreateReportsWhenOneOfThemHasNoDate() throws Exception {
+        ReportsCreationRequest request = ReportsCreationRequest.builder()
+                .reports(List.of(
+                        ReportCreationRequest.builder().habitId(2L).date(LocalDate.of(2025, 3, 28)).build(),
+                        ReportCreationRequest.builder().habitId(3L).date(null).build()
+                ))
+                .build();
+
+        mockMvc.perform(post("/api/v1/reports/create-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-User-Id", "2"))
+                .andExpect(result -> {
+                    Exception exception = result.getResolvedException();
+                    assertTrue(exception instanceof MethodArgumentNotValidException);
+                    assertTrue(exception.getMessage().contains("Не указана дата"));
+                })
+                .andExpect(status().isBadRequest());
+
+        verify(reportService, never()).createReports(any(), any());
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,128 @@
+package com.vladmikhayl.report.integration;
+
+import com.vladmikhayl.report.FeignClientTestConfig;
+import com.vladmikhayl.report.entity.Report;
+import com.vladmikhayl.report.repository.ReportRepository;
+import com.vladmikhayl.report.service.ReportIdGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Остальные интеграционные тесты работают с последовательностями с шагом 1 (см. db/migration/afterMigrate.sql),
+// поэтому здесь отдельный контейнер Postgres без afterMigrate.sql: report_seq шагает на 50, как в рабочей БД,
+// а Hibernate при несовпадении шага не подстраивается под БД, а падает при старте.
+// Проверяется, что ID из блока pooled-lo не пересекаются у отчетов, сохраненных через Hibernate,
+// и у отчетов, вставленных нативными запросами (ReportIdGenerator), в том числе с блоком другого экземпляра
+@SpringBootTest
+@ActiveProfiles("test") // чтобы CommandLineRunner в коде Application не выполнялся
+@TestPropertySource(properties = {
+        // чтобы Спринг не пытался использовать конфиг-сервер и Эврику
+        "spring.config.location=classpath:/application-test.yml",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "spring.flyway.skip-default-callbacks=true",
+        "spring.jpa.properties.hibernate.id.sequence.increment_size_mismatch_strategy=exception"
+})
+@Import(FeignClientTestConfig.class) // импортируем конфиг, где мы создали замоканный бин Feign-клиента
+public class PooledIdAllocationIntegrationTest {
+
+    private static final Long USER_ID = 2L;
+
+    private static final LocalDate DATE = LocalDate.now();
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportIdGenerator reportIdGenerator;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeAll
+    public static void setUp() {
+        POSTGRES.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @Test
+    void hibernateAndNativeInsertsDoNotReuseIdsWithProductionSequenceStep() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = 'report_seq'", Long.class)).isEqualTo(50L);
+
+        // Одиночная вставка, пакетная вставка и сохранение через Hibernate берут ID из одного блока подряд
+        Long first = reportIdGenerator.nextId();
+        assertThat(reportRepository.insertIfAbsent(first, USER_ID, 1L, DATE, null, null)).contains(first);
+
+        List<Long> batchIds = reportIdGenerator.nextIds(3);
+        assertThat(batchIds).containsExactly(first + 1, first + 2, first + 3);
+        assertThat(reportRepository.insertAllIfAbsent(USER_ID, batchIds.toArray(Long[]::new),
+                new Long[]{2L, 3L, 4L}, new LocalDate[]{DATE, DATE, DATE}, new String[]{null, null, null}))
+                .containsExactlyInAnyOrderElementsOf(batchIds);
+
+        Report saved = reportRepository.save(report(5L));
+        assertThat(saved.getId()).isEqualTo(first + 4);
+
+        // Другой экземпляр микросервиса получает следующий блок, который не пересекается с текущим
+        Long otherInstanceBlock = jdbcTemplate.queryForObject("SELECT nextval('report_seq')", Long.class);
+        assertThat(otherInstanceBlock).isGreaterThanOrEqualTo(first + 50);
+        jdbcTemplate.update("""
+                INSERT INTO reports (id, user_id, habit_id, date, created_at)
+                VALUES (?, ?, 6, ?, now())
+                """, otherInstanceBlock, USER_ID, DATE);
+
+        // Текущий блок заканчивается, и следующий блок этого экземпляра тоже не пересекается с блоком другого
+        List<Long> nextIds = reportIdGenerator.nextIds(60);
+        List<Report> reports = new ArrayList<>();
+        LongStream.range(0, 30).forEach(i -> reports.add(report(100L + i)));
+        reportRepository.saveAll(reports);
+        reportRepository.insertAllIfAbsent(USER_ID, nextIds.toArray(Long[]::new),
+                LongStream.range(0, 60).mapToObj(i -> 200L + i).toArray(Long[]::new),
+                nextIds.stream().map(id -> DATE).toArray(LocalDate[]::new),
+                new String[60]);
+
+        List<Long> allIds = jdbcTemplate.queryForList("SELECT id FROM reports", Long.class);
+        assertThat(allIds).hasSize(1 + 3 + 1 + 1 + 30 + 60);
+        assertThat(new HashSet<>(allIds)).hasSameSizeAs(allIds);
+        assertThat(allIds).noneMatch(id -> id > otherInstanceBlock && id < otherInstanceBlock + 50);
+    }
+
+    private static Report report(Long habitId) {
+        return Report.builder()
+                .userId(USER_ID)
+                .habitId(habitId)
+                .date(DATE)
+                .build();
+    }
+
+}
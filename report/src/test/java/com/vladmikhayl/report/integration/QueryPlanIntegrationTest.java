@@ -0,0 +1,162 @@
+package com.vladmikhayl.report.integration;
+
+import com.vladmikhayl.report.FeignClientTestConfig;
+import com.vladmikhayl.report.service.InternalReportService;
+import jakarta.persistence.EntityManagerFactory;
+import org.assertj.core.api.SoftAssertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Проверяет, что на схеме из миграций Flyway ни один частый запрос ReportRepository не читает таблицу целиком,
+// а запросы с датой читают только партиции нужных месяцев.
+// SQL здесь повторяет тот, что Hibernate генерирует для методов репозитория
+@SpringBootTest
+@ActiveProfiles("test") // чтобы CommandLineRunner в коде Application не выполнялся
+@TestPropertySource(properties = {
+        // чтобы Спринг не пытался использовать конфиг-сервер и Эврику
+        "spring.config.location=classpath:/application-test.yml",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false"
+})
+@Transactional // чтобы после теста сгенерированные данные откатывались обратно
+@Import(FeignClientTestConfig.class) // импортируем конфиг, где мы создали замоканный бин Feign-клиента
+public class QueryPlanIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InternalReportService internalReportService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeAll
+    public static void setUp() {
+        // Явным образом получаем контейнер Postgres (если он еще не создавался, то в этот момент создастся его синглтон)
+        TestPostgresContainer.getInstance();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        // Задаем настройки для БД, используя синглтон контейнера Postgres
+        TestPostgresContainer container = TestPostgresContainer.getInstance();
+        registry.add("spring.datasource.url", container::getJdbcUrl);
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @BeforeEach
+    void seed() {
+        // Партиции за месяцы с отчетами (миграция создает их только начиная с текущего месяца)
+        jdbcTemplate.execute("""
+                SELECT create_reports_partition(month::DATE)
+                FROM generate_series(DATE '2025-01-01', DATE '2025-04-01', INTERVAL '1 month') AS month
+                """);
+        // 2000 привычек у 500 пользователей, у каждой привычки отчеты за 100 дней подряд (200 тысяч строк)
+        jdbcTemplate.execute("""
+                INSERT INTO reports (id, user_id, habit_id, date, photo_url, created_at)
+                SELECT nextval('report_seq'), habit % 500, habit, DATE '2025-01-01' + day, NULL, now()
+                FROM generate_series(1, 2000) habit, generate_series(0, 99) day
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO habits_photo_allowed_cache (habit_id)
+                SELECT habit FROM generate_series(1, 2000, 2) habit
+                """);
+        // Без свежей статистики планировщик не знает, сколько в таблицах строк
+        jdbcTemplate.execute("ANALYZE reports");
+        jdbcTemplate.execute("ANALYZE habits_photo_allowed_cache");
+    }
+
+    @Test
+    void hotQueriesDoNotUseSeqScan() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("findByHabitIdAndDate", """
+                SELECT r.id, r.created_at, r.date, r.habit_id, r.photo_url, r.user_id FROM reports r
+                WHERE r.habit_id = 1000 AND r.date = DATE '2025-02-01'""");
+        queries.put("findReportAtDay", """
+                SELECT r.id, r.photo_url, r.created_at FROM reports r
+                WHERE r.habit_id = 1000 AND r.date = DATE '2025-02-01'""");
+        queries.put("existsByHabitIdAndDate", """
+                SELECT r.id FROM reports r WHERE r.habit_id = 1000 AND r.date = DATE '2025-02-01'
+                FETCH FIRST 1 ROWS ONLY""");
+        queries.put("countByHabitIdAndDateBetween", """
+                SELECT count(r.id) FROM reports r
+                WHERE r.habit_id = 1000 AND r.date BETWEEN DATE '2025-02-01' AND DATE '2025-02-28'""");
+        queries.put("findAllByHabitIdAndDateGreaterThanEqual", """
+                SELECT r.id, r.created_at, r.date, r.habit_id, r.photo_url, r.user_id FROM reports r
+                WHERE r.habit_id = 1000 AND r.date >= DATE '2025-01-01'""");
+        queries.put("countByHabitIdAndDateGreaterThanEqual", """
+                SELECT count(r.id) FROM reports r WHERE r.habit_id = 1000 AND r.date >= DATE '2025-01-01'""");
+        queries.put("deleteByHabitId", "DELETE FROM reports r WHERE r.habit_id = 1000");
+        queries.put("findByIdAndUserId", """
+                SELECT r.id, r.created_at, r.date, r.habit_id, r.photo_url, r.user_id FROM reports r
+                WHERE r.id = 100000 AND r.user_id = 0""");
+        queries.put("existsByIdAndUserId", """
+                SELECT r.id FROM reports r WHERE r.id = 100000 AND r.user_id = 0 FETCH FIRST 1 ROWS ONLY""");
+        queries.put("isPhotoAllowed", "SELECT c.habit_id FROM habits_photo_allowed_cache c WHERE c.habit_id = 1001");
+
+        // reports_default пустая, и в ней полный просмотр дешевле индекса, поэтому она не считается
+        SoftAssertions.assertSoftly(softly -> queries.forEach((method, sql) ->
+                softly.assertThat(explain(sql)).as(method).doesNotContainPattern("Seq Scan on (?!reports_default)")));
+    }
+
+    @Test
+    void queriesWithDateReadOnlyPartitionsOfTheirMonths() {
+        String reportAtDay = explain(
+                "SELECT r.id FROM reports r WHERE r.habit_id = 1000 AND r.date = DATE '2025-02-01'");
+        String period = explain("""
+                SELECT count(r.id) FROM reports r
+                WHERE r.habit_id = 1000 AND r.date BETWEEN DATE '2025-02-24' AND DATE '2025-03-02'""");
+        String sinceHabitCreation = explain(
+                "SELECT count(r.id) FROM reports r WHERE r.habit_id = 1000 AND r.date >= DATE '2025-03-15'");
+
+        assertThat(reportAtDay).contains("reports_2025_02")
+                .doesNotContain("reports_2025_01", "reports_2025_03", "reports_default");
+        assertThat(period).contains("reports_2025_02", "reports_2025_03")
+                .doesNotContain("reports_2025_01", "reports_2025_04");
+        assertThat(sinceHabitCreation).contains("reports_2025_03", "reports_2025_04")
+                .doesNotContain("reports_2025_01", "reports_2025_02");
+    }
+
+    @Test
+    void reportAtDayIsReadWithOneStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        LocalDate date = LocalDate.of(2025, 2, 1);
+
+        // Отчет за день есть (привычка 1000) и отчета нет (привычки 5000 не существует)
+        for (long habitId : new long[]{1000, 5000}) {
+            statistics.clear();
+            internalReportService.isCompletedAtDay(habitId, date);
+            assertThat(statistics.getPrepareStatementCount()).as("isCompletedAtDay(%d)", habitId).isEqualTo(1);
+
+            statistics.clear();
+            internalReportService.getReportAtDay(habitId, date);
+            assertThat(statistics.getPrepareStatementCount()).as("getReportAtDay(%d)", habitId).isEqualTo(1);
+        }
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+}
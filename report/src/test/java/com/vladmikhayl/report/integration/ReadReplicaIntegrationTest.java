@@ -0,0 +1,178 @@
+package com.vladmikhayl.report.integration;
+
+import com.vladmikhayl.commons.data.replica.ReplicaLagMonitor;
+import com.vladmikhayl.commons.data.replica.ReplicaReadScope;
+import com.vladmikhayl.report.FeignClientTestConfig;
+import com.vladmikhayl.report.entity.Period;
+import com.vladmikhayl.report.service.InternalReportService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Репликой здесь служит второй, независимый контейнер Postgres с той же схемой: в него ничего не реплицируется,
+// поэтому по тому, видно ли только что записанный отчет, можно понять, из какой БД он читался
+@SpringBootTest
+@ActiveProfiles("test") // чтобы CommandLineRunner в коде Application не выполнялся
+@TestPropertySource(properties = {
+        // чтобы Спринг не пытался использовать конфиг-сервер и Эврику
+        "spring.config.location=classpath:/application-test.yml",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false"
+})
+@Import(FeignClientTestConfig.class) // импортируем конфиг, где мы создали замоканный бин Feign-клиента
+@AutoConfigureMockMvc
+public class ReadReplicaIntegrationTest {
+
+    private static final Long HABIT_ID = 1_000_001L;
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private static final PostgreSQLContainer<?> REPLICA = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InternalReportService internalReportService;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @BeforeAll
+    public static void setUp() {
+        // Явным образом получаем контейнер Postgres (если он еще не создавался, то в этот момент создастся его синглтон)
+        TestPostgresContainer.getInstance();
+        REPLICA.start();
+        Flyway.configure()
+                .dataSource(REPLICA.getJdbcUrl(), REPLICA.getUsername(), REPLICA.getPassword())
+                .load()
+                .migrate();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        // Задаем настройки для БД, используя синглтон контейнера Postgres
+        TestPostgresContainer container = TestPostgresContainer.getInstance();
+        registry.add("spring.datasource.url", container::getJdbcUrl);
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("read-replica.url", REPLICA::getJdbcUrl);
+        registry.add("read-replica.read-your-writes-window", () -> "1m");
+    }
+
+    @BeforeEach
+    void checkReplica() {
+        replicaLagMonitor.check();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReplicaReadScope.exit();
+        new JdbcTemplate(primaryDataSource).update("DELETE FROM reports WHERE habit_id = ?", HABIT_ID);
+        replica().update("DELETE FROM reports WHERE habit_id = ?", HABIT_ID);
+    }
+
+    @Test
+    void readOnlyServiceMethodReadsFromReplicaInsideRequest() {
+        new JdbcTemplate(primaryDataSource).update("""
+                INSERT INTO reports (id, user_id, habit_id, date, created_at)
+                VALUES (nextval('report_seq'), 7, ?, ?, now())
+                """, HABIT_ID, TODAY);
+
+        // Вне запроса (как в слушателях Kafka) - основная БД
+        assertThat(internalReportService.countCompletionsInPeriod(HABIT_ID, Period.MONTH, TODAY)).isEqualTo(1);
+
+        ReplicaReadScope.enter("8", false);
+        assertThat(internalReportService.countCompletionsInPeriod(HABIT_ID, Period.MONTH, TODAY)).isEqualTo(0);
+
+        // Запрос с X-Read-Primary (например, загрузка значения в near-cache другого микросервиса)
+        ReplicaReadScope.enter("8", true);
+        assertThat(internalReportService.countCompletionsInPeriod(HABIT_ID, Period.MONTH, TODAY)).isEqualTo(1);
+    }
+
+    @Test
+    void userReadsOwnWriteFromPrimary() {
+        AtomicBoolean written = new AtomicBoolean();
+        ReplicaReadScope.enter("7", false, false, () -> written.set(true));
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("""
+                INSERT INTO reports (id, user_id, habit_id, date, created_at)
+                VALUES (nextval('report_seq'), 7, ?, ?, now())
+                """, HABIT_ID, TODAY));
+        // ReadReplicaFilter в этот момент ставит в ответ cookie ReadYourWrites
+        assertThat(written).isTrue();
+
+        // Следующий запрос с этой cookie (на любой экземпляр) читает из основной БД
+        ReplicaReadScope.enter("7", false, true, null);
+        assertThat(internalReportService.countCompletionsInPeriod(HABIT_ID, Period.MONTH, TODAY)).isEqualTo(1);
+
+        // Запрос без нее по-прежнему читает из реплики
+        ReplicaReadScope.enter("7", false);
+        assertThat(internalReportService.countCompletionsInPeriod(HABIT_ID, Period.MONTH, TODAY)).isEqualTo(0);
+    }
+
+    // Чтение и запись в одном запросе: отчет ищется read-only запросом (в реплике), а удаляется в основной БД.
+    // Сессия Hibernate с open-in-view живет весь запрос, и если бы она держала первое соединение, то удаление
+    // пошло бы в read-only соединение с репликой и упало
+    @Test
+    void requestWritesToPrimaryAfterReadingFromReplica() throws Exception {
+        long reportId = 1_000_001L;
+        String insert = """
+                INSERT INTO reports (id, user_id, habit_id, date, created_at)
+                VALUES (?, 7, ?, ?, now())
+                """;
+        new JdbcTemplate(primaryDataSource).update(insert, reportId, HABIT_ID, TODAY);
+        replica().update(insert, reportId, HABIT_ID, TODAY);
+
+        mockMvc.perform(delete("/api/v1/reports/{reportId}/delete", reportId)
+                        .header("X-User-Id", "7"))
+                .andExpect(status().isOk());
+
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject(
+                "SELECT count(*) FROM reports WHERE id = ?", Integer.class, reportId)).isEqualTo(0);
+    }
+
+    // Пул реплики в приложении read-only, поэтому тестовые данные в нее пишутся через отдельное соединение
+    private static JdbcTemplate replica() {
+        return new JdbcTemplate(new DriverManagerDataSource(
+                REPLICA.getJdbcUrl(), REPLICA.getUsername(), REPLICA.getPassword()));
+    }
+
+}
@@ -302,6 +302,123 @@ public class ReportControllerIntegrationTest {
         assertThat(reportsCount).isEqualTo(1);
     }
 
+    @Test
+    @Sql(statements = "ALTER SEQUENCE report_seq RESTART WITH 1", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void repeatedCreateReportWithSameIdempotencyKeyDoesNotCreateSecondReport() throws Exception {
+        Long habitId = 10L;
+
+        String userIdStr = "2";
+        Long userId = 2L;
+
+        ReportCreationRequest request = ReportCreationRequest.builder()
+                .habitId(habitId)
+                .date(LocalDate.of(2025, 3, 20))
+                .photoUrl(null)
+                .build();
+
+        Mockito.when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/reports/create")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+                            .header("X-User-Id", userIdStr)
+                            .header("Idempotency-Key", "first-attempt"))
+                    .andExpect(status().isCreated());
+        }
+
+        // Запрос с другим ключом - это уже не повтор, а попытка создать второй отчет за тот же день
+        mockMvc.perform(post("/api/v1/reports/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-User-Id", userIdStr)
+                        .header("Idempotency-Key", "second-attempt"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Эта привычка уже отмечена как выполненная в указанный день"));
+
+        long reportsCount = reportRepository.count();
+        assertThat(reportsCount).isEqualTo(1);
+
+        Report report = reportRepository.findByHabitIdAndDate(habitId, request.getDate()).orElseThrow();
+        assertThat(report.getId()).isEqualTo(1L);
+        assertThat(report.getIdempotencyKey()).isEqualTo("first-attempt");
+    }
+
+    @Test
+    @Sql(statements = "ALTER SEQUENCE report_seq RESTART WITH 1", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void failCreateReportWithSameIdempotencyKeyButOtherPhoto() throws Exception {
+        Long habitId = 10L;
+
+        String userIdStr = "2";
+        Long userId = 2L;
+
+        habitPhotoAllowedCacheRepository.save(
+                HabitPhotoAllowedCache.builder()
+                        .habitId(habitId)
+                        .build()
+        );
+
+        ReportCreationRequest request = ReportCreationRequest.builder()
+                .habitId(habitId)
+                .date(LocalDate.of(2025, 3, 20))
+                .photoUrl("https://start.spring.io/")
+                .build();
+
+        Mockito.when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
+
+        mockMvc.perform(post("/api/v1/reports/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-User-Id", userIdStr)
+                        .header("Idempotency-Key", "first-attempt"))
+                .andExpect(status().isCreated());
+
+        request.setPhotoUrl("https://github.com/");
+
+        mockMvc.perform(post("/api/v1/reports/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-User-Id", userIdStr)
+                        .header("Idempotency-Key", "first-attempt"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error").value("Этот ключ идемпотентности уже использован для запроса с другими данными"));
+
+        Report report = reportRepository.findByHabitIdAndDate(habitId, request.getDate()).orElseThrow();
+        assertThat(report.getPhotoUrl()).isEqualTo("https://start.spring.io/");
+    }
+
+    @Test
+    @Sql(statements = "ALTER SEQUENCE report_seq RESTART WITH 1", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    void failCreateReportThatHasAlreadyBeenCreatedEvenWithPhotoWhenPhotoIsNotAllowed() throws Exception {
+        Long habitId = 10L;
+
+        String userIdStr = "2";
+        Long userId = 2L;
+
+        reportRepository.save(Report.builder()
+                .userId(userId)
+                .habitId(habitId)
+                .date(LocalDate.of(2025, 3, 20))
+                .photoUrl(null)
+                .build());
+
+        ReportCreationRequest request = ReportCreationRequest.builder()
+                .habitId(habitId)
+                .date(LocalDate.of(2025, 3, 20))
+                .photoUrl("https://start.spring.io/")
+                .build();
+
+        Mockito.when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
+
+        // Дубликат получает 409, хотя фото к этой привычке тоже прикреплять нельзя
+        mockMvc.perform(post("/api/v1/reports/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-User-Id", userIdStr))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Эта привычка уже отмечена как выполненная в указанный день"));
+    }
+
     @Test
     @Sql(statements = "ALTER SEQUENCE report_seq RESTART WITH 1", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
     void failCreateReportWhenUserDoesNotHaveThatHabitAtThatDay() throws Exception {
@@ -0,0 +1,160 @@
+package com.vladmikhayl.report.integration;
+
+import com.vladmikhayl.commons.data.shard.ShardDataSources;
+import com.vladmikhayl.commons.data.shard.ShardMap;
+import com.vladmikhayl.commons.data.shard.ShardRouter;
+import com.vladmikhayl.commons.data.shard.ShardSplitter;
+import com.vladmikhayl.report.FeignClientTestConfig;
+import com.vladmikhayl.report.entity.Period;
+import com.vladmikhayl.report.service.InternalReportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Дополнительным шардом здесь служит второй контейнер Postgres, схему в нем создает сам микросервис при старте
+@SpringBootTest
+@ActiveProfiles("test") // чтобы CommandLineRunner в коде Application не выполнялся
+@TestPropertySource(properties = {
+        // чтобы Спринг не пытался использовать конфиг-сервер и Эврику
+        "spring.config.location=classpath:/application-test.yml",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false",
+        "sharding.enabled=true",
+        "sharding.refresh-interval=100ms",
+        "sharding.split-grace-period=0s",
+        "sharding.tables[0].name=reports",
+        "sharding.tables[0].entity-column=habit_id",
+        "sharding.tables[1].name=habits_photo_allowed_cache",
+        "sharding.tables[1].entity-column=habit_id"
+})
+@Import(FeignClientTestConfig.class) // импортируем конфиг, где мы создали замоканный бин Feign-клиента
+public class ShardingIntegrationTest {
+
+    private static final long FIRST_HABIT_ID = 2_000_000L;
+
+    private static final int USERS = 20;
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private static final PostgreSQLContainer<?> SHARD = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Autowired
+    private InternalReportService internalReportService;
+
+    @Autowired
+    private ShardSplitter shardSplitter;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    @Qualifier("mainDataSource")
+    private DataSource mainDataSource;
+
+    @BeforeAll
+    public static void setUp() {
+        // Явным образом получаем контейнер Postgres (если он еще не создавался, то в этот момент создастся его синглтон)
+        TestPostgresContainer.getInstance();
+        SHARD.start();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        // Задаем настройки для БД, используя синглтон контейнера Postgres
+        TestPostgresContainer container = TestPostgresContainer.getInstance();
+        registry.add("spring.datasource.url", container::getJdbcUrl);
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("sharding.shards.shard-1.url", SHARD::getJdbcUrl);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Остальные интеграционные тесты работают с той же основной БД без шардирования
+        JdbcTemplate main = new JdbcTemplate(mainDataSource);
+        main.update("DELETE FROM shard_buckets");
+        main.update("DELETE FROM shard_directory WHERE entity_id >= ?", FIRST_HABIT_ID);
+        main.update("DELETE FROM reports WHERE habit_id >= ?", FIRST_HABIT_ID);
+        shardJdbcTemplate().update("DELETE FROM reports");
+        shardMap.refresh();
+    }
+
+    @Test
+    void splitMovesReportsOfHalfOfUsersAndKeepsThemReadable() {
+        JdbcTemplate main = new JdbcTemplate(mainDataSource);
+        // У каждого пользователя одна привычка с одним отчетом, все пока на основном шарде.
+        // Привычки нечетных пользователей записаны в каталог до появления в нем бакетов
+        LongStream.rangeClosed(1, USERS).forEach(userId -> {
+            if (userId % 2 == 0) {
+                shardRouter.registerEntity(FIRST_HABIT_ID + userId, userId);
+            } else {
+                main.update("INSERT INTO shard_directory (entity_id, user_id) VALUES (?, ?)",
+                        FIRST_HABIT_ID + userId, userId);
+            }
+            main.update("""
+                    INSERT INTO reports (id, user_id, habit_id, date, created_at)
+                    VALUES (nextval('report_seq'), ?, ?, ?, now())
+                    """, userId, FIRST_HABIT_ID + userId, TODAY);
+        });
+
+        shardSplitter.split("main", "shard-1");
+
+        JdbcTemplate shard = shardJdbcTemplate();
+        long movedUsers = LongStream.rangeClosed(1, USERS)
+                .filter(userId -> "shard-1".equals(shardRouter.shardOfUser(userId)))
+                .count();
+        assertThat(movedUsers).isBetween(1L, USERS - 1L);
+
+        LongStream.rangeClosed(1, USERS).forEach(userId -> {
+            long habitId = FIRST_HABIT_ID + userId;
+            boolean moved = "shard-1".equals(shardRouter.shardOfUser(userId));
+            // Отчет лежит ровно на одном шарде - шарде владельца привычки
+            assertThat(countReports(shard, habitId)).isEqualTo(moved ? 1 : 0);
+            assertThat(countReports(main, habitId)).isEqualTo(moved ? 0 : 1);
+            assertThat(internalReportService.countCompletionsInPeriod(habitId, Period.MONTH, TODAY)).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void shardGeneratesIdsFromItsOwnRange() {
+        JdbcTemplate shard = shardJdbcTemplate();
+
+        // Отчеты, созданные на разных шардах, не получат одинаковых ID и после переноса между ними
+        assertThat(shard.queryForObject("SELECT nextval('report_seq')", Long.class)).isGreaterThanOrEqualTo(1L << 40);
+    }
+
+    private JdbcTemplate shardJdbcTemplate() {
+        return new JdbcTemplate(shardDataSources.additional().get("shard-1"));
+    }
+
+    private static int countReports(JdbcTemplate jdbcTemplate, long habitId) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM reports WHERE habit_id = ?", Integer.class, habitId);
+    }
+
+}
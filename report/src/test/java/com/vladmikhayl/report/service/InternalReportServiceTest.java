@@ -2,9 +2,11 @@ package com.vladmikhayl.report.service;
 
 import com.vladmikhayl.report.dto.response.HabitReportsInfoResponse;
 import com.vladmikhayl.report.dto.response.ReportFullInfoResponse;
+import com.vladmikhayl.report.dto.response.ReportShortInfoResponse;
 import com.vladmikhayl.report.entity.FrequencyType;
 import com.vladmikhayl.report.entity.Period;
 import com.vladmikhayl.report.entity.Report;
+import com.vladmikhayl.report.repository.ReportAtDay;
 import com.vladmikhayl.report.repository.ReportRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +25,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -56,15 +60,8 @@ class InternalReportServiceTest {
         LocalDate date = LocalDate.of(2025, 3, 29);
         LocalDateTime createdAt = LocalDateTime.of(2025, 3, 28, 12, 50, 30);
 
-        Report report = Report.builder()
-                .id(reportId)
-                .habitId(habitId)
-                .date(date)
-                .photoUrl("https://photo-url.com/")
-                .createdAt(createdAt)
-                .build();
-
-        when(reportRepository.findByHabitIdAndDate(habitId, date)).thenReturn(Optional.of(report));
+        when(reportRepository.findReportAtDay(habitId, date))
+                .thenReturn(Optional.of(new ReportAtDay(reportId, "https://photo-url.com/", createdAt)));
 
         ReportFullInfoResponse response = underTest.getReportAtDay(habitId, date);
 
@@ -72,6 +69,9 @@ class InternalReportServiceTest {
         assertThat(response.isCompleted()).isTrue();
         assertThat(response.getCompletionTime()).isEqualTo(createdAt);
         assertThat(response.getPhotoUrl()).isEqualTo("https://photo-url.com/");
+
+        verify(reportRepository).findReportAtDay(habitId, date);
+        verifyNoMoreInteractions(reportRepository);
     }
 
     @Test
@@ -81,15 +81,8 @@ class InternalReportServiceTest {
         LocalDate date = LocalDate.of(2025, 3, 29);
         LocalDateTime createdAt = LocalDateTime.of(2025, 3, 28, 12, 50, 30);
 
-        Report report = Report.builder()
-                .id(reportId)
-                .habitId(habitId)
-                .date(date)
-                .photoUrl(null)
-                .createdAt(createdAt)
-                .build();
-
-        when(reportRepository.findByHabitIdAndDate(habitId, date)).thenReturn(Optional.of(report));
+        when(reportRepository.findReportAtDay(habitId, date))
+                .thenReturn(Optional.of(new ReportAtDay(reportId, null, createdAt)));
 
         ReportFullInfoResponse response = underTest.getReportAtDay(habitId, date);
 
@@ -104,7 +97,7 @@ class InternalReportServiceTest {
         Long habitId = 5L;
         LocalDate date = LocalDate.of(2025, 3, 29);
 
-        when(reportRepository.findByHabitIdAndDate(habitId, date)).thenReturn(Optional.empty());
+        when(reportRepository.findReportAtDay(habitId, date)).thenReturn(Optional.empty());
 
         ReportFullInfoResponse response = underTest.getReportAtDay(habitId, date);
 
@@ -114,6 +107,57 @@ class InternalReportServiceTest {
         assertThat(response.getPhotoUrl()).isNull();
     }
 
+    @Test
+    void isCompletedAtDayWithPhotoWhenReportIsPresent() {
+        Long habitId = 5L;
+        LocalDate date = LocalDate.of(2025, 3, 29);
+
+        when(reportRepository.findReportAtDay(habitId, date)).thenReturn(Optional.of(
+                new ReportAtDay(2L, "https://photo-url.com/", LocalDateTime.of(2025, 3, 29, 12, 50, 30))));
+
+        ReportShortInfoResponse response = underTest.isCompletedAtDay(habitId, date);
+
+        assertThat(response.getReportId()).isEqualTo(2L);
+        assertThat(response.isCompleted()).isTrue();
+        assertThat(response.isPhotoUploaded()).isTrue();
+
+        // Один запрос вместо existsByHabitIdAndDate и затем findByHabitIdAndDate
+        verify(reportRepository).findReportAtDay(habitId, date);
+        verifyNoMoreInteractions(reportRepository);
+    }
+
+    @Test
+    void isCompletedAtDayWithoutPhotoWhenReportIsPresent() {
+        Long habitId = 5L;
+        LocalDate date = LocalDate.of(2025, 3, 29);
+
+        when(reportRepository.findReportAtDay(habitId, date)).thenReturn(Optional.of(
+                new ReportAtDay(2L, null, LocalDateTime.of(2025, 3, 29, 12, 50, 30))));
+
+        ReportShortInfoResponse response = underTest.isCompletedAtDay(habitId, date);
+
+        assertThat(response.getReportId()).isEqualTo(2L);
+        assertThat(response.isCompleted()).isTrue();
+        assertThat(response.isPhotoUploaded()).isFalse();
+    }
+
+    @Test
+    void isCompletedAtDayWhenReportIsNotPresent() {
+        Long habitId = 5L;
+        LocalDate date = LocalDate.of(2025, 3, 29);
+
+        when(reportRepository.findReportAtDay(habitId, date)).thenReturn(Optional.empty());
+
+        ReportShortInfoResponse response = underTest.isCompletedAtDay(habitId, date);
+
+        assertThat(response.getReportId()).isNull();
+        assertThat(response.isCompleted()).isFalse();
+        assertThat(response.isPhotoUploaded()).isFalse();
+
+        verify(reportRepository).findReportAtDay(habitId, date);
+        verifyNoMoreInteractions(reportRepository);
+    }
+
     @Test
     void canCountCompletionsInWeekPeriod() {
         Long habitId = 5L;
@@ -185,9 +229,9 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE;
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(0);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(0);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of());
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of());
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -216,9 +260,9 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE;
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(0);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(0);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of());
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of());
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -248,7 +292,7 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE;
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(1);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(1);
 
         when(reportRepository.existsByHabitIdAndDate(eq(habitId), any(LocalDate.class)))
                 .thenAnswer(invocation -> {
@@ -256,7 +300,7 @@ class InternalReportServiceTest {
                     return date.equals(TODAY_DATE);
                 });
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE)
                         .build()
@@ -292,7 +336,7 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE.minusDays(1);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(1);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(1);
 
         when(reportRepository.existsByHabitIdAndDate(eq(habitId), any(LocalDate.class)))
                 .thenAnswer(invocation -> {
@@ -300,7 +344,7 @@ class InternalReportServiceTest {
                     return date.equals(TODAY_DATE);
                 });
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE)
                         .build()
@@ -338,7 +382,7 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE.minusDays(2);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(2);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(2);
 
         when(reportRepository.existsByHabitIdAndDate(eq(habitId), any(LocalDate.class)))
                 .thenAnswer(invocation -> {
@@ -346,7 +390,7 @@ class InternalReportServiceTest {
                     return date.equals(TODAY_DATE) || date.equals(TODAY_DATE.minusDays(1));
                 });
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE)
                         .build(),
@@ -385,11 +429,11 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE.minusDays(30);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(0);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(0);
 
         when(reportRepository.existsByHabitIdAndDate(eq(habitId), any(LocalDate.class))).thenReturn(false);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of());
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of());
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -426,7 +470,7 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE.minusDays(30);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(3);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(3);
 
         when(reportRepository.existsByHabitIdAndDate(eq(habitId), any(LocalDate.class)))
                 .thenAnswer(invocation -> {
@@ -436,7 +480,7 @@ class InternalReportServiceTest {
                             date.equals(TODAY_DATE.minusDays(28));
                 });
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE.minusDays(7))
                         .build(),
@@ -488,7 +532,7 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE.minusDays(30);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(31);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(31);
 
         when(reportRepository.existsByHabitIdAndDate(eq(habitId), any(LocalDate.class)))
                 .thenAnswer(invocation -> {
@@ -503,7 +547,7 @@ class InternalReportServiceTest {
                                 .build())
                                 .toList();
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -541,7 +585,7 @@ class InternalReportServiceTest {
         );
         LocalDate createdAt = TODAY_DATE.minusDays(180);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(179);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(179);
 
         when(reportRepository.existsByHabitIdAndDate(eq(habitId), any(LocalDate.class)))
                 .thenAnswer(invocation -> {
@@ -556,7 +600,7 @@ class InternalReportServiceTest {
                         .build())
                 .toList();
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -589,7 +633,7 @@ class InternalReportServiceTest {
         int timesPerWeek = 1;
         LocalDate createdAt = TODAY_DATE;
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(0);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(0);
 
         when(reportRepository.countByHabitIdAndDateBetween(
                 habitId,
@@ -597,7 +641,7 @@ class InternalReportServiceTest {
                 TODAY_DATE.with(DayOfWeek.MONDAY).plusDays(6)
         )).thenReturn(0);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of());
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of());
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -624,7 +668,7 @@ class InternalReportServiceTest {
         int timesPerWeek = 1;
         LocalDate createdAt = TODAY_DATE;
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(1);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(1);
 
         when(reportRepository.countByHabitIdAndDateBetween(
                 habitId,
@@ -632,7 +676,7 @@ class InternalReportServiceTest {
                 TODAY_DATE.with(DayOfWeek.MONDAY).plusDays(6)
         )).thenReturn(1);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE)
                         .build()
@@ -665,7 +709,7 @@ class InternalReportServiceTest {
         int timesPerWeek = 5;
         LocalDate createdAt = TODAY_DATE.minusDays(30);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(3);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(3);
 
         when(reportRepository.countByHabitIdAndDateBetween(
                 habitId,
@@ -673,7 +717,7 @@ class InternalReportServiceTest {
                 TODAY_DATE.with(DayOfWeek.MONDAY).plusDays(6)
         )).thenReturn(1);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE)
                         .build(),
@@ -714,7 +758,7 @@ class InternalReportServiceTest {
         int timesPerWeek = 7;
         LocalDate createdAt = TODAY_DATE.minusDays(30);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(31);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(31);
 
         when(reportRepository.countByHabitIdAndDateBetween(
                 habitId,
@@ -728,7 +772,7 @@ class InternalReportServiceTest {
                         .build())
                 .toList();
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -758,7 +802,7 @@ class InternalReportServiceTest {
         int timesPerWeek = 7;
         LocalDate createdAt = TODAY_DATE.minusDays(180);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(179);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(179);
 
         int todayWeekDayNumber = TODAY_DATE.getDayOfWeek().getValue();
         int countThisWeek = Math.max(todayWeekDayNumber - 2, 0);
@@ -774,7 +818,7 @@ class InternalReportServiceTest {
                         .build())
                 .toList();
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -804,7 +848,7 @@ class InternalReportServiceTest {
         int timesPerWeek = 1;
         LocalDate createdAt = TODAY_DATE.minusDays(13);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(5);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(5);
 
         when(reportRepository.countByHabitIdAndDateBetween(
                 habitId,
@@ -830,7 +874,7 @@ class InternalReportServiceTest {
                         .build()
         );
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -863,7 +907,7 @@ class InternalReportServiceTest {
         int timesPerMonth = 1;
         LocalDate createdAt = TODAY_DATE;
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(0);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(0);
 
         LocalDate startDate = TODAY_DATE.withDayOfMonth(1);
         LocalDate endDate = TODAY_DATE.withDayOfMonth(TODAY_DATE.lengthOfMonth());
@@ -873,7 +917,7 @@ class InternalReportServiceTest {
                 endDate
         )).thenReturn(0);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of());
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of());
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -900,7 +944,7 @@ class InternalReportServiceTest {
         int timesPerMonth = 1;
         LocalDate createdAt = TODAY_DATE;
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(1);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(1);
 
         LocalDate startDate = TODAY_DATE.withDayOfMonth(1);
         LocalDate endDate = TODAY_DATE.withDayOfMonth(TODAY_DATE.lengthOfMonth());
@@ -910,7 +954,7 @@ class InternalReportServiceTest {
                 endDate
         )).thenReturn(1);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE)
                         .build()
@@ -943,7 +987,7 @@ class InternalReportServiceTest {
         int timesPerMonth = 5;
         LocalDate createdAt = TODAY_DATE.minusDays(30);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(3);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(3);
 
         LocalDate startDate = TODAY_DATE.withDayOfMonth(1);
         LocalDate endDate = TODAY_DATE.withDayOfMonth(TODAY_DATE.lengthOfMonth());
@@ -953,7 +997,7 @@ class InternalReportServiceTest {
                 endDate
         )).thenReturn(3);
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(List.of(
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(List.of(
                 Report.builder()
                         .date(TODAY_DATE)
                         .build(),
@@ -994,7 +1038,7 @@ class InternalReportServiceTest {
         int timesPerMonth = 30;
         LocalDate createdAt = TODAY_DATE.minusDays(29);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(30);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(30);
 
         LocalDate startDate = TODAY_DATE.withDayOfMonth(1);
         LocalDate endDate = TODAY_DATE.withDayOfMonth(TODAY_DATE.lengthOfMonth());
@@ -1010,7 +1054,7 @@ class InternalReportServiceTest {
                         .build())
                 .toList();
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -1040,7 +1084,7 @@ class InternalReportServiceTest {
         int timesPerMonth = 31;
         LocalDate createdAt = TODAY_DATE.minusDays(29);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(30);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(30);
 
         LocalDate startDate = TODAY_DATE.withDayOfMonth(1);
         LocalDate endDate = TODAY_DATE.withDayOfMonth(TODAY_DATE.lengthOfMonth());
@@ -1056,7 +1100,7 @@ class InternalReportServiceTest {
                         .build())
                 .toList();
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -1086,7 +1130,7 @@ class InternalReportServiceTest {
         int timesPerMonth = 31;
         LocalDate createdAt = TODAY_DATE.minusDays(180);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(179);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(179);
 
         int todayMonthDayNumber = TODAY_DATE.getDayOfMonth();
         int countThisMonth = Math.max(todayMonthDayNumber - 2, 0);
@@ -1104,7 +1148,7 @@ class InternalReportServiceTest {
                         .build())
                 .toList();
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -1134,7 +1178,7 @@ class InternalReportServiceTest {
         int timesPerMonth = 1;
         LocalDate createdAt = TODAY_DATE.minusDays(13);
 
-        when(reportRepository.countByHabitId(habitId)).thenReturn(6);
+        when(reportRepository.countByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(6);
 
         when(reportRepository.countByHabitIdAndDateBetween(
                 habitId,
@@ -1163,7 +1207,7 @@ class InternalReportServiceTest {
                         .build()
         );
 
-        when(reportRepository.findAllByHabitId(habitId)).thenReturn(reports);
+        when(reportRepository.findAllByHabitIdAndDateGreaterThanEqual(habitId, createdAt)).thenReturn(reports);
 
         HabitReportsInfoResponse response = underTest.getReportsInfo(
                 habitId,
@@ -0,0 +1,96 @@
+package com.vladmikhayl.report.service;
+
+import com.vladmikhayl.commons.data.shard.ShardRouter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReportPartitionMaintenanceTest {
+
+    // Предполагается, что сегодня 6 апреля 2025
+    private static final LocalDate TODAY_DATE = LocalDate.of(2025, 4, 6);
+
+    private final Clock clock = Clock.fixed(
+            TODAY_DATE.atStartOfDay(ZoneId.systemDefault()).toInstant(),
+            ZoneId.systemDefault()
+    );
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ShardRouter shardRouter = ShardRouter.unsharded();
+
+    @Test
+    void createsPartitionsForCurrentAndUpcomingMonths() {
+        ReportPartitionMaintenance underTest = new ReportPartitionMaintenance(jdbcTemplate, shardRouter, clock, 2, 0, false);
+
+        underTest.maintainPartitions();
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        for (LocalDate month : List.of(LocalDate.of(2025, 4, 1), LocalDate.of(2025, 5, 1), LocalDate.of(2025, 6, 1))) {
+            inOrder.verify(jdbcTemplate).queryForObject("SELECT create_reports_partition(?)", Boolean.class, month);
+        }
+        // Без retention-months партиции не отсоединяются
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class));
+    }
+
+    @Test
+    void archivesPartitionsOlderThanRetention() {
+        ReportPartitionMaintenance underTest = new ReportPartitionMaintenance(jdbcTemplate, shardRouter, clock, 0, 12, false);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(
+                "reports_2024_03", "reports_2024_04", "reports_2025_04", "reports_default"
+        ));
+
+        underTest.detachExpiredPartitions();
+
+        verify(jdbcTemplate).execute("ALTER TABLE reports DETACH PARTITION reports_2024_03");
+        verify(jdbcTemplate).execute("ALTER TABLE reports_2024_03 RENAME TO reports_archive_2024_03");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reports DETACH PARTITION reports_2024_04");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reports DETACH PARTITION reports_2025_04");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reports DETACH PARTITION reports_default");
+    }
+
+    @Test
+    void dropsDetachedPartitionsWhenConfigured() {
+        ReportPartitionMaintenance underTest = new ReportPartitionMaintenance(jdbcTemplate, shardRouter, clock, 0, 1, true);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of(
+                "reports_2025_02", "reports_2025_03", "reports_default"
+        ));
+
+        underTest.detachExpiredPartitions();
+
+        verify(jdbcTemplate).execute("ALTER TABLE reports DETACH PARTITION reports_2025_02");
+        verify(jdbcTemplate).execute("DROP TABLE reports_2025_02");
+        verify(jdbcTemplate, never()).execute("ALTER TABLE reports DETACH PARTITION reports_2025_03");
+    }
+
+    @Test
+    void databaseErrorDoesNotPropagate() {
+        ReportPartitionMaintenance underTest = new ReportPartitionMaintenance(jdbcTemplate, shardRouter, clock, 3, 0, false);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(LocalDate.class)))
+                .thenThrow(new DataAccessResourceFailureException("БД недоступна"));
+
+        underTest.maintainPartitions();
+
+        verify(jdbcTemplate).queryForObject(anyString(), eq(Boolean.class), any(LocalDate.class));
+    }
+
+}
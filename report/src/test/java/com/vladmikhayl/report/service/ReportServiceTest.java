@@ -1,14 +1,16 @@
 package com.vladmikhayl.report.service;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.report.dto.request.HabitAtDayRequest;
 import com.vladmikhayl.report.dto.request.ReportCreationRequest;
 import com.vladmikhayl.report.dto.request.ReportPhotoEditingRequest;
+import com.vladmikhayl.report.dto.response.ReportCreationResultResponse;
 import com.vladmikhayl.report.entity.Report;
 import com.vladmikhayl.report.repository.HabitPhotoAllowedCacheRepository;
 import com.vladmikhayl.report.repository.ReportRepository;
 import com.vladmikhayl.report.service.feign.HabitClient;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -19,10 +21,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,12 +38,18 @@ class ReportServiceTest {
     @Mock
     private ReportRepository reportRepository;
 
+    @Mock
+    private ReportIdGenerator reportIdGenerator;
+
     @Mock
     private HabitPhotoAllowedCacheRepository habitPhotoAllowedCacheRepository;
 
     @Mock
     private HabitClient habitClient;
 
+    @Mock
+    private NearCacheManager nearCacheManager;
+
     @InjectMocks
     private ReportService underTest;
 
@@ -58,27 +68,17 @@ class ReportServiceTest {
 
         when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
 
-        when(reportRepository.existsByHabitIdAndDate(habitId, request.getDate())).thenReturn(false);
+        when(reportIdGenerator.nextId()).thenReturn(100L);
 
-        underTest.createReport(request, userIdStr);
+        when(reportRepository.insertIfAbsent(100L, userId, habitId, request.getDate(), null, null)).thenReturn(Optional.of(100L));
 
-        ArgumentCaptor<Report> reportArgumentCaptor = ArgumentCaptor.forClass(Report.class);
+        underTest.createReport(request, userIdStr, null);
 
-        verify(reportRepository).save(reportArgumentCaptor.capture());
+        // Только один запрос в БД - сама вставка
+        verify(reportRepository).insertIfAbsent(100L, userId, habitId, LocalDate.of(2025, 3, 28), null, null);
+        verifyNoMoreInteractions(reportRepository);
 
-        Report capturedReport = reportArgumentCaptor.getValue();
-
-        Report expected = Report.builder()
-                .userId(userId)
-                .habitId(habitId)
-                .date(LocalDate.of(2025, 3, 28))
-                .photoUrl(null)
-                .build();
-
-        assertThat(capturedReport)
-                .usingRecursiveComparison()
-                .ignoringFields("id", "createdAt")
-                .isEqualTo(expected);
+        verify(nearCacheManager).invalidate("report-status", habitId);
     }
 
     @Test
@@ -96,29 +96,63 @@ class ReportServiceTest {
 
         when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
 
-        when(reportRepository.existsByHabitIdAndDate(habitId, request.getDate())).thenReturn(false);
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(true);
 
-        when(habitPhotoAllowedCacheRepository.existsById(habitId)).thenReturn(true);
+        when(reportIdGenerator.nextId()).thenReturn(100L);
 
-        underTest.createReport(request, userIdStr);
+        when(reportRepository.insertIfAbsent(100L, userId, habitId, request.getDate(), "https://github.com/", null))
+                .thenReturn(Optional.of(100L));
 
-        ArgumentCaptor<Report> reportArgumentCaptor = ArgumentCaptor.forClass(Report.class);
+        underTest.createReport(request, userIdStr, null);
 
-        verify(reportRepository).save(reportArgumentCaptor.capture());
+        verify(reportRepository).insertIfAbsent(100L, userId, habitId, LocalDate.of(2025, 3, 20), "https://github.com/", null);
 
-        Report capturedReport = reportArgumentCaptor.getValue();
+        verify(nearCacheManager).invalidate("report-status", habitId);
+    }
 
-        Report expected = Report.builder()
-                .userId(userId)
+    @Test
+    void canRepeatCreateReportWithSameIdempotencyKey() {
+        Long habitId = 1L;
+
+        ReportCreationRequest request = ReportCreationRequest.builder()
                 .habitId(habitId)
                 .date(LocalDate.of(2025, 3, 20))
-                .photoUrl("https://github.com/")
+                .photoUrl(null)
+                .build();
+
+        String userIdStr = "2";
+        Long userId = 2L;
+        String idempotencyKey = "3f1c2a9e-5d8b-4e47-9b0a-7c6d5e4f3a21";
+
+        when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
+
+        // Отчет уже создан первым запросом с этим ключом - БД возвращает его ID, а не пустой результат
+        when(reportIdGenerator.nextId()).thenReturn(100L);
+
+        when(reportRepository.insertIfAbsent(100L, userId, habitId, request.getDate(), null, idempotencyKey))
+                .thenReturn(Optional.of(100L));
+
+        underTest.createReport(request, userIdStr, idempotencyKey);
+
+        verify(reportRepository).insertIfAbsent(100L, userId, habitId, request.getDate(), null, idempotencyKey);
+    }
+
+    @Test
+    void failCreateReportWithTooLongIdempotencyKey() {
+        ReportCreationRequest request = ReportCreationRequest.builder()
+                .habitId(1L)
+                .date(LocalDate.of(2025, 3, 20))
+                .photoUrl(null)
                 .build();
 
-        assertThat(capturedReport)
-                .usingRecursiveComparison()
-                .ignoringFields("id", "createdAt")
-                .isEqualTo(expected);
+        assertThatThrownBy(() -> underTest.createReport(request, "2", "k".repeat(65)))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> {
+                    ResponseStatusException e = (ResponseStatusException) ex;
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+                });
+
+        verifyNoInteractions(habitClient, reportRepository);
     }
 
     @Test
@@ -136,11 +170,9 @@ class ReportServiceTest {
 
         when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
 
-        when(reportRepository.existsByHabitIdAndDate(habitId, request.getDate())).thenReturn(false);
-
-        when(habitPhotoAllowedCacheRepository.existsById(habitId)).thenReturn(false);
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(false);
 
-        assertThatThrownBy(() -> underTest.createReport(request, userIdStr))
+        assertThatThrownBy(() -> underTest.createReport(request, userIdStr, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .satisfies(ex -> {
                     ResponseStatusException e = (ResponseStatusException) ex;
@@ -148,7 +180,7 @@ class ReportServiceTest {
                 })
                 .hasMessageContaining("К отчёту было прикреплено фото, хотя эта привычка не подразумевает фотоотчёты");
 
-        verify(reportRepository, never()).save(any());
+        verify(reportRepository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
     }
 
     @Test
@@ -166,9 +198,7 @@ class ReportServiceTest {
 
         when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
 
-        when(reportRepository.existsByHabitIdAndDate(habitId, request.getDate())).thenReturn(false);
-
-        assertThatThrownBy(() -> underTest.createReport(request, userIdStr))
+        assertThatThrownBy(() -> underTest.createReport(request, userIdStr, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .satisfies(ex -> {
                     ResponseStatusException e = (ResponseStatusException) ex;
@@ -176,7 +206,7 @@ class ReportServiceTest {
                 })
                 .hasMessageContaining("Этот день ещё не наступил");
 
-        verify(reportRepository, never()).save(any());
+        verify(reportRepository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
     }
 
     @Test
@@ -194,13 +224,95 @@ class ReportServiceTest {
 
         when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
 
+        // Отчет за этот день уже есть (создан без ключа или с другим ключом) - вставка ничего не возвращает
+        when(reportIdGenerator.nextId()).thenReturn(100L);
+
+        when(reportRepository.insertIfAbsent(100L, userId, habitId, request.getDate(), null, "other-key")).thenReturn(Optional.empty());
+
+        when(reportRepository.findByHabitIdAndDate(habitId, request.getDate())).thenReturn(Optional.of(Report.builder()
+                .id(90L)
+                .userId(userId)
+                .habitId(habitId)
+                .date(request.getDate())
+                .idempotencyKey("first-key")
+                .build()));
+
+        assertThatThrownBy(() -> underTest.createReport(request, userIdStr, "other-key"))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessage("Эта привычка уже отмечена как выполненная в указанный день");
+
+        verify(reportRepository, never()).existsByHabitIdAndDate(any(), any());
+        verify(nearCacheManager, never()).invalidate(any(), any());
+    }
+
+    @Test
+    void failCreateReportWithSameIdempotencyKeyButOtherPhoto() {
+        Long habitId = 1L;
+
+        ReportCreationRequest request = ReportCreationRequest.builder()
+                .habitId(habitId)
+                .date(LocalDate.of(2025, 3, 20))
+                .photoUrl("https://github.com/other")
+                .build();
+
+        String userIdStr = "2";
+        Long userId = 2L;
+        String idempotencyKey = "3f1c2a9e-5d8b-4e47-9b0a-7c6d5e4f3a21";
+
+        when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
+
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(true);
+
+        when(reportIdGenerator.nextId()).thenReturn(100L);
+
+        // Первый запрос с этим ключом создал отчет с другим фото, поэтому БД не считает этот запрос его повтором
+        when(reportRepository.insertIfAbsent(100L, userId, habitId, request.getDate(), "https://github.com/other", idempotencyKey))
+                .thenReturn(Optional.empty());
+
+        when(reportRepository.findByHabitIdAndDate(habitId, request.getDate())).thenReturn(Optional.of(Report.builder()
+                .id(90L)
+                .userId(userId)
+                .habitId(habitId)
+                .date(request.getDate())
+                .photoUrl("https://github.com/")
+                .idempotencyKey(idempotencyKey)
+                .build()));
+
+        assertThatThrownBy(() -> underTest.createReport(request, userIdStr, idempotencyKey))
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(ex -> {
+                    ResponseStatusException e = (ResponseStatusException) ex;
+                    assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+                });
+
+        verify(nearCacheManager, never()).invalidate(any(), any());
+    }
+
+    @Test
+    void failCreateReportThatHasAlreadyBeenCreatedEvenWithPhotoWhenPhotoIsNotAllowed() {
+        Long habitId = 1L;
+
+        ReportCreationRequest request = ReportCreationRequest.builder()
+                .habitId(habitId)
+                .date(LocalDate.of(2025, 3, 20))
+                .photoUrl("https://github.com/")
+                .build();
+
+        String userIdStr = "2";
+        Long userId = 2L;
+
+        when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(true));
+
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(false);
+
         when(reportRepository.existsByHabitIdAndDate(habitId, request.getDate())).thenReturn(true);
 
-        assertThatThrownBy(() -> underTest.createReport(request, userIdStr))
+        // Дубликат получает 409, как и до перехода на INSERT ... ON CONFLICT, а не 400 из-за фото
+        assertThatThrownBy(() -> underTest.createReport(request, userIdStr, null))
                 .isInstanceOf(DataIntegrityViolationException.class)
                 .hasMessage("Эта привычка уже отмечена как выполненная в указанный день");
 
-        verify(reportRepository, never()).save(any());
+        verify(reportRepository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
     }
 
     @Test
@@ -218,7 +330,7 @@ class ReportServiceTest {
 
         when(habitClient.isCurrent(testInternalToken, habitId, userId, request.getDate())).thenReturn(ResponseEntity.ok(false));
 
-        assertThatThrownBy(() -> underTest.createReport(request, userIdStr))
+        assertThatThrownBy(() -> underTest.createReport(request, userIdStr, null))
                 .isInstanceOf(ResponseStatusException.class)
                 .satisfies(ex -> {
                     ResponseStatusException e = (ResponseStatusException) ex;
@@ -226,7 +338,7 @@ class ReportServiceTest {
                 })
                 .hasMessageContaining("Эта привычка не является текущей в указанный день для текущего пользователя");
 
-        verify(reportRepository, never()).save(any());
+        verify(reportRepository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
     }
 
     @Test
@@ -248,7 +360,7 @@ class ReportServiceTest {
                 .build();
 
         when(reportRepository.findByIdAndUserId(reportId, userId)).thenReturn(Optional.of(report));
-        when(habitPhotoAllowedCacheRepository.existsById(habitId)).thenReturn(true);
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(true);
 
         underTest.changeReportPhoto(reportId, request, userIdStr);
 
@@ -274,7 +386,7 @@ class ReportServiceTest {
                 .build();
 
         when(reportRepository.findByIdAndUserId(reportId, userId)).thenReturn(Optional.of(report));
-        when(habitPhotoAllowedCacheRepository.existsById(habitId)).thenReturn(true);
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(true);
 
         underTest.changeReportPhoto(reportId, request, userIdStr);
 
@@ -300,7 +412,7 @@ class ReportServiceTest {
                 .build();
 
         when(reportRepository.findByIdAndUserId(reportId, userId)).thenReturn(Optional.of(report));
-        when(habitPhotoAllowedCacheRepository.existsById(habitId)).thenReturn(true);
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(true);
 
         underTest.changeReportPhoto(reportId, request, userIdStr);
 
@@ -326,7 +438,7 @@ class ReportServiceTest {
                 .build();
 
         when(reportRepository.findByIdAndUserId(reportId, userId)).thenReturn(Optional.of(report));
-        when(habitPhotoAllowedCacheRepository.existsById(habitId)).thenReturn(true);
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(true);
 
         underTest.changeReportPhoto(reportId, request, userIdStr);
 
@@ -373,7 +485,7 @@ class ReportServiceTest {
                 .build();
 
         when(reportRepository.findByIdAndUserId(reportId, userId)).thenReturn(Optional.of(report));
-        when(habitPhotoAllowedCacheRepository.existsById(habitId)).thenReturn(false);
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(habitId)).thenReturn(false);
 
         assertThatThrownBy(() -> underTest.changeReportPhoto(reportId, request, userIdStr))
                 .isInstanceOf(ResponseStatusException.class)
@@ -391,11 +503,18 @@ class ReportServiceTest {
         Long userId = 3L;
         Long reportId = 2L;
 
-        when(reportRepository.existsByIdAndUserId(reportId, userId)).thenReturn(true);
+        Report report = Report.builder()
+                .id(reportId)
+                .userId(userId)
+                .habitId(7L)
+                .build();
+
+        when(reportRepository.findByIdAndUserId(reportId, userId)).thenReturn(Optional.of(report));
 
         underTest.deleteReport(reportId, userIdStr);
 
         verify(reportRepository).deleteById(reportId);
+        verify(nearCacheManager).invalidate("report-status", 7L);
     }
 
     @Test
@@ -404,7 +523,7 @@ class ReportServiceTest {
         Long userId = 3L;
         Long reportId = 2L;
 
-        when(reportRepository.existsByIdAndUserId(reportId, userId)).thenReturn(false);
+        when(reportRepository.findByIdAndUserId(reportId, userId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> underTest.deleteReport(reportId, userIdStr))
                 .isInstanceOf(ResponseStatusException.class)
@@ -417,4 +536,80 @@ class ReportServiceTest {
         verify(reportRepository, never()).deleteById(reportId);
     }
 
-}
\ No newline at end of file
+    @Test
+    void createReportsChecksAllReportsAtOnceAndInsertsOneBatch() {
+        String userIdStr = "2";
+        Long userId = 2L;
+        LocalDate date = LocalDate.of(2025, 3, 28);
+
+        List<ReportCreationRequest> requests = List.of(
+                ReportCreationRequest.builder().habitId(1L).date(date).build(),
+                ReportCreationRequest.builder().habitId(2L).date(date).build(),
+                ReportCreationRequest.builder().habitId(3L).date(date).build(),
+                ReportCreationRequest.builder().habitId(4L).date(date).photoUrl("https://github.com/").build(),
+                ReportCreationRequest.builder().habitId(1L).date(date).build(),
+                ReportCreationRequest.builder().habitId(5L).date(LocalDate.now().plusDays(1)).build()
+        );
+
+        // Повтор пары из запроса и день в будущем отсеиваются без запросов
+        when(habitClient.areCurrent(testInternalToken, userId, List.of(
+                HabitAtDayRequest.builder().habitId(1L).date(date).build(),
+                HabitAtDayRequest.builder().habitId(2L).date(date).build(),
+                HabitAtDayRequest.builder().habitId(3L).date(date).build(),
+                HabitAtDayRequest.builder().habitId(4L).date(date).build()
+        ))).thenReturn(ResponseEntity.ok(List.of(true, false, true, true)));
+
+        when(habitPhotoAllowedCacheRepository.isPhotoAllowed(4L)).thenReturn(false);
+
+        // Отчета о привычке 4 за этот день нет, поэтому она получает 400 из-за фото, а не 409
+        when(reportRepository.existsByHabitIdAndDate(4L, date)).thenReturn(false);
+
+        when(reportIdGenerator.nextIds(2)).thenReturn(List.of(100L, 101L));
+
+        // Отчет о привычке 3 за этот день уже есть, поэтому БД вставляет только отчет о привычке 1
+        when(reportRepository.insertAllIfAbsent(userId, new Long[]{100L, 101L}, new Long[]{1L, 3L},
+                new LocalDate[]{date, date}, new String[]{null, null})).thenReturn(List.of(100L));
+
+        List<ReportCreationResultResponse> results = underTest.createReports(requests, userIdStr);
+
+        assertThat(results.stream().map(ReportCreationResultResponse::getStatus).toList())
+                .isEqualTo(List.of(201, 403, 409, 400, 409, 400));
+        assertThat(results.get(0).getReportId()).isEqualTo(100L);
+        assertThat(results.get(2).getReportId()).isNull();
+
+        verify(habitClient, never()).isCurrent(any(), any(), any(), any());
+        verifyNoMoreInteractions(reportRepository);
+        verify(nearCacheManager).invalidate("report-status", 1L);
+        verifyNoMoreInteractions(nearCacheManager);
+    }
+
+    @Test
+    void createReportsDoesNotCallHabitWhenNothingToCheck() {
+        List<ReportCreationRequest> requests = List.of(
+                ReportCreationRequest.builder().habitId(1L).date(LocalDate.now().plusDays(1)).build()
+        );
+
+        List<ReportCreationResultResponse> results = underTest.createReports(requests, "2");
+
+        assertThat(results.get(0).getStatus()).isEqualTo(400);
+        verifyNoInteractions(habitClient, reportRepository);
+    }
+
+    @Test
+    void createReportsFailsWhenHabitAnsweredNotForAllHabits() {
+        LocalDate date = LocalDate.of(2025, 3, 28);
+        List<ReportCreationRequest> requests = List.of(
+                ReportCreationRequest.builder().habitId(1L).date(date).build(),
+                ReportCreationRequest.builder().habitId(2L).date(date).build()
+        );
+
+        when(habitClient.areCurrent(eq(testInternalToken), eq(2L), anyList())).thenReturn(ResponseEntity.ok(List.of(true)));
+
+        assertThatThrownBy(() -> underTest.createReports(requests, "2"))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Произошла внутренняя ошибка");
+
+        verify(reportRepository, never()).insertAllIfAbsent(any(), any(), any(), any(), any());
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.vladmikhayl.subscription.config;
+
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.subscription.entity.HabitCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class NearCacheConfig {
+
+    // Привычки из habits_cache (создатель и название) по id привычки: нужны почти в каждом запросе, а меняются
+    // только при удалении привычки. Сбрасываются на всех экземплярах subscription, когда тот экземпляр,
+    // который обработал событие habit-deleted, удалил привычку из habits_cache
+    @Bean
+    public NearCache<Long, HabitCache> habitsNearCache(NearCacheManager nearCacheManager) {
+        return nearCacheManager.create("subscription-habits");
+    }
+
+}
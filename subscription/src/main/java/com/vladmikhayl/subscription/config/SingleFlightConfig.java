@@ -0,0 +1,16 @@
+package com.vladmikhayl.subscription.config;
+
+import com.vladmikhayl.commons.loadbalancer.singleflight.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SingleFlightConfig {
+    // Бин, который схлопывает одновременные запросы логина одного и того же пользователя в один запрос к Auth
+    // (например, когда один подписчик попадает сразу в несколько списков, которые строятся параллельно)
+    @Bean
+    public SingleFlight<Long, String> userLoginSingleFlight(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("auth-get-login", meterRegistry);
+    }
+}
@@ -14,7 +14,7 @@ public class HabitCache {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "habits_cache_seq")
-    @SequenceGenerator(name = "habits_cache_seq", sequenceName = "habits_cache_seq", allocationSize = 1)
+    @SequenceGenerator(name = "habits_cache_seq", sequenceName = "habits_cache_seq", allocationSize = 50)
     private Long id;
 
     private Long habitId;
@@ -1,11 +1,14 @@
 package com.vladmikhayl.subscription.service;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
 import com.vladmikhayl.commons.dto.AcceptedSubscriptionCreatedEvent;
 import com.vladmikhayl.commons.dto.AcceptedSubscriptionDeletedEvent;
+import com.vladmikhayl.commons.loadbalancer.singleflight.SingleFlight;
 import com.vladmikhayl.subscription.dto.response.AcceptedSubscriptionForCreatorResponse;
 import com.vladmikhayl.subscription.dto.response.AcceptedSubscriptionForSubscriberResponse;
 import com.vladmikhayl.subscription.dto.response.UnprocessedRequestForCreatorResponse;
 import com.vladmikhayl.subscription.dto.response.UnprocessedRequestForSubscriberResponse;
+import com.vladmikhayl.subscription.entity.HabitCache;
 import com.vladmikhayl.subscription.entity.Subscription;
 import com.vladmikhayl.subscription.repository.HabitCacheRepository;
 import com.vladmikhayl.subscription.repository.SubscriptionRepository;
@@ -24,6 +27,7 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -41,6 +45,10 @@ public class SubscriptionService {
 
     private final AuthClient authClient;
 
+    private final SingleFlight<Long, String> userLoginSingleFlight;
+
+    private final NearCache<Long, HabitCache> habitsNearCache;
+
     private Long parseUserId(String userId) {
         try {
             return Long.parseLong(userId);
@@ -60,7 +68,7 @@ public class SubscriptionService {
             );
         }
 
-        Long habitCreatorId = habitCacheRepository.findByHabitId(habitId)
+        Long habitCreatorId = findHabit(habitId)
                 .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"))
                 .getCreatorId();
 
@@ -88,7 +96,7 @@ public class SubscriptionService {
             throw new DataIntegrityViolationException("Заявка уже была принята");
         }
 
-        Long habitCreatorId = habitCacheRepository.findByHabitId(subscription.getHabitId())
+        Long habitCreatorId = findHabit(subscription.getHabitId())
                 .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"))
                 .getCreatorId();
 
@@ -116,7 +124,7 @@ public class SubscriptionService {
         Subscription subscription = subscriptionRepository.findById(subscriptionId)
                 .orElseThrow(() -> new EntityNotFoundException("Заявка не найдена"));
 
-        Long habitCreatorId = habitCacheRepository.findByHabitId(subscription.getHabitId())
+        Long habitCreatorId = findHabit(subscription.getHabitId())
                 .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"))
                 .getCreatorId();
 
@@ -167,7 +175,7 @@ public class SubscriptionService {
     public List<UnprocessedRequestForCreatorResponse> getHabitUnprocessedRequests(Long habitId, String userId) {
         Long userIdLong = parseUserId(userId);
 
-        Long habitCreatorId = habitCacheRepository.findByHabitId(habitId)
+        Long habitCreatorId = findHabit(habitId)
                 .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"))
                 .getCreatorId();
 
@@ -205,7 +213,7 @@ public class SubscriptionService {
     public List<AcceptedSubscriptionForCreatorResponse> getHabitAcceptedSubscriptions(Long habitId, String userId) {
         Long userIdLong = parseUserId(userId);
 
-        Long habitCreatorId = habitCacheRepository.findByHabitId(habitId)
+        Long habitCreatorId = findHabit(habitId)
                 .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"))
                 .getCreatorId();
 
@@ -225,22 +233,30 @@ public class SubscriptionService {
                 .toList();
     }
 
+    private Optional<HabitCache> findHabit(Long habitId) {
+        return Optional.ofNullable(habitsNearCache.get(habitId,
+                () -> habitCacheRepository.findByHabitId(habitId).orElse(null)));
+    }
+
     private String getHabitName(Long habitId) {
-        return habitCacheRepository.findByHabitId(habitId)
+        return findHabit(habitId)
                 .orElseThrow(() -> new EntityNotFoundException("Привычка не найдена"))
                 .getHabitName();
     }
 
+    // Одновременные запросы логина одного и того же пользователя уходят в Auth одним запросом
     private String getLoginOrThrow(Long userId) {
-        try {
-            return authClient.getUserLogin(internalToken, userId).getBody();
-        } catch (FeignException.ServiceUnavailable e) {
-            log.error("Микросервис Auth недоступен");
-            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
-        } catch (FeignException e) {
-            log.error("Микросервис Auth вернул ошибку");
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
-        }
+        return userLoginSingleFlight.execute(userId, () -> {
+            try {
+                return authClient.getUserLogin(internalToken, userId).getBody();
+            } catch (FeignException.ServiceUnavailable e) {
+                log.error("Микросервис Auth недоступен");
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Произошла внутренняя ошибка");
+            } catch (FeignException e) {
+                log.error("Микросервис Auth вернул ошибку");
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Произошла внутренняя ошибка");
+            }
+        });
     }
 
 }
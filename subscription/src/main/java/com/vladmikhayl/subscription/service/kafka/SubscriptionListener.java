@@ -1,5 +1,6 @@
 package com.vladmikhayl.subscription.service.kafka;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
 import com.vladmikhayl.commons.dto.HabitCreatedEvent;
 import com.vladmikhayl.commons.dto.HabitDeletedEvent;
 import com.vladmikhayl.subscription.entity.HabitCache;
@@ -20,6 +21,8 @@ public class SubscriptionListener {
 
     private final SubscriptionRepository subscriptionRepository;
 
+    private final NearCache<Long, HabitCache> habitsNearCache;
+
     @KafkaListener(topics = "habit-created", groupId = "subscription-group")
     public void listen(HabitCreatedEvent event) {
         log.info("Получено событие: создана привычка {}", event.habitId());
@@ -46,6 +49,8 @@ public class SubscriptionListener {
 
         log.info("Из таблицы habits_cache удалена привычка {}", habitId);
 
+        habitsNearCache.invalidate(habitId);
+
         subscriptionRepository.deleteByHabitId(habitId);
 
         log.info("Удалены все подписки/заявки на привычку {} (если они существовали)", habitId);
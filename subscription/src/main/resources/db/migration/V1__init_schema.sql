@@ -0,0 +1,21 @@
+-- Исходная схема (та же, что раньше создавал Hibernate при ddl-auto: create-drop)
+
+CREATE SEQUENCE subscription_seq START WITH 1 INCREMENT BY 1;
+
+CREATE SEQUENCE habits_cache_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE subscriptions (
+    id            BIGINT  NOT NULL,
+    habit_id      BIGINT  NOT NULL,
+    subscriber_id BIGINT  NOT NULL,
+    is_accepted   BOOLEAN NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE habits_cache (
+    id         BIGINT NOT NULL,
+    habit_id   BIGINT,
+    creator_id BIGINT,
+    habit_name VARCHAR(255),
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,11 @@
+-- Индексы под запросы SubscriptionRepository и HabitCacheRepository (проверяются в QueryPlanIntegrationTest)
+
+-- Подписаться на привычку можно только один раз (раньше это проверял только existsByHabitIdAndSubscriberId).
+-- Этот же индекс обслуживает findByHabitIdAndSubscriberId, а по первому столбцу - findAllByHabitId и deleteByHabitId
+ALTER TABLE subscriptions ADD CONSTRAINT subscriptions_habit_id_subscriber_id_key UNIQUE (habit_id, subscriber_id);
+
+-- findAllBySubscriberId
+CREATE INDEX subscriptions_subscriber_id_idx ON subscriptions (subscriber_id);
+
+-- findByHabitId и deleteByHabitId
+CREATE INDEX habits_cache_habit_id_idx ON habits_cache (habit_id);
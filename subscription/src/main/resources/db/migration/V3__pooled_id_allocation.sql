@@ -0,0 +1,5 @@
+-- Подписки и кэш привычек (заполняется по событиям habit-created) получают ID блоками по 50,
+-- поэтому вставка больше не делает отдельный запрос nextval на каждую строку
+ALTER SEQUENCE subscription_seq INCREMENT BY 50;
+
+ALTER SEQUENCE habits_cache_seq INCREMENT BY 50;
@@ -0,0 +1,96 @@
+package com.vladmikhayl.subscription.integration;
+
+import com.vladmikhayl.subscription.FeignClientTestConfig;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Проверяет, что на схеме из миграций Flyway ни один частый запрос SubscriptionRepository и HabitCacheRepository
+// не читает таблицу целиком. SQL здесь повторяет тот, что Hibernate генерирует для методов репозиториев
+@SpringBootTest
+@ActiveProfiles("test") // чтобы CommandLineRunner в коде Application не выполнялся
+@TestPropertySource(properties = {
+        // чтобы Спринг не пытался использовать конфиг-сервер и Эврику
+        "spring.config.location=classpath:/application-test.yml",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false"
+})
+@Transactional // чтобы после теста сгенерированные данные откатывались обратно
+// чтобы создалась встроенная Кафка, которая не будет отправлять сообщения на реальные микросервисы
+@EmbeddedKafka(partitions = 1, topics = {"accepted-subscription-created", "accepted-subscription-deleted"})
+@Import(FeignClientTestConfig.class) // импортируем конфиг, где мы создали замоканный бин Feign-клиента
+public class QueryPlanIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public static void setUp() {
+        // Явным образом получаем контейнер Postgres (если он еще не создавался, то в этот момент создастся его синглтон)
+        TestPostgresContainer.getInstance();
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        // Задаем настройки для БД, используя синглтон контейнера Postgres
+        TestPostgresContainer container = TestPostgresContainer.getInstance();
+        registry.add("spring.datasource.url", container::getJdbcUrl);
+        registry.add("spring.datasource.username", container::getUsername);
+        registry.add("spring.datasource.password", container::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @BeforeEach
+    void seed() {
+        // 50 тысяч привычек, у каждой четыре подписки от разных пользователей (всего 20 тысяч подписчиков)
+        jdbcTemplate.execute("""
+                INSERT INTO habits_cache (id, habit_id, creator_id, habit_name)
+                SELECT nextval('habits_cache_seq'), habit, habit % 10000, 'Привычка ' || habit
+                FROM generate_series(1, 50000) habit
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO subscriptions (id, habit_id, subscriber_id, is_accepted)
+                SELECT nextval('subscription_seq'), habit, (habit * 7 + n) % 20000, n % 2 = 0
+                FROM generate_series(1, 50000) habit, generate_series(1, 4) n
+                """);
+        // Без свежей статистики планировщик не знает, сколько в таблицах строк
+        jdbcTemplate.execute("ANALYZE habits_cache");
+        jdbcTemplate.execute("ANALYZE subscriptions");
+    }
+
+    @Test
+    void hotQueriesDoNotUseSeqScan() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("findAllBySubscriberId", "SELECT s.* FROM subscriptions s WHERE s.subscriber_id = 42");
+        queries.put("findAllByHabitId / deleteByHabitId", "SELECT s.* FROM subscriptions s WHERE s.habit_id = 10042");
+        queries.put("findByHabitIdAndSubscriberId", """
+                SELECT s.* FROM subscriptions s WHERE s.habit_id = 10042 AND s.subscriber_id = 10295""");
+        queries.put("existsByHabitIdAndSubscriberId", """
+                SELECT s.id FROM subscriptions s WHERE s.habit_id = 10042 AND s.subscriber_id = 10295
+                FETCH FIRST 1 ROWS ONLY""");
+        queries.put("HabitCacheRepository.findByHabitId / deleteByHabitId",
+                "SELECT c.* FROM habits_cache c WHERE c.habit_id = 10042");
+
+        SoftAssertions.assertSoftly(softly -> queries.forEach((method, sql) ->
+                softly.assertThat(explain(sql)).as(method).doesNotContain("Seq Scan")));
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+}
@@ -1,7 +1,11 @@
 package com.vladmikhayl.subscription.service;
 
+import com.vladmikhayl.commons.cache.nearcache.NearCache;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheManager;
+import com.vladmikhayl.commons.cache.nearcache.NearCacheProperties;
 import com.vladmikhayl.commons.dto.AcceptedSubscriptionCreatedEvent;
 import com.vladmikhayl.commons.dto.AcceptedSubscriptionDeletedEvent;
+import com.vladmikhayl.commons.loadbalancer.singleflight.SingleFlight;
 import com.vladmikhayl.subscription.dto.response.AcceptedSubscriptionForCreatorResponse;
 import com.vladmikhayl.subscription.dto.response.AcceptedSubscriptionForSubscriberResponse;
 import com.vladmikhayl.subscription.dto.response.UnprocessedRequestForCreatorResponse;
@@ -12,12 +16,14 @@ import com.vladmikhayl.subscription.repository.HabitCacheRepository;
 import com.vladmikhayl.subscription.repository.SubscriptionRepository;
 import com.vladmikhayl.subscription.service.feign.AuthClient;
 import com.vladmikhayl.subscription.service.kafka.SubscriptionEventProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -25,6 +31,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Clock;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +57,15 @@ class SubscriptionServiceTest {
     @Mock
     private SubscriptionEventProducer subscriptionEventProducer;
 
+    @Spy
+    private SingleFlight<Long, String> userLoginSingleFlight = new SingleFlight<>("auth-get-login", new SimpleMeterRegistry());
+
+    // Настоящий near-cache без Kafka (инвалидации никуда не отправляются), свой на каждый тест
+    @Spy
+    private NearCache<Long, HabitCache> habitsNearCache = new NearCacheManager(
+            new NearCacheProperties(), invalidation -> {}, new SimpleMeterRegistry(), Clock.systemUTC())
+            .create("subscription-habits");
+
     @InjectMocks
     private SubscriptionService underTest;
 